@@ -0,0 +1,128 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p> Runs the PAM and PAL algorithms by name ({@link SweepSpec#ALGORITHMS}), one at a time or all at the same time
+ * on one data center. A concurrent run freezes the data center into a read-only copy ({@link DataCenter#snapshot()})
+ * and submits every algorithm as a task of a fixed size pool. Each task has its own PAM or PAL object and returns its
+ * {@link Placement} and cost instead of keeping them in fields, so the tasks write nothing they share.</p>
+ * <p>The initial cost and PLAN do not move the pairs, their placement is a copy of the current one.</p>
+ */
+public final class AlgorithmRunner {
+    // the algorithms may already share a worker pool, so each partitioned solver only gets a few threads
+    static final int PARTITION_THREADS = 2;
+    static final int PARTITION_REPAIRS = 1000;
+    static final long LOCAL_SEARCH_MILLIS = 200;
+    static final int TOP_K_CLASSES = 8;
+    static final int TOP_K_SAMPLES = 4;
+    static final int COMPRESSION_BANDS = 16;
+
+    private AlgorithmRunner() {}
+
+    /**
+     * Run one algorithm on a data center
+     * @param algorithm - name of the algorithm, one of {@link SweepSpec#ALGORITHMS}
+     * @param dataCenter - data center, not changed
+     * @return placement given by the algorithm, with its total cost
+     */
+    public static Placement run(String algorithm, DataCenter dataCenter) {
+        return run(algorithm, dataCenter, Deadline.NONE);
+    }
+
+    /**
+     * Run one algorithm on a data center until a deadline. PAM, PLAN and PAL stop at the deadline and place the
+     * pairs left with {@link AnytimeFallback}, the local searches stop at the deadline, the other algorithms run
+     * to completion.
+     * @param algorithm - name of the algorithm, one of {@link SweepSpec#ALGORITHMS}
+     * @param dataCenter - data center, not changed
+     * @param deadline - time limit of the run
+     * @return placement given by the algorithm, with its total cost and the number of pairs processed in time
+     */
+    public static Placement run(String algorithm, DataCenter dataCenter, Deadline deadline) {
+        switch (algorithm) {
+            case "initial":
+                return withCost(dataCenter, new PAM(dataCenter).initialCommunicationCostOfDatacenter());
+            case "pamUnordered":
+                return new PAM(dataCenter).migrateUnordered(deadline);
+            case "pamTopK": {
+                PAM pam = new PAM(dataCenter);
+                pam.setApproximation(TOP_K_CLASSES, TOP_K_SAMPLES, 1);
+                return pam.migrateUnordered(deadline);
+            }
+            case "plan":
+                return new PAM(dataCenter).evaluatePLAN(deadline);
+            case "palOrdered":
+                return new PAL(dataCenter).placeInOrdered(deadline);
+            case "trafficAwareOrdered":
+                return new PAL(dataCenter).placeTrafficAwareOrdered(deadline);
+            case "palUnordered":
+                return new PAL(dataCenter).placeUnordered(deadline);
+            case "trafficAwareUnordered":
+                return new PAL(dataCenter).placeTrafficAwareUnordered(deadline);
+            case "pamPartitioned":
+                return PartitionedPlacement.migrateUnordered(dataCenter, PARTITION_THREADS, PARTITION_REPAIRS);
+            case "palPartitioned":
+                return PartitionedPlacement.placeUnordered(dataCenter, false, PARTITION_THREADS);
+            case "pamLocalSearch": {
+                Placement before = Placement.of(dataCenter.getVM_PM(), dataCenter.getNumVMPairs());
+                Placement placement = HierarchicalPlacement.migrateUnordered(dataCenter, deadline);
+                new LocalSearch(dataCenter, before, PARTITION_THREADS,
+                        Math.min(LOCAL_SEARCH_MILLIS, deadline.remainingMillis()), Long.MAX_VALUE).improve(placement);
+                return placement;
+            }
+            case "palLocalSearch": {
+                Placement placement = HierarchicalPlacement.placeUnordered(dataCenter, false, deadline);
+                new LocalSearch(dataCenter, null, PARTITION_THREADS,
+                        Math.min(LOCAL_SEARCH_MILLIS, deadline.remainingMillis()), Long.MAX_VALUE).improve(placement);
+                return placement;
+            }
+            case "pamCompressed":
+                return CompressedWorkload.forMigration(dataCenter, COMPRESSION_BANDS).migrateUnordered();
+            case "palCompressed":
+                return CompressedWorkload.forPlacement(dataCenter, COMPRESSION_BANDS).placeUnordered();
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+
+    private static Placement withCost(DataCenter dataCenter, double cost) {
+        Placement placement = dataCenter.getPlacement().copy();
+        placement.setCost(cost);
+        return placement;
+    }
+
+    /**
+     * Run algorithms at the same time on a read-only snapshot of a data center
+     * @param dataCenter - data center, a snapshot of it is taken unless it is one already
+     * @param algorithms - names of the algorithms
+     * @param threads - size of the worker pool
+     * @return placement of each algorithm, in the order of the names
+     * @throws InterruptedException if the caller is interrupted while waiting for the algorithms
+     * @throws IllegalStateException if an algorithm fails, with the failure as its cause
+     */
+    public static Map<String, Placement> runAll(DataCenter dataCenter, List<String> algorithms, int threads)
+            throws InterruptedException {
+        DataCenter snapshot = dataCenter.isFrozen() ? dataCenter : dataCenter.snapshot();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Map<String, Future<Placement>> running = new LinkedHashMap<>();
+            for (String algorithm : algorithms) running.put(algorithm, pool.submit(() -> run(algorithm, snapshot)));
+            Map<String, Placement> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Placement>> entry : running.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(entry.getKey() + " failed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * <p> Fast placement of the virtual machine pairs an algorithm did not process before its {@link Deadline}. A pair
+ * stays on its current machines if they still have room. Otherwise the VM and the VMP go together on the first
+ * machine with room, from the POD of their current machine, or on two machines if no machine has room for both. A
+ * search with {@link FeasibilityIndex} skips full edge switches and PODs, so the fallback takes O(numVMPairs) in
+ * practice.</p>
+ */
+public final class AnytimeFallback {
+
+    private AnytimeFallback() {}
+
+    /**
+     * Place the pairs of an algorithm that ran out of time
+     * @param dataCenter - data center
+     * @param placement - placement of the algorithm: the processed pairs are on their new machines, the others on
+     *                  their current machines (migration) or not placed (placement); updated by the method
+     * @param order - pairs in the order of the algorithm, null for the order of their index
+     * @param from - position in the order of the first pair not processed
+     * @param before - placement before the migration, null for a placement from scratch
+     * @param model - resources of the physical machines
+     * @param policy - policy of the route cost
+     * @return communication cost of the pairs placed by the fallback, with their migration cost if they moved
+     */
+    public static double place(DataCenter dataCenter, Placement placement, int[] order, int from, Placement before,
+                               ResourceModel model, OnlinePlacementService.Policy policy) {
+        int pmPerPod = dataCenter.numPM() / dataCenter.getNumPods();
+        int numVMPairs = placement.size();
+        boolean[] remaining = new boolean[numVMPairs];
+        for (int t = from; t < numVMPairs; t++) remaining[order == null ? t : order[t]] = true;
+        FeasibilityIndex available = new FeasibilityIndex(dataCenter.getNumPods(), model);
+        for (int pair = 0; pair < numVMPairs; pair++) {
+            if (remaining[pair] || !placement.isPlaced(pair)) continue;
+            available.take(placement.getVM(pair), ResourceModel.vm(pair));
+            available.take(placement.getVMP(pair), ResourceModel.vmp(pair));
+        }
+        double cost = 0;
+        for (int t = from; t < numVMPairs; t++) {
+            int pair = order == null ? t : order[t];
+            int vm = ResourceModel.vm(pair), vmp = ResourceModel.vmp(pair);
+            int u = before == null ? -1 : before.getVM(pair), w = before == null ? -1 : before.getVMP(pair);
+            int x, y;
+            if (u >= 0 && (u == w ? available.fits(u, vm, vmp) : available.fits(u, vm) && available.fits(w, vmp))) {
+                x = u;
+                y = w;
+            } else {
+                int start = u < 0 ? 0 : u - u % pmPerPod;
+                x = y = firstFit(available, start, vm, vmp);
+                if (x < 0) {
+                    x = firstFit(available, start, vm, -1);
+                    if (x >= 0) available.take(x, vm);
+                    y = firstFit(available, w < 0 ? 0 : w - w % pmPerPod, vmp, -1);
+                    if (x >= 0) available.release(x, vm);
+                }
+                if (x < 0 || y < 0) {   // no room left: the pair stays where it is, or is not placed
+                    x = u;
+                    y = w;
+                }
+            }
+            if (x < 0) continue;
+            available.take(x, vm);
+            available.take(y, vmp);
+            placement.place(pair, x, y);
+            cost += dataCenter.getCommunicationFre()[pair] * (policy == OnlinePlacementService.Policy.ORDERED
+                    ? dataCenter.getOrderedRouteCost(pair, x, y) : dataCenter.getRouteCost(pair, x, y));
+            if (u >= 0 && (x != u || y != w))
+                cost += dataCenter.getMigrationCoef() * (dataCenter.getDistance(u, x) + dataCenter.getDistance(w, y));
+        }
+        return cost;
+    }
+
+    /**
+     * First machine with room from a machine, then from the first machine
+     */
+    private static int firstFit(FeasibilityIndex available, int start, int vm, int otherVm) {
+        int pm = available.nextFit(start, vm, otherVm);
+        return pm >= 0 || start == 0 ? pm : available.nextFit(0, vm, otherVm);
+    }
+}
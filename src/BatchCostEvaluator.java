@@ -0,0 +1,240 @@
+import java.util.stream.IntStream;
+
+/**
+ * <p> Communication and migration cost of whole placements given as int arrays of physical machines, one entry
+ * per virtual machine pair, with the communication frequencies as an int array. The costs are read from flat
+ * tables instead of hash tables with "VM" + i keys:</p>
+ * <ul>
+ *     <li>ordered policy: distance from every physical machine to the first and to the last middle box;</li>
+ *     <li>un-ordered policy: route per pair of PODs ({@link PodRouteTable}), k * k values that stay in cache;</li>
+ *     <li>migration: distance between two physical machines of the fat tree (0, 2, 4 or 6), from their edge switch
+ *     and POD.</li>
+ * </ul>
+ * <p>The sums are unrolled by four with independent accumulators, so the loads of consecutive pairs overlap and a
+ * sum over millions of pairs is bound by memory bandwidth. Every pair must be placed (no host -1).</p>
+ * <p>When the pairs have different service chains ({@link ChainRegistry}), the tables are kept per POD for every
+ * distinct chain and each pair reads the tables of its chain; the evaluator is built again by
+ * {@link DataCenter#getCostEvaluator()} when the chains change.</p>
+ */
+public class BatchCostEvaluator {
+    private final int half;
+    private final int pmPerPod;
+    private final int numPods;
+    private final double[] ingress;
+    private final double[] egress;
+    private final double betweenMbs;
+    private final double[] podRoute;
+    private final double migrationCoef;
+    // per chain: distance from every POD to the first and last middle box, length of the chain, POD route
+    private final int[] chainOfPair;    // null when every pair has the chain of all middle boxes
+    private final int chainVersion;
+    private final double[] chainIngress;
+    private final double[] chainEgress;
+    private final double[] chainLength;
+    private final double[] chainRoute;
+
+    /**
+     * Build the tables of a data center
+     * @param dataCenter - data center
+     */
+    public BatchCostEvaluator(DataCenter dataCenter) {
+        this.numPods = dataCenter.getNumPods();
+        this.half = numPods / 2;
+        this.pmPerPod = half * half;
+        int numPM = dataCenter.numPM();
+        int first = dataCenter.getmBs_Switch().get("MB0");
+        int last = dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1));
+        this.ingress = new double[numPM];
+        this.egress = new double[numPM];
+        for (int pm = 0; pm < numPM; pm++) {
+            ingress[pm] = dataCenter.getDistance(pm, first);
+            egress[pm] = dataCenter.getDistance(pm, last);
+        }
+        this.betweenMbs = dataCenter.costBetweenMbsOrderPolicy();
+        PodRouteTable route = HierarchicalPlacement.podRoute(dataCenter);
+        this.podRoute = new double[numPods * numPods];
+        for (int a = 0; a < numPods; a++)
+            for (int b = 0; b < numPods; b++)
+                podRoute[a * numPods + b] = route.getPodRoute(a, b);
+        this.migrationCoef = dataCenter.getMigrationCoef();
+        ChainRegistry chains = dataCenter.getChains();
+        this.chainVersion = chains.getVersion();
+        this.chainOfPair = chains.isDefault() ? null : chains.chainOfPairs();
+        int numChains = chainOfPair == null ? 0 : chains.size();
+        this.chainIngress = new double[numChains * numPods];
+        this.chainEgress = new double[numChains * numPods];
+        this.chainLength = new double[numChains];
+        this.chainRoute = new double[numChains * numPods * numPods];
+        for (int c = 0; c < numChains; c++) {
+            ChainTable table = chains.table(c);
+            chainLength[c] = table.getOrderedLength();
+            for (int a = 0; a < numPods; a++) {
+                chainIngress[c * numPods + a] = table.getPodIngress(a);
+                chainEgress[c * numPods + a] = table.getPodEgress(a);
+                for (int b = 0; b < numPods; b++)
+                    chainRoute[(c * numPods + a) * numPods + b] = table.getUnorderedRoute().getPodRoute(a, b);
+            }
+        }
+    }
+
+    /**
+     * @param chains - service chains of the data center, null if never set
+     * @return true if the evaluator was built from these chains and they did not change since
+     */
+    boolean isCurrent(ChainRegistry chains) {
+        return chains == null ? chainOfPair == null : chains.getVersion() == chainVersion;
+    }
+
+    // ******************************************
+    // ******** ORDERED *************************
+    // ******************************************
+
+    /**
+     * Communication cost in ordered policy: fre * (d(VM, first middle box) + length between the middle boxes
+     * + d(VMP, last middle box)) summed over the pairs
+     * @param vmHost - physical machine of the VM of every pair
+     * @param vmpHost - physical machine of the VMP of every pair
+     * @param fre - communication frequency of every pair
+     * @return total communication cost
+     */
+    public double ordered(int[] vmHost, int[] vmpHost, int[] fre) {
+        if (chainOfPair != null) return orderedChains(vmHost, vmpHost, fre);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        long totalFre = 0;
+        int n = fre.length;
+        int p = 0;
+        for (; p + 3 < n; p += 4) {
+            s0 += fre[p] * (ingress[vmHost[p]] + egress[vmpHost[p]]);
+            s1 += fre[p + 1] * (ingress[vmHost[p + 1]] + egress[vmpHost[p + 1]]);
+            s2 += fre[p + 2] * (ingress[vmHost[p + 2]] + egress[vmpHost[p + 2]]);
+            s3 += fre[p + 3] * (ingress[vmHost[p + 3]] + egress[vmpHost[p + 3]]);
+            totalFre += (long) fre[p] + fre[p + 1] + fre[p + 2] + fre[p + 3];
+        }
+        for (; p < n; p++) {
+            s0 += fre[p] * (ingress[vmHost[p]] + egress[vmpHost[p]]);
+            totalFre += fre[p];
+        }
+        return (s0 + s1) + (s2 + s3) + betweenMbs * totalFre;
+    }
+
+    // ******************************************
+    // ******** UN-ORDERED **********************
+    // ******************************************
+
+    /**
+     * Communication cost in un-ordered policy: fre * route(VM, VMP) summed over the pairs
+     * @param vmHost - physical machine of the VM of every pair
+     * @param vmpHost - physical machine of the VMP of every pair
+     * @param fre - communication frequency of every pair
+     * @return total communication cost
+     */
+    public double unordered(int[] vmHost, int[] vmpHost, int[] fre) {
+        if (chainOfPair != null) return unorderedChains(vmHost, vmpHost, fre);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int n = fre.length;
+        int p = 0;
+        for (; p + 3 < n; p += 4) {
+            s0 += fre[p] * podRoute[vmHost[p] / pmPerPod * numPods + vmpHost[p] / pmPerPod];
+            s1 += fre[p + 1] * podRoute[vmHost[p + 1] / pmPerPod * numPods + vmpHost[p + 1] / pmPerPod];
+            s2 += fre[p + 2] * podRoute[vmHost[p + 2] / pmPerPod * numPods + vmpHost[p + 2] / pmPerPod];
+            s3 += fre[p + 3] * podRoute[vmHost[p + 3] / pmPerPod * numPods + vmpHost[p + 3] / pmPerPod];
+        }
+        for (; p < n; p++) s0 += fre[p] * podRoute[vmHost[p] / pmPerPod * numPods + vmpHost[p] / pmPerPod];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Un-ordered communication cost of many candidate placements, evaluated in parallel
+     * @param vmHosts - physical machine of the VM of every pair, for each candidate
+     * @param vmpHosts - physical machine of the VMP of every pair, for each candidate
+     * @param fre - communication frequency of every pair
+     * @return total communication cost of each candidate
+     */
+    public double[] unordered(int[][] vmHosts, int[][] vmpHosts, int[] fre) {
+        double[] costs = new double[vmHosts.length];
+        IntStream.range(0, vmHosts.length).parallel()
+                .forEach(c -> costs[c] = unordered(vmHosts[c], vmpHosts[c], fre));
+        return costs;
+    }
+
+    // ******************************************
+    // ******** SERVICE CHAINS ******************
+    // ******************************************
+
+    private double orderedChains(int[] vmHost, int[] vmpHost, int[] fre) {
+        double s0 = 0, s1 = 0;
+        int n = fre.length;
+        int p = 0;
+        for (; p + 1 < n; p += 2) {
+            int c0 = chainOfPair[p], c1 = chainOfPair[p + 1];
+            s0 += fre[p] * (chainIngress[c0 * numPods + vmHost[p] / pmPerPod] + chainLength[c0]
+                    + chainEgress[c0 * numPods + vmpHost[p] / pmPerPod]);
+            s1 += fre[p + 1] * (chainIngress[c1 * numPods + vmHost[p + 1] / pmPerPod] + chainLength[c1]
+                    + chainEgress[c1 * numPods + vmpHost[p + 1] / pmPerPod]);
+        }
+        for (; p < n; p++) {
+            int c = chainOfPair[p];
+            s0 += fre[p] * (chainIngress[c * numPods + vmHost[p] / pmPerPod] + chainLength[c]
+                    + chainEgress[c * numPods + vmpHost[p] / pmPerPod]);
+        }
+        return s0 + s1;
+    }
+
+    private double unorderedChains(int[] vmHost, int[] vmpHost, int[] fre) {
+        double s0 = 0, s1 = 0;
+        int n = fre.length;
+        int p = 0;
+        for (; p + 1 < n; p += 2) {
+            s0 += fre[p] * chainRoute[(chainOfPair[p] * numPods + vmHost[p] / pmPerPod) * numPods
+                    + vmpHost[p] / pmPerPod];
+            s1 += fre[p + 1] * chainRoute[(chainOfPair[p + 1] * numPods + vmHost[p + 1] / pmPerPod) * numPods
+                    + vmpHost[p + 1] / pmPerPod];
+        }
+        for (; p < n; p++)
+            s0 += fre[p] * chainRoute[(chainOfPair[p] * numPods + vmHost[p] / pmPerPod) * numPods
+                    + vmpHost[p] / pmPerPod];
+        return s0 + s1;
+    }
+
+    // ******************************************
+    // ******** MIGRATION ***********************
+    // ******************************************
+
+    /**
+     * Migration cost: migrationCoef * d(before, after) summed over the virtual machines
+     * @param before - physical machine of every virtual machine before the migration
+     * @param after - physical machine of every virtual machine after the migration
+     * @return total migration cost
+     */
+    public double migration(int[] before, int[] after) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int n = before.length;
+        int v = 0;
+        for (; v + 3 < n; v += 4) {
+            s0 += distance(before[v], after[v]);
+            s1 += distance(before[v + 1], after[v + 1]);
+            s2 += distance(before[v + 2], after[v + 2]);
+            s3 += distance(before[v + 3], after[v + 3]);
+        }
+        for (; v < n; v++) s0 += distance(before[v], after[v]);
+        return migrationCoef * (s0 + s1 + s2 + s3);
+    }
+
+    /**
+     * Un-ordered cost of a migration, communication after the migration plus migration of both VMs
+     * @param before - placement before the migration
+     * @param after - placement after the migration
+     * @param fre - communication frequency of every pair
+     * @return total cost
+     */
+    public double unorderedMigration(Placement before, Placement after, int[] fre) {
+        return unordered(after.vmHosts(), after.vmpHosts(), fre) + migration(before.vmHosts(), after.vmHosts())
+                + migration(before.vmpHosts(), after.vmpHosts());
+    }
+
+    private int distance(int from, int to) {
+        if (from == to) return 0;
+        if (from / half == to / half) return 2;
+        return from / pmPerPod == to / pmPerPod ? 4 : 6;
+    }
+}
@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p> Benchmarks of the library, run from the command line with <code>java RunApp &lt;benchmark&gt; args</code>.
+ * Each benchmark builds its data center, runs and prints its results; without its arguments it prints its usage.</p>
+ * <ul>
+ *     <li><code>online k requests threads [ORDERED|UNORDERED] [livePairs]</code>: {@link OnlineLoadGenerator}</li>
+ *     <li><code>middleboxes k numVMPairs [ORDERED|UNORDERED] [threads]</code>: {@link MiddleboxOptimizer}</li>
+ *     <li><code>linkLoad k numVMPairs linkCapacity [resources]</code>: {@link LinkLoad}</li>
+ *     <li><code>algorithms k numVMPairs [threads] [algorithm,algorithm,...]</code>: {@link AlgorithmRunner}</li>
+ *     <li><code>trials k numVMPairs trials [threads] [algorithm,algorithm,...]</code>: {@link TrialRunner}</li>
+ *     <li><code>failures k numVMPairs scenarios [failuresPerScenario]</code>: {@link FabricFailures}</li>
+ *     <li><code>topK k numVMPairs [K,K,...] [samples]</code>: {@link TopKMigration}</li>
+ *     <li><code>compressed k numVMPairs [bands] [resources]</code>: {@link CompressedWorkload}</li>
+ *     <li><code>whatIf k numVMPairs [queries] [pairsPerQuery]</code>: {@link WhatIfPlacement}</li>
+ * </ul>
+ */
+public final class Benchmarks {
+    private Benchmarks() {}
+
+    /**
+     * Run the benchmark named by the first argument
+     * @param args - name of the benchmark, then its arguments
+     * @return false if the first argument is not the name of a benchmark
+     * @throws InterruptedException if interrupted while waiting for the benchmark
+     */
+    public static boolean run(String[] args) throws InterruptedException {
+        if (args.length == 0) return false;
+        String[] rest = Arrays.copyOfRange(args, 1, args.length);
+        switch (args[0]) {
+            case "online":
+                online(rest);
+                return true;
+            case "middleboxes":
+                middleboxes(rest);
+                return true;
+            case "linkLoad":
+                linkLoad(rest);
+                return true;
+            case "algorithms":
+                algorithms(rest);
+                return true;
+            case "trials":
+                trials(rest);
+                return true;
+            case "failures":
+                failures(rest);
+                return true;
+            case "topK":
+                topK(rest);
+                return true;
+            case "compressed":
+                compressed(rest);
+                return true;
+            case "whatIf":
+                whatIf(rest);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // ******************************************
+    // ******** ONLINE PLACEMENT ****************
+    // ******************************************
+
+    /**
+     * Admit pairs from many request threads into an empty data center in large-scale mode and print the latency
+     * @param args - k requests threads [ORDERED|UNORDERED] [livePairs]
+     * @throws InterruptedException if interrupted while waiting for the requests
+     */
+    static void online(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.out.println("Usage: java RunApp online k requests threads [ORDERED|UNORDERED] [livePairs]");
+            return;
+        }
+        int k = Integer.parseInt(args[0]);
+        int requests = Integer.parseInt(args[1]);
+        int threads = Integer.parseInt(args[2]);
+        OnlinePlacementService.Policy policy = args.length > 3 ? OnlinePlacementService.Policy.valueOf(args[3])
+                : OnlinePlacementService.Policy.UNORDERED;
+        DataCenter dataCenter = new DataCenter(k, 20, 20, 3, 1, 1000, true);
+        int livePairs = args.length > 4 ? Integer.parseInt(args[4]) : dataCenter.numPM() * 20 / 4;
+        OnlinePlacementService service = new OnlinePlacementService(dataCenter, policy);
+        OnlineLoadGenerator generator = new OnlineLoadGenerator(service, dataCenter.getMaxCommunicationFre());
+        long start = System.nanoTime();
+        long[] latency = generator.run(requests, threads, livePairs);
+        OnlineLoadGenerator.report(latency, System.nanoTime() - start);
+        System.out.println("Pairs in the data center: " + service.getActivePairs() + "\t\tCost: "
+                + service.getActiveCost());
+    }
+
+    // ******************************************
+    // ******** MIDDLE BOXES ********************
+    // ******************************************
+
+    /**
+     * Optimize the switches of the middle boxes of a data center in large-scale mode and print the costs
+     * @param args - k numVMPairs [ORDERED|UNORDERED] [threads]
+     */
+    static void middleboxes(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java RunApp middleboxes k numVMPairs [ORDERED|UNORDERED] [threads]");
+            return;
+        }
+        int k = Integer.parseInt(args[0]);
+        OnlinePlacementService.Policy policy = args.length > 2 ? OnlinePlacementService.Policy.valueOf(args[2])
+                : OnlinePlacementService.Policy.UNORDERED;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        DataCenter dataCenter = new DataCenter(k, 20, 20, 3, Integer.parseInt(args[1]), 1000, true);
+        MiddleboxOptimizer optimizer = new MiddleboxOptimizer(dataCenter, policy, threads);
+        long start = System.nanoTime();
+        int[] switches = optimizer.optimize();
+        System.out.println("Cost with random middle boxes: " + optimizer.cost(dataCenter.mbSwitches()));
+        System.out.println("Cost with optimized middle boxes: " + optimizer.cost(switches) + "\t\tSwitches: "
+                + Arrays.toString(switches) + "\t\tCandidates: " + optimizer.getEvaluations() + "\t\tTime: "
+                + (System.nanoTime() - start) / 1e9 + " s");
+    }
+
+    // ******************************************
+    // ******** LINK LOADS **********************
+    // ******************************************
+
+    /**
+     * Compute the load of the links of a random data center in large-scale mode and print its percentiles
+     * @param args - k numVMPairs linkCapacity [resources]
+     */
+    static void linkLoad(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java RunApp linkLoad k numVMPairs linkCapacity [resources]");
+            return;
+        }
+        int numPods = Integer.parseInt(args[0]);
+        int numVMPairs = Integer.parseInt(args[1]);
+        double linkCapacity = Double.parseDouble(args[2]);
+        int resources = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        DataCenter dataCenter = new DataCenter(numPods, 1, resources, 3, numVMPairs, 1000, true);
+        Placement placement = dataCenter.getPlacement();
+        long start = System.nanoTime();
+        LinkLoad linkLoad = new LinkLoad(dataCenter, linkCapacity).compute(placement);
+        System.out.println("Link loads of " + numVMPairs + " pairs in " + (System.nanoTime() - start) / 1e6 + " ms");
+        linkLoad.printReport();
+    }
+
+    // ******************************************
+    // ******** ALGORITHMS **********************
+    // ******************************************
+
+    /**
+     * Run the algorithms one after the other, then at the same time on a snapshot, and print the costs and times
+     * @param args - k numVMPairs [threads] [algorithm,algorithm,...]
+     * @throws InterruptedException if interrupted while waiting for the algorithms
+     */
+    static void algorithms(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: java RunApp algorithms k numVMPairs [threads] [algorithm,algorithm,...]");
+            return;
+        }
+        int numPods = Integer.parseInt(args[0]);
+        int numVMPairs = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        List<String> algorithms = args.length > 3 ? Arrays.asList(args[3].split(",")) : SweepSpec.ALGORITHMS;
+        DataCenter snapshot = new DataCenter(numPods, 20, 20, 3, numVMPairs, 1000).snapshot();
+
+        long start = System.nanoTime();
+        Map<String, Placement> sequential = new LinkedHashMap<>();
+        for (String algorithm : algorithms) sequential.put(algorithm, AlgorithmRunner.run(algorithm, snapshot));
+        double sequentialMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        Map<String, Placement> concurrent = AlgorithmRunner.runAll(snapshot, algorithms, threads);
+        double concurrentMillis = (System.nanoTime() - start) / 1e6;
+
+        for (String algorithm : algorithms) {
+            System.out.println(String.format("%-22s %16.1f %16.1f", algorithm, sequential.get(algorithm).getCost(),
+                    concurrent.get(algorithm).getCost()));
+        }
+        System.out.println("One after the other: " + sequentialMillis + " ms, " + threads + " threads: "
+                + concurrentMillis + " ms");
+    }
+
+    // ******************************************
+    // ******** TRIALS **************************
+    // ******************************************
+
+    /**
+     * Run trials of a random data center and print the summary and the failures of each algorithm
+     * @param args - k numVMPairs trials [threads] [algorithm,algorithm,...]
+     * @throws InterruptedException if interrupted while waiting for the trials
+     */
+    static void trials(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.out.println("Usage: java RunApp trials k numVMPairs trials [threads] [algorithm,algorithm,...]");
+            return;
+        }
+        RunConfig config = new RunConfig(Integer.parseInt(args[0]), 20, 20, 3, Integer.parseInt(args[1]), 1000, 0);
+        int trials = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        List<String> algorithms = args.length > 4 ? Arrays.asList(args[4].split(","))
+                : Arrays.asList("initial", "pamUnordered", "plan", "palOrdered", "palUnordered");
+        long start = System.nanoTime();
+        Map<String, TrialRunner.Summary> summaries = new TrialRunner(config, algorithms, threads).run(trials, 1);
+        for (Map.Entry<String, TrialRunner.Summary> entry : summaries.entrySet()) {
+            System.out.println(String.format("%-22s %s", entry.getKey(), entry.getValue()));
+            for (String failure : entry.getValue().getFailureMessages())
+                System.out.println("    " + entry.getKey() + " failed, " + failure);
+        }
+        System.out.println(trials + " trials in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    // ******************************************
+    // ******** FAILURES ************************
+    // ******************************************
+
+    /**
+     * Evaluate random failure scenarios on one data center and print the cost of PAM and PAL in each
+     * @param args - k numVMPairs scenarios [failuresPerScenario]
+     */
+    static void failures(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java RunApp failures k numVMPairs scenarios [failuresPerScenario]");
+            return;
+        }
+        int numPods = Integer.parseInt(args[0]);
+        int scenarios = Integer.parseInt(args[2]);
+        int failures = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        DataCenter dataCenter = new DataCenter(numPods, 20, 20, 3, Integer.parseInt(args[1]), 1000);
+        long start = System.nanoTime();
+        FabricFailures intact = new FabricFailures(numPods);
+        System.out.println("Intact fabric: " + (System.nanoTime() - start) / 1e6 + " ms");
+        DataCenter healthy = dataCenter.withFailures(intact);
+        System.out.println(String.format("%-10s %16.1f %16.1f", "intact", AlgorithmRunner.run("pamUnordered",
+                healthy).getCost(), AlgorithmRunner.run("palUnordered", healthy).getCost()));
+        Random random = new Random(1);
+        long failNanos = 0, totalNanos = 0, searches = 0;
+        for (int s = 0; s < scenarios; s++) {
+            start = System.nanoTime();
+            FabricFailures scenario = intact.copy();
+            scenario.failRandom(failures, dataCenter.mbSwitches(), random);
+            failNanos += System.nanoTime() - start;
+            searches += scenario.getSearches();
+            DataCenter degraded = dataCenter.withFailures(scenario);
+            double pam = AlgorithmRunner.run("pamUnordered", degraded).getCost();
+            double pal = AlgorithmRunner.run("palUnordered", degraded).getCost();
+            totalNanos += System.nanoTime() - start;
+            System.out.println(String.format("%-10s %16.1f %16.1f", "scenario " + s, pam, pal));
+        }
+        System.out.println(String.format("%d scenarios: %.2f ms to fail and update the distances, %.2f ms with PAM "
+                        + "and PAL, %.1f searches per scenario", scenarios, failNanos / 1e6 / scenarios,
+                totalNanos / 1e6 / scenarios, (double) searches / scenarios));
+    }
+
+    // ******************************************
+    // ******** TOP-K MIGRATION *****************
+    // ******************************************
+
+    /**
+     * Print the quality report of the top-K migration on a data center with 3 middle boxes
+     * @param args - k numVMPairs [K,K,...] [samples]
+     */
+    static void topK(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java RunApp topK k numVMPairs [K,K,...] [samples]");
+            return;
+        }
+        int numPods = Integer.parseInt(args[0]);
+        int numVMPairs = Integer.parseInt(args[1]);
+        int[] topK = args.length > 2 ? Arrays.stream(args[2].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 2, 4, 8, 16, numPods * numPods};
+        int samples = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        DataCenter dataCenter = new DataCenter(numPods, 20, 20, 3, numVMPairs, 1000).snapshot();
+        System.out.print(TopKMigration.report(dataCenter, topK, samples, 1));
+    }
+
+    // ******************************************
+    // ******** COMPRESSED WORKLOAD *************
+    // ******************************************
+
+    /**
+     * Compress the workload of a large data center and compare the class solvers with
+     * {@link HierarchicalPlacement}
+     * @param args - k numVMPairs [bands] [resources]
+     */
+    static void compressed(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java RunApp compressed k numVMPairs [bands] [resources]");
+            return;
+        }
+        int numPods = Integer.parseInt(args[0]);
+        int numVMPairs = Integer.parseInt(args[1]);
+        int bands = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int resources = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        DataCenter dataCenter = new DataCenter(numPods, 20, resources, 3, numVMPairs, 1000, true);
+
+        long start = System.nanoTime();
+        CompressedWorkload migration = CompressedWorkload.forMigration(dataCenter, bands);
+        CompressedWorkload placement = CompressedWorkload.forPlacement(dataCenter, bands);
+        double groupMillis = (System.nanoTime() - start) / 1e6;
+        System.out.println(numVMPairs + " pairs: " + migration.getNumClasses() + " migration classes, "
+                + placement.getNumClasses() + " placement classes, grouped in " + groupMillis + " ms");
+
+        start = System.nanoTime();
+        double pam = HierarchicalPlacement.migrateUnordered(dataCenter).getCost();
+        double pamMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        double pamClasses = migration.migrateUnordered().getCost();
+        double pamClassesMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        double pal = HierarchicalPlacement.placeUnordered(dataCenter, false).getCost();
+        double palMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        double palClasses = placement.placeUnordered().getCost();
+        double palClassesMillis = (System.nanoTime() - start) / 1e6;
+        System.out.println(String.format("%-14s %16s %10s %16s %10s", "", "per pair", "ms", "per class", "ms"));
+        System.out.println(String.format("%-14s %16.1f %10.1f %16.1f %10.1f", "PAM unordered", pam, pamMillis,
+                pamClasses, pamClassesMillis));
+        System.out.println(String.format("%-14s %16.1f %10.1f %16.1f %10.1f", "PAL unordered", pal, palMillis,
+                palClasses, palClassesMillis));
+    }
+
+    // ******************************************
+    // ******** WHAT-IF QUERIES *****************
+    // ******************************************
+
+    /**
+     * Evaluate random what-if queries in parallel and compare with a sum over all the pairs
+     * @param args - k numVMPairs [queries] [pairsPerQuery]
+     */
+    static void whatIf(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java RunApp whatIf k numVMPairs [queries] [pairsPerQuery]");
+            return;
+        }
+        int numPods = Integer.parseInt(args[0]);
+        int numVMPairs = Integer.parseInt(args[1]);
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int moves = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        DataCenter dataCenter = new DataCenter(numPods, 20, 20, 3, numVMPairs, 1000, true);
+        long start = System.nanoTime();
+        WhatIfPlacement baseline = new WhatIfPlacement(dataCenter);
+        System.out.println("Baseline of " + numVMPairs + " pairs in " + (System.nanoTime() - start) / 1e6 + " ms");
+
+        Random random = new Random(1);
+        List<WhatIfPlacement.Delta> deltas = new ArrayList<>();
+        for (int q = 0; q < queries; q++) {
+            WhatIfPlacement.Delta delta = baseline.delta();
+            for (int m = 0; m < moves; m++)
+                delta.move(random.nextInt(numVMPairs), random.nextInt(dataCenter.numPM()),
+                        random.nextInt(dataCenter.numPM()));
+            deltas.add(delta);
+        }
+        start = System.nanoTime();
+        double[] costs = baseline.evaluate(deltas, OnlinePlacementService.Policy.UNORDERED);
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.println(queries + " queries of " + moves + " pairs in " + millis + " ms, "
+                + (long) (queries / millis * 60_000) + " per minute");
+
+        int checks = Math.min(queries, 10);
+        start = System.nanoTime();
+        double gap = 0;
+        for (int q = 0; q < checks; q++) {
+            Placement placement = deltas.get(q).toPlacement(OnlinePlacementService.Policy.UNORDERED);
+            double full = 0;
+            for (int pair = 0; pair < numVMPairs; pair++)
+                full += baseline.getDataCenter().getCommunicationFre()[pair]
+                        * baseline.getDataCenter().getRouteCost(pair, placement.getVM(pair), placement.getVMP(pair));
+            gap = Math.max(gap, Math.abs(full - costs[q]) / full);
+        }
+        System.out.println("Sum over all pairs: " + (System.nanoTime() - start) / 1e6 / checks
+                + " ms per query, largest relative difference " + gap);
+    }
+}
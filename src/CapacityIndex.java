@@ -0,0 +1,169 @@
+/**
+ * <p> Free slots of every physical machine with a summary per edge switch and per POD, so that the placement
+ * loops can find an available physical machine near another one without scanning all physical machines.
+ * Memory is O(numPM).</p>
+ * <p>The summaries count the physical machines that still have at least one free slot.</p>
+ */
+public class CapacityIndex {
+    private final int half;
+    private final int pmPerPod;
+    private final int numPods;
+    private final int[] available;
+    private final int[] edgeAvailable;
+    private final int[] podAvailable;
+    private final int[] podSlots;
+    private final int[] podCursor;
+
+    /**
+     * @param numPods - number of PODs of the fat tree
+     * @param available - free slots of each physical machine, it is copied
+     */
+    public CapacityIndex(int numPods, int[] available) {
+        this.numPods = numPods;
+        this.half = numPods / 2;
+        this.pmPerPod = half * half;
+        this.available = available.clone();
+        this.edgeAvailable = new int[numPods * half];
+        this.podAvailable = new int[numPods];
+        this.podSlots = new int[numPods];
+        this.podCursor = new int[numPods];
+        for (int pm = 0; pm < available.length; pm++) {
+            podSlots[pm / pmPerPod] += available[pm];
+            if (available[pm] > 0) {
+                edgeAvailable[pm / half]++;
+                podAvailable[pm / pmPerPod]++;
+            }
+        }
+        for (int p = 0; p < numPods; p++) podCursor[p] = p * pmPerPod;
+    }
+
+    /**
+     * Build the index where every physical machine has the same number of free slots
+     * @param numPods - number of PODs of the fat tree
+     * @param resources - free slots of each physical machine
+     * @return the index
+     */
+    public static CapacityIndex uniform(int numPods, int resources) {
+        int[] available = new int[numPods * numPods * numPods / 4];
+        java.util.Arrays.fill(available, resources);
+        return new CapacityIndex(numPods, available);
+    }
+
+    // ******************************************
+    // ******** UPDATE **************************
+    // ******************************************
+
+    /**
+     * Use one slot of a physical machine
+     * @param pm - index of the physical machine, it must have a free slot
+     */
+    public void take(int pm) {
+        if (available[pm] <= 0) throw new IllegalStateException("PM" + pm + " has no free slot");
+        available[pm]--;
+        podSlots[pm / pmPerPod]--;
+        if (available[pm] == 0) {
+            edgeAvailable[pm / half]--;
+            podAvailable[pm / pmPerPod]--;
+        }
+    }
+
+    /**
+     * Free one slot of a physical machine
+     * @param pm - index of the physical machine
+     */
+    public void release(int pm) {
+        available[pm]++;
+        podSlots[pm / pmPerPod]++;
+        if (available[pm] == 1) {
+            edgeAvailable[pm / half]++;
+            podAvailable[pm / pmPerPod]++;
+            if (pm < podCursor[pm / pmPerPod]) podCursor[pm / pmPerPod] = pm;
+        }
+    }
+
+    // ******************************************
+    // ******** QUERY ***************************
+    // ******************************************
+
+    public int available(int pm) {return available[pm];}
+
+    /**
+     * @param pod - index of the POD
+     * @return total free slots of the POD
+     */
+    public int podSlots(int pod) {return podSlots[pod];}
+
+    /**
+     * @param edge - index of the edge switch
+     * @return number of physical machines with a free slot under the edge switch
+     */
+    public int edgeAvailable(int edge) {return edgeAvailable[edge];}
+
+    public int getNumPods() {return numPods;}
+
+    /**
+     * Check whether a pair of virtual machines fits on two physical machines
+     * @param pm - physical machine of the VM
+     * @param pmPair - physical machine of the VMP
+     * @return true if both have a free slot, or the machine has two free slots when they are the same.
+     */
+    public boolean fits(int pm, int pmPair) {
+        return pm == pmPair ? available[pm] > 1 : available[pm] > 0 && available[pmPair] > 0;
+    }
+
+    /**
+     * Find the available physical machine of a POD closest to a given physical machine: the machine itself,
+     * then its edge switch, then the rest of the POD. Ties are broken by the lowest index.
+     * @param pm - physical machine to be close to
+     * @param pod - POD to search
+     * @param partner - physical machine already chosen for the other VM of the pair, it needs two free slots
+     *                to be chosen again, -1 if none
+     * @return index of the physical machine, or -1 if the POD has none available
+     */
+    public int nearest(int pm, int pod, int partner) {
+        if (pod != pm / pmPerPod) return firstAvailable(pod, partner);
+        if (hasSlot(pm, partner)) return pm;
+        int edge = pm / half;
+        int found = scanEdge(edge, partner);
+        if (found >= 0) return found;
+        for (int e = pod * half; e < (pod + 1) * half; e++) {
+            if (e == edge || edgeAvailable[e] == 0) continue;
+            found = scanEdge(e, partner);
+            if (found >= 0) return found;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the available physical machine of a POD with the lowest index
+     * @param pod - POD to search
+     * @param partner - physical machine already chosen for the other VM of the pair, -1 if none
+     * @return index of the physical machine, or -1 if the POD has none available
+     */
+    public int firstAvailable(int pod, int partner) {
+        if (podAvailable[pod] == 0) return -1;
+        int end = (pod + 1) * pmPerPod;
+        int cursor = podCursor[pod];
+        while (cursor < end && available[cursor] == 0) cursor++;  // machines before the cursor are all full
+        podCursor[pod] = cursor;
+        for (int edge = cursor / half; edge < end / half; edge++) {
+            if (edgeAvailable[edge] == 0) continue;
+            for (int pm = Math.max(cursor, edge * half); pm < (edge + 1) * half; pm++) {
+                if (hasSlot(pm, partner)) return pm;
+            }
+        }
+        return -1;
+    }
+
+    private int scanEdge(int edge, int partner) {
+        if (edgeAvailable[edge] == 0) return -1;
+        for (int pm = edge * half; pm < (edge + 1) * half; pm++) {
+            if (hasSlot(pm, partner)) return pm;
+        }
+        return -1;
+    }
+
+    private boolean hasSlot(int pm, int partner) {
+        return available[pm] > (pm == partner ? 1 : 0);
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p> Service chain of every virtual machine pair of a data center. Identical chains are interned: they get the same
+ * id and share one {@link ChainTable}, so the memory grows with the number of distinct chains, plus one int per
+ * pair. Chain 0 is the chain of all middle boxes, MB0 to MB(numMBs - 1), which every pair has by default.</p>
+ * <p>The order of the middle boxes only matters in ordered policy: chains with the same middle boxes in another
+ * order get their own id and ordered costs, and share the un-ordered tables, interned by
+ * {@link ServiceChain#unordered()}.</p>
+ * <p>The changes are made under the lock of the registry and increment the volatile version after they are made,
+ * so a thread that reads the version sees the chains of the pairs of that version.</p>
+ */
+public class ChainRegistry {
+    private final DataCenter dataCenter;
+    private final Map<ServiceChain, Integer> ids = new HashMap<>();
+    private final Map<ServiceChain, ChainTable> unordered = new HashMap<>();  // by ServiceChain#unordered()
+    private volatile ChainTable[] tables = new ChainTable[0];  // copied on write, read without a lock
+    private final int[] chainOfPair;
+    private volatile int version;   // number of changes of the chains of the pairs, written under the lock
+    private boolean frozen;         // the chains of the pairs cannot change, see DataCenter#snapshot
+
+    /**
+     * @param dataCenter - data center, with its middle boxes placed
+     */
+    public ChainRegistry(DataCenter dataCenter) {
+        this.dataCenter = dataCenter;
+        this.chainOfPair = new int[dataCenter.getNumVMPairs()];
+        intern(ServiceChain.all(dataCenter.getNumMBs()));
+    }
+
+    /**
+     * Copy of the chains of another data center with the same pairs, the ids of the chains do not change
+     * @param dataCenter - data center of the copy, with its middle boxes placed
+     * @param from - chains to copy
+     */
+    ChainRegistry(DataCenter dataCenter, ChainRegistry from) {
+        this.dataCenter = dataCenter;
+        this.chainOfPair = from.chainOfPair.clone();
+        for (int c = 0; c < from.size(); c++) intern(from.table(c).getChain());
+    }
+
+    /**
+     * Get the id of a chain, computing its table the first time the chain is seen
+     * @param chain - service chain
+     * @return id of the chain
+     */
+    public synchronized int intern(ServiceChain chain) {
+        Integer id = ids.get(chain);
+        if (id != null) return id;
+        ChainTable[] grown = Arrays.copyOf(tables, tables.length + 1);
+        grown[tables.length] = tableOf(chain);
+        ids.put(chain, tables.length);
+        tables = grown;
+        return grown.length - 1;
+    }
+
+    /**
+     * Compute the tables of all chains again, after the middle boxes moved. The ids of the chains do not change.
+     */
+    public synchronized void refresh() {
+        checkNotFrozen();
+        ChainTable[] refreshed = new ChainTable[tables.length];
+        unordered.clear();
+        for (int c = 0; c < refreshed.length; c++) refreshed[c] = tableOf(tables[c].getChain());
+        tables = refreshed;
+        version++;
+    }
+
+    /**
+     * Renumber the middle boxes of the chains for a middle box added or removed. Chain 0 stays the chain of all
+     * middle boxes; the other chains lose the removed middle box. Nothing is changed, see {@link #replace}.
+     * @param newIndex - entry m is the new index of MB m, -1 if it is removed
+     * @param numMBs - number of middle boxes after the change
+     * @return new chain of each id
+     * @throws IllegalStateException if a chain only has the removed middle box
+     */
+    synchronized ServiceChain[] renumbered(int[] newIndex, int numMBs) {
+        checkNotFrozen();
+        ServiceChain[] renumbered = new ServiceChain[tables.length];
+        renumbered[0] = ServiceChain.all(numMBs);
+        for (int c = 1; c < renumbered.length; c++) {
+            ServiceChain chain = tables[c].getChain();
+            int[] middleBoxes = new int[chain.size()];
+            int count = 0;
+            for (int i = 0; i < chain.size(); i++)
+                if (newIndex[chain.get(i)] >= 0) middleBoxes[count++] = newIndex[chain.get(i)];
+            if (count == 0)
+                throw new IllegalStateException("Service chain " + chain + " has no other middle box");
+            renumbered[c] = new ServiceChain(Arrays.copyOf(middleBoxes, count));
+        }
+        return renumbered;
+    }
+
+    /**
+     * Replace the chains after the middle boxes of the data center changed, and compute their tables again. Chains
+     * that became identical are merged. Pairs with chain 0 go through an added middle box, the others do not.
+     * @param renumbered - new chain of each id, from {@link #renumbered(int[], int)}
+     */
+    synchronized void replace(ServiceChain[] renumbered) {
+        checkNotFrozen();
+        ids.clear();
+        unordered.clear();
+        tables = new ChainTable[0];
+        int[] idOf = new int[renumbered.length];
+        for (int c = 0; c < renumbered.length; c++) idOf[c] = intern(renumbered[c]);
+        for (int pair = 0; pair < chainOfPair.length; pair++) chainOfPair[pair] = idOf[chainOfPair[pair]];
+        version++;
+    }
+
+    /**
+     * Set the chain of a virtual machine pair
+     * @param pair - index of the virtual machine pair
+     * @param chain - service chain of the pair
+     */
+    public synchronized void assign(int pair, ServiceChain chain) {
+        checkNotFrozen();
+        chainOfPair[pair] = intern(chain);
+        version++;
+    }
+
+    /**
+     * Give every pair a chain drawn at random from a catalog
+     * @param catalog - chains used by the tenants
+     * @param seed - seed of the random draw
+     */
+    public synchronized void assignRandom(List<ServiceChain> catalog, long seed) {
+        checkNotFrozen();
+        int[] idOf = new int[catalog.size()];
+        for (int c = 0; c < idOf.length; c++) idOf[c] = intern(catalog.get(c));
+        Random random = new Random(seed);
+        for (int pair = 0; pair < chainOfPair.length; pair++) chainOfPair[pair] = idOf[random.nextInt(idOf.length)];
+        version++;
+    }
+
+    /**
+     * @return number of changes of the chains of the pairs, to know if tables built from them are stale
+     */
+    public int getVersion() {return version;}
+
+    /**
+     * @param pair - index of the virtual machine pair
+     * @return id of the chain of the pair
+     */
+    public int chainOf(int pair) {return chainOfPair[pair];}
+
+    /**
+     * @return id of the chain of every pair, not a copy
+     */
+    public int[] chainOfPairs() {return chainOfPair;}
+
+    /**
+     * @param id - id of the chain
+     * @return table of the chain
+     */
+    public ChainTable table(int id) {return tables[id];}
+
+    /**
+     * @param pair - index of the virtual machine pair
+     * @return table of the chain of the pair
+     */
+    public ChainTable tableOf(int pair) {return table(chainOfPair[pair]);}
+
+    /**
+     * @return number of distinct chains
+     */
+    public int size() {return tables.length;}
+
+    /**
+     * @return true if every pair has the default chain of all middle boxes
+     */
+    public boolean isDefault() {
+        for (int id : chainOfPair) if (id != 0) return false;
+        return true;
+    }
+
+    /**
+     * Forbid any change of the chains of the pairs, new chains can still be interned
+     */
+    synchronized void freeze() {frozen = true;}
+
+    /**
+     * Compute the tables of a chain, with the un-ordered tables of a chain with the same middle boxes if there is
+     * one. The lock must be held.
+     */
+    private ChainTable tableOf(ServiceChain chain) {
+        ChainTable table = new ChainTable(dataCenter, chain, unordered.get(chain.unordered()));
+        unordered.putIfAbsent(chain.unordered(), table);
+        return table;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("The service chains of a data center snapshot cannot change");
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * <p> Costs of one service chain, computed once and shared by all the pairs with this chain.</p>
+ * <p>The middle boxes are on aggregation switches, so the distance from a physical machine to a middle box only
+ * depends on the POD of the machine, and the tables are per POD: the distance from every POD to the first and to
+ * the last middle box for the ordered policy, and the route between every pair of PODs through the middle boxes of
+ * the chain ({@link PodRouteTable}) for the un-ordered policy. Memory is O(k * k) per chain.</p>
+ * <p>With failures ({@link DataCenter#withFailures(FabricFailures)}) the machines of a POD differ, so the ordered
+ * distances are also kept per physical machine and the un-ordered route per pair of edge switches
+ * ({@link EdgeRouteTable}); the tables per POD are then those of the first machine of the POD.</p>
+ */
+public class ChainTable {
+    private final ServiceChain chain;
+    private final int pmPerPod;
+    private final int ingressSwitch;
+    private final int egressSwitch;
+    private final double orderedLength;
+    private final double[] podIngress;
+    private final double[] podEgress;
+    private final PodRouteTable unorderedRoute;
+    private final double[] pmIngress;   // with failures only, null otherwise
+    private final double[] pmEgress;
+    private final EdgeRouteTable edgeRoute;
+
+    /**
+     * Compute the tables of a chain
+     * @param dataCenter - data center, with its middle boxes placed
+     * @param chain - service chain, its middle boxes must exist in the data center
+     */
+    public ChainTable(DataCenter dataCenter, ServiceChain chain) {
+        this(dataCenter, chain, null);
+    }
+
+    /**
+     * Compute the tables of a chain, sharing the un-ordered tables of a chain with the same middle boxes
+     * @param dataCenter - data center, with its middle boxes placed
+     * @param chain - service chain, its middle boxes must exist in the data center
+     * @param sameMiddleBoxes - table of a chain with the same middle boxes in another order, null to compute the
+     *                        un-ordered tables
+     */
+    ChainTable(DataCenter dataCenter, ServiceChain chain, ChainTable sameMiddleBoxes) {
+        int numPods = dataCenter.getNumPods();
+        this.chain = chain;
+        this.pmPerPod = numPods * numPods / 4;
+        int[] allSwitches = dataCenter.mbSwitches();
+        int[] switches = new int[chain.size()];
+        for (int i = 0; i < chain.size(); i++) {
+            if (chain.get(i) >= allSwitches.length)
+                throw new IllegalArgumentException("No MB" + chain.get(i) + " in the data center");
+            switches[i] = allSwitches[chain.get(i)];
+        }
+        this.ingressSwitch = switches[0];
+        this.egressSwitch = switches[switches.length - 1];
+        double length = 0;
+        for (int i = 0; i < switches.length - 1; i++) length += dataCenter.getDistance(switches[i], switches[i + 1]);
+        this.orderedLength = length;
+        this.podIngress = new double[numPods];
+        this.podEgress = new double[numPods];
+        for (int p = 0; p < numPods; p++) {
+            podIngress[p] = dataCenter.getDistance(p * pmPerPod, ingressSwitch);
+            podEgress[p] = dataCenter.getDistance(p * pmPerPod, egressSwitch);
+        }
+        // the un-ordered walk only depends on the set of middle boxes
+        this.unorderedRoute = sameMiddleBoxes != null ? sameMiddleBoxes.unorderedRoute
+                : new PodRouteTable(numPods, dataCenter.getDistanceTable(), switches);
+        if (dataCenter.isDegraded()) {
+            int numPM = dataCenter.numPM();
+            this.pmIngress = new double[numPM];
+            this.pmEgress = new double[numPM];
+            for (int pm = 0; pm < numPM; pm++) {
+                pmIngress[pm] = dataCenter.getDistance(pm, ingressSwitch);
+                pmEgress[pm] = dataCenter.getDistance(pm, egressSwitch);
+            }
+            this.edgeRoute = sameMiddleBoxes != null ? sameMiddleBoxes.edgeRoute
+                    : new EdgeRouteTable(numPods, dataCenter.getDistanceTable(), switches);
+        } else {
+            this.pmIngress = null;
+            this.pmEgress = null;
+            this.edgeRoute = null;
+        }
+    }
+
+    public ServiceChain getChain() {return chain;}
+
+    /**
+     * @return index of the switch of the first middle box in the shortest path matrix
+     */
+    public int getIngressSwitch() {return ingressSwitch;}
+
+    /**
+     * @return index of the switch of the last middle box in the shortest path matrix
+     */
+    public int getEgressSwitch() {return egressSwitch;}
+
+    /**
+     * @return length from the first to the last middle box, visiting them in order
+     */
+    public double getOrderedLength() {return orderedLength;}
+
+    /**
+     * @param pod - index of the POD
+     * @return distance from any physical machine of the POD to the first middle box
+     */
+    public double getPodIngress(int pod) {return podIngress[pod];}
+
+    /**
+     * @param pod - index of the POD
+     * @return distance from any physical machine of the POD to the last middle box
+     */
+    public double getPodEgress(int pod) {return podEgress[pod];}
+
+    /**
+     * Route in ordered policy: from the source to the first middle box, through the chain, to the destination
+     * @param sourcePM - physical machine of the VM
+     * @param destinationPM - physical machine of the VMP
+     * @return length of the route
+     */
+    public double orderedRoute(int sourcePM, int destinationPM) {
+        if (pmIngress != null) return pmIngress[sourcePM] + orderedLength + pmEgress[destinationPM];
+        return podIngress[sourcePM / pmPerPod] + orderedLength + podEgress[destinationPM / pmPerPod];
+    }
+
+    /**
+     * @return route between PODs through all middle boxes of the chain in un-ordered policy
+     */
+    public PodRouteTable getUnorderedRoute() {return unorderedRoute;}
+
+    /**
+     * @return route between physical machines through all middle boxes of the chain in un-ordered policy, per pair
+     * of edge switches with failures and per pair of PODs otherwise
+     */
+    public PathTable getRoute() {return edgeRoute != null ? edgeRoute : unorderedRoute;}
+}
@@ -0,0 +1,316 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p> Virtual machine pairs grouped into weighted classes of interchangeable pairs. In a fat tree all machines of an
+ * edge switch are alike and the route only depends on the PODs, so two pairs with the same signature have the same
+ * candidate machines and the same ranking of pairs of PODs. The signature of a pair is its frequency band, its
+ * service chain and, for a migration, the edge switches of its current VM and VMP and whether they share a machine.
+ * A class keeps its number of pairs and its total frequency.</p>
+ * <p>The solvers walk the classes in descending mean frequency. Each class ranks the pairs of PODs once and keeps
+ * cursors over them that only move forward, because capacity is only taken. The pairs of the class are then streamed
+ * into the ranked targets, each one taking its slots. So a pair costs O(1) PODs instead of O(numPods) in
+ * {@link HierarchicalPlacement}. The result is expanded back to individual pairs, each with its own machines and
+ * its own cost. Like the other large-scale algorithms, the solvers count slots and reject a resource model.</p>
+ */
+public final class CompressedWorkload {
+    private final DataCenter dataCenter;
+    private final boolean byHosts;
+    private final int numClasses;
+    private final int[] classStart;     // pairs of class c are members[classStart[c]] to members[classStart[c + 1] - 1]
+    private final int[] members;
+    private final long[] weight;        // total frequency of each class
+    private final int[] vmEdge;
+    private final int[] vmpEdge;
+    private final int[] chain;
+
+    private CompressedWorkload(DataCenter dataCenter, int bands, boolean byHosts) {
+        if (bands < 1) throw new IllegalArgumentException("bands must be at least 1: " + bands);
+        this.dataCenter = dataCenter;
+        this.byHosts = byHosts;
+        int numVMPairs = dataCenter.getNumVMPairs();
+        int numEdge = dataCenter.numPM() / (dataCenter.getNumPods() / 2);
+        int half = dataCenter.getNumPods() / 2;
+        int[] fre = dataCenter.getCommunicationFre();
+        int maxFre = 1;
+        for (int f : fre) maxFre = Math.max(maxFre, f);
+        int[] chainOf = dataCenter.getChains().chainOfPairs();
+        Placement hosts = dataCenter.getPlacement();
+
+        Map<Long, Integer> classOfKey = new HashMap<>();
+        int[] classOf = new int[numVMPairs];
+        int[] count = new int[numVMPairs];
+        for (int pair = 0; pair < numVMPairs; pair++) {
+            long key = chainOf[pair];
+            if (byHosts) {
+                int u = hosts.getVM(pair), v = hosts.getVMP(pair);
+                key = ((key * numEdge + u / half) * numEdge + v / half) * 2 + (u == v ? 1 : 0);
+            }
+            key = key * bands + (long) (fre[pair] - 1) * bands / maxFre;
+            Integer c = classOfKey.get(key);
+            if (c == null) classOfKey.put(key, c = classOfKey.size());
+            classOf[pair] = c;
+            count[c]++;
+        }
+        this.numClasses = classOfKey.size();
+        this.classStart = new int[numClasses + 1];
+        for (int c = 0; c < numClasses; c++) classStart[c + 1] = classStart[c] + count[c];
+        this.members = new int[numVMPairs];
+        this.weight = new long[numClasses];
+        this.vmEdge = new int[numClasses];
+        this.vmpEdge = new int[numClasses];
+        this.chain = new int[numClasses];
+        int[] next = Arrays.copyOf(classStart, numClasses);
+        for (int pair = 0; pair < numVMPairs; pair++) {
+            int c = classOf[pair];
+            if (next[c] == classStart[c]) {
+                vmEdge[c] = hosts.getVM(pair) / half;
+                vmpEdge[c] = hosts.getVMP(pair) / half;
+                chain[c] = chainOf[pair];
+            }
+            members[next[c]++] = pair;
+            weight[c] += fre[pair];
+        }
+    }
+
+    /**
+     * Group the pairs of a data center for a migration: same edge switches of the current VM and VMP, same
+     * machine or not, same frequency band and same service chain
+     * @param dataCenter - data center
+     * @param bands - number of frequency bands of equal width between 1 and the highest frequency
+     * @return the classes of pairs
+     */
+    public static CompressedWorkload forMigration(DataCenter dataCenter, int bands) {
+        return new CompressedWorkload(dataCenter, bands, true);
+    }
+
+    /**
+     * Group the pairs of a data center for a placement from scratch: same frequency band and same service chain
+     * @param dataCenter - data center
+     * @param bands - number of frequency bands of equal width between 1 and the highest frequency
+     * @return the classes of pairs
+     */
+    public static CompressedWorkload forPlacement(DataCenter dataCenter, int bands) {
+        return new CompressedWorkload(dataCenter, bands, false);
+    }
+
+    /**
+     * @return number of classes
+     */
+    public int getNumClasses() {return numClasses;}
+
+    /**
+     * @param c - index of the class
+     * @return number of pairs of the class
+     */
+    public int size(int c) {return classStart[c + 1] - classStart[c];}
+
+    /**
+     * @param c - index of the class
+     * @return total communication frequency of the pairs of the class
+     */
+    public long getWeight(int c) {return weight[c];}
+
+    /**
+     * @param c - index of the class
+     * @return pairs of the class, in order of their index
+     */
+    public int[] members(int c) {return Arrays.copyOfRange(members, classStart[c], classStart[c + 1]);}
+
+    /**
+     * @return classes in descending mean frequency, ties by index
+     */
+    private int[] byMeanFrequency() {
+        Integer[] order = new Integer[numClasses];
+        for (int c = 0; c < numClasses; c++) order[c] = c;
+        Arrays.sort(order, (a, b) -> Double.compare((double) weight[b] / size(b), (double) weight[a] / size(a)));
+        int[] result = new int[numClasses];
+        for (int c = 0; c < numClasses; c++) result[c] = order[c];
+        return result;
+    }
+
+    // ******************************************
+    // ******** PAM UNORDERED *******************
+    // ******************************************
+
+    /**
+     * <p>Migrate the pairs class by class to the pair of physical machines with the smallest migration plus
+     * communication cost, fre * route(pod i, pod j) + migrationCoef * (d(u, i) + d(v, j)), as in
+     * {@link HierarchicalPlacement#migrateUnordered(DataCenter)}. A physical machine accepts as many virtual machines
+     * as it hosts before the migration.</p>
+     * <p>Apart from the PODs of u and v every machine is at distance 6, so the best target is one of: the PODs of u
+     * and v, the POD of u with the other POD of smallest route, the POD of v likewise, or the pair of other PODs of
+     * smallest route. The last three are kept by cursors of the class.</p>
+     * @return placement after the migration, with its total cost
+     * @throws UnsupportedOperationException if the data center has a resource model other than the slot model
+     */
+    public Placement migrateUnordered() {
+        if (!byHosts) throw new IllegalStateException("The classes of a placement do not have the current hosts");
+        dataCenter.requireSlotModel("The compressed migration");
+        int numPods = dataCenter.getNumPods();
+        int pmPerPod = numPods * numPods / 4;
+        int half = numPods / 2;
+        int[] fre = dataCenter.getCommunicationFre();
+        double migrationCoef = dataCenter.getMigrationCoef();
+        PodRouteTable[] routes = HierarchicalPlacement.chainRoutes(dataCenter,
+                HierarchicalPlacement.podRoute(dataCenter));
+        Placement before = dataCenter.getPlacement();
+        Placement placement = before.copy();
+        CapacityIndex capacity = new CapacityIndex(numPods, dataCenter.getCapacity());
+        Integer[][] podPairsOf = new Integer[routes.length][];
+        int[] podPairCursor = new int[routes.length];
+        int[][][] rowsOf = new int[routes.length][][];     // destination PODs of each source POD, by route
+        int[][][] columnsOf = new int[routes.length][][];  // source PODs of each destination POD, by route
+        double total = 0;
+
+        for (int c : byMeanFrequency()) {
+            int id = chain[c];
+            PodRouteTable route = routes[id];
+            if (podPairsOf[id] == null) {
+                podPairsOf[id] = HierarchicalPlacement.sortedPodPairs(route);
+                rowsOf[id] = sortedPods(route, true);
+                columnsOf[id] = sortedPods(route, false);
+            }
+            Integer[] podPairs = podPairsOf[id];
+            while (podPairCursor[id] < podPairs.length
+                    && !HierarchicalPlacement.hasRoom(capacity, podPairs[podPairCursor[id]], numPods))
+                podPairCursor[id]++;
+            int podU = vmEdge[c] / half, podV = vmpEdge[c] / half;
+            int[] row = rowsOf[id][podU], column = columnsOf[id][podV];
+            int r = 0, q = 0, far = podPairCursor[id];
+
+            for (int m = classStart[c]; m < classStart[c + 1]; m++) {
+                int pair = members[m];
+                int u = before.getVM(pair), v = before.getVMP(pair);
+                HierarchicalPlacement.Candidate best = new HierarchicalPlacement.Candidate();
+                consider(best, route, capacity, fre[pair], migrationCoef, u, v, podU, podV);
+                while (r < row.length && (row[r] == podV || !room(capacity, podU, row[r]))) r++;
+                if (r < row.length) consider(best, route, capacity, fre[pair], migrationCoef, u, v, podU, row[r]);
+                while (q < column.length && (column[q] == podU || !room(capacity, column[q], podV))) q++;
+                if (q < column.length)
+                    consider(best, route, capacity, fre[pair], migrationCoef, u, v, column[q], podV);
+                while (far < podPairs.length && (podPairs[far] / numPods == podU || podPairs[far] % numPods == podV
+                        || !HierarchicalPlacement.hasRoom(capacity, podPairs[far], numPods)))
+                    far++;
+                if (far < podPairs.length) consider(best, route, capacity, fre[pair], migrationCoef, u, v,
+                        podPairs[far] / numPods, podPairs[far] % numPods);
+                LiveStatus.PAM.progress(1);
+                if (best.i < 0) {   // no capacity left: the pair stays where it is
+                    total += fre[pair] * route.get(u, v);
+                    continue;
+                }
+                placement.place(pair, best.i, best.j);
+                capacity.take(best.i);
+                capacity.take(best.j);
+                total += best.cost;
+                LiveStatus.PAM.addCost(best.cost);
+            }
+        }
+        placement.setCost(total);
+        return placement;
+    }
+
+    /**
+     * Nearest available machines of a pair of PODs, moving one of the two VMs if both are the same machine with a
+     * single slot
+     */
+    private void consider(HierarchicalPlacement.Candidate best, PodRouteTable route, CapacityIndex capacity,
+                          int fre, double migrationCoef, int u, int v, int sourcePod, int destinationPod) {
+        int i = capacity.nearest(u, sourcePod, -1), j = capacity.nearest(v, destinationPod, -1);
+        if (i < 0 || j < 0) return;
+        if (!capacity.fits(i, j)) {
+            int otherJ = capacity.nearest(v, destinationPod, i);
+            int otherI = capacity.nearest(u, sourcePod, j);
+            if (otherJ >= 0) consider(best, route, fre, migrationCoef, u, v, i, otherJ);
+            if (otherI >= 0) consider(best, route, fre, migrationCoef, u, v, otherI, j);
+            return;
+        }
+        consider(best, route, fre, migrationCoef, u, v, i, j);
+    }
+
+    private void consider(HierarchicalPlacement.Candidate best, PodRouteTable route, int fre, double migrationCoef,
+                          int u, int v, int i, int j) {
+        best.consider(i, j, fre * route.get(i, j)
+                + migrationCoef * (dataCenter.getDistance(u, i) + dataCenter.getDistance(v, j)));
+    }
+
+    private static boolean room(CapacityIndex capacity, int sourcePod, int destinationPod) {
+        if (sourcePod == destinationPod) return capacity.podSlots(sourcePod) > 1;
+        return capacity.podSlots(sourcePod) > 0 && capacity.podSlots(destinationPod) > 0;
+    }
+
+    /**
+     * @param route - route per pair of PODs
+     * @param rows - true for the destination PODs of each source POD, false for the source PODs of each destination
+     * @return the other PODs of each POD in ascending route
+     */
+    private static int[][] sortedPods(PodRouteTable route, boolean rows) {
+        int numPods = route.getNumPods();
+        int[][] sorted = new int[numPods][];
+        for (int p = 0; p < numPods; p++) {
+            Integer[] order = new Integer[numPods];
+            for (int o = 0; o < numPods; o++) order[o] = o;
+            int pod = p;
+            Arrays.sort(order, (a, b) -> rows ? Double.compare(route.getPodRoute(pod, a), route.getPodRoute(pod, b))
+                    : Double.compare(route.getPodRoute(a, pod), route.getPodRoute(b, pod)));
+            sorted[p] = new int[numPods];
+            for (int o = 0; o < numPods; o++) sorted[p][o] = order[o];
+        }
+        return sorted;
+    }
+
+    // ******************************************
+    // ******** PAL UNORDERED *******************
+    // ******************************************
+
+    /**
+     * Place the pairs from scratch class by class, the most frequent classes first, on the available pairs of
+     * PODs with the smallest route of their chain. A class fills the current pair of PODs until it is full, so the
+     * work per pair is O(1).
+     * @return placement of the pairs, with its total communication cost
+     * @throws UnsupportedOperationException if the data center has a resource model other than the slot model
+     * @throws IllegalArgumentException if the physical machines have no room left for a pair
+     */
+    public Placement placeUnordered() {
+        dataCenter.requireSlotModel("The compressed placement");
+        int numPods = dataCenter.getNumPods();
+        int[] fre = dataCenter.getCommunicationFre();
+        PodRouteTable[] routes = HierarchicalPlacement.chainRoutes(dataCenter,
+                HierarchicalPlacement.podRoute(dataCenter));
+        CapacityIndex capacity = CapacityIndex.uniform(numPods, dataCenter.getResources());
+        Placement placement = new Placement(dataCenter.getNumVMPairs());
+        Integer[][] podPairsOf = new Integer[routes.length][];
+        int[] cursor = new int[routes.length];
+        double total = 0;
+
+        for (int c : byMeanFrequency()) {
+            int id = chain[c];
+            if (podPairsOf[id] == null) podPairsOf[id] = HierarchicalPlacement.sortedPodPairs(routes[id]);
+            Integer[] podPairs = podPairsOf[id];
+            for (int m = classStart[c]; m < classStart[c + 1]; m++) {
+                int pair = members[m];
+                int i = -1, j = -1;
+                while (cursor[id] < podPairs.length) {
+                    int sourcePod = podPairs[cursor[id]] / numPods, destinationPod = podPairs[cursor[id]] % numPods;
+                    i = capacity.firstAvailable(sourcePod, -1);
+                    j = i < 0 ? -1 : capacity.firstAvailable(destinationPod, i);
+                    if (j >= 0) break;
+                    cursor[id]++;   // this pair of PODs is full for good
+                }
+                if (j < 0)  // every pair of PODs is full
+                    throw new IllegalArgumentException("Not enough capacity for " + dataCenter.getNumVMPairs()
+                            + " virtual machine pairs");
+                placement.place(pair, i, j);
+                capacity.take(i);
+                capacity.take(j);
+                double cost = fre[pair] * routes[id].get(i, j);
+                total += cost;
+                LiveStatus.PAL.progress(1);
+                LiveStatus.PAL.addCost(cost);
+            }
+        }
+        placement.setCost(total);
+        return placement;
+    }
+}
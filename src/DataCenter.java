@@ -4,7 +4,11 @@ import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.SingleGraph;
 import scala.util.parsing.combinator.testing.Str;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * <p> Data center is built on the fat tree topology. Data center includes
@@ -30,8 +34,19 @@ public class DataCenter extends FatTree {
     private Hashtable<String, Integer> mBs_Switch;	// Middle box, index location in shortest Matrix
     private Hashtable<String, Integer> VM_PM;	// Virtual Machine, physical machine index
     private double[][] shortestPathRoute;
+    private PathTable shortestPathRouteTable;
     private List<String> ingress;
     private List<String> egress;
+    private Placement placement;    // VM_PM as int arrays, built on demand
+    private BatchCostEvaluator costEvaluator;
+    private ChainRegistry chains;   // service chain of every pair, built on demand
+    private ResourceModel resourceModel;    // multi-resource capacities and demands, null for the slot model
+    private LinkLoad congestion;    // link loads added to the route costs of the pairs, null to ignore congestion
+    private double congestionWeight;
+    private boolean frozen;     // read-only snapshot, see snapshot()
+    private boolean degraded;   // distances of a fabric with failures, see withFailures
+    private boolean routeShared;    // the route table is shared with a snapshot or a topology, or read from a file
+    private static final int ROUTE_BLOCKS = 64;     // blocks of rows of the shortest path route built at the same time
 
     //*************************************
     //******* CONSTRUCTOR *****************
@@ -48,12 +63,162 @@ public class DataCenter extends FatTree {
      */
     public DataCenter(int numPods, int migrationCoef, int resources,
                       int numMBs, int numVMPairs, int maxCommunicationFre){
-        super(numPods,migrationCoef);
+        this(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre, null, null,
+                new Random().nextLong());
+    }
+
+    /**
+     * Constructor of Data Center in normal or large-scale mode. In large-scale mode no table of size
+     * numPM * numPM is built: distances come from {@link FatTreeDistanceOracle} and the shortest path route is kept
+     * per pair of PODs ({@link PodRouteTable}), so memory stays O(numPM + numVMPairs) and k = 64 fits.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param largeScale - true for the large-scale mode
+     */
+    public DataCenter(int numPods, int migrationCoef, int resources,
+                      int numMBs, int numVMPairs, int maxCommunicationFre, boolean largeScale){
+        super(numPods, migrationCoef, largeScale);
         this.resources = resources;
         this.numMBs = numMBs;
         this.numVMPairs = numVMPairs;
         this.maxCommunicationFre = maxCommunicationFre;
-        buildDataCenter();
+        buildDataCenter(new Random());
+    }
+
+    /**
+     * Constructor of Data Center whose shortest path matrix and shortest path route are built outside the heap, in
+     * tables of the arena. The tables are filled row by row, so the heap never holds a table of size numPM * numPM
+     * and its size only depends on the placement and the graph of the fat tree. The algorithms read the tables
+     * through {@link PathTable}, as in the other modes.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param tableArena - owner of the tables, it must stay open while the data center is used
+     */
+    public DataCenter(int numPods, int migrationCoef, int resources,
+                      int numMBs, int numVMPairs, int maxCommunicationFre, TableArena tableArena){
+        this(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre, tableArena, null,
+                new Random().nextLong());
+    }
+
+    /**
+     * Constructor of Data Center whose construction phases run as a graph of stages on an executor. The stages that
+     * do not depend on each other run at the same time: the graph of the fat tree and its shortest path matrix, the
+     * middle boxes, the placement of the virtual machines and the communication frequencies. The shortest path
+     * route waits for the shortest path matrix and the middle boxes, and its rows are then computed in blocks on
+     * the executor. The placement of the virtual machines waits for the graph, so it reads the same edge switches as
+     * a sequential build. The constructor returns when every stage is done, so the wall time is the longest chain
+     * of stages. It waits for the stages, so it must not run on a thread of a bounded executor it is given.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param tableArena - owner of the tables outside the heap, it must stay open while the data center is used;
+     *                   null to keep the tables in the heap
+     * @param executor - executor of the stages
+     */
+    public DataCenter(int numPods, int migrationCoef, int resources, int numMBs, int numVMPairs,
+                      int maxCommunicationFre, TableArena tableArena, Executor executor){
+        this(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre, tableArena, executor,
+                new Random().nextLong());
+    }
+
+    /**
+     * Constructor of Data Center whose random choices come from a seed. The same seed gives the same middle boxes,
+     * placement and communication frequencies whether the phases run one after the other or as stages.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param tableArena - owner of the tables outside the heap, null to keep the tables in the heap
+     * @param executor - executor of the stages, null to run the phases one after the other on this thread
+     * @param seed - seed of the middle boxes, of the placement and of the communication frequencies
+     */
+    DataCenter(int numPods, int migrationCoef, int resources, int numMBs, int numVMPairs, int maxCommunicationFre,
+               TableArena tableArena, Executor executor, long seed){
+        super(numPods, migrationCoef, tableArena, executor != null);
+        this.resources = resources;
+        this.numMBs = numMBs;
+        this.numVMPairs = numVMPairs;
+        this.maxCommunicationFre = maxCommunicationFre;
+        if (executor == null) buildDataCenter(new Random(seed));
+        else buildDataCenter(executor, new Random(seed));
+    }
+
+    /**
+     * Constructor of a Data Center that is already built, used to load a snapshot.
+     * None of the tables and placements are computed again.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param distanceTable - shortest path matrix of the fat tree
+     * @param shortestPathRouteTable - shortest path route between physical machines
+     * @param mBs_Switch - middle box, index of its switch in the shortest path matrix
+     * @param VM_PM - virtual machine, index of its physical machine
+     * @param capacity - number of virtual machines in each physical machine
+     * @param communicationFre - communication frequency of each virtual machine pair
+     */
+    DataCenter(int numPods, int migrationCoef, int resources, int numMBs, int numVMPairs, int maxCommunicationFre,
+               PathTable distanceTable, PathTable shortestPathRouteTable, Hashtable<String, Integer> mBs_Switch,
+               Hashtable<String, Integer> VM_PM, int[] capacity, int[] communicationFre){
+        this(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre, distanceTable,
+                shortestPathRouteTable, mBs_Switch, VM_PM, capacity, communicationFre, false);
+    }
+
+    private DataCenter(int numPods, int migrationCoef, int resources, int numMBs, int numVMPairs,
+                       int maxCommunicationFre, PathTable distanceTable, PathTable shortestPathRouteTable,
+                       Hashtable<String, Integer> mBs_Switch, Hashtable<String, Integer> VM_PM, int[] capacity,
+                       int[] communicationFre, boolean largeScale){
+        super(numPods, migrationCoef, distanceTable, largeScale);
+        this.resources = resources;
+        this.numMBs = numMBs;
+        this.numVMPairs = numVMPairs;
+        this.maxCommunicationFre = maxCommunicationFre;
+        this.shortestPathRouteTable = shortestPathRouteTable;
+        this.mBs_Switch = mBs_Switch;
+        this.VM_PM = VM_PM;
+        this.capacity = capacity;
+        this.communicationFre = communicationFre;
+        this.routeShared = true;
+    }
+
+    /**
+     * Constructor of a Data Center with a new workload on an existing topology. Only the placement of the virtual
+     * machines and the communication frequencies are drawn, O(numVMPairs); the fat tree, the middle boxes and the
+     * shortest path route are shared with the other data centers of the topology.
+     * @param topology - topology of a data center, see {@link #getTopology()}
+     * @param resources - capacity of each Physical machine
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param seed - seed of the placement and of the communication frequencies
+     */
+    public DataCenter(Topology topology, int resources, int numVMPairs, int maxCommunicationFre, long seed){
+        this(topology.getNumPods(), topology.getMigrationCoef(), resources, topology.getNumMBs(), numVMPairs,
+                maxCommunicationFre, topology.getDistanceTable(), topology.getRouteTable(),
+                topology.mbSwitchTable(), null, null, null, topology.isLargeScale());
+        if(!isEnoughCapacity())
+            throw new IllegalArgumentException("Not enough capacity for " + numVMPairs + " virtual machine pairs");
+        Random random = new Random(seed);
+        try (Phase phase = startPhase("distributeVM_PM")) {
+            distributeVM_PM(false, random);
+        }
+        try (Phase phase = startPhase("buildCommunicationFre")) {
+            buildCommunicationFre(random);
+        }
     }
 
     // ******************************************
@@ -63,38 +228,54 @@ public class DataCenter extends FatTree {
      * Reset or changing number of PODs in data center from user
      * @param numPods - number of PODs in data center
      */
-    public void setNumPods(int numPods){super.setNumPods(numPods);}
+    public void setNumPods(int numPods){
+        checkNotFrozen();
+        super.setNumPods(numPods);
+    }
     /**
      * Reset or changing the migration coefficient of
      * fat tree topology.
      * @param migrationCoef - new migration of fat tree.
      */
     public void setMigrationCoef(int migrationCoef){
+        checkNotFrozen();
         super.setMigrationCoef(migrationCoef);
     }
     /**
      * <p>Reset or change resources of each physical machine</p>
      * @param resources - new resources or capacity of each physical machine
      */
-    public void setResources(int resources){this.resources = resources;}
+    public void setResources(int resources){
+        checkNotFrozen();
+        this.resources = resources;
+    }
 
     /**
      * <p> Reset or change number of middle boxes</p>
      * @param numMBs - number of middle box or Virtual network function in data center.
      */
-    public void setNumMBs(int numMBs){this.numMBs = numMBs;}
+    public void setNumMBs(int numMBs){
+        checkNotFrozen();
+        this.numMBs = numMBs;
+    }
 
     /**
      * <p>Reset or change number of virtual machine pairs</p>
      * @param numVMPairs - number of virtual machine pairs
      */
-     public void setNumVMPairs(int numVMPairs){this.numVMPairs = numVMPairs;}
+    public void setNumVMPairs(int numVMPairs){
+        checkNotFrozen();
+        this.numVMPairs = numVMPairs;
+    }
 
     /**
      * <p>Reset or set up the maximum communication frequency of virtual machine pairs</p>
      * @param maxCommunicationFre - maximum communication frequency of virtual machine pairs.
      */
-     public void setMaxCommunicationFre(int maxCommunicationFre){this.maxCommunicationFre = maxCommunicationFre;}
+    public void setMaxCommunicationFre(int maxCommunicationFre){
+        checkNotFrozen();
+        this.maxCommunicationFre = maxCommunicationFre;
+    }
 
     // ******************************************
     // ******** GETTER METHOD *******************
@@ -149,20 +330,367 @@ public class DataCenter extends FatTree {
      */
     public Hashtable<String, Integer> getVM_PM(){return this.VM_PM;}
 
+    /**
+     * Get the location of each virtual machine as int arrays, built from {@link #getVM_PM()} on the first call
+     * @return placement of the virtual machine pairs
+     */
+    public Placement getPlacement(){
+        if(placement == null) placement = Placement.of(VM_PM, numVMPairs);
+        return this.placement;
+    }
+
+    /**
+     * Get the batch evaluator of placement costs of this data center, built on the first call
+     * @return the cost evaluator
+     */
+    public BatchCostEvaluator getCostEvaluator(){
+        if(degraded) throw new UnsupportedOperationException("The tables per POD need a fabric without failures");
+        if(costEvaluator == null || !costEvaluator.isCurrent(chains)) costEvaluator = new BatchCostEvaluator(this);
+        return this.costEvaluator;
+    }
+
     /**
      * <p>
      *     Get the shortest path route between two physical machines. Row and column are index of physical machines
      * </p>
+     * <p>If the route is not in the heap (loaded from a snapshot or built in a {@link TableArena}), it is copied into
+     * a new array on the first call, prefer {@link #getRouteCost(int, int)}.</p>
      * @return The shortest path route between two physical machines in un-ordered policy,
      * row = column = number of physical machine.
      */
-    public double[][] getShortestPathRoute(){return this.shortestPathRoute;}
+    public double[][] getShortestPathRoute(){
+        if(isLargeScale())
+            throw new UnsupportedOperationException("No shortest path route matrix in large-scale mode, "
+                    + "use getRouteCost");
+        if(shortestPathRoute == null && shortestPathRouteTable != null)
+            shortestPathRoute = shortestPathRouteTable.toArray();
+        return this.shortestPathRoute;
+    }
+
+    /**
+     * Get the shortest path route between physical machines as a table, without copying it.
+     * @return table of the shortest path route in un-ordered policy
+     */
+    public PathTable getShortestPathRouteTable(){return this.shortestPathRouteTable;}
+
+    /**
+     * Get the cost of the shortest path route from a physical machine to another that visits all the middle boxes.
+     * @param sourcePM - index of the source physical machine
+     * @param destinationPM - index of the destination physical machine
+     * @return cost of the shortest path route in un-ordered policy
+     */
+    public double getRouteCost(int sourcePM, int destinationPM){
+        return shortestPathRouteTable.get(sourcePM, destinationPM);
+    }
+
+    /**
+     * Get the cost of the shortest path route of a virtual machine pair in un-ordered policy, through the middle
+     * boxes of its service chain.
+     * @param pair - index of the virtual machine pair
+     * @param sourcePM - index of the physical machine of the VM
+     * @param destinationPM - index of the physical machine of the VMP
+     * @return cost of the shortest path route in un-ordered policy
+     */
+    public double getRouteCost(int pair, int sourcePM, int destinationPM){
+        double cost;
+        if(chains == null || chains.chainOf(pair) == 0){
+            cost = shortestPathRouteTable.get(sourcePM, destinationPM);
+        } else if(degraded){
+            cost = chains.tableOf(pair).getRoute().get(sourcePM, destinationPM);
+        } else {
+            PodRouteTable route = chains.tableOf(pair).getUnorderedRoute();
+            int pmPerPod = getNumPods() * getNumPods() / 4;
+            cost = route.getPodRoute(sourcePM / pmPerPod, destinationPM / pmPerPod);
+        }
+        if(congestion != null) cost += congestionWeight * congestion.pathUtilization(pair, sourcePM, destinationPM);
+        return cost;
+    }
+
+    /**
+     * Get the cost of the route of a virtual machine pair in ordered policy: from the VM to the first middle box of
+     * its service chain, through the chain in order, to the VMP from the last middle box.
+     * @param pair - index of the virtual machine pair
+     * @param sourcePM - index of the physical machine of the VM
+     * @param destinationPM - index of the physical machine of the VMP
+     * @return cost of the route in ordered policy
+     */
+    public double getOrderedRouteCost(int pair, int sourcePM, int destinationPM){
+        double cost = getChains().tableOf(pair).orderedRoute(sourcePM, destinationPM);
+        if(congestion != null) cost += congestionWeight * congestion.pathUtilization(pair, sourcePM, destinationPM);
+        return cost;
+    }
+
+    /**
+     * Make the route costs of the pairs congestion-aware: {@link #getRouteCost(int, int, int)} and
+     * {@link #getOrderedRouteCost(int, int, int)} add weight * the utilization along the paths of the pair
+     * ({@link LinkLoad#pathUtilization(int, int, int)}). The loads are the ones of the last
+     * {@link LinkLoad#compute(Placement)}, they do not follow the algorithms while they move the pairs. The tables
+     * per POD of {@link BatchCostEvaluator}, {@link HierarchicalPlacement} and {@link PartitionedPlacement} ignore
+     * the congestion.
+     * @param linkLoad - loads of the links of this data center, null to ignore the congestion again
+     * @param weight - cost of a path whose links are all fully used, per unit of frequency
+     */
+    public void setCongestion(LinkLoad linkLoad, double weight){
+        checkNotFrozen();
+        if(linkLoad != null && linkLoad.numLinks() != 6 * super.numPM())
+            throw new IllegalArgumentException("The link loads do not match the data center");
+        this.congestion = linkLoad;
+        this.congestionWeight = weight;
+    }
+
+    /**
+     * Get the service chains of the virtual machine pairs, all pairs go through MB0 to MB(numMBs - 1) until
+     * {@link #setServiceChain(int, ServiceChain)} is called
+     * @return the chains of the pairs
+     */
+    public ChainRegistry getChains(){
+        if(chains == null) chains = new ChainRegistry(this);
+        return this.chains;
+    }
+
+    /**
+     * Set the service chain of a virtual machine pair
+     * @param pair - index of the virtual machine pair
+     * @param chain - middle boxes the traffic of the pair goes through
+     */
+    public void setServiceChain(int pair, ServiceChain chain){
+        checkNotFrozen();
+        getChains().assign(pair, chain);
+    }
+
+    /**
+     * @return true if a multi-resource model was set with {@link #setResourceModel(ResourceModel)}
+     */
+    public boolean hasResourceModel(){return this.resourceModel != null;}
+
+    /**
+     * Get the capacities of the physical machines and the demands of the virtual machines. Without a model set,
+     * it is the slot model: resources slots per physical machine, one slot per virtual machine.
+     * @return the resource model
+     */
+    public ResourceModel getResourceModel(){
+        if(resourceModel == null) return ResourceModel.slots(super.numPM(), numVMPairs, resources);
+        return this.resourceModel;
+    }
+
+    /**
+     * Check that the resource model is the slot model, for the algorithms that count free slots of the physical
+     * machines ({@link CapacityIndex}) instead of checking the resources on a {@link FeasibilityIndex}
+     * @param algorithm - name of the algorithm, for the message
+     * @throws UnsupportedOperationException if a model other than the slot model is set
+     */
+    public void requireSlotModel(String algorithm){
+        if(resourceModel != null && !resourceModel.isSlotModel(resources))
+            throw new UnsupportedOperationException(algorithm + " counts slots, it does not support a resource model "
+                    + "with several resources or demands");
+    }
+
+    /**
+     * Set the capacities of the physical machines and the demands of the virtual machines
+     * @param resourceModel - the model, null for the slot model
+     */
+    public void setResourceModel(ResourceModel resourceModel){
+        checkNotFrozen();
+        if(resourceModel != null && (resourceModel.numPM() != super.numPM()
+                || resourceModel.numVMPairs() != numVMPairs))
+            throw new IllegalArgumentException("The resource model does not match the data center");
+        this.resourceModel = resourceModel;
+    }
+
+    /**
+     * Get the switch of each middle box as an array
+     * @return array where entry i is the index of the switch of MB i in the shortest path matrix
+     */
+    public int[] mbSwitches(){
+        int[] switches = new int[numMBs];
+        for(int i = 0; i < numMBs; i++) switches[i] = mBs_Switch.get("MB" + i);
+        return switches;
+    }
+
+    /**
+     * Move the middle boxes to other aggregation switches and update the shortest path route and the tables of the
+     * service chains. The route is computed per pair of PODs ({@link PodRouteTable}), which gives the same values as
+     * {@link #setShortestPathRoute()} without building the graphs, and only the blocks of PODs whose route changed
+     * are written again.
+     * @param switches - entry i is the index of the aggregation switch of MB i in the shortest path matrix
+     */
+    public void setMbSwitches(int[] switches){
+        checkNotFrozen();
+        if(switches.length != numMBs)
+            throw new IllegalArgumentException("Expected " + numMBs + " switches, got " + switches.length);
+        mBs_Switch = middleboxTable(switches);
+        updateShortestPathRoute();
+        if(chains != null) chains.refresh();
+        costEvaluator = null;
+    }
+
+    /**
+     * Move one middle box to another aggregation switch, for example when its switch fails or goes into
+     * maintenance. Only the route between PODs whose walk through the middle boxes changed is written again, and the
+     * tables of the service chains are computed per POD, so the cost is O(k * k + changed entries) instead of a new
+     * data center. Link loads set with {@link #setCongestion(LinkLoad, double)} are not updated.
+     * @param mb - index of the middle box
+     * @param aggregationSwitch - index of a free aggregation switch in the shortest path matrix
+     */
+    public void relocateMiddlebox(int mb, int aggregationSwitch){
+        if(mb < 0 || mb >= numMBs) throw new IllegalArgumentException("No MB" + mb + " in the data center");
+        int[] switches = mbSwitches();
+        switches[mb] = aggregationSwitch;
+        setMbSwitches(switches);
+    }
+
+    /**
+     * Add a middle box on a free aggregation switch. It becomes MB(numMBs - 1), the last middle box of the chain of
+     * all middle boxes, so the pairs with the default chain go through it; the other service chains do not change.
+     * @param aggregationSwitch - index of a free aggregation switch in the shortest path matrix
+     * @return index of the new middle box
+     */
+    public int addMiddlebox(int aggregationSwitch){
+        checkNotFrozen();
+        int[] switches = Arrays.copyOf(mbSwitches(), numMBs + 1);
+        switches[numMBs] = aggregationSwitch;
+        int[] newIndex = new int[numMBs];
+        for(int i = 0; i < numMBs; i++) newIndex[i] = i;
+        changeMiddleboxes(switches, newIndex);
+        return numMBs - 1;
+    }
+
+    /**
+     * Remove a middle box, for example when it fails without a spare switch. The middle boxes after it are numbered
+     * one less, and the service chains skip it.
+     * @param mb - index of the middle box
+     * @throws IllegalStateException if it is the last middle box, or the only middle box of a service chain
+     */
+    public void removeMiddlebox(int mb){
+        checkNotFrozen();
+        if(mb < 0 || mb >= numMBs) throw new IllegalArgumentException("No MB" + mb + " in the data center");
+        if(numMBs == 1) throw new IllegalStateException("Cannot remove the last middle box");
+        int[] all = mbSwitches();
+        int[] switches = new int[numMBs - 1];
+        int[] newIndex = new int[numMBs];
+        for(int i = 0, j = 0; i < numMBs; i++){
+            newIndex[i] = i == mb ? -1 : j;
+            if(i != mb) switches[j++] = all[i];
+        }
+        changeMiddleboxes(switches, newIndex);
+    }
+
+    /**
+     * Communication cost of the current placement of the virtual machines, with the service chain of each pair
+     * @param policy - ordered or un-ordered policy
+     * @return total communication cost
+     */
+    public double getCommunicationCost(OnlinePlacementService.Policy policy){
+        return getCommunicationCost(getPlacement(), policy);
+    }
+
+    /**
+     * Communication cost of a placement of all the pairs, with the service chain of each pair, from the flat tables
+     * of {@link #getCostEvaluator()}, or from the route of each pair on a fabric with failures
+     * @param placement - physical machines of every pair
+     * @param policy - ordered or un-ordered policy
+     * @return total communication cost
+     */
+    public double getCommunicationCost(Placement placement, OnlinePlacementService.Policy policy){
+        boolean ordered = policy == OnlinePlacementService.Policy.ORDERED;
+        if(degraded){
+            double cost = 0;
+            for(int pair = 0; pair < numVMPairs; pair++){
+                int vm = placement.getVM(pair), vmp = placement.getVMP(pair);
+                cost += communicationFre[pair] * (ordered ? getOrderedRouteCost(pair, vm, vmp)
+                        : getRouteCost(pair, vm, vmp));
+            }
+            return cost;
+        }
+        if(ordered) return getCostEvaluator().ordered(placement.vmHosts(), placement.vmpHosts(), communicationFre);
+        return getCostEvaluator().unordered(placement.vmHosts(), placement.vmpHosts(), communicationFre);
+    }
+
+    /**
+     * Change the number of middle boxes and their switches
+     * @param switches - entry i is the switch of the new MB i
+     * @param newIndex - entry m is the new index of the old MB m, -1 if it is removed
+     */
+    private void changeMiddleboxes(int[] switches, int[] newIndex){
+        Hashtable<String, Integer> table = middleboxTable(switches);
+        ServiceChain[] renumbered = chains == null ? null : chains.renumbered(newIndex, switches.length);
+        numMBs = switches.length;
+        mBs_Switch = table;
+        updateShortestPathRoute();
+        if(chains != null) chains.replace(renumbered);
+        costEvaluator = null;
+    }
+
+    /**
+     * @param switches - entry i is the switch of MB i
+     * @return hash table middle box "MB" + i, index of its switch
+     * @throws IllegalArgumentException if a switch is not an aggregation switch or has two middle boxes
+     */
+    private Hashtable<String, Integer> middleboxTable(int[] switches){
+        int firstAggregation = super.numPM() + super.numEdgeSwitch();
+        Hashtable<String, Integer> table = new Hashtable<>();
+        for(int i = 0; i < switches.length; i++){
+            if(switches[i] < firstAggregation || switches[i] >= firstAggregation + super.numEdgeSwitch())
+                throw new IllegalArgumentException("MB" + i + " is not on an aggregation switch: " + switches[i]);
+            if(table.containsValue(switches[i]))
+                throw new IllegalArgumentException("Two middle boxes on switch " + switches[i]);
+            table.put("MB" + i, switches[i]);
+        }
+        return table;
+    }
+
+    /**
+     * Update the shortest path route after the middle boxes changed. The route is the same for all physical
+     * machines of two PODs, so a route of this data center only has the blocks of the PODs whose route changed
+     * written again. A route shared with a snapshot or a topology, or read from a file, is replaced by a new one.
+     */
+    private void updateShortestPathRoute(){
+        PodRouteTable route = new PodRouteTable(super.getNumPods(), getDistanceTable(), mbSwitches());
+        if(isLargeScale()){
+            shortestPathRouteTable = route;
+            return;
+        }
+        boolean dense = shortestPathRouteTable instanceof DensePathTable;
+        if(routeShared || !(dense || shortestPathRouteTable instanceof OffHeapPathTable)){
+            if(getTableArena() != null){
+                shortestPathRoute = null;
+                shortestPathRouteTable = getTableArena().copyOf(route);
+            } else {
+                shortestPathRoute = route.toArray();
+                shortestPathRouteTable = new DensePathTable(shortestPathRoute);
+            }
+            routeShared = false;
+            LiveStatus.DATA_CENTER.progress((long) super.numPM() * super.numPM());
+            return;
+        }
+        if(!dense) shortestPathRoute = null;    // copy made by getShortestPathRoute
+        double[][] array = dense ? shortestPathRouteTable.toArray() : null;
+        int numPods = super.getNumPods(), pmPerPod = numPods * numPods / 4;
+        long written = 0;
+        for(int a = 0; a < numPods; a++){
+            for(int b = 0; b < numPods; b++){
+                double value = route.getPodRoute(a, b);
+                if(shortestPathRouteTable.get(a * pmPerPod, b * pmPerPod) == value) continue;
+                for(int i = a * pmPerPod; i < (a + 1) * pmPerPod; i++){
+                    if(dense){
+                        Arrays.fill(array[i], b * pmPerPod, (b + 1) * pmPerPod, value);
+                    } else {
+                        OffHeapPathTable table = (OffHeapPathTable) shortestPathRouteTable;
+                        for(int j = b * pmPerPod; j < (b + 1) * pmPerPod; j++) table.set(i, j, value);
+                    }
+                }
+                written += (long) pmPerPod * pmPerPod;
+            }
+        }
+        LiveStatus.DATA_CENTER.progress(written);
+    }
 
     /**
      * Get the List of ingress in data center
      * @return List of Ingress
      */
     public List<String> getIngress(){
+        if(frozen) return frozenSlots(true);
         setIngress();
         return this.ingress;}
 
@@ -171,25 +699,78 @@ public class DataCenter extends FatTree {
      * @return list of Egress
      */
     public List<String> getEgress(){
+        if(frozen) return frozenSlots(false);
         setEgress();
         return this.egress;}
     // ******************************************
     // ******** BUILD Data Center ***************
     // ******************************************
-    private void buildDataCenter(){
-        disMb_switch();
-        distributeVM_PM(false);
-        buildCommunicationFre();
-        setShortestPathRoute();
+    /**
+     * Build the data center one phase after the other
+     * @param random - source of the seeds of the middle boxes, of the placement and of the communication
+     *               frequencies, drawn as in {@link #buildDataCenter(Executor, Random)}
+     */
+    private void buildDataCenter(Random random){
+        long mbSeed = random.nextLong(), vmSeed = random.nextLong(), freSeed = random.nextLong();
+        try (Phase phase = startPhase("disMb_switch")) {
+            disMb_switch(new Random(mbSeed));
+        }
+        try (Phase phase = startPhase("distributeVM_PM")) {
+            distributeVM_PM(false, new Random(vmSeed));
+        }
+        try (Phase phase = startPhase("buildCommunicationFre")) {
+            buildCommunicationFre(new Random(freSeed));
+        }
+        try (Phase phase = startPhase("setShortestPathRoute")) {
+            setShortestPathRoute();
+        }
 //        setEgress();
 //        setIngress();
     }
+
+    /**
+     * Build the data center as a graph of stages on an executor, see
+     * {@link #DataCenter(int, int, int, int, int, int, TableArena, Executor)}. Each stage draws from its own seed,
+     * so the result does not depend on the order in which the stages run.
+     * @param executor - executor of the stages
+     * @param random - source of the seeds of the middle boxes, of the placement and of the communication
+     *               frequencies
+     */
+    private void buildDataCenter(Executor executor, Random random){
+        long mbSeed = random.nextLong(), vmSeed = random.nextLong(), freSeed = random.nextLong();
+        try (Phase phase = startPhase("buildDataCenter")) {
+            CompletableFuture<Void> distances = CompletableFuture.runAsync(this::buildFatTree, executor);
+            CompletableFuture<Void> middleBoxes = stage("disMb_switch", () -> disMb_switch(new Random(mbSeed)),
+                    executor);
+            // the edge switches of the physical machines are read from the graph once it is built
+            CompletableFuture<Void> placement = distances.thenCompose(ignored -> stage("distributeVM_PM",
+                    () -> distributeVM_PM(false, new Random(vmSeed)), executor));
+            CompletableFuture<Void> frequencies = stage("buildCommunicationFre",
+                    () -> buildCommunicationFre(new Random(freSeed)), executor);
+            CompletableFuture<Void> route = CompletableFuture.allOf(distances, middleBoxes)
+                    .thenComposeAsync(ignored -> setShortestPathRoute(executor), executor);
+            CompletableFuture.allOf(route, placement, frequencies).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> stage(String name, Runnable work, Executor executor){
+        return CompletableFuture.runAsync(() -> {
+            try (Phase phase = startPhase(name)) {
+                work.run();
+            }
+        }, executor);
+    }
     /**
      * <p> Distribute the middle box into the switch randomly such that all the
      * middle boxes distributed into the aggregation switches.</p>
+     * @param r - source of the random choices
      * @return true if number of middle box is positive, otherwise, false
      */
-    private boolean disMb_switch(){
+    private boolean disMb_switch(Random r){
         if(numMBs < 0){
             System.out.println("Number of Middle box cannot be negative.");
             return false;
@@ -200,7 +781,6 @@ public class DataCenter extends FatTree {
         }
         else{
             mBs_Switch = new Hashtable<>();
-            Random r = new Random();
             List<Integer> tempList = new ArrayList<>();
             int index;
             for(int i = 0; i < numMBs; i++){
@@ -224,11 +804,13 @@ public class DataCenter extends FatTree {
      *  - 80% virtual machine pairs distributed on the same edges switches.
      *  </p>
      * @param isRandom - true if distribute the virtual machine randomly, false for 80%
+     * @param r - source of the random choices
+     * @throws IllegalArgumentException if no edge switch has room for both virtual machines of a pair of the 80%
      */
-    private void distributeVM_PM(boolean isRandom){
-        Random r = new Random();
+    private void distributeVM_PM(boolean isRandom, Random r){
         capacity = new int[super.numPM()];    // initialize the capacity of each physical machine is 0
         VM_PM = new Hashtable<>();
+        placement = null;
         int index = 0;
         if(isRandom){
             for(int i = 0; i < numVMPairs; i++){
@@ -254,6 +836,7 @@ public class DataCenter extends FatTree {
             for(int i = 0; i < super.numEdgeSwitch(); i++){ // add the index of edge switch into the list
                 edgeSwitchs.add(i);
             }
+            List<Integer> pairEdgeSwitchs = new ArrayList<>(edgeSwitchs);  // edge switches with room for a pair
             int edgeIndex, edge, pm;
             int indexPM;
             int first80Percent = (int) (numVMPairs * 0.8);
@@ -261,11 +844,15 @@ public class DataCenter extends FatTree {
             // Process for 80%
             for(int i = 0; i < first80Percent; i++, index++){
                 // pick randomly index of the edge switch
-                edgeIndex = r.nextInt(edgeSwitchs.size());
-                edge = edgeSwitchs.get(edgeIndex);
-                while(es_pm.get(edge).size() == 1 && capacity[es_pm.get(edge).get(0)] == 1){
-                    edgeIndex = r.nextInt(edgeSwitchs.size()); // pick randomly index of the edge switch
-                    edge = edgeSwitchs.get(edgeIndex);
+                edgeIndex = r.nextInt(pairEdgeSwitchs.size());
+                edge = pairEdgeSwitchs.get(edgeIndex);
+                while(freeSlots(es_pm.get(edge)) < 2){    // room for the VM and the VMP
+                    pairEdgeSwitchs.remove(edgeIndex);  // it never gets room again
+                    if(pairEdgeSwitchs.isEmpty())
+                        throw new IllegalArgumentException("No edge switch has room for both virtual machines of "
+                                + "pair " + index + " with " + resources + " resources per physical machine");
+                    edgeIndex = r.nextInt(pairEdgeSwitchs.size()); // pick randomly index of the edge switch
+                    edge = pairEdgeSwitchs.get(edgeIndex);
                 }
                 // For VM
                 indexPM = r.nextInt(es_pm.get(edge).size()); // pick randomly index of physical machine
@@ -284,6 +871,10 @@ public class DataCenter extends FatTree {
                 if(capacity[pm] == resources){
                     es_pm.get(edge).remove(indexPM);    //remove the physical machine if its capacity reached
                 }
+                if(es_pm.get(edge).isEmpty()){
+                    pairEdgeSwitchs.remove(edgeIndex);
+                    edgeSwitchs.remove(Integer.valueOf(edge));  // the 20% left must not pick a full edge switch
+                }
             }
             // Process for 20% left
             for(int i = 0; i < second20Percent; i++, index++){
@@ -312,6 +903,16 @@ public class DataCenter extends FatTree {
             }
         }
     }
+    /**
+     * @param pms - physical machines
+     * @return number of virtual machines the physical machines can still host
+     */
+    private int freeSlots(List<Integer> pms){
+        int free = 0;
+        for(int pm : pms) free += resources - capacity[pm];
+        return free;
+    }
+
     /**
      * <p>
      *     Check whether the data center has enough capacity for number of virtual machine pairs
@@ -336,11 +937,20 @@ public class DataCenter extends FatTree {
      * </p>
      */
     public void buildCommunicationFre(){
+        checkNotFrozen();
+        buildCommunicationFre(new Random());
+    }
+
+    /**
+     * Draw the communication frequencies, see {@link #buildCommunicationFre()}. A chosen pair is removed from the
+     * list of pairs left by moving the last pair into its place, so drawing all the frequencies is O(numVMPairs).
+     * @param r - source of the random choices
+     */
+    private void buildCommunicationFre(Random r){
         if(!isEnoughCapacity()){
             System.out.println("Cannot create the frequency communication because it is not enough capacity");
         }
         else {
-            Random r = new Random();
             this.communicationFre = new int[numVMPairs];
             int percent25,percent75, percent5;
             ArrayList<Integer> index = new ArrayList<>(); // List contain the index of virtual machine to make
@@ -354,21 +964,24 @@ public class DataCenter extends FatTree {
             for(int i = 0; i < percent25; i++) {
                 vmIndex = r.nextInt(index.size());  // choose a virtual machine randomly
                 this.communicationFre[index.get(vmIndex)] = r.nextInt(301);
-                index.remove(vmIndex);  // remove a chosen pair of virtual machine
+                index.set(vmIndex, index.get(index.size() - 1));  // remove a chosen pair of virtual machine
+                index.remove(index.size() - 1);
             }
             // Generate 75%
             percent75 = 3 * numVMPairs / 4;
             for(int i = 0; i < percent75; i++) {
                 vmIndex = r.nextInt(index.size());  // choose a virtual machine randomly
                 this.communicationFre[index.get(vmIndex)] = r.nextInt(400) + 301;
-                index.remove(vmIndex);  // remove a chosen pair of virtual machine
+                index.set(vmIndex, index.get(index.size() - 1));  // remove a chosen pair of virtual machine
+                index.remove(index.size() - 1);
             }
             // Generate 5%
             percent5 = numVMPairs - percent25 - percent75;
             for(int i = 0; i < percent5; i++) {
                 vmIndex = r.nextInt(index.size());  // choose a virtual machine randomly
                 this.communicationFre[index.get(vmIndex)] = r.nextInt(300) + 701;
-                index.remove(vmIndex);  // remove a chosen pair of virtual machine
+                index.set(vmIndex, index.get(index.size() - 1));  // remove a chosen pair of virtual machine
+                index.remove(index.size() - 1);
             }
         }
     }
@@ -388,6 +1001,21 @@ public class DataCenter extends FatTree {
      * 			a destination and visit all the middle box such as visit edges at most twice.
      */
     public double calculateSPR(int sourcePM, int destinationPM){
+        return calculateSPR(sourcePM, destinationPM, super.getListNode().get("PM" + sourcePM),
+                super.getListNode().get("PM" + destinationPM), mbSwitches());
+    }
+
+    /**
+     * Same route from the indices of the nodes in the shortest path matrix, read once before the blocks of rows
+     * run at the same time, so that the blocks do not share the hash tables of the nodes
+     * @param sourcePM - index of physical machine as the source
+     * @param destinationPM - index of physical machine as the destination
+     * @param sourceNode - index of the source in the shortest path matrix
+     * @param destinationNode - index of the destination in the shortest path matrix
+     * @param mbNode - index of the switch of each middle box in the shortest path matrix
+     * @return the smallest weight of the walk from the source to the destination through all the middle boxes
+     */
+    private double calculateSPR(int sourcePM, int destinationPM, int sourceNode, int destinationNode, int[] mbNode){
         double shortestPath;
         double mstWeight;
         Graph mstTree = new SingleGraph("MSTTree");
@@ -403,8 +1031,7 @@ public class DataCenter extends FatTree {
             KGraph.addNode("MB"+i);
             mstTree.addNode("MB" + i);
 
-            shortestDistance =
-                    shortestPathMatrix[super.getListNode().get("PM"+sourcePM)][mBs_Switch.get("MB" + i)];
+            shortestDistance = getDistance(sourceNode, mbNode[i]);
             KGraph.addEdge("PM"+ sourcePM + "MB" + i, "PM" + sourcePM, "MB"+i)
                     .addAttribute("weight", shortestDistance);
 
@@ -412,8 +1039,7 @@ public class DataCenter extends FatTree {
                     .addAttribute("length", shortestDistance);
 
             if(sourcePM != destinationPM) {
-                shortestDistance =
-                        shortestPathMatrix[super.getListNode().get("PM" + destinationPM)][mBs_Switch.get("MB" + i)];
+                shortestDistance = getDistance(destinationNode, mbNode[i]);
                 KGraph.addEdge("PM"+ destinationPM + "MB" + i, "PM" + destinationPM, "MB"+i)
                         .addAttribute("weight", shortestDistance);
                 mstTree.addEdge("PM"+ destinationPM + "MB" + i, "PM" + destinationPM, "MB"+i)
@@ -424,7 +1050,7 @@ public class DataCenter extends FatTree {
         shortestDistance = 0;
         for(int i = 0; i < numMBs-1; i++) {
             for(int j = i+1; j < numMBs; j++) {
-                shortestDistance = shortestPathMatrix[mBs_Switch.get("MB"+i)][mBs_Switch.get("MB" + j)];
+                shortestDistance = getDistance(mbNode[i], mbNode[j]);
                 KGraph.addEdge("MB" + i + "_" + j, "MB" + i, "MB" + j)
                         .addAttribute("weight", shortestDistance);
                 mstTree.addEdge("MB" + i + "_" + j, "MB" + i, "MB" + j)
@@ -458,13 +1084,257 @@ public class DataCenter extends FatTree {
      * </ul>
      */
     public void setShortestPathRoute (){
+        checkNotFrozen();
+        if(isLargeScale()){
+            shortestPathRouteTable = new PodRouteTable(super.getNumPods(), getDistanceTable(), mbSwitches());
+            return;
+        }
+        if(getTableArena() != null){
+            OffHeapPathTable table = getTableArena().allocate(super.numPM());
+            fillShortestPathRoute(0, super.numPM(), null, table, pmNodes(), mbSwitches());
+            shortestPathRoute = null;
+            shortestPathRouteTable = table;
+            routeShared = false;
+            return;
+        }
         shortestPathRoute = new double[super.numPM()][super.numPM()];
-        for(int i = 0; i < super.numPM(); i++) {
+        fillShortestPathRoute(0, super.numPM(), shortestPathRoute, null, pmNodes(), mbSwitches());
+        shortestPathRouteTable = new DensePathTable(shortestPathRoute);
+        routeShared = false;
+    }
+
+    /**
+     * Build the shortest path route in blocks of rows that run at the same time on an executor. Each block is a
+     * phase "setShortestPathRoute".
+     * @param executor - executor of the blocks
+     * @return stage done when the route is built
+     */
+    private CompletableFuture<Void> setShortestPathRoute(Executor executor){
+        int numPM = super.numPM();
+        OffHeapPathTable table = getTableArena() == null ? null : getTableArena().allocate(numPM);
+        double[][] dense = table == null ? new double[numPM][numPM] : null;
+        int blockRows = Math.max(1, numPM / ROUTE_BLOCKS);
+        int[] pmNode = pmNodes(), mbNode = mbSwitches();
+        List<CompletableFuture<Void>> blocks = new ArrayList<>();
+        for(int from = 0; from < numPM; from += blockRows){
+            int start = from, end = Math.min(numPM, from + blockRows);
+            blocks.add(stage("setShortestPathRoute",
+                    () -> fillShortestPathRoute(start, end, dense, table, pmNode, mbNode), executor));
+        }
+        return CompletableFuture.allOf(blocks.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            shortestPathRoute = dense;
+            shortestPathRouteTable = table == null ? new DensePathTable(dense) : table;
+            routeShared = false;
+        });
+    }
+
+    /**
+     * Compute rows of the shortest path route; blocks of different rows may be computed at the same time
+     * @param from - first row
+     * @param to - row after the last one
+     * @param dense - route in the heap, null to write into the table
+     * @param table - route outside the heap, null to write into the dense route
+     * @param pmNode - index of each physical machine in the shortest path matrix
+     * @param mbNode - index of the switch of each middle box in the shortest path matrix
+     */
+    private void fillShortestPathRoute(int from, int to, double[][] dense, OffHeapPathTable table, int[] pmNode,
+                                       int[] mbNode){
+        double[] row = table == null ? null : new double[super.numPM()];
+        for(int i = from; i < to; i++) {
+            double[] values = table == null ? dense[i] : row;
             for(int j = 0; j < super.numPM(); j++) {
-                shortestPathRoute[i][j] = calculateSPR(i, j);
+                values[j] = calculateSPR(i, j, pmNode[i], pmNode[j], mbNode);
             }
+            if(table != null) table.setRow(i, values);
+            LiveStatus.DATA_CENTER.progress(super.numPM());
+        }
+    }
+    /**
+     * @return index of each physical machine in the shortest path matrix
+     */
+    private int[] pmNodes(){
+        int[] pmNode = new int[super.numPM()];
+        for(int pm = 0; pm < pmNode.length; pm++) pmNode[pm] = super.getListNode().get("PM" + pm);
+        return pmNode;
+    }
+
+    // ******************************************
+    // ******** SNAPSHOT ************************
+    // ******************************************
+    /**
+     * Save the data center into a binary snapshot file, see {@link DataCenterSnapshot}.
+     * @param fileName - path of the snapshot file
+     * @throws IOException if the file cannot be written
+     * @throws UnsupportedOperationException in large-scale mode
+     */
+    public void saveSnapshot(String fileName) throws IOException{
+        DataCenterSnapshot.save(this, fileName);
+    }
+
+    /**
+     * Load a data center from a binary snapshot file. The shortest path matrix and the shortest path route
+     * are memory mapped from the file instead of being computed again.
+     * @param fileName - path of the snapshot file
+     * @return the data center saved in the snapshot
+     * @throws IOException if the file cannot be read or has an unsupported version
+     */
+    public static DataCenter loadSnapshot(String fileName) throws IOException{
+        return DataCenterSnapshot.load(fileName);
+    }
+
+    /**
+     * Build a data center in the fastest representation that fits the memory of the JVM, see
+     * {@link Representation#choose}. The choice is counted in the {@link Metrics} counter representation.NAME, and
+     * {@link Representation#describe} gives the estimates of every representation.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @return new data center; close its {@link #getTableArena()} when it is done if it has one
+     */
+    public static DataCenter create(int numPods, int migrationCoef, int resources,
+                                    int numMBs, int numVMPairs, int maxCommunicationFre){
+        return create(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre,
+                Representation.Budget.available());
+    }
+
+    /**
+     * Build a data center in the fastest representation that fits a budget, see {@link Representation#choose}.
+     * The choice is counted in the {@link Metrics} counter representation.NAME.
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param budget - memory and build time the data center may use
+     * @return new data center; close its {@link #getTableArena()} when it is done if it has one
+     */
+    public static DataCenter create(int numPods, int migrationCoef, int resources, int numMBs, int numVMPairs,
+                                    int maxCommunicationFre, Representation.Budget budget){
+        Representation representation = Representation.choose(numPods, numMBs, numVMPairs, budget);
+        Metrics.counter("representation." + representation).increment();
+        switch (representation) {
+            case DENSE:
+                return new DataCenter(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre);
+            case OFF_HEAP:
+                return new DataCenter(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre,
+                        new TableArena());
+            case MAPPED:
+                return new DataCenter(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre,
+                        new TableArena(budget.getDirectory()));
+            default:
+                return new DataCenter(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre,
+                        true);
+        }
+    }
+
+    /**
+     * <p>Get a read-only copy of the data center that algorithms running at the same time can share. The copy has
+     * its own placement, communication frequencies, capacities, service chains and resource model; the shortest
+     * path tables never change and are shared. Changing this data center later does not change the copy.</p>
+     * <p>The tables built on demand (placement as arrays, cost evaluator, service chains) are built before the copy
+     * is returned, so the algorithms only read it, and every setter of the copy throws IllegalStateException. The
+     * hash tables and arrays returned by the getters are not copied again and must not be changed. Link loads set
+     * with {@link #setCongestion(LinkLoad, double)} are shared: do not compute them again while the copy is used.</p>
+     * @return frozen copy of the data center
+     */
+    public DataCenter snapshot(){
+        DataCenter copy = new DataCenter(super.getNumPods(), super.getMigrationCoef(), resources, numMBs,
+                numVMPairs, maxCommunicationFre, getDistanceTable(), shortestPathRouteTable,
+                new Hashtable<>(mBs_Switch), new Hashtable<>(VM_PM), capacity.clone(), communicationFre.clone(),
+                isLargeScale());
+        copy.shortestPathRoute = shortestPathRoute;
+        copy.degraded = degraded;
+        routeShared = true;
+        if(chains != null) copy.chains = new ChainRegistry(copy, chains);
+        if(resourceModel != null) copy.resourceModel = resourceModel.copy();
+        copy.congestion = congestion;
+        copy.congestionWeight = congestionWeight;
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Get the part of the data center that does not depend on the virtual machines, to draw other workloads on it
+     * with {@link #DataCenter(Topology, int, int, int, long)}
+     * @return the topology, sharing the tables of this data center
+     */
+    public Topology getTopology(){
+        if(degraded) throw new UnsupportedOperationException("A data center with failures has no topology");
+        routeShared = true;
+        return new Topology(super.getNumPods(), super.getMigrationCoef(), isLargeScale(), getDistanceTable(),
+                shortestPathRouteTable, mbSwitches());
+    }
+
+    /**
+     * <p>Get a read-only copy of the data center on a fabric with failed switches and links. The copy reads its
+     * distances from the failures and keeps its shortest path route per pair of edge switches
+     * ({@link EdgeRouteTable}), so PAM and PAL see the degraded fabric. Pairs whose machines are cut off, or whose
+     * middle boxes cannot be reached, cost infinite.</p>
+     * <p>The algorithms with tables per POD (hierarchical, partitioned, local search, the batch cost evaluator) need
+     * an intact fabric and throw UnsupportedOperationException on the copy.</p>
+     * @param failures - distances of this fat tree with failures, they must not change while the copy is used
+     * @return frozen copy of the data center on the degraded fabric
+     */
+    public DataCenter withFailures(FabricFailures failures){
+        if(failures.getNumPods() != super.getNumPods())
+            throw new IllegalArgumentException("The failures are not of a fat tree with " + super.getNumPods()
+                    + " PODs");
+        try (Phase phase = startPhase("withFailures")) {
+            PathTable route = new EdgeRouteTable(super.getNumPods(), failures, mbSwitches());
+            DataCenter copy = new DataCenter(super.getNumPods(), super.getMigrationCoef(), resources, numMBs,
+                    numVMPairs, maxCommunicationFre, failures, route, new Hashtable<>(mBs_Switch),
+                    new Hashtable<>(VM_PM), capacity.clone(), communicationFre.clone(), false);
+            copy.degraded = true;
+            if(chains != null) copy.chains = new ChainRegistry(copy, chains);
+            if(resourceModel != null) copy.resourceModel = resourceModel.copy();
+            copy.freeze();
+            return copy;
         }
     }
+
+    /**
+     * @return true for a data center on a fabric with failures, see {@link #withFailures(FabricFailures)}
+     */
+    public boolean isDegraded(){return this.degraded;}
+
+    /**
+     * @return true for a read-only snapshot, see {@link #snapshot()}
+     */
+    public boolean isFrozen(){return this.frozen;}
+
+    private void freeze(){
+        getPlacement();
+        getChains().freeze();
+        if(!degraded) getCostEvaluator();
+        frozen = true;
+    }
+
+    private void checkNotFrozen(){
+        if(frozen) throw new IllegalStateException("A data center snapshot is read-only");
+    }
+
+    /**
+     * Start measuring a phase of this data center, see {@link Phase}.
+     * @param name - name of the phase
+     * @return the started phase, close it when the phase is done
+     */
+    public Phase startPhase(String name){
+        return Phase.start(name, super.getNumPods(), numVMPairs, numMBs);
+    }
+
+    /**
+     * Start a phase of an algorithm on this data center
+     * @param name - name of the phase
+     * @param status - live status of the algorithm, {@link LiveStatus#PAM} or {@link LiveStatus#PAL}
+     * @return the started phase, to close at the end of the phase
+     */
+    public Phase startPhase(String name, LiveStatus status){
+        return Phase.start(name, super.getNumPods(), numVMPairs, numMBs, status);
+    }
     /**
      *<p> Display all information of data center such as number of PODs, migration coefficient, resources of each
      * physical machine, number of middle box, number of virtual machine pair, and maximum communication frequency</p>
@@ -493,28 +1363,13 @@ public class DataCenter extends FatTree {
      * @return - List of physical machine close to the given middle box.
      */
     public List<Integer> listClosestPMtoMB(int mbIndex){
-        List<Integer> listPM = new ArrayList<>();
         int switchContainMB = mBs_Switch.get("MB" + mbIndex);   // get a switch contains the middle box
-
-        ArrayList<Double> temp = new ArrayList<>();
-        ArrayList<Double> tempSorted = new ArrayList<>();
-
-        for(int i = 0; i < super.numPM(); i++){ // add the list of physical machine that connect to the switch.
-            temp.add(shortestPathMatrix[switchContainMB][i]);
-            tempSorted.add(shortestPathMatrix[switchContainMB][i]);
-        }
-
-        Collections.sort(tempSorted);   // Sort the temporary list in ascending order.
-        double value;
-        for(int i = 0; i < super.numPM(); i++){
-            value = tempSorted.get(i);
-            for(int j = 0; j < temp.size(); j++){
-                if(temp.get(j) == value){
-                    listPM.add(j);
-                    temp.set(j, -1.0);
-                }
-            }
+        List<Integer> listPM = new ArrayList<>(super.numPM());
+        for(int i = 0; i < super.numPM(); i++){ // add the list of physical machine
+            listPM.add(i);
         }
+        // Sort in ascending order of distance, the sort is stable so equal distances keep the order of index.
+        listPM.sort(Comparator.comparingDouble(pm -> getDistance(switchContainMB, pm)));
         return listPM;
     }
 
@@ -522,31 +1377,27 @@ public class DataCenter extends FatTree {
      * Build the ingress list, list of Physical machines that are closest to first middle box.
      */
     public void setIngress(){
-        ingress = new ArrayList<>();
-        List<Integer> listClosestPM;
-        listClosestPM = listClosestPMtoMB(0);
-        int pmIndicies;
-        int maxResources = 2 * numVMPairs;
-        int i = 0;
-        int index = 0;
-        while(i < maxResources){
-            pmIndicies = listClosestPM.get(index);  // get physical machine
-            for(int j = 0; j < resources; j++){
-                ingress.add(pmIndicies + "_rs" + j);
-                i++;
-                if(i == maxResources) break;
-            }
-            index++;
-        }
+        checkNotFrozen();
+        ingress = slotsClosestTo(0);
     }
 
     /**
      * Build the ingress list, list of Physical machines that are closest to last middle box.
      */
     public void setEgress(){
-        egress = new ArrayList<>();
+        checkNotFrozen();
+        egress = slotsClosestTo(numMBs - 1);
+    }
+
+    /**
+     * Resource slots "pm_rs" + j of the physical machines closest to a middle box, 2 * numVMPairs slots
+     * @param mbIndex - index of the middle box
+     * @return the slots, closest physical machine first
+     */
+    private List<String> slotsClosestTo(int mbIndex){
+        List<String> slots = new ArrayList<>();
         List<Integer> listClosestPM;
-        listClosestPM = listClosestPMtoMB(numMBs - 1);
+        listClosestPM = listClosestPMtoMB(mbIndex);
         int pmIndicies;
         int maxResources = 2 * numVMPairs;
         int i = 0;
@@ -554,12 +1405,24 @@ public class DataCenter extends FatTree {
         while(i < maxResources){
             pmIndicies = listClosestPM.get(index);  // get physical machine
             for(int j = 0; j < resources; j++){
-                egress.add(pmIndicies + "_rs" + j);
+                slots.add(pmIndicies + "_rs" + j);
                 i++;
                 if(i == maxResources) break;
             }
             index++;
         }
+        return slots;
+    }
+
+    /**
+     * Ingress or egress list of a snapshot, built on the first call and never changed after
+     * @param first - true for the ingress list, false for the egress list
+     * @return the list, read-only
+     */
+    private synchronized List<String> frozenSlots(boolean first){
+        if(first && ingress == null) ingress = Collections.unmodifiableList(slotsClosestTo(0));
+        if(!first && egress == null) egress = Collections.unmodifiableList(slotsClosestTo(numMBs - 1));
+        return first ? ingress : egress;
     }
 
     // Calculate communication cost in order policy
@@ -574,7 +1437,7 @@ public class DataCenter extends FatTree {
         for(int i = 0; i < numMBs - 1; i++){
             row = mBs_Switch.get("MB" + i);
             col = mBs_Switch.get("MB" + (i+1));
-            cost += shortestPathMatrix[row][col];
+            cost += getDistance(row, col);
         }
         return cost;
     }
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Hashtable;
+
+/**
+ * <p> Binary snapshot of a built {@link DataCenter}. Loading a snapshot skips the all pairs shortest path of the
+ * fat tree and the shortest path route between all physical machines, which are the slow part of the
+ * construction. The two tables are memory mapped from the file and read in place.</p>
+ * <p>Layout of the file, all values little endian:</p>
+ * <ul>
+ *     <li>magic "PAMPALDC" and int version</li>
+ *     <li>int numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre</li>
+ *     <li>int size of the shortest path matrix, int size of the shortest path route</li>
+ *     <li>long offset of the shortest path matrix, long offset of the shortest path route</li>
+ *     <li>int[numMBs] switch of each middle box</li>
+ *     <li>int[numVMPairs] physical machine of each VM, int[numVMPairs] physical machine of each VMP</li>
+ *     <li>int[numVMPairs] communication frequency of each pair, int[numPM] capacity used of each PM</li>
+ *     <li>padding to 8 bytes, double[size * size] shortest path matrix, double[numPM * numPM] shortest path route</li>
+ * </ul>
+ */
+public final class DataCenterSnapshot {
+    /**
+     * Version of the layout, a snapshot with another version is rejected.
+     */
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = "PAMPALDC".getBytes(StandardCharsets.US_ASCII);
+    private static final int FIXED_HEADER = MAGIC.length + 9 * Integer.BYTES + 2 * Long.BYTES;
+
+    private DataCenterSnapshot() {}
+
+    /**
+     * Write the data center into a snapshot file
+     * @param dataCenter - data center to save
+     * @param fileName - path of the snapshot file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     * @throws UnsupportedOperationException if the data center is in large-scale mode, which has no tables to save
+     *                                       and builds faster than a snapshot of its expanded tables would load
+     */
+    public static void save(DataCenter dataCenter, String fileName) throws IOException {
+        if (dataCenter.isLargeScale())
+            throw new UnsupportedOperationException("No snapshot of a data center in large-scale mode, build it again");
+        PathTable distance = dataCenter.getDistanceTable();
+        PathTable route = dataCenter.getShortestPathRouteTable();
+        int numMBs = dataCenter.getNumMBs();
+        int numVMPairs = dataCenter.getNumVMPairs();
+        int numPM = dataCenter.numPM();
+        long headerSize = FIXED_HEADER + (long) (numMBs + 3 * numVMPairs + numPM) * Integer.BYTES;
+        long distanceOffset = align(headerSize);
+        long routeOffset = distanceOffset + (long) distance.size() * distance.size() * Double.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate((int) (distanceOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION);
+        header.putInt(dataCenter.getNumPods()).putInt(dataCenter.getMigrationCoef()).putInt(dataCenter.getResources())
+                .putInt(numMBs).putInt(numVMPairs).putInt(dataCenter.getMaxCommunicationFre());
+        header.putInt(distance.size()).putInt(route.size()).putLong(distanceOffset).putLong(routeOffset);
+        for (int i = 0; i < numMBs; i++) header.putInt(dataCenter.getmBs_Switch().get("MB" + i));
+        for (int i = 0; i < numVMPairs; i++) header.putInt(dataCenter.getVM_PM().get("VM" + i));
+        for (int i = 0; i < numVMPairs; i++) header.putInt(dataCenter.getVM_PM().get("VMP" + i));
+        for (int i = 0; i < numVMPairs; i++) header.putInt(dataCenter.getCommunicationFre()[i]);
+        for (int i = 0; i < numPM; i++) header.putInt(dataCenter.getCapacity()[i]);
+        header.position(header.capacity()).flip();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            writeTable(channel, distance);
+            writeTable(channel, route);
+        }
+    }
+
+    /**
+     * Read a data center from a snapshot file
+     * @param fileName - path of the snapshot file
+     * @return the data center, with its tables mapped from the file
+     * @throws IOException if the file cannot be read, is truncated or has another version
+     */
+    public static DataCenter load(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(channel, 0, FIXED_HEADER);
+            byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC))
+                throw new IOException(fileName + " is not a data center snapshot");
+            int version = fixed.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version + ", expected " + VERSION);
+            int numPods = fixed.getInt();
+            int migrationCoef = fixed.getInt();
+            int resources = fixed.getInt();
+            int numMBs = fixed.getInt();
+            int numVMPairs = fixed.getInt();
+            int maxCommunicationFre = fixed.getInt();
+            int distanceSize = fixed.getInt();
+            int routeSize = fixed.getInt();
+            long distanceOffset = fixed.getLong();
+            long routeOffset = fixed.getLong();
+            int numPM = numPods * numPods * numPods / 4;
+            if (routeSize != numPM || channel.size() < routeOffset + (long) routeSize * routeSize * Double.BYTES)
+                throw new IOException("Snapshot " + fileName + " is truncated or corrupted");
+
+            ByteBuffer arrays = readFully(channel, FIXED_HEADER, (numMBs + 3 * numVMPairs + numPM) * Integer.BYTES);
+            Hashtable<String, Integer> mBs_Switch = new Hashtable<>();
+            for (int i = 0; i < numMBs; i++) mBs_Switch.put("MB" + i, arrays.getInt());
+            Hashtable<String, Integer> VM_PM = new Hashtable<>();
+            for (int i = 0; i < numVMPairs; i++) VM_PM.put("VM" + i, arrays.getInt());
+            for (int i = 0; i < numVMPairs; i++) VM_PM.put("VMP" + i, arrays.getInt());
+            int[] communicationFre = new int[numVMPairs];
+            for (int i = 0; i < numVMPairs; i++) communicationFre[i] = arrays.getInt();
+            int[] capacity = new int[numPM];
+            for (int i = 0; i < numPM; i++) capacity[i] = arrays.getInt();
+
+            PathTable distance = new MappedPathTable(channel, distanceOffset, distanceSize);
+            PathTable route = new MappedPathTable(channel, routeOffset, routeSize);
+            return new DataCenter(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre,
+                    distance, route, mBs_Switch, VM_PM, capacity, communicationFre);
+        }
+    }
+
+    // ******************************************
+    // ******** HELPER **************************
+    // ******************************************
+
+    private static long align(long position) {
+        return (position + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    private static void writeTable(FileChannel channel, PathTable table) throws IOException {
+        ByteBuffer row = ByteBuffer.allocateDirect(table.size() * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < table.size(); i++) {
+            row.clear();
+            for (int j = 0; j < table.size(); j++) row.putDouble(table.get(i, j));
+            row.flip();
+            writeFully(channel, row);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of snapshot");
+        }
+        return buffer.flip();
+    }
+}
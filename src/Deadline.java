@@ -0,0 +1,51 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> Time limit of an anytime run of an algorithm, for example {@link PAM#migrateUnordered(Deadline)}. The
+ * algorithm looks at the clock between two virtual machine pairs. When the time is up, it stops and places the pairs
+ * it did not process with a fast fallback ({@link AnytimeFallback}), so the placement is always feasible.
+ * {@link Placement#getCompleted()} tells how many pairs the algorithm processed itself.</p>
+ */
+public final class Deadline {
+    /**
+     * No limit: the algorithm runs to completion.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long endNanos;
+
+    private Deadline(long endNanos) {
+        this.endNanos = endNanos;
+    }
+
+    /**
+     * @param millis - time budget from now, in milliseconds
+     * @return deadline at the end of the budget
+     */
+    public static Deadline in(long millis) {
+        return at(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * @param nanoTime - end of the budget, as given by {@link System#nanoTime()}
+     * @return deadline at that time
+     */
+    public static Deadline at(long nanoTime) {
+        return new Deadline(nanoTime);
+    }
+
+    /**
+     * @return true if the time is up
+     */
+    public boolean expired() {
+        return this != NONE && System.nanoTime() - endNanos >= 0;
+    }
+
+    /**
+     * @return time left in milliseconds, 0 if the time is up
+     */
+    public long remainingMillis() {
+        if (this == NONE) return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(endNanos - System.nanoTime()));
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * <p> Path table backed by a two dimensional array in the heap.</p>
+ */
+public class DensePathTable implements PathTable {
+    private final double[][] table;
+
+    /**
+     * @param table - square array, it is not copied
+     */
+    public DensePathTable(double[][] table) {
+        this.table = table;
+    }
+
+    @Override
+    public int size() {return table.length;}
+
+    @Override
+    public double get(int row, int col) {return table[row][col];}
+
+    /**
+     * @return the backing array, not a copy
+     */
+    @Override
+    public double[][] toArray() {return table;}
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * <p> Shortest path route between physical machines stored per pair of edge switches, for a fabric with failures
+ * ({@link FabricFailures}). The machines of a POD no longer have the same distances to the middle boxes, but the
+ * machines of an edge switch still do as long as their own link is up, so the route of {@link PodRouteTable} is kept
+ * per pair of edge switches instead of per pair of PODs. Edge switches with the same distances to the middle boxes
+ * share their routes, so only one walk is computed per pair of such classes.</p>
+ * <p>A route is infinite if a machine is cut off or a middle box cannot be reached.</p>
+ */
+public class EdgeRouteTable implements PathTable {
+    private final int numPM;
+    private final int pmPerEdge;
+    private final boolean[] cutOff;
+    private final int[] classOf;        // class of each edge switch
+    private final int numClasses;
+    private final double[] classRoute;  // between two different edge switches of the two classes
+    private final double[] sameEdgeRoute;
+
+    /**
+     * Compute the route between every pair of classes of edge switches
+     * @param numPods - number of PODs of the fat tree
+     * @param distance - shortest path matrix of the fat tree
+     * @param mbSwitch - index of the switch of each middle box in the shortest path matrix
+     */
+    public EdgeRouteTable(int numPods, PathTable distance, int[] mbSwitch) {
+        this.numPM = numPods * numPods * numPods / 4;
+        this.pmPerEdge = numPods / 2;
+        int numEdge = numPods * numPods / 2;
+        int numMBs = mbSwitch.length;
+        this.cutOff = new boolean[numPM];
+        for (int pm = 0; pm < numPM; pm++) cutOff[pm] = Double.isInfinite(distance.get(pm, numPM + pm / pmPerEdge));
+        double[][] mbToMb = new double[numMBs][numMBs];
+        boolean connected = true;
+        for (int i = 0; i < numMBs; i++) {
+            for (int j = 0; j < numMBs; j++) {
+                mbToMb[i][j] = distance.get(mbSwitch[i], mbSwitch[j]);
+                connected &= !Double.isInfinite(mbToMb[i][j]);
+            }
+        }
+        double[][] edgeToMb = new double[numEdge][numMBs];
+        int[] representative = new int[numEdge];
+        this.classOf = new int[numEdge];
+        int count = 0;
+        for (int e = 0; e < numEdge; e++) {
+            for (int m = 0; m < numMBs; m++) edgeToMb[e][m] = distance.get(numPM + e, mbSwitch[m]) + 1;
+            int c = 0;
+            while (c < count && !Arrays.equals(edgeToMb[representative[c]], edgeToMb[e])) c++;
+            if (c == count) representative[count++] = e;
+            classOf[e] = c;
+        }
+        this.numClasses = count;
+        this.classRoute = new double[count * count];
+        this.sameEdgeRoute = new double[count];
+        for (int c = 0; c < count; c++) {
+            double[] source = edgeToMb[representative[c]];
+            sameEdgeRoute[c] = walk(source, source, mbToMb, true, connected);
+            for (int d = 0; d < count; d++)
+                classRoute[c * count + d] = walk(source, edgeToMb[representative[d]], mbToMb, false, connected);
+        }
+    }
+
+    private static double walk(double[] source, double[] destination, double[][] mbToMb, boolean same,
+                               boolean connected) {
+        if (!connected) return Double.POSITIVE_INFINITY;
+        for (int m = 0; m < source.length; m++)
+            if (Double.isInfinite(source[m]) || Double.isInfinite(destination[m])) return Double.POSITIVE_INFINITY;
+        return PodRouteTable.walkCost(source, destination, mbToMb, same);
+    }
+
+    @Override
+    public int size() {return numPM;}
+
+    @Override
+    public double get(int sourcePM, int destinationPM) {
+        if (cutOff[sourcePM] || cutOff[destinationPM]) return Double.POSITIVE_INFINITY;
+        int e = sourcePM / pmPerEdge, f = destinationPM / pmPerEdge;
+        if (e == f) return sameEdgeRoute[classOf[e]];
+        return classRoute[classOf[e] * numClasses + classOf[f]];
+    }
+
+    /**
+     * @return number of classes of edge switches with the same distances to the middle boxes
+     */
+    public int getNumClasses() {return numClasses;}
+}
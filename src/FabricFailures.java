@@ -0,0 +1,281 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p> Shortest paths of a fat tree with failed switches and links, indexed like the shortest path matrix of
+ * {@link FatTree} (physical machines, edge, aggregation, then core switches). The distances between switches are
+ * kept for every source switch, with the number of neighbors of each switch that are on a shortest path from the
+ * source. A link or a switch that fails only takes a parent away: the search from a source is done again only if a
+ * switch lost its last parent, the other distances from that source cannot change. The fat tree has many equal cost
+ * paths, so most failures search again from a few sources or none.</p>
+ * <p>A physical machine is one link below its edge switch, so its distances are the ones of the edge switch plus
+ * one, and it is cut off when its link or its edge switch fails. Unreachable nodes are at an infinite distance.</p>
+ * <p>Build the intact fabric once and {@link #copy()} it for each failure scenario. Give the failures to a data center
+ * with {@link DataCenter#withFailures(FabricFailures)}; they must not change while that data center is used.</p>
+ * <p>Usage: <code>java RunApp failures k numVMPairs scenarios [failuresPerScenario]</code></p>
+ */
+public final class FabricFailures implements PathTable {
+    private static final short UNREACHABLE = Short.MAX_VALUE;
+    private final int numPods;
+    private final int half;
+    private final int numPM;
+    private final int numEdge;
+    private final int numSwitches;      // edge switches, aggregation switches, core switches
+    private final int[][] neighbors;    // switch graph of the intact fat tree, shared by the copies
+    private final boolean[][] linkUp;   // entry u, i: the link between u and neighbors[u][i] is up
+    private final boolean[] switchUp;
+    private final boolean[] pmLinkUp;
+    private final short[] distance;     // row per source switch
+    private final byte[] parents;       // row per source switch, unsigned
+    private long searches;
+
+    /**
+     * Distances of the intact fat tree
+     * @param numPods - number of PODs, even
+     */
+    public FabricFailures(int numPods) {
+        if (numPods < 2 || numPods % 2 != 0 || numPods > 254)
+            throw new IllegalArgumentException("Invalid number of PODs: " + numPods);
+        this.numPods = numPods;
+        this.half = numPods / 2;
+        this.numPM = numPods * numPods * numPods / 4;
+        this.numEdge = numPods * half;
+        this.numSwitches = 2 * numEdge + half * half;
+        this.neighbors = new int[numSwitches][];
+        for (int e = 0; e < numEdge; e++) {
+            neighbors[e] = new int[half];
+            for (int j = 0; j < half; j++) neighbors[e][j] = numEdge + e / half * half + j;
+        }
+        for (int a = 0; a < numEdge; a++) {
+            neighbors[numEdge + a] = new int[2 * half];
+            for (int j = 0; j < half; j++) {
+                neighbors[numEdge + a][j] = a / half * half + j;
+                neighbors[numEdge + a][half + j] = 2 * numEdge + a % half * half + j;
+            }
+        }
+        for (int c = 0; c < half * half; c++) {
+            neighbors[2 * numEdge + c] = new int[numPods];
+            for (int p = 0; p < numPods; p++) neighbors[2 * numEdge + c][p] = numEdge + p * half + c / half;
+        }
+        this.linkUp = new boolean[numSwitches][];
+        for (int u = 0; u < numSwitches; u++) {
+            linkUp[u] = new boolean[neighbors[u].length];
+            Arrays.fill(linkUp[u], true);
+        }
+        this.switchUp = new boolean[numSwitches];
+        Arrays.fill(switchUp, true);
+        this.pmLinkUp = new boolean[numPM];
+        Arrays.fill(pmLinkUp, true);
+        this.distance = new short[numSwitches * numSwitches];
+        this.parents = new byte[numSwitches * numSwitches];
+        for (int s = 0; s < numSwitches; s++) search(s, new int[numSwitches]);
+    }
+
+    private FabricFailures(FabricFailures from) {
+        this.numPods = from.numPods;
+        this.half = from.half;
+        this.numPM = from.numPM;
+        this.numEdge = from.numEdge;
+        this.numSwitches = from.numSwitches;
+        this.neighbors = from.neighbors;
+        this.linkUp = new boolean[numSwitches][];
+        for (int u = 0; u < numSwitches; u++) linkUp[u] = from.linkUp[u].clone();
+        this.switchUp = from.switchUp.clone();
+        this.pmLinkUp = from.pmLinkUp.clone();
+        this.distance = from.distance.clone();
+        this.parents = from.parents.clone();
+    }
+
+    /**
+     * @return copy with the same failures, changing one does not change the other
+     */
+    public FabricFailures copy() {return new FabricFailures(this);}
+
+    public int getNumPods() {return numPods;}
+
+    /**
+     * @return number of searches from a source switch done again by the failures, since this copy was made
+     */
+    public long getSearches() {return searches;}
+
+    // ******************************************
+    // ******** FAILURES ************************
+    // ******************************************
+
+    /**
+     * Fail a switch and all its links
+     * @param node - index of the switch in the shortest path matrix
+     */
+    public void failSwitch(int node) {
+        int x = switchOf(node);
+        if (!switchUp[x]) return;
+        List<Integer> children = new ArrayList<>();
+        for (int i = 0; i < neighbors[x].length; i++) {
+            if (!linkUp[x][i]) continue;
+            children.add(neighbors[x][i]);
+            setLink(x, i, false);
+        }
+        switchUp[x] = false;
+        boolean[] dirty = new boolean[numSwitches];
+        for (int s = 0; s < numSwitches; s++) {
+            int row = s * numSwitches;
+            int dx = distance[row + x];
+            if (s == x || dx == UNREACHABLE) continue;
+            distance[row + x] = UNREACHABLE;
+            parents[row + x] = 0;
+            for (int y : children) {
+                if (distance[row + y] == dx + 1 && --parents[row + y] == 0) dirty[s] = true;
+            }
+        }
+        dirty[x] = true;
+        searchAgain(dirty);
+    }
+
+    /**
+     * Fail the link between two nodes: a physical machine and its edge switch, or two switches
+     * @param node1 - index of a node in the shortest path matrix
+     * @param node2 - index of a node in the shortest path matrix
+     */
+    public void failLink(int node1, int node2) {
+        if (node1 > node2) {
+            int temp = node1; node1 = node2; node2 = temp;
+        }
+        if (node1 < 0 || node2 >= numPM + numSwitches) throw new IllegalArgumentException("No node " + node1);
+        if (node1 < numPM) {
+            if (node2 != numPM + node1 / half)
+                throw new IllegalArgumentException("PM" + node1 + " is not linked to node " + node2);
+            pmLinkUp[node1] = false;
+            return;
+        }
+        int u = switchOf(node1), v = switchOf(node2);
+        int i = 0;
+        while (i < neighbors[u].length && neighbors[u][i] != v) i++;
+        if (i == neighbors[u].length) throw new IllegalArgumentException("No link between " + node1 + " and " + node2);
+        if (!linkUp[u][i]) return;
+        setLink(u, i, false);
+        boolean[] dirty = new boolean[numSwitches];
+        for (int s = 0; s < numSwitches; s++) {
+            int row = s * numSwitches;
+            int du = distance[row + u], dv = distance[row + v];
+            if (du == UNREACHABLE) continue;
+            if (dv == du + 1 && --parents[row + v] == 0) dirty[s] = true;
+            if (du == dv + 1 && --parents[row + u] == 0) dirty[s] = true;
+        }
+        searchAgain(dirty);
+    }
+
+    /**
+     * Fail a number of random core and aggregation switches and links between them, never a switch of a middle box
+     * @param count - number of failures
+     * @param keep - indices of switches in the shortest path matrix that must stay up
+     * @param random - random generator
+     */
+    public void failRandom(int count, int[] keep, Random random) {
+        int firstAggregation = numPM + numEdge;
+        for (int f = 0; f < count; f++) {
+            int node = firstAggregation + random.nextInt(numEdge + half * half);
+            boolean kept = false;
+            for (int k : keep) kept |= k == node;
+            if (kept) {
+                f--;
+                continue;
+            }
+            if (random.nextBoolean()) {
+                failSwitch(node);
+            } else {
+                int[] next = neighbors[switchOf(node)];
+                failLink(node, numPM + next[random.nextInt(next.length)]);
+            }
+        }
+    }
+
+    /**
+     * @param node - index of a switch in the shortest path matrix
+     * @return false if the switch failed
+     */
+    public boolean isSwitchUp(int node) {return switchUp[switchOf(node)];}
+
+    // ******************************************
+    // ******** DISTANCES ***********************
+    // ******************************************
+
+    @Override
+    public int size() {return numPM + numSwitches;}
+
+    @Override
+    public double get(int row, int col) {
+        if (row == col) return 0;
+        int extra = 0;
+        if (row < numPM) {
+            if (!pmLinkUp[row]) return Double.POSITIVE_INFINITY;
+            if (col < numPM && row / half == col / half)
+                return pmLinkUp[col] && switchUp[row / half] ? 2 : Double.POSITIVE_INFINITY;
+            extra++;
+            row = numPM + row / half;
+        }
+        if (col < numPM) {
+            if (!pmLinkUp[col]) return Double.POSITIVE_INFINITY;
+            extra++;
+            col = numPM + col / half;
+        }
+        short d = distance[(row - numPM) * numSwitches + col - numPM];
+        return d == UNREACHABLE ? Double.POSITIVE_INFINITY : d + extra;
+    }
+
+    // ******************************************
+    // ******** HELPER **************************
+    // ******************************************
+
+    private int switchOf(int node) {
+        if (node < numPM || node >= numPM + numSwitches) throw new IllegalArgumentException("No switch " + node);
+        return node - numPM;
+    }
+
+    private void setLink(int u, int i, boolean up) {
+        int v = neighbors[u][i];
+        linkUp[u][i] = up;
+        for (int j = 0; j < neighbors[v].length; j++) if (neighbors[v][j] == u) linkUp[v][j] = up;
+    }
+
+    private void searchAgain(boolean[] dirty) {
+        int[] queue = new int[numSwitches];
+        long count = 0;
+        for (int s = 0; s < numSwitches; s++) {
+            if (!dirty[s]) continue;
+            search(s, queue);
+            count++;
+        }
+        searches += count;
+        Metrics.counter("fabricFailures.searches").add(count);
+    }
+
+    /**
+     * Breadth first search from a source switch over the links that are up
+     */
+    private void search(int source, int[] queue) {
+        int row = source * numSwitches;
+        Arrays.fill(distance, row, row + numSwitches, UNREACHABLE);
+        Arrays.fill(parents, row, row + numSwitches, (byte) 0);
+        if (!switchUp[source]) return;
+        distance[row + source] = 0;
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int u = queue[head++];
+            short next = (short) (distance[row + u] + 1);
+            for (int i = 0; i < neighbors[u].length; i++) {
+                if (!linkUp[u][i]) continue;
+                int v = neighbors[u][i];
+                if (distance[row + v] == UNREACHABLE) {
+                    distance[row + v] = next;
+                    parents[row + v] = 1;
+                    queue[tail++] = v;
+                } else if (distance[row + v] == next) {
+                    parents[row + v]++;
+                }
+            }
+        }
+    }
+}
@@ -17,9 +17,12 @@ import java.util.List;
 public class FatTree {
     private int numPods;
     private int migrationCoef;
-    private Graph fatTree;
+    private volatile Graph fatTree;
     private Hashtable<String, Integer> listNode;
     double[][] shortestPathMatrix;
+    private PathTable distanceTable;
+    private boolean largeScale;
+    private TableArena tableArena;     // owner of the tables outside the heap, null to keep them in the heap
 
     /**
      * Constructor for FatTree Graph
@@ -28,11 +31,96 @@ public class FatTree {
      * @param migrationCoef: migration cost of the data center.
      */
     public FatTree(int numPods, int migrationCoef) {
+        this(numPods, migrationCoef, false);
+    }
+
+    /**
+     * Constructor for FatTree Graph in normal or large-scale mode. In large-scale mode neither the graph nor the
+     * shortest path matrix is built, the distances are computed from the structure of the fat tree
+     * ({@link FatTreeDistanceOracle}) and memory stays O(number of nodes).
+     *
+     * @param numPods       : number of Pod in fat tree data center, it must be even number.
+     * @param migrationCoef : migration cost of the data center.
+     * @param largeScale    : true for the large-scale mode.
+     */
+    protected FatTree(int numPods, int migrationCoef, boolean largeScale) {
         this.numPods = numPods;
         this.migrationCoef = migrationCoef;
-        fatTree = new SingleGraph("Fat Tree");
+        this.largeScale = largeScale;
         listNode = new Hashtable<>();
-        buildFatTree();
+        if (largeScale) {
+            if (!addListNode()) {
+                System.out.println("Cannot build fat tree since k is odd.");
+            }
+            distanceTable = new FatTreeDistanceOracle(numPods);
+        } else {
+            buildFatTree();
+        }
+    }
+
+    /**
+     * Constructor for FatTree Graph whose shortest path matrix is built outside the heap, in a table of the arena,
+     * so no array of size number of nodes * number of nodes is allocated in the heap.
+     *
+     * @param numPods       : number of Pod in fat tree data center, it must be even number.
+     * @param migrationCoef : migration cost of the data center.
+     * @param tableArena    : owner of the shortest path matrix, it must stay open while the fat tree is used.
+     */
+    protected FatTree(int numPods, int migrationCoef, TableArena tableArena) {
+        this(numPods, migrationCoef, tableArena, false);
+    }
+
+    /**
+     * Constructor for FatTree Graph whose graph and shortest path matrix may be built later, by a call to
+     * {@link #buildFatTree()} on any thread. Until then only the node table is filled, and
+     * {@link #getEdgeSwitch_PM_Map()} follows the structure of the fat tree.
+     *
+     * @param numPods       : number of Pod in fat tree data center, it must be even number.
+     * @param migrationCoef : migration cost of the data center.
+     * @param tableArena    : owner of the shortest path matrix, null to keep it in the heap.
+     * @param deferred      : true to build the graph and the shortest path matrix later.
+     */
+    protected FatTree(int numPods, int migrationCoef, TableArena tableArena, boolean deferred) {
+        this.numPods = numPods;
+        this.migrationCoef = migrationCoef;
+        this.tableArena = tableArena;
+        listNode = new Hashtable<>();
+        if (!deferred) {
+            buildFatTree();
+        } else if (!addListNode()) {
+            System.out.println("Cannot build fat tree since k is odd.");
+        }
+    }
+
+    /**
+     * Constructor for a Fat Tree whose shortest path matrix is already known, for example loaded from a snapshot.
+     * The shortest paths are not computed again, and the graph is built only when it is asked for.
+     *
+     * @param numPods       : number of Pod in fat tree data center, it must be even number.
+     * @param migrationCoef : migration cost of the data center.
+     * @param distanceTable : shortest path matrix of the fat tree.
+     */
+    protected FatTree(int numPods, int migrationCoef, PathTable distanceTable) {
+        this(numPods, migrationCoef, distanceTable, false);
+    }
+
+    /**
+     * Constructor for a Fat Tree whose shortest path matrix is already known, in normal or large-scale mode.
+     *
+     * @param numPods       : number of Pod in fat tree data center, it must be even number.
+     * @param migrationCoef : migration cost of the data center.
+     * @param distanceTable : shortest path matrix of the fat tree, or its distance oracle in large-scale mode.
+     * @param largeScale    : true for the large-scale mode.
+     */
+    protected FatTree(int numPods, int migrationCoef, PathTable distanceTable, boolean largeScale) {
+        this.numPods = numPods;
+        this.largeScale = largeScale;
+        this.migrationCoef = migrationCoef;
+        listNode = new Hashtable<>();
+        if (!addListNode()) {
+            System.out.println("Cannot build fat tree since k is odd.");
+        }
+        this.distanceTable = distanceTable;
     }
 
     // ******************************************
@@ -46,9 +134,10 @@ public class FatTree {
      * Aggregation Switches: "AS" + index, index start 0
      * Core Switches: "CS" + index, index start 0
      *
+     * @param graph - graph of the fat tree
      * @return true if number of PODS is even, otherwise return false.
      */
-    private boolean addNodes() {
+    private boolean addNodes(Graph graph) {
         if (numPods % 2 != 0) {
             System.out.println("Cannot create the Fat Tree with odd number of PODS");
             return false;
@@ -56,25 +145,25 @@ public class FatTree {
             int index = 0;
             // add the Physical Machines
             for (int i = 0; i < numPM(); i++) {
-                fatTree.addNode("PM" + i);
+                graph.addNode("PM" + i);
                 listNode.put("PM" + i, index);
                 index++;
             }
             // add the Edge Switches
             for (int i = 0; i < numEdgeSwitch(); i++) {
-                fatTree.addNode("ES" + i);
+                graph.addNode("ES" + i);
                 listNode.put("ES" + i, index);
                 index++;
             }
             // add the Aggregation Switches
             for (int i = 0; i < numEdgeSwitch(); i++) {
-                fatTree.addNode("AS" + i);
+                graph.addNode("AS" + i);
                 listNode.put("AS" + i, index);
                 index++;
             }
             // add the Core Switches
             for (int i = 0; i < numCoreSwitch(); i++) {
-                fatTree.addNode("CS" + i);
+                graph.addNode("CS" + i);
                 listNode.put("CS" + i, index);
                 index++;
             }
@@ -82,16 +171,33 @@ public class FatTree {
         }
     }
 
+    /**
+     * Add all nodes into the list nodes hash table only, with the same indices as {@link #addNodes()}.
+     *
+     * @return true if number of PODS is even, otherwise return false.
+     */
+    private boolean addListNode() {
+        if (numPods % 2 != 0) return false;
+        int index = 0;
+        for (int i = 0; i < numPM(); i++) listNode.put("PM" + i, index++);
+        for (int i = 0; i < numEdgeSwitch(); i++) listNode.put("ES" + i, index++);
+        for (int i = 0; i < numEdgeSwitch(); i++) listNode.put("AS" + i, index++);
+        for (int i = 0; i < numCoreSwitch(); i++) listNode.put("CS" + i, index++);
+        return true;
+    }
+
     /**
      * Connect the physical machines with the Edge Switch
+     *
+     * @param graph - graph of the fat tree
      */
-    private void addPM_ES() {
+    private void addPM_ES(Graph graph) {
         int PMIndex = 0;
         for (int ESindex = 0; ESindex < numEdgeSwitch(); ESindex++) {
             String es = "ES" + ESindex;
             for (int i = 0; i < numPods / 2; i++) {
                 String pm = "PM" + PMIndex;
-                fatTree.addEdge(pm + es, pm, es).addAttribute("length", 1.0);
+                graph.addEdge(pm + es, pm, es).addAttribute("length", 1.0);
                 PMIndex++;
             }
         }
@@ -99,14 +205,16 @@ public class FatTree {
 
     /**
      * Connect the aggregation switches with core switches
+     *
+     * @param graph - graph of the fat tree
      */
-    private void addAS_CS() {
+    private void addAS_CS(Graph graph) {
         int csIndex = 0;
         for (int ASIndex = 0; ASIndex < numEdgeSwitch(); ASIndex++) {
             String as = "AS" + ASIndex;
             for (int k = 0; k < numPods / 2; k++) {
                 String cs = "CS" + csIndex;
-                fatTree.addEdge(as + cs, as, cs).addAttribute("length", 1.0);
+                graph.addEdge(as + cs, as, cs).addAttribute("length", 1.0);
                 csIndex = (csIndex < (numCoreSwitch() - 1)) ? csIndex + 1 : 0;
             }
         }
@@ -114,8 +222,10 @@ public class FatTree {
 
     /**
      * Connect the Edge Switches with Aggregate Switches
+     *
+     * @param graph - graph of the fat tree
      */
-    private void addES_AS() {
+    private void addES_AS(Graph graph) {
         // Travel all the PODS
         for (int podIndices = 0; podIndices < numPods; podIndices++) {
             // Travel all the Edge Switches in the Pods
@@ -128,7 +238,7 @@ public class FatTree {
                      indexOfAggSwitch < numPods / 2 * podIndices + numPods / 2;
                      indexOfAggSwitch++) {
                     String asId = "AS" + indexOfAggSwitch;
-                    fatTree.addEdge(esId + asId, esId, asId).addAttribute("length", 1.0);
+                    graph.addEdge(esId + asId, esId, asId).addAttribute("length", 1.0);
                 }
             }
         }
@@ -140,7 +250,9 @@ public class FatTree {
      */
     private void buildShortestPathMatrix() {
         int dimesion = numPM() + 2 * numEdgeSwitch() + numCoreSwitch();
-        shortestPathMatrix = new double[dimesion][dimesion];
+        OffHeapPathTable offHeap = tableArena == null ? null : tableArena.allocate(dimesion);
+        shortestPathMatrix = offHeap == null ? new double[dimesion][dimesion] : null;
+        double[] offHeapRow = offHeap == null ? null : new double[dimesion];
         Dijkstra dijkstra = new Dijkstra(Dijkstra.Element.EDGE, null, "length");
         dijkstra.init(fatTree);
         int row, col;
@@ -148,19 +260,39 @@ public class FatTree {
             row = listNode.get(n.getId());
             dijkstra.setSource(n);
             dijkstra.compute();
+            double[] values = offHeap == null ? shortestPathMatrix[row] : offHeapRow;
             for (Node m : fatTree.getNodeSet()) {
                 col = listNode.get(m.getId());
-                shortestPathMatrix[row][col] = dijkstra.getPathLength(m);
+                values[col] = dijkstra.getPathLength(m);
             }
+            if (offHeap != null) offHeap.setRow(row, values);
+        }
+        distanceTable = offHeap == null ? new DensePathTable(shortestPathMatrix) : offHeap;
+    }
+
+    /**
+     * Add all the nodes and links of the fat tree into the graph
+     *
+     * @return true if number of PODS is even, otherwise return false.
+     */
+    private synchronized boolean buildGraph() {
+        Graph graph = new SingleGraph("Fat Tree");
+        boolean built = addNodes(graph);
+        if (built) {
+            addPM_ES(graph);
+            addES_AS(graph);
+            addAS_CS(graph);
         }
+        fatTree = graph;    // published once complete, other stages of the construction may read it
+        return built;
     }
 
     public void buildFatTree() {
-        if (addNodes()) {
-            addPM_ES();
-            addES_AS();
-            addAS_CS();
-            buildShortestPathMatrix();
+        getFatTreeGraph();  // builds the graph, unless a call to getFatTreeGraph already built it
+        if (numPods % 2 == 0) {
+            try (Phase phase = Phase.start("buildShortestPathMatrix", numPods, 0, 0)) {
+                buildShortestPathMatrix();
+            }
         } else {
             System.out.println("Cannot build fat tree since k is odd.");
         }
@@ -190,23 +322,72 @@ public class FatTree {
     }
 
     /**
-     * Get the Fat Tree Graph
+     * Get the Fat Tree Graph, built on the first call if the construction did not build it. Synchronized with
+     * {@link #buildFatTree()}, so threads that ask for the graph at the same time get the same one.
      *
      * @return graph of the fat tree
      */
-    public Graph getFatTreeGraph() {
+    public synchronized Graph getFatTreeGraph() {
+        if (fatTree == null) {
+            buildGraph();
+        }
         return fatTree;
     }
 
     /**
-     * Retrieve the shortest path matrix cost
+     * Check whether the fat tree is in large-scale mode, without any table of size numPM * numPM
+     *
+     * @return true in large-scale mode
+     */
+    public boolean isLargeScale() {
+        return largeScale;
+    }
+
+    /**
+     * Get the owner of the tables outside the heap
+     *
+     * @return arena of the tables, null if the tables are in the heap
+     */
+    public TableArena getTableArena() {
+        return tableArena;
+    }
+
+    /**
+     * Retrieve the shortest path matrix cost. If the matrix is not in the heap (loaded from a snapshot or built in a
+     * {@link TableArena}), it is copied into a new array on the first call, prefer {@link #getDistance(int, int)}.
      *
      * @return matix represent the shortest path between nodes
      */
     public double[][] getShortestPathMatrix() {
+        if (largeScale) {
+            throw new UnsupportedOperationException("No shortest path matrix in large-scale mode, use getDistance");
+        }
+        if (shortestPathMatrix == null && distanceTable != null) {
+            shortestPathMatrix = distanceTable.toArray();
+        }
         return shortestPathMatrix;
     }
 
+    /**
+     * Retrieve the shortest path matrix as a table, without copying it.
+     *
+     * @return table represent the shortest path between nodes
+     */
+    public PathTable getDistanceTable() {
+        return distanceTable;
+    }
+
+    /**
+     * Retrieve the length of the shortest path between two nodes
+     *
+     * @param row - index of the source node in the shortest path matrix
+     * @param col - index of the destination node in the shortest path matrix
+     * @return length of the shortest path between the two nodes
+     */
+    public double getDistance(int row, int col) {
+        return distanceTable.get(row, col);
+    }
+
     /**
      * Get the list node of the fat tree
      *
@@ -278,11 +459,21 @@ public class FatTree {
      */
     public Hashtable<Integer, List<Integer>> getEdgeSwitch_PM_Map() {
         Hashtable<Integer, List<Integer>> ewithPM = new Hashtable<>();
+        Graph graph = fatTree;
+        if (graph == null) {
+            // the graph is not built: edge switch i connects physical machines i * k/2 to i * k/2 + k/2 - 1
+            for (int i = 0; i < numEdgeSwitch(); i++) {
+                List<Integer> pmIndex = new ArrayList<>();
+                for (int pm = i * numPods / 2; pm < (i + 1) * numPods / 2; pm++) pmIndex.add(pm);
+                ewithPM.put(i, pmIndex);
+            }
+            return ewithPM;
+        }
         Node n;
         List<Integer> pmIndex;
         for (int i = 0; i < numEdgeSwitch(); i++) {
             pmIndex = new ArrayList<>();
-            n = fatTree.getNode("ES" + i);
+            n = graph.getNode("ES" + i);
             for (Edge e : n.getEachEdge()) {
                 int l;
                 if (e.getId().contains("PM")) {
@@ -0,0 +1,111 @@
+/**
+ * <p> Shortest path matrix of the fat tree computed on demand from the structure of the topology, without
+ * storing any table. All the links have length 1, so the distance between two nodes only depends on whether
+ * they share an edge switch, a POD, or a group of core switches.</p>
+ * <p>The indices are the same as in {@link FatTree#getListNode()}: physical machines, then edge switches,
+ * aggregation switches and core switches. Aggregation switch j of a POD connects to the core switches
+ * j * k/2 to j * k/2 + k/2 - 1.</p>
+ */
+public class FatTreeDistanceOracle implements PathTable {
+    private static final int PM = 0, ES = 1, AS = 2, CS = 3;
+    private final int half;
+    private final int numPM;
+    private final int numEdgeSwitch;
+    private final int numCoreSwitch;
+
+    /**
+     * @param numPods - number of PODs of the fat tree, must be even
+     */
+    public FatTreeDistanceOracle(int numPods) {
+        this.half = numPods / 2;
+        this.numPM = numPods * numPods * numPods / 4;
+        this.numEdgeSwitch = numPods * numPods / 2;
+        this.numCoreSwitch = numPods * numPods / 4;
+    }
+
+    @Override
+    public int size() {
+        return numPM + 2 * numEdgeSwitch + numCoreSwitch;
+    }
+
+    @Override
+    public double get(int row, int col) {
+        if (row == col) return 0;
+        int typeRow = type(row), typeCol = type(col);
+        if (typeRow > typeCol) {
+            int temp = row; row = col; col = temp;
+            temp = typeRow; typeRow = typeCol; typeCol = temp;
+        }
+        int a = local(row, typeRow), b = local(col, typeCol);
+        switch (typeRow) {
+            case PM:
+                switch (typeCol) {
+                    case PM: return a / half == b / half ? 2 : (podOfPM(a) == podOfPM(b) ? 4 : 6);
+                    case ES: return a / half == b ? 1 : (podOfPM(a) == b / half ? 3 : 5);
+                    case AS: return podOfPM(a) == b / half ? 2 : 4;
+                    default: return 3;
+                }
+            case ES:
+                switch (typeCol) {
+                    case ES: return a / half == b / half ? 2 : 4;
+                    case AS: return a / half == b / half ? 1 : 3;
+                    default: return 2;
+                }
+            case AS:
+                if (typeCol == AS) return (a / half == b / half || a % half == b % half) ? 2 : 4;
+                return a % half == b / half ? 1 : 3;
+            default:
+                return b / half == a / half ? 2 : 4;
+        }
+    }
+
+    /**
+     * Get the POD of a physical machine
+     * @param pm - index of the physical machine
+     * @return index of the POD
+     */
+    public int podOfPM(int pm) {
+        return pm / half / half;
+    }
+
+    /**
+     * Get the edge switch of a physical machine
+     * @param pm - index of the physical machine
+     * @return index of the edge switch, start 0
+     */
+    public int edgeOfPM(int pm) {
+        return pm / half;
+    }
+
+    /**
+     * Get the POD of a node of the shortest path matrix, -1 for a core switch
+     * @param node - index of the node in the shortest path matrix
+     * @return index of the POD
+     */
+    public int podOfNode(int node) {
+        int type = type(node);
+        int local = local(node, type);
+        switch (type) {
+            case PM: return podOfPM(local);
+            case ES:
+            case AS: return local / half;
+            default: return -1;
+        }
+    }
+
+    private int type(int node) {
+        if (node < numPM) return PM;
+        if (node < numPM + numEdgeSwitch) return ES;
+        if (node < numPM + 2 * numEdgeSwitch) return AS;
+        return CS;
+    }
+
+    private int local(int node, int type) {
+        switch (type) {
+            case PM: return node;
+            case ES: return node - numPM;
+            case AS: return node - numPM - numEdgeSwitch;
+            default: return node - numPM - 2 * numEdgeSwitch;
+        }
+    }
+}
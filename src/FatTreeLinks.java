@@ -0,0 +1,63 @@
+/**
+ * <p> Index of the directed links of a fat tree, shared by the migration scheduler and the link loads. The links of
+ * a fat tree with k PODs and k^3/4 physical machines are numbered in three blocks of 2 * k^3/4 links:</p>
+ * <ul>
+ *     <li>physical machine - edge switch: up link pm, down link numPM + pm;</li>
+ *     <li>edge switch - aggregation switch: 2 * numPM + 2 * (edge * k/2 + aggregation position) + (down ? 1 : 0);</li>
+ *     <li>aggregation switch - core switch: 4 * numPM + 2 * (aggregation switch * k/2 + core) + (down ? 1 : 0),
+ *     where the core is the index among the k/2 core switches the aggregation switch is linked to.</li>
+ * </ul>
+ * <p>Edge switches and aggregation switches are numbered from 0 inside their own layer, POD after POD.</p>
+ */
+final class FatTreeLinks {
+    final int half;
+    final int numPM;
+    final int numLinks;
+
+    /**
+     * @param numPods - number of PODs of the fat tree
+     */
+    FatTreeLinks(int numPods) {
+        this.half = numPods / 2;
+        this.numPM = numPods * numPods * numPods / 4;
+        this.numLinks = 6 * numPM;
+    }
+
+    int pmLink(int pm, boolean up) {
+        return up ? pm : numPM + pm;
+    }
+
+    int edgeLink(int edge, int aggregation, boolean up) {
+        return 2 * numPM + 2 * (edge * half + aggregation) + (up ? 0 : 1);
+    }
+
+    int coreLink(int aggregationSwitch, int core, boolean up) {
+        return 4 * numPM + 2 * (aggregationSwitch * half + core) + (up ? 0 : 1);
+    }
+
+    /**
+     * @param link - index of a link
+     * @return 0 for a physical machine link, 1 for an edge - aggregation link, 2 for an aggregation - core link
+     */
+    int layer(int link) {
+        return link / (2 * numPM);
+    }
+
+    /**
+     * @param link - index of a link
+     * @return readable name of the link, e.g. "ES3-AS1 up"
+     */
+    String name(int link) {
+        int offset = link % (2 * numPM);
+        switch (layer(link)) {
+            case 0:
+                return "PM" + (offset % numPM) + (offset < numPM ? " up" : " down");
+            case 1:
+                return "ES" + offset / 2 / half + "-AS" + (offset / 2 / half / half * half + offset / 2 % half)
+                        + (offset % 2 == 0 ? " up" : " down");
+            default:
+                return "AS" + offset / 2 / half + "-CS" + (offset / 2 / half % half * half + offset / 2 % half)
+                        + (offset % 2 == 0 ? " up" : " down");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * <p> Remaining resources of every physical machine during a placement, with the largest remaining value of every
+ * resource under each edge switch and each POD. A search for a physical machine that can host a virtual machine
+ * skips a whole POD or edge switch when its summary is below the demand in one resource, instead of checking its
+ * machines one by one.</p>
+ * <p>The summaries are necessary conditions only: a POD may have the largest CPU on one machine and the largest
+ * memory on another, so the machines of a POD that passes are still checked. Taking resources recomputes the
+ * summaries of the edge switch and POD of the machine in O(k * resources).</p>
+ */
+public class FeasibilityIndex {
+    private final int half;
+    private final int pmPerPod;
+    private final int numPM;
+    private final int dimensions;
+    private final int[] demand;
+    private final int[] remaining;  // pm * dimensions + resource
+    private final int[] edgeMax;    // edge * dimensions + resource
+    private final int[] podMax;     // pod * dimensions + resource
+
+    /**
+     * Index with the full capacity of every physical machine
+     * @param numPods - number of PODs of the fat tree
+     * @param model - capacities and demands
+     */
+    public FeasibilityIndex(int numPods, ResourceModel model) {
+        this.half = numPods / 2;
+        this.pmPerPod = half * half;
+        this.numPM = numPods * pmPerPod;
+        this.dimensions = model.getDimensions();
+        this.demand = model.demands();
+        this.remaining = model.capacities().clone();
+        this.edgeMax = new int[numPods * half * dimensions];
+        this.podMax = new int[numPods * dimensions];
+        for (int edge = 0; edge < numPods * half; edge++) summarize(edge);
+    }
+
+    /**
+     * Index of the resource model of a data center, the slot model when none is set, with the resources of the
+     * pairs of a placement taken
+     * @param dataCenter - data center
+     * @param placement - placement of the pairs, the pairs not placed take no resource
+     * @return the index
+     */
+    public static FeasibilityIndex of(DataCenter dataCenter, Placement placement) {
+        FeasibilityIndex index = new FeasibilityIndex(dataCenter.getNumPods(), dataCenter.getResourceModel());
+        int dimensions = index.dimensions;
+        for (int pair = 0; pair < placement.size(); pair++) {
+            if (!placement.isPlaced(pair)) continue;
+            int vm = ResourceModel.vm(pair), vmp = ResourceModel.vmp(pair);
+            for (int d = 0; d < dimensions; d++) {
+                index.remaining[placement.getVM(pair) * dimensions + d] -= index.demand[vm * dimensions + d];
+                index.remaining[placement.getVMP(pair) * dimensions + d] -= index.demand[vmp * dimensions + d];
+            }
+        }
+        for (int edge = 0; edge < index.edgeMax.length / dimensions; edge++) index.summarize(edge);
+        return index;
+    }
+
+    /**
+     * @param pm - index of the physical machine
+     * @param vm - number of the virtual machine in the model
+     * @return true if the virtual machine fits on the physical machine
+     */
+    public boolean fits(int pm, int vm) {
+        return covers(remaining, pm, vm, -1);
+    }
+
+    /**
+     * @param pm - index of the physical machine
+     * @param vm - number of a virtual machine in the model
+     * @param otherVm - number of another virtual machine in the model
+     * @return true if both virtual machines fit together on the physical machine
+     */
+    public boolean fits(int pm, int vm, int otherVm) {
+        return covers(remaining, pm, vm, otherVm);
+    }
+
+    /**
+     * @param from - first physical machine to look at
+     * @param vm - number of the virtual machine in the model
+     * @return the first physical machine from the given one where the virtual machine fits, -1 if there is none
+     */
+    public int nextFit(int from, int vm) {
+        return nextFit(from, vm, -1);
+    }
+
+    /**
+     * @param from - first physical machine to look at
+     * @param vm - number of a virtual machine in the model
+     * @param otherVm - number of another virtual machine, -1 for none
+     * @return the first physical machine from the given one where both virtual machines fit together, -1 if there
+     * is none
+     */
+    public int nextFit(int from, int vm, int otherVm) {
+        int pm = Math.max(from, 0);
+        while (pm < numPM) {
+            int pod = pm / pmPerPod;
+            if (!covers(podMax, pod, vm, otherVm)) {
+                pm = (pod + 1) * pmPerPod;
+                continue;
+            }
+            int edge = pm / half;
+            if (!covers(edgeMax, edge, vm, otherVm)) {
+                pm = (edge + 1) * half;
+                continue;
+            }
+            if (covers(remaining, pm, vm, otherVm)) return pm;
+            pm++;
+        }
+        return -1;
+    }
+
+    /**
+     * Place a virtual machine, the remaining capacity may become negative if it does not fit
+     * @param pm - index of the physical machine
+     * @param vm - number of the virtual machine in the model
+     */
+    public void take(int pm, int vm) {
+        for (int d = 0; d < dimensions; d++) remaining[pm * dimensions + d] -= demand[vm * dimensions + d];
+        summarize(pm / half);
+    }
+
+    /**
+     * Remove a virtual machine
+     * @param pm - index of the physical machine
+     * @param vm - number of the virtual machine in the model
+     */
+    public void release(int pm, int vm) {
+        int edge = pm / half, pod = pm / pmPerPod;
+        for (int d = 0; d < dimensions; d++) {
+            int value = remaining[pm * dimensions + d] += demand[vm * dimensions + d];
+            edgeMax[edge * dimensions + d] = Math.max(edgeMax[edge * dimensions + d], value);
+            podMax[pod * dimensions + d] = Math.max(podMax[pod * dimensions + d], value);
+        }
+    }
+
+    /**
+     * @param pm - index of the physical machine
+     * @param resource - index of the resource
+     * @return remaining capacity of the physical machine in the resource
+     */
+    public int remaining(int pm, int resource) {return remaining[pm * dimensions + resource];}
+
+    private boolean covers(int[] values, int entry, int vm, int otherVm) {
+        for (int d = 0; d < dimensions; d++) {
+            int need = demand[vm * dimensions + d] + (otherVm < 0 ? 0 : demand[otherVm * dimensions + d]);
+            if (values[entry * dimensions + d] < need) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Recompute the summary of an edge switch and of its POD
+     */
+    private void summarize(int edge) {
+        for (int d = 0; d < dimensions; d++) {
+            int max = Integer.MIN_VALUE;
+            for (int pm = edge * half; pm < (edge + 1) * half; pm++)
+                max = Math.max(max, remaining[pm * dimensions + d]);
+            edgeMax[edge * dimensions + d] = max;
+            int pod = edge / half;
+            max = Integer.MIN_VALUE;
+            for (int e = pod * half; e < (pod + 1) * half; e++) max = Math.max(max, edgeMax[e * dimensions + d]);
+            podMax[pod * dimensions + d] = max;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p> Unordered PAL placement and unordered PAM migration on the hierarchy PM, edge switch, POD instead of on
+ * numPM * numPM tables. The route between two physical machines only depends on their PODs
+ * ({@link PodRouteTable}), and the distance between two physical machines only depends on whether they share
+ * an edge switch or a POD, so the cheapest pair of physical machines is found by looking at PODs and at the
+ * nearest available machine of each POD ({@link CapacityIndex}). Memory is O(numPM + numVMPairs).</p>
+ * <p>Both algorithms take the cheapest available pair of physical machines for each virtual machine pair, in the
+ * order of pairs of {@link PAL#PALUnordered()} and {@link PAM#costUnorderPAM()}. They differ from the dense
+ * algorithms in three ways:</p>
+ * <ul>
+ *     <li>every pair is placed on the cheapest pair of physical machines with room. The dense PAL walks a list of
+ *     pairs of physical machines that is only partly sorted, since the lists of two routes share entries, and it
+ *     walks it forward only and leaves a pair that does not fit on the rest of the list to
+ *     {@link AnytimeFallback};</li>
+ *     <li>the migration of the VMP is charged from its machine to its own destination, while the dense PAM charges
+ *     the distance to the destination of the VM ({@code c_j} reads {@code "PM" + i});</li>
+ *     <li>the VM of a pair may move to any physical machine, while the dense PAM only tries the first numVMPairs
+ *     machines ({@code i < numVMPairs}).</li>
+ * </ul>
+ * <p>So their costs may differ from the costs of the dense algorithms, in either direction. They count slots, so
+ * they only run with the slot model ({@link DataCenter#requireSlotModel(String)}).</p>
+ */
+public final class HierarchicalPlacement {
+
+    private HierarchicalPlacement() {}
+
+    /**
+     * Get the route table per pair of PODs of the data center, built from the middle boxes if the data center
+     * keeps the dense table.
+     * @param dataCenter - data center
+     * @return route table per pair of PODs
+     */
+    public static PodRouteTable podRoute(DataCenter dataCenter) {
+        if (dataCenter.isDegraded())
+            throw new UnsupportedOperationException("The tables per POD need a fabric without failures");
+        if (dataCenter.getShortestPathRouteTable() instanceof PodRouteTable)
+            return (PodRouteTable) dataCenter.getShortestPathRouteTable();
+        return new PodRouteTable(dataCenter.getNumPods(), dataCenter.getDistanceTable(), dataCenter.mbSwitches());
+    }
+
+    /**
+     * Get the route table per pair of PODs of every service chain of the data center
+     * @param dataCenter - data center
+     * @param allMiddleBoxes - route table of the chain of all middle boxes, {@link #podRoute(DataCenter)}
+     * @return route table of each chain, by id of the chain
+     */
+    static PodRouteTable[] chainRoutes(DataCenter dataCenter, PodRouteTable allMiddleBoxes) {
+        ChainRegistry chains = dataCenter.getChains();
+        PodRouteTable[] routes = new PodRouteTable[chains.size()];
+        routes[0] = allMiddleBoxes;
+        for (int c = 1; c < routes.length; c++) routes[c] = chains.table(c).getUnorderedRoute();
+        return routes;
+    }
+
+    // ******************************************
+    // ******** PAL UNORDERED *******************
+    // ******************************************
+
+    /**
+     * <p>Place the virtual machine pairs, in order of their index, on the available pair of physical machines with
+     * the smallest route. Pairs of physical machines with the same route are taken row by row, like the sorted
+     * list of pairs in {@link PAL#PALUnordered()}. The pairs of PODs are ranked by the chain of all middle boxes,
+     * and each pair is charged the route of its own service chain.</p>
+     * @param dataCenter - data center
+     * @param sameMachineFirst - true to fill every physical machine with pairs on the same machine first, as the
+     *                         traffic aware algorithm does
+     * @return placement of the pairs, with its total communication cost
+     */
+    public static Placement placeUnordered(DataCenter dataCenter, boolean sameMachineFirst) {
+        return placeUnordered(dataCenter, sameMachineFirst, Deadline.NONE);
+    }
+
+    /**
+     * Same placement until a deadline, the pairs not placed by then are placed by {@link AnytimeFallback}
+     * @param dataCenter - data center
+     * @param sameMachineFirst - true to fill every physical machine with pairs on the same machine first
+     * @param deadline - time limit of the run, looked at once per physical machine
+     * @return placement of the pairs, with its total communication cost and the number of pairs placed in time
+     * @throws UnsupportedOperationException if the data center has a resource model other than the slot model
+     */
+    public static Placement placeUnordered(DataCenter dataCenter, boolean sameMachineFirst, Deadline deadline) {
+        dataCenter.requireSlotModel("The hierarchical placement");
+        int numPods = dataCenter.getNumPods();
+        int half = numPods / 2;
+        int pmPerPod = half * half;
+        int numVMPairs = dataCenter.getNumVMPairs();
+        int[] fre = dataCenter.getCommunicationFre();
+        PodRouteTable route = podRoute(dataCenter);
+        PodRouteTable[] routes = chainRoutes(dataCenter, route);
+        int[] chainOf = dataCenter.getChains().chainOfPairs();
+        CapacityIndex capacity = CapacityIndex.uniform(numPods, dataCenter.getResources());
+        Placement placement = new Placement(numVMPairs);
+        double cost = 0;
+        int pair = 0;
+
+        if (sameMachineFirst) {
+            for (int pm = 0; pm < dataCenter.numPM() && pair < numVMPairs && !deadline.expired(); pm++) {
+                while (pair < numVMPairs && capacity.fits(pm, pm)) {
+                    placement.place(pair, pm, pm);
+                    cost += fre[pair] * routes[chainOf[pair]].get(pm, pm);
+                    capacity.take(pm);
+                    capacity.take(pm);
+                    pair++;
+                    LiveStatus.PAL.progress(1);
+                }
+            }
+        }
+
+        Integer[] podPairs = sortedPodPairs(route);
+        int start = 0;
+        boolean expired = deadline.expired();
+        while (start < podPairs.length && pair < numVMPairs && !expired) {
+            // group of pairs of PODs with the same route
+            double key = podRouteOf(route, podPairs[start]);
+            int end = start;
+            while (end < podPairs.length && podRouteOf(route, podPairs[end]) == key) end++;
+            Integer[] group = Arrays.copyOfRange(podPairs, start, end);
+            Arrays.sort(group);     // row by row: source POD, then destination POD
+            int g = 0;
+            while (g < group.length && pair < numVMPairs && !expired) {
+                int sourcePod = group[g] / numPods;
+                int last = g;
+                while (last < group.length && group[last] / numPods == sourcePod) last++;
+                for (int pm = sourcePod * pmPerPod; pm < (sourcePod + 1) * pmPerPod && pair < numVMPairs; pm++) {
+                    if (expired = deadline.expired()) break;
+                    if (capacity.edgeAvailable(pm / half) == 0) {
+                        pm += half - 1 - pm % half;     // the edge switch is full, go to the next one
+                        continue;
+                    }
+                    for (int t = g; t < last && capacity.available(pm) > 0 && pair < numVMPairs; t++) {
+                        int destinationPod = group[t] % numPods;
+                        int pmPair;
+                        while (pair < numVMPairs && capacity.available(pm) > 0
+                                && (pmPair = capacity.firstAvailable(destinationPod, pm)) >= 0) {
+                            placement.place(pair, pm, pmPair);
+                            cost += fre[pair] * routes[chainOf[pair]].getPodRoute(sourcePod, destinationPod);
+                            capacity.take(pm);
+                            capacity.take(pmPair);
+                            pair++;
+                            LiveStatus.PAL.progress(1);
+                        }
+                    }
+                }
+                g = last;
+            }
+            start = end;
+        }
+        if (pair < numVMPairs) {
+            cost += AnytimeFallback.place(dataCenter, placement, null, pair, null,
+                    ResourceModel.slots(dataCenter.numPM(), numVMPairs, dataCenter.getResources()),
+                    OnlinePlacementService.Policy.UNORDERED);
+            placement.setCompleted(pair);
+        }
+        placement.setCost(cost);
+        return placement;
+    }
+
+    // ******************************************
+    // ******** PAM UNORDERED *******************
+    // ******************************************
+
+    /**
+     * <p>Migrate the virtual machine pairs in descending order of communication frequency to the pair of physical
+     * machines with the smallest migration plus communication cost, like {@link PAM#costUnorderPAM()}.
+     * As there, a physical machine accepts as many virtual machines as it hosts before the migration.</p>
+     * <p>For a pair hosted on (u, v), the cost of (i, j) is fre * route(pod i, pod j) + migrationCoef * (d(u, i)
+     * + d(v, j)). Inside a POD the best i is the available machine nearest to u, and in any other POD every
+     * machine is at distance 6, so only the PODs of u and v need a detailed search; for the other PODs the pair
+     * of PODs with the smallest route that still has capacity is the best. The route is the one of the service
+     * chain of the pair.</p>
+     * @param dataCenter - data center
+     * @return placement after the migration, with its total cost
+     */
+    public static Placement migrateUnordered(DataCenter dataCenter) {
+        return migrateUnordered(dataCenter, Deadline.NONE);
+    }
+
+    /**
+     * Same migration until a deadline, the pairs not processed by then are placed by {@link AnytimeFallback}
+     * @param dataCenter - data center
+     * @param deadline - time limit of the run
+     * @return placement after the migration, with its total cost and the number of pairs processed in time
+     * @throws UnsupportedOperationException if the data center has a resource model other than the slot model
+     */
+    public static Placement migrateUnordered(DataCenter dataCenter, Deadline deadline) {
+        dataCenter.requireSlotModel("The hierarchical migration");
+        int numPods = dataCenter.getNumPods();
+        int numVMPairs = dataCenter.getNumVMPairs();
+        int[] fre = dataCenter.getCommunicationFre();
+        double migrationCoef = dataCenter.getMigrationCoef();
+        PodRouteTable[] routes = chainRoutes(dataCenter, podRoute(dataCenter));
+        int[] chainOf = dataCenter.getChains().chainOfPairs();
+        Placement before = Placement.of(dataCenter.getVM_PM(), numVMPairs);
+        Placement placement = before.copy();
+        CapacityIndex capacity = new CapacityIndex(numPods, dataCenter.getCapacity());
+        Integer[][] podPairsOf = new Integer[routes.length][];     // sorted pairs of PODs of each chain
+        int[] podPairCursor = new int[routes.length];
+        double total = 0;
+        int[] bestI = new int[numPods];
+        int[] bestJ = new int[numPods];
+
+        int[] order = descendingFrequency(fre);
+        int done;
+        for (done = 0; done < numVMPairs && !deadline.expired(); done++) {
+            int index = order[done];
+            int u = before.getVM(index), v = before.getVMP(index);
+            int chain = chainOf[index];
+            PodRouteTable route = routes[chain];
+            if (podPairsOf[chain] == null) podPairsOf[chain] = sortedPodPairs(route);
+            Integer[] podPairs = podPairsOf[chain];
+            // pairs of PODs far from both: skip those without capacity, they never get it back
+            while (podPairCursor[chain] < podPairs.length
+                    && !hasRoom(capacity, podPairs[podPairCursor[chain]], numPods))
+                podPairCursor[chain]++;
+            Candidate best = cheapestMigration(dataCenter, route, capacity, podPairs, podPairCursor[chain],
+                    fre[index], migrationCoef, u, v, bestI, bestJ);
+            LiveStatus.PAM.progress(1);
+            if (best.i < 0) {   // no capacity left: the pair stays where it is
+                total += fre[index] * route.get(u, v);
+                continue;
+            }
+            placement.place(index, best.i, best.j);
+            capacity.take(best.i);
+            capacity.take(best.j);
+            total += best.cost;
+            LiveStatus.PAM.addCost(best.cost);
+        }
+        if (done < numVMPairs) {
+            total += AnytimeFallback.place(dataCenter, placement, order, done, before,
+                    ResourceModel.slots(dataCenter.getCapacity(), numVMPairs), OnlinePlacementService.Policy.UNORDERED);
+            placement.setCompleted(done);
+        }
+        placement.setCost(total);
+        return placement;
+    }
+
+    /**
+     * Find the pair of available physical machines with the smallest migration plus communication cost for a
+     * virtual machine pair hosted on (u, v).
+     * @param podPairs - pairs of PODs sorted by {@link #sortedPodPairs(PodRouteTable)}
+     * @param podPairStart - first pair of PODs to look at for the PODs far from both u and v, the pairs before it
+     *                     have no capacity
+     * @param bestI - work array of numPods values
+     * @param bestJ - work array of numPods values
+     * @return the best candidate, with i = -1 if there is no capacity left
+     */
+    static Candidate cheapestMigration(DataCenter dataCenter, PodRouteTable route, CapacityIndex capacity,
+                                       Integer[] podPairs, int podPairStart, int fre, double migrationCoef,
+                                       int u, int v, int[] bestI, int[] bestJ) {
+        int numPods = route.getNumPods();
+        int pmPerPod = numPods * numPods / 4;
+        int podU = u / pmPerPod, podV = v / pmPerPod;
+        for (int p = 0; p < numPods; p++) {
+            bestI[p] = capacity.nearest(u, p, -1);
+            bestJ[p] = capacity.nearest(v, p, -1);
+        }
+        Candidate best = new Candidate();
+        for (int p = 0; p < numPods; p++) {
+            evaluate(best, dataCenter, route, capacity, fre, migrationCoef, u, v, podU, p, bestI, bestJ);
+            evaluate(best, dataCenter, route, capacity, fre, migrationCoef, u, v, p, podV, bestI, bestJ);
+        }
+        for (int c = podPairStart; c < podPairs.length; c++) {
+            int sourcePod = podPairs[c] / numPods, destinationPod = podPairs[c] % numPods;
+            if (sourcePod == podU || destinationPod == podV || !hasRoom(capacity, podPairs[c], numPods))
+                continue;
+            evaluate(best, dataCenter, route, capacity, fre, migrationCoef, u, v,
+                    sourcePod, destinationPod, bestI, bestJ);
+            break;
+        }
+        return best;
+    }
+
+    static final class Candidate {
+        int i = -1, j = -1;
+        double cost = Double.MAX_VALUE;
+
+        void consider(int i, int j, double cost) {
+            if (cost < this.cost) {
+                this.i = i;
+                this.j = j;
+                this.cost = cost;
+            }
+        }
+    }
+
+    private static void evaluate(Candidate best, DataCenter dataCenter, PodRouteTable route, CapacityIndex capacity,
+                                 int fre, double migrationCoef, int u, int v, int sourcePod, int destinationPod,
+                                 int[] bestI, int[] bestJ) {
+        int i = bestI[sourcePod], j = bestJ[destinationPod];
+        if (i < 0 || j < 0) return;
+        double communication = fre * route.getPodRoute(sourcePod, destinationPod);
+        if (capacity.fits(i, j)) {
+            best.consider(i, j, communication + migrationCoef * (dataCenter.getDistance(u, i)
+                    + dataCenter.getDistance(v, j)));
+            return;
+        }
+        // both nearest machines are the same one with a single slot: move one of the two
+        int otherJ = capacity.nearest(v, destinationPod, i);
+        if (otherJ >= 0)
+            best.consider(i, otherJ, communication + migrationCoef * (dataCenter.getDistance(u, i)
+                    + dataCenter.getDistance(v, otherJ)));
+        int otherI = capacity.nearest(u, sourcePod, j);
+        if (otherI >= 0)
+            best.consider(otherI, j, communication + migrationCoef * (dataCenter.getDistance(u, otherI)
+                    + dataCenter.getDistance(v, j)));
+    }
+
+    // ******************************************
+    // ******** HELPER **************************
+    // ******************************************
+
+    static boolean hasRoom(CapacityIndex capacity, int podPair, int numPods) {
+        int sourcePod = podPair / numPods, destinationPod = podPair % numPods;
+        if (sourcePod == destinationPod) return capacity.podSlots(sourcePod) > 1;
+        return capacity.podSlots(sourcePod) > 0 && capacity.podSlots(destinationPod) > 0;
+    }
+
+    private static double podRouteOf(PodRouteTable route, int podPair) {
+        return route.getPodRoute(podPair / route.getNumPods(), podPair % route.getNumPods());
+    }
+
+    /**
+     * @return pairs of PODs (source * numPods + destination) in ascending order of route, ties row by row
+     */
+    static Integer[] sortedPodPairs(PodRouteTable route) {
+        Integer[] podPairs = new Integer[route.getNumPods() * route.getNumPods()];
+        for (int i = 0; i < podPairs.length; i++) podPairs[i] = i;
+        Arrays.sort(podPairs, Comparator.comparingDouble(p -> podRouteOf(route, p)));
+        return podPairs;
+    }
+
+    /**
+     * @param fre - communication frequency of each pair
+     * @return index of the pairs in descending order of frequency, ties by ascending index
+     */
+    static int[] descendingFrequency(int[] fre) {
+        Integer[] order = new Integer[fre.length];
+        for (int i = 0; i < fre.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(fre[b], fre[a]));
+        int[] result = new int[fre.length];
+        for (int i = 0; i < fre.length; i++) result[i] = order[i];
+        return result;
+    }
+}
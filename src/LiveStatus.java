@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <p> Live progress of the data center construction, PAM and PAL, published as platform MBeans
+ * "pampal:type=LiveStatus,name=DataCenter", "...,name=PAM" and "...,name=PAL". Each one has the phase running
+ * ({@link Phase}), the items processed and their throughput, the time since the last item, the cost so far and the
+ * heap used. The items are counted in the {@link Metrics} counters "spr.entries", "pam.pairs" and "pal.pairs".</p>
+ * <p>With the system property pampal.metricsFile, or after {@link #startFile(Path, long)}, a daemon thread appends
+ * one CSV line per component to a file every pampal.metricsPeriod milliseconds (1000 by default).</p>
+ * <p>Several threads may run phases of one component at the same time. The phase is then the names of all the
+ * running phases joined by '+', in the order they started, and "idle" only when none runs. The time and the rate
+ * are measured from the moment the component stopped being idle, and the cost is the sum of the costs added by all
+ * the running phases since then.</p>
+ */
+public final class LiveStatus implements LiveStatusMBean {
+    public static final LiveStatus DATA_CENTER = new LiveStatus("DataCenter", "spr.entries");
+    public static final LiveStatus PAM = new LiveStatus("PAM", "pam.pairs");
+    public static final LiveStatus PAL = new LiveStatus("PAL", "pal.pairs");
+    private static final LiveStatus[] ALL = {DATA_CENTER, PAM, PAL};
+    private static ScheduledExecutorService writer;
+    private static Path writerFile;
+
+    private final String name;
+    private final String counter;
+    private final List<String> running = new ArrayList<>();    // names of the running phases, guarded by this
+    private final DoubleAdder cost = new DoubleAdder();
+    private volatile String phase = "idle";
+    private volatile long phaseStartNanos = System.nanoTime();
+    private volatile long phaseStartCount;
+    private volatile long progressNanos = System.nanoTime();
+
+    static {
+        for (LiveStatus status : ALL) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(status,
+                        new ObjectName("pampal:type=LiveStatus,name=" + status.name));
+            } catch (JMException e) {
+                System.out.println("Cannot register the MBean of " + status.name + ": " + e.getMessage());
+            }
+        }
+        String file = System.getProperty("pampal.metricsFile");
+        if (file != null) startFile(Paths.get(file), Long.getLong("pampal.metricsPeriod", 1000));
+    }
+
+    private LiveStatus(String name, String counter) {
+        this.name = name;
+        this.counter = counter;
+    }
+
+    /**
+     * Start a phase, called by {@link Phase}. If no other phase runs, the time, the rate and the cost start again.
+     * @param phase - name of the phase
+     */
+    synchronized void enter(String phase) {
+        if (running.isEmpty()) {
+            phaseStartCount = getProcessed();
+            phaseStartNanos = System.nanoTime();
+            progressNanos = phaseStartNanos;
+            cost.reset();
+        }
+        running.add(phase);
+        this.phase = String.join("+", running);
+    }
+
+    /**
+     * End a phase, called by {@link Phase}
+     * @param phase - name of the phase, from {@link #enter(String)}
+     */
+    synchronized void leave(String phase) {
+        running.remove(phase);
+        this.phase = running.isEmpty() ? "idle" : String.join("+", running);
+    }
+
+    /**
+     * Count processed items
+     * @param items - number of items
+     */
+    public void progress(long items) {
+        Metrics.counter(counter).add(items);
+        progressNanos = System.nanoTime();
+    }
+
+    /**
+     * @param cost - communication cost of the pairs just processed, added to the cost of the running phases
+     */
+    public void addCost(double cost) {this.cost.add(cost);}
+
+    @Override
+    public String getPhase() {return phase;}
+
+    @Override
+    public long getPhaseMillis() {return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStartNanos);}
+
+    @Override
+    public long getProcessed() {return Metrics.counter(counter).sum();}
+
+    @Override
+    public double getProcessedPerSecond() {
+        long nanos = System.nanoTime() - phaseStartNanos;
+        return nanos <= 0 ? 0 : (getProcessed() - phaseStartCount) * 1e9 / nanos;
+    }
+
+    @Override
+    public long getMillisSinceProgress() {return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - progressNanos);}
+
+    @Override
+    public double getCurrentCost() {return cost.sum();}
+
+    @Override
+    public long getHeapUsedBytes() {return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();}
+
+    // ******************************************
+    // ************* METRICS FILE ***************
+    // ******************************************
+
+    /**
+     * Append the status of every component to a CSV file at a fixed period, until {@link #stopFile()}. A header
+     * is written if the file is new.
+     * @param file - metrics file
+     * @param periodMillis - period between two writes, in milliseconds
+     */
+    public static synchronized void startFile(Path file, long periodMillis) {
+        stopFile();
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pampal-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writerFile = file;
+        writer.scheduleAtFixedRate(() -> write(file), 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop writing the metrics file, after one last write
+     */
+    public static synchronized void stopFile() {
+        if (writer == null) return;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write(writerFile);
+        writer = null;
+    }
+
+    private static void write(Path file) {
+        boolean header = !Files.exists(file);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (header) out.println("time_ms,component,phase,phase_ms,processed,processed_per_s,"
+                    + "ms_since_progress,cost,heap_used_bytes");
+            long now = System.currentTimeMillis();
+            for (LiveStatus s : ALL) {
+                out.printf(Locale.ROOT, "%d,%s,%s,%d,%d,%.1f,%d,%.1f,%d%n", now, s.name, s.phase, s.getPhaseMillis(),
+                        s.getProcessed(), s.getProcessedPerSecond(), s.getMillisSinceProgress(), s.getCurrentCost(),
+                        s.getHeapUsedBytes());
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot write the metrics file " + file + ": " + e.getMessage());
+        }
+    }
+}
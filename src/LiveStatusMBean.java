@@ -0,0 +1,40 @@
+/**
+ * <p> Attributes of {@link LiveStatus} read through JMX, for example with JConsole or VisualVM.</p>
+ */
+public interface LiveStatusMBean {
+    /**
+     * @return names of the phases running, joined by '+', "idle" if none
+     */
+    String getPhase();
+
+    /**
+     * @return time since a phase started while none was running, in milliseconds
+     */
+    long getPhaseMillis();
+
+    /**
+     * @return items processed since the start of the JVM: route entries for the data center, virtual machine pairs
+     * for PAM and PAL
+     */
+    long getProcessed();
+
+    /**
+     * @return items processed per second since a phase started while none was running
+     */
+    double getProcessedPerSecond();
+
+    /**
+     * @return time since the last item was processed, in milliseconds; a large value while a phase runs is a stall
+     */
+    long getMillisSinceProgress();
+
+    /**
+     * @return communication cost of the pairs processed so far by the algorithms running
+     */
+    double getCurrentCost();
+
+    /**
+     * @return bytes used in the heap
+     */
+    long getHeapUsedBytes();
+}
@@ -0,0 +1,316 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p> Local search that improves the placement found by the un-ordered PAM or PAL algorithm. Two neighborhoods are
+ * tried on random pairs:</p>
+ * <ul>
+ *     <li>move: the VM or the VMP of a pair goes to another physical machine where it fits;</li>
+ *     <li>swap: the VM or the VMP of a pair exchanges its physical machine with a VM or VMP of another pair, if
+ *     each one fits in the place of the other.</li>
+ * </ul>
+ * <p>A virtual machine fits on a physical machine by the resource model of the data center
+ * ({@link DataCenter#getResourceModel()}), checked on a {@link FeasibilityIndex}. With the slot model every swap
+ * fits.</p>
+ * <p>The change of cost of a move is computed in O(1) from the route, the distances and the communication
+ * frequency of the pairs involved, and only moves that decrease the cost are applied. The total cost is updated
+ * with the change, never summed again.</p>
+ * <p>The search runs in rounds. In every round the PODs are shuffled and split into disjoint regions, one per
+ * worker thread; a worker only touches the pairs with both VMs in its region and only moves them inside it, so
+ * the workers need no lock. The next round draws new regions, so a pair can also move between PODs.</p>
+ * <p>The cost of a pair on (i, j) is fre * route(i, j), plus migrationCoef * (d(u, i) + d(v, j)) for a migration
+ * from (u, v).</p>
+ */
+public class LocalSearch {
+    private static final long ROUND_NANOS = 50_000_000L;
+    private final DataCenter dataCenter;
+    private final Placement before;
+    private final int threads;
+    private final long timeBudgetMillis;
+    private final long maxIterations;
+    private long seed = 1;
+
+    /**
+     * @param dataCenter - data center
+     * @param before - placement before the migration for PAM, null for PAL (no migration cost)
+     * @param threads - number of worker threads, one region of PODs each
+     * @param timeBudgetMillis - wall clock time of the search
+     * @param maxIterations - maximum number of moves tried
+     */
+    public LocalSearch(DataCenter dataCenter, Placement before, int threads, long timeBudgetMillis,
+                       long maxIterations) {
+        this.dataCenter = dataCenter;
+        this.before = before;
+        this.threads = Math.max(1, Math.min(threads, dataCenter.getNumPods()));
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxIterations = maxIterations;
+    }
+
+    public void setSeed(long seed) {this.seed = seed;}
+
+    /**
+     * Result of a search
+     */
+    public static final class Report {
+        private final double initialCost;
+        private final double finalCost;
+        private final long iterations;
+        private final long acceptedMoves;
+        private final double cpuSeconds;
+
+        Report(double initialCost, double finalCost, long iterations, long acceptedMoves, double cpuSeconds) {
+            this.initialCost = initialCost;
+            this.finalCost = finalCost;
+            this.iterations = iterations;
+            this.acceptedMoves = acceptedMoves;
+            this.cpuSeconds = cpuSeconds;
+        }
+
+        public double getInitialCost() {return initialCost;}
+
+        public double getFinalCost() {return finalCost;}
+
+        public long getIterations() {return iterations;}
+
+        public long getAcceptedMoves() {return acceptedMoves;}
+
+        public double getCpuSeconds() {return cpuSeconds;}
+
+        /**
+         * @return decrease of the cost per CPU second used by the workers
+         */
+        public double getImprovementPerCpuSecond() {
+            return cpuSeconds == 0 ? 0 : (initialCost - finalCost) / cpuSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return "Local search: cost " + initialCost + " -> " + finalCost + ", " + acceptedMoves + "/" + iterations
+                    + " moves, " + cpuSeconds + " CPU s, " + getImprovementPerCpuSecond() + " per CPU s";
+        }
+    }
+
+    // ******************************************
+    // ******** SEARCH **************************
+    // ******************************************
+
+    /**
+     * Improve a placement in place and set its cost to the cost after the search.
+     * Pairs that are not placed are left as they are.
+     * @param placement - placement found by PAM or PAL
+     * @return report of the search
+     */
+    public Report improve(Placement placement) {
+        try (Phase phase = dataCenter.startPhase("localSearch")) {
+            int numPods = dataCenter.getNumPods();
+            int pmPerPod = numPods * numPods / 4;
+            FeasibilityIndex available = FeasibilityIndex.of(dataCenter, placement);
+            double initialCost = 0;
+            for (int pair = 0; pair < placement.size(); pair++) {
+                if (placement.isPlaced(pair))
+                    initialCost += pairCost(pair, placement.getVM(pair), placement.getVMP(pair));
+            }
+            double cost = initialCost;
+            long iterations = 0, accepted = 0, cpuNanos = 0;
+            long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] podOrder = new int[numPods];
+            for (int p = 0; p < numPods; p++) podOrder[p] = p;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                while (iterations < maxIterations && System.nanoTime() < deadline) {
+                    // new regions: shuffled PODs cut in threads parts
+                    for (int p = numPods - 1; p > 0; p--) {
+                        int q = random.nextInt(p + 1);
+                        int temp = podOrder[p]; podOrder[p] = podOrder[q]; podOrder[q] = temp;
+                    }
+                    int[] regionOfPod = new int[numPods];
+                    for (int p = 0; p < numPods; p++) regionOfPod[podOrder[p]] = p * threads / numPods;
+                    int[][] regionPairs = regionPairs(placement, regionOfPod, pmPerPod);
+                    long roundEnd = Math.min(deadline, System.nanoTime() + ROUND_NANOS);
+                    long roundIterations = (maxIterations - iterations) / threads + 1;
+                    List<Future<Region>> futures = new ArrayList<>();
+                    for (int r = 0; r < threads; r++) {
+                        Region region = new Region(placement, available, regionOfPod, r, regionPairs[r],
+                                random.split());
+                        futures.add(pool.submit(() -> region.run(roundEnd, roundIterations)));
+                    }
+                    for (Future<Region> future : futures) {
+                        Region region = future.get();
+                        cost += region.change;
+                        iterations += region.iterations;
+                        accepted += region.accepted;
+                        cpuNanos += region.cpuNanos;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            placement.setCost(cost);
+            Metrics.counter("localSearch.iterations").add(iterations);
+            Metrics.counter("localSearch.acceptedMoves").add(accepted);
+            return new Report(initialCost, cost, iterations, accepted, cpuNanos / 1e9);
+        }
+    }
+
+    /**
+     * Search of one worker on one region of PODs during one round. It only takes and releases resources of the
+     * physical machines of its region, so the regions share the index without a lock.
+     */
+    private final class Region {
+        private final Placement placement;
+        private final FeasibilityIndex available;
+        private final int[] regionOfPod;
+        private final int region;
+        private final int[] pairs;
+        private final int[] pods;
+        private final SplittableRandom random;
+        private final int pmPerPod;
+        private double change;
+        private long iterations;
+        private long accepted;
+        private long cpuNanos;
+
+        Region(Placement placement, FeasibilityIndex available, int[] regionOfPod, int region, int[] pairs,
+               SplittableRandom random) {
+            this.placement = placement;
+            this.available = available;
+            this.regionOfPod = regionOfPod;
+            this.region = region;
+            this.pairs = pairs;
+            this.random = random;
+            int numPods = regionOfPod.length;
+            this.pmPerPod = numPods * numPods / 4;
+            int count = 0;
+            for (int r : regionOfPod) if (r == region) count++;
+            this.pods = new int[count];
+            count = 0;
+            for (int p = 0; p < numPods; p++) if (regionOfPod[p] == region) pods[count++] = p;
+        }
+
+        Region run(long roundEnd, long maxIterations) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            long cpuStart = bean.getCurrentThreadCpuTime();
+            if (pairs.length > 0 && pods.length > 0) {
+                while (iterations < maxIterations && ((iterations & 255) != 0 || System.nanoTime() < roundEnd)) {
+                    iterations++;
+                    if (random.nextBoolean()) tryMove();
+                    else trySwap();
+                }
+            }
+            cpuNanos = bean.getCurrentThreadCpuTime() - cpuStart;
+            return this;
+        }
+
+        @SuppressWarnings("fallthrough")
+        private void tryMove() {
+            int pair = pairs[random.nextInt(pairs.length)];
+            boolean vmp = random.nextBoolean();
+            int vm = vmp ? ResourceModel.vmp(pair) : ResourceModel.vm(pair);
+            int i = placement.getVM(pair), j = placement.getVMP(pair);
+            int current = vmp ? j : i;
+            int target;
+            switch (random.nextInt(3)) {
+                case 0:     // next to the other VM of the pair
+                    target = vmp ? i : j;
+                    break;
+                case 1:     // back to the host before the migration
+                    if (before != null) {
+                        target = vmp ? before.getVMP(pair) : before.getVM(pair);
+                        if (regionOfPod[target / pmPerPod] == region) break;
+                    }
+                    // fall through: no migration or host outside the region
+                default:    // anywhere in the region
+                    target = pods[random.nextInt(pods.length)] * pmPerPod + random.nextInt(pmPerPod);
+            }
+            if (target == current || !available.fits(target, vm)) return;
+            int newI = vmp ? i : target, newJ = vmp ? target : j;
+            double delta = pairCost(pair, newI, newJ) - pairCost(pair, i, j);
+            if (delta >= 0) return;
+            available.release(current, vm);
+            available.take(target, vm);
+            placement.place(pair, newI, newJ);
+            change += delta;
+            accepted++;
+        }
+
+        private void trySwap() {
+            int pair = pairs[random.nextInt(pairs.length)];
+            int other = pairs[random.nextInt(pairs.length)];
+            if (pair == other) return;
+            boolean vmp = random.nextBoolean(), otherVmp = random.nextBoolean();
+            int i = placement.getVM(pair), j = placement.getVMP(pair);
+            int otherI = placement.getVM(other), otherJ = placement.getVMP(other);
+            int pm = vmp ? j : i, otherPM = otherVmp ? otherJ : otherI;
+            if (pm == otherPM) return;
+            int newI = vmp ? i : otherPM, newJ = vmp ? otherPM : j;
+            int newOtherI = otherVmp ? otherI : pm, newOtherJ = otherVmp ? pm : otherJ;
+            double delta = pairCost(pair, newI, newJ) + pairCost(other, newOtherI, newOtherJ)
+                    - pairCost(pair, i, j) - pairCost(other, otherI, otherJ);
+            if (delta >= 0) return;
+            int vm = vmp ? ResourceModel.vmp(pair) : ResourceModel.vm(pair);
+            int otherVm = otherVmp ? ResourceModel.vmp(other) : ResourceModel.vm(other);
+            available.release(pm, vm);
+            available.release(otherPM, otherVm);
+            boolean fits = available.fits(pm, otherVm) && available.fits(otherPM, vm);
+            available.take(pm, fits ? otherVm : vm);
+            available.take(otherPM, fits ? vm : otherVm);
+            if (!fits) return;
+            placement.place(pair, newI, newJ);
+            placement.place(other, newOtherI, newOtherJ);
+            change += delta;
+            accepted++;
+        }
+    }
+
+    // ******************************************
+    // ******** HELPER **************************
+    // ******************************************
+
+    /**
+     * @return cost of a pair placed on (i, j)
+     */
+    private double pairCost(int pair, int i, int j) {
+        double cost = dataCenter.getCommunicationFre()[pair] * dataCenter.getRouteCost(pair, i, j);
+        if (before != null)
+            cost += dataCenter.getMigrationCoef() * (dataCenter.getDistance(before.getVM(pair), i)
+                    + dataCenter.getDistance(before.getVMP(pair), j));
+        return cost;
+    }
+
+    /**
+     * @return pairs of every region, the pairs with both VMs in the region
+     */
+    private static int[][] regionPairs(Placement placement, int[] regionOfPod, int pmPerPod) {
+        int regions = 0;
+        for (int r : regionOfPod) regions = Math.max(regions, r + 1);
+        int[] count = new int[regions];
+        int[] regionOfPair = new int[placement.size()];
+        for (int pair = 0; pair < placement.size(); pair++) {
+            regionOfPair[pair] = -1;
+            if (!placement.isPlaced(pair)) continue;
+            int r = regionOfPod[placement.getVM(pair) / pmPerPod];
+            if (r != regionOfPod[placement.getVMP(pair) / pmPerPod]) continue;
+            regionOfPair[pair] = r;
+            count[r]++;
+        }
+        int[][] pairs = new int[regions][];
+        for (int r = 0; r < regions; r++) pairs[r] = new int[count[r]];
+        java.util.Arrays.fill(count, 0);
+        for (int pair = 0; pair < placement.size(); pair++) {
+            if (regionOfPair[pair] >= 0) pairs[regionOfPair[pair]][count[regionOfPair[pair]]++] = pair;
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,43 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p> Path table read directly from a memory mapped file, without copying it into the heap.
+ * The values are stored row by row as little endian doubles. A single mapping is limited to 2 GB, so the
+ * table is mapped in chunks of whole rows.</p>
+ */
+public class MappedPathTable implements PathTable {
+    private final int size;
+    private final int rowsPerChunk;
+    private final DoubleBuffer[] chunks;
+
+    /**
+     * Map the table from the channel. The mapping stays valid after the channel is closed.
+     * @param channel - channel of the file, opened for reading
+     * @param offset - position of the first value in the file, in bytes
+     * @param size - dimension of the table
+     * @throws IOException if the file cannot be mapped
+     */
+    public MappedPathTable(FileChannel channel, long offset, int size) throws IOException {
+        this.size = size;
+        this.rowsPerChunk = Math.max(1, (int) (Integer.MAX_VALUE / ((long) size * Double.BYTES)));
+        int numChunks = (size + rowsPerChunk - 1) / rowsPerChunk;
+        chunks = new DoubleBuffer[numChunks];
+        for (int c = 0; c < numChunks; c++) {
+            int rows = Math.min(rowsPerChunk, size - c * rowsPerChunk);
+            long position = offset + (long) c * rowsPerChunk * size * Double.BYTES;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) rows * size * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public double get(int row, int col) {
+        return chunks[row / rowsPerChunk].get((row % rowsPerChunk) * size + col);
+    }
+}
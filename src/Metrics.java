@@ -0,0 +1,85 @@
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p> In-process registry of counters and timers shared by all threads. The phases of {@link Phase} record
+ * their time here, and the runner dumps the registry when it finishes.</p>
+ */
+public final class Metrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Timer that accumulates number of calls, total and maximum time.
+     */
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Record one call of the timer
+         * @param nanos - elapsed time in nanoseconds
+         */
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {return count.sum();}
+
+        public long getTotalNanos() {return totalNanos.sum();}
+
+        public long getMaxNanos() {return maxNanos.get();}
+    }
+
+    /**
+     * Get or create the counter with the given name
+     * @param name - name of the counter
+     * @return the counter
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Get or create the timer with the given name
+     * @param name - name of the timer
+     * @return the timer
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Remove all counters and timers.
+     */
+    public static void reset() {
+        counters.clear();
+        timers.clear();
+    }
+
+    /**
+     * Print all counters and timers sorted by name
+     * @param out - stream to print to
+     */
+    public static void dump(PrintStream out) {
+        out.println("******** Metrics ********");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            out.println(entry.getKey() + "\t" + entry.getValue().sum());
+        }
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            Timer t = entry.getValue();
+            out.printf("%s\tcount=%d\ttotal_ms=%.3f\tmean_ms=%.3f\tmax_ms=%.3f%n", entry.getKey(), t.getCount(),
+                    t.getTotalNanos() / 1e6, t.getCount() == 0 ? 0 : t.getTotalNanos() / 1e6 / t.getCount(),
+                    t.getMaxNanos() / 1e6);
+        }
+    }
+}
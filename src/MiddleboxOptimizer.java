@@ -0,0 +1,399 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p> Placement of the middle boxes on the aggregation switches that decreases the communication cost of the
+ * current placement of the virtual machines, instead of the random switches of the data center.</p>
+ * <p>A physical machine is at distance 2 from the aggregation switches of its POD and 4 from the others, so the cost
+ * only depends on the traffic between PODs. The traffic of the pairs is summed once per service chain: per POD of
+ * the VM and of the VMP in ordered policy, per pair of PODs in un-ordered policy. A candidate placement is then
+ * evaluated from these sums without building any route table:</p>
+ * <ul>
+ *     <li>ordered: the cost of the first (last) middle box on switch s is the sum over the PODs of the traffic
+ *     leaving (entering) the POD times its distance to s, kept per switch, plus the total traffic times the length
+ *     of the chain;</li>
+ *     <li>un-ordered: the walk through the middle boxes ({@link PodRouteTable#walkCost}) for every pair of PODs with
+ *     traffic, O(k * k * numMBs * numMBs) per chain.</li>
+ * </ul>
+ * <p>The search is a steepest descent: every round evaluates all the moves of one middle box to a free aggregation
+ * switch and all the swaps of two middle boxes, split over the worker threads, and applies the best one until no
+ * move decreases the cost. It starts from the current switches and from random placements (restarts).</p>
+ * <p>A candidate only changes the chains that use the moved middle boxes, so only their change of cost is computed.
+ * In ordered policy it is the change of the terms at the positions of the moved middle boxes: the distances to their
+ * two neighbours in the chain, and the ingress or the egress cost at the ends, in O(1) per chain. In un-ordered
+ * policy the walk of a changed chain is computed again.</p>
+ */
+public class MiddleboxOptimizer {
+    private final DataCenter dataCenter;
+    private final OnlinePlacementService.Policy policy;
+    private final int threads;
+    private final int numPods;
+    private final int numMBs;
+    private final int firstAggregation;
+    private final int numAggregation;
+    private final double[][] podToSwitch;       // POD, aggregation switch
+    private final double[][] switchToSwitch;    // aggregation switch, aggregation switch
+    private final int[][] chains;               // middle boxes of every chain
+    private final int[][] positionOf;           // chain, MB: position of the MB in the chain, -1 if not in it
+    private final int[][] chainsOf;             // chains that use every MB
+    // ordered: traffic per chain and POD, and cost per chain and switch of the first and of the last middle box
+    private final double[] chainTraffic;
+    private final double[][] ingressCost;
+    private final double[][] egressCost;
+    // un-ordered: pairs of PODs with traffic and their traffic, per chain
+    private final int[][] podPairs;
+    private final double[][] podPairTraffic;
+    private int restarts = 4;
+    private long seed = 1;
+    private long evaluations;
+
+    /**
+     * Sum the traffic of the current placement of the virtual machines
+     * @param dataCenter - data center
+     * @param policy - ordered or un-ordered policy
+     * @param threads - number of worker threads
+     */
+    public MiddleboxOptimizer(DataCenter dataCenter, OnlinePlacementService.Policy policy, int threads) {
+        this.dataCenter = dataCenter;
+        this.policy = policy;
+        this.threads = Math.max(1, threads);
+        this.numPods = dataCenter.getNumPods();
+        this.numMBs = dataCenter.getNumMBs();
+        this.firstAggregation = dataCenter.numPM() + dataCenter.numEdgeSwitch();
+        this.numAggregation = dataCenter.numEdgeSwitch();
+        int pmPerPod = numPods * numPods / 4;
+        this.podToSwitch = new double[numPods][numAggregation];
+        for (int p = 0; p < numPods; p++)
+            for (int s = 0; s < numAggregation; s++)
+                podToSwitch[p][s] = dataCenter.getDistance(p * pmPerPod, firstAggregation + s);
+        this.switchToSwitch = new double[numAggregation][numAggregation];
+        for (int s = 0; s < numAggregation; s++)
+            for (int t = 0; t < numAggregation; t++)
+                switchToSwitch[s][t] = dataCenter.getDistance(firstAggregation + s, firstAggregation + t);
+
+        ChainRegistry registry = dataCenter.getChains();
+        int numChains = registry.size();
+        this.chains = new int[numChains][];
+        for (int c = 0; c < numChains; c++) chains[c] = registry.table(c).getChain().toArray();
+        this.positionOf = new int[numChains][numMBs];
+        int[] uses = new int[numMBs];
+        for (int c = 0; c < numChains; c++) {
+            Arrays.fill(positionOf[c], -1);
+            for (int t = 0; t < chains[c].length; t++) {
+                positionOf[c][chains[c][t]] = t;
+                uses[chains[c][t]]++;
+            }
+        }
+        this.chainsOf = new int[numMBs][];
+        for (int m = 0; m < numMBs; m++) chainsOf[m] = new int[uses[m]];
+        Arrays.fill(uses, 0);
+        for (int c = 0; c < numChains; c++)
+            for (int mb : chains[c]) chainsOf[mb][uses[mb]++] = c;
+        Placement placement = dataCenter.getPlacement();
+        int[] fre = dataCenter.getCommunicationFre();
+        double[][] leaving = new double[numChains][numPods];
+        double[][] entering = new double[numChains][numPods];
+        double[][] traffic = new double[numChains][numPods * numPods];
+        this.chainTraffic = new double[numChains];
+        for (int pair = 0; pair < placement.size(); pair++) {
+            if (!placement.isPlaced(pair)) continue;
+            int c = registry.chainOf(pair);
+            int a = placement.getVM(pair) / pmPerPod, b = placement.getVMP(pair) / pmPerPod;
+            leaving[c][a] += fre[pair];
+            entering[c][b] += fre[pair];
+            traffic[c][a * numPods + b] += fre[pair];
+            chainTraffic[c] += fre[pair];
+        }
+        this.ingressCost = new double[numChains][numAggregation];
+        this.egressCost = new double[numChains][numAggregation];
+        this.podPairs = new int[numChains][];
+        this.podPairTraffic = new double[numChains][];
+        for (int c = 0; c < numChains; c++) {
+            for (int s = 0; s < numAggregation; s++) {
+                for (int p = 0; p < numPods; p++) {
+                    ingressCost[c][s] += leaving[c][p] * podToSwitch[p][s];
+                    egressCost[c][s] += entering[c][p] * podToSwitch[p][s];
+                }
+            }
+            int count = 0;
+            for (double t : traffic[c]) if (t > 0) count++;
+            podPairs[c] = new int[count];
+            podPairTraffic[c] = new double[count];
+            count = 0;
+            for (int ab = 0; ab < traffic[c].length; ab++) {
+                if (traffic[c][ab] == 0) continue;
+                podPairs[c][count] = ab;
+                podPairTraffic[c][count++] = traffic[c][ab];
+            }
+        }
+    }
+
+    /**
+     * @param restarts - number of descents from random placements, after the one from the current switches
+     */
+    public void setRestarts(int restarts) {this.restarts = restarts;}
+
+    public void setSeed(long seed) {this.seed = seed;}
+
+    /**
+     * @return number of candidate placements evaluated by the last {@link #optimize()}
+     */
+    public long getEvaluations() {return evaluations;}
+
+    // ******************************************
+    // ******** COST ****************************
+    // ******************************************
+
+    /**
+     * Communication cost of the current placement of the virtual machines with the middle boxes on given switches
+     * @param switches - entry i is the index of the aggregation switch of MB i in the shortest path matrix
+     * @return total communication cost
+     */
+    public double cost(int[] switches) {
+        int[] local = new int[numMBs];
+        for (int m = 0; m < numMBs; m++) local[m] = switches[m] - firstAggregation;
+        return localCost(local);
+    }
+
+    /**
+     * Change of cost of a move of MB m, or of the swap of MB m and MB n, computed from the chains that use them
+     * @param switches - entry i is the index of the aggregation switch of MB i in the shortest path matrix
+     * @param candidate - the switches after the move
+     * @param m - moved middle box
+     * @param n - other middle box of a swap, -1 for a move
+     * @return cost of the candidate minus the cost of the switches
+     */
+    double change(int[] switches, int[] candidate, int m, int n) {
+        int[] local = new int[numMBs], localCandidate = new int[numMBs];
+        for (int i = 0; i < numMBs; i++) {
+            local[i] = switches[i] - firstAggregation;
+            localCandidate[i] = candidate[i] - firstAggregation;
+        }
+        double[] chainCost = new double[chains.length];
+        for (int c = 0; c < chains.length; c++) chainCost[c] = chainCost(c, local);
+        return delta(local, localCandidate, chainCost, m, n);
+    }
+
+    /**
+     * @param local - entry i is the aggregation switch of MB i, counted from the first aggregation switch
+     */
+    private double localCost(int[] local) {
+        double cost = 0;
+        for (int c = 0; c < chains.length; c++) cost += chainCost(c, local);
+        return cost;
+    }
+
+    /**
+     * @return cost of the pairs of one chain
+     */
+    private double chainCost(int c, int[] local) {
+        int[] chain = chains[c];
+        if (policy == OnlinePlacementService.Policy.ORDERED) {
+            double length = 0;
+            for (int t = 0; t < chain.length - 1; t++) length += switchToSwitch[local[chain[t]]][local[chain[t + 1]]];
+            return ingressCost[c][local[chain[0]]] + egressCost[c][local[chain[chain.length - 1]]]
+                    + chainTraffic[c] * length;
+        }
+        double[][] mbToMb = new double[chain.length][chain.length];
+        for (int x = 0; x < chain.length; x++)
+            for (int y = 0; y < chain.length; y++)
+                mbToMb[x][y] = switchToSwitch[local[chain[x]]][local[chain[y]]];
+        double[][] podToMb = new double[numPods][chain.length];
+        for (int p = 0; p < numPods; p++)
+            for (int x = 0; x < chain.length; x++) podToMb[p][x] = podToSwitch[p][local[chain[x]]];
+        double cost = 0;
+        for (int e = 0; e < podPairs[c].length; e++) {
+            int a = podPairs[c][e] / numPods, b = podPairs[c][e] % numPods;
+            cost += podPairTraffic[c][e] * PodRouteTable.walkCost(podToMb[a], podToMb[b], mbToMb, a == b);
+        }
+        return cost;
+    }
+
+    /**
+     * Change of cost of a candidate that moves MB m, and MB n for a swap
+     * @param local - current placement
+     * @param candidate - placement after the move
+     * @param chainCost - cost of every chain in the current placement, for the un-ordered policy
+     * @param n - other middle box of a swap, -1 for a move
+     * @return cost of the candidate minus the current cost
+     */
+    private double delta(int[] local, int[] candidate, double[] chainCost, int m, int n) {
+        double delta = 0;
+        for (int other = 0; other < 2; other++) {
+            int mb = other == 0 ? m : n;
+            if (mb < 0) break;
+            for (int c : chainsOf[mb]) {
+                if (other == 1 && positionOf[c][m] >= 0) continue;     // counted with MB m
+                if (policy == OnlinePlacementService.Policy.ORDERED) {
+                    int t = positionOf[c][m], u = n < 0 ? -1 : positionOf[c][n];
+                    delta += orderedTerms(c, candidate, t, u) - orderedTerms(c, local, t, u);
+                } else {
+                    delta += chainCost(c, candidate) - chainCost[c];
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * @param t - position of a moved middle box in the chain, -1 if none
+     * @param u - position of another moved middle box in the chain, -1 if none
+     * @return terms of the ordered cost of the chain that depend on the middle boxes at these positions
+     */
+    private double orderedTerms(int c, int[] local, int t, int u) {
+        int[] chain = chains[c];
+        int last = chain.length - 1;
+        double cost = 0;
+        if (t == 0 || u == 0) cost += ingressCost[c][local[chain[0]]];
+        if (t == last || u == last) cost += egressCost[c][local[chain[last]]];
+        double length = 0;
+        // links (e, e + 1) next to t or u, each one once
+        int[] links = {t - 1, t, u - 1, u};
+        for (int i = 0; i < links.length; i++) {
+            int e = links[i];
+            if (e < 0 || e >= last || (i < 2 ? t : u) < 0) continue;
+            if (i >= 2 && u >= 0 && t >= 0 && (e == t - 1 || e == t)) continue;
+            length += switchToSwitch[local[chain[e]]][local[chain[e + 1]]];
+        }
+        return cost + chainTraffic[c] * length;
+    }
+
+    // ******************************************
+    // ******** SEARCH **************************
+    // ******************************************
+
+    /**
+     * Search the switches of the middle boxes with the smallest communication cost. The data center is not changed,
+     * see {@link #apply(int[])}.
+     * @return entry i is the index of the aggregation switch of MB i in the shortest path matrix
+     */
+    public int[] optimize() {
+        try (Phase phase = dataCenter.startPhase("middleboxOptimizer")) {
+            evaluations = 0;
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] current = dataCenter.mbSwitches();
+            for (int m = 0; m < numMBs; m++) current[m] -= firstAggregation;
+            int[] best = null;
+            double bestCost = Double.MAX_VALUE;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for (int r = 0; r <= restarts; r++) {
+                    int[] start = r == 0 ? current : randomPlacement(random);
+                    int[] local = descend(pool, start);
+                    double cost = localCost(local);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = local;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            if (best == null) best = current;
+            for (int m = 0; m < numMBs; m++) best[m] += firstAggregation;
+            Metrics.counter("middleboxOptimizer.evaluations").add(evaluations);
+            return best;
+        }
+    }
+
+    /**
+     * Move the middle boxes of the data center to the given switches
+     * @param switches - switches found by {@link #optimize()}
+     */
+    public void apply(int[] switches) {
+        dataCenter.setMbSwitches(switches);
+    }
+
+    /**
+     * Steepest descent from a placement: a move is MB m to free switch s (m * numAggregation + s), or the swap of
+     * MB m and MB n (numMBs * numAggregation + m * numMBs + n)
+     */
+    private int[] descend(ExecutorService pool, int[] start) throws InterruptedException, ExecutionException {
+        int[] local = start.clone();
+        int moves = numMBs * numAggregation + numMBs * numMBs;
+        while (true) {
+            int[] placement = local;
+            double[] chainCost = new double[chains.length];
+            double cost = 0;
+            for (int c = 0; c < chains.length; c++) cost += chainCost[c] = chainCost(c, local);
+            // a change below the rounding of the sums is no improvement
+            double threshold = -1e-9 * Math.max(1, cost);
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int from = (int) ((long) moves * t / threads), to = (int) ((long) moves * (t + 1) / threads);
+                futures.add(pool.submit(() -> bestMove(placement, chainCost, from, to)));
+            }
+            double[] best = {-1, threshold};
+            for (Future<double[]> future : futures) {
+                double[] candidate = future.get();
+                evaluations += (long) candidate[2];
+                if (candidate[1] < best[1]) best = candidate;
+            }
+            if (best[0] < 0) return local;
+            local = applyMove(local, (int) best[0]);
+        }
+    }
+
+    /**
+     * @return best move among moves [from, to): {move, change of cost, evaluated}, move -1 if none is valid
+     */
+    private double[] bestMove(int[] local, double[] chainCost, int from, int to) {
+        double[] best = {-1, Double.MAX_VALUE, 0};
+        for (int move = from; move < to; move++) {
+            int[] candidate = applyMove(local, move);
+            if (candidate == null) continue;
+            int m, n = -1;
+            if (move < numMBs * numAggregation) {
+                m = move / numAggregation;
+            } else {
+                m = (move - numMBs * numAggregation) / numMBs;
+                n = (move - numMBs * numAggregation) % numMBs;
+            }
+            double delta = delta(local, candidate, chainCost, m, n);
+            best[2]++;
+            if (delta < best[1]) {
+                best[0] = move;
+                best[1] = delta;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the placement after the move, null if the move does not change it or puts two middle boxes on a switch
+     */
+    private int[] applyMove(int[] local, int move) {
+        int[] candidate = local.clone();
+        if (move < numMBs * numAggregation) {
+            int m = move / numAggregation, s = move % numAggregation;
+            for (int switchOf : local) if (switchOf == s) return null;
+            candidate[m] = s;
+        } else {
+            int m = (move - numMBs * numAggregation) / numMBs, n = (move - numMBs * numAggregation) % numMBs;
+            if (m >= n) return null;
+            candidate[m] = local[n];
+            candidate[n] = local[m];
+        }
+        return candidate;
+    }
+
+    private int[] randomPlacement(SplittableRandom random) {
+        int[] order = new int[numAggregation];
+        for (int s = 0; s < numAggregation; s++) order[s] = s;
+        for (int s = numAggregation - 1; s > 0; s--) {
+            int t = random.nextInt(s + 1);
+            int temp = order[s]; order[s] = order[t]; order[t] = temp;
+        }
+        return Arrays.copyOf(order, numMBs);
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Hashtable;
+
+/**
+ * <p> Timed plan of the migrations decided by PAM. Every virtual machine whose physical machine changes is copied
+ * over a shortest path of the fat tree, and the copies share the bandwidth of the links: each link carries at most
+ * linkBandwidth / migrationRate copies at the same time, each copy at migrationRate. A copy starts as soon as every
+ * link of its path has room, and the plan gives the start and finish time of every copy and the makespan of the
+ * whole migration.</p>
+ * <p>The path goes up to the lowest common switches and down again. When there are several, the aggregation and
+ * core switches are chosen from the index of the virtual machine, so the copies spread over the equal cost paths.</p>
+ * <p>The copies wait in the order of their path length, longest first, then index. A waiting copy is queued on one
+ * link only, the first full link of its path, and is checked again when that link frees a slot, so each event costs
+ * O(path length) per copy checked instead of scanning all waiting copies.</p>
+ */
+public class MigrationScheduler {
+    private final int half;
+    private final FatTreeLinks links;
+    private final int slotsPerLink;
+    private final double duration;
+
+    // migrations: name of the virtual machine, source and destination physical machine, path, times
+    private String[] name = new String[0];
+    private int[] source = new int[0];
+    private int[] destination = new int[0];
+    private int[][] path = new int[0][];
+    private double[] start = new double[0];
+    private double[] finish = new double[0];
+    private double makespan;
+
+    /**
+     * @param numPods - number of PODs of the fat tree
+     * @param linkBandwidth - bandwidth of every link in each direction, in Gbit/s
+     * @param migrationRate - bandwidth used by one migration, in Gbit/s, at most linkBandwidth
+     * @param vmSize - memory copied for one virtual machine, in GB
+     */
+    public MigrationScheduler(int numPods, double linkBandwidth, double migrationRate, double vmSize) {
+        if (migrationRate <= 0 || migrationRate > linkBandwidth)
+            throw new IllegalArgumentException("migrationRate must be in (0, linkBandwidth]");
+        this.half = numPods / 2;
+        // PM - edge, edge - aggregation and aggregation - core links, both directions
+        this.links = new FatTreeLinks(numPods);
+        this.slotsPerLink = (int) Math.floor(linkBandwidth / migrationRate);
+        this.duration = vmSize * 8 / migrationRate;
+    }
+
+    // ******************************************
+    // ******** SCHEDULE ************************
+    // ******************************************
+
+    /**
+     * Schedule the migrations from the placement before to the placement after
+     * @param before - virtual machine, physical machine index before the migration
+     * @param after - virtual machine, physical machine index after the migration
+     * @param numVMPairs - number of virtual machine pairs
+     * @return makespan of the migration, in seconds
+     */
+    public double schedule(Hashtable<String, Integer> before, Hashtable<String, Integer> after, int numVMPairs) {
+        return schedule(Placement.of(before, numVMPairs), Placement.of(after, numVMPairs));
+    }
+
+    /**
+     * Schedule the migrations from the placement before to the placement after
+     * @param before - placement before the migration
+     * @param after - placement after the migration
+     * @return makespan of the migration, in seconds
+     */
+    public double schedule(Placement before, Placement after) {
+        int count = 0;
+        for (int pair = 0; pair < before.size(); pair++) {
+            if (moves(before.getVM(pair), after.getVM(pair))) count++;
+            if (moves(before.getVMP(pair), after.getVMP(pair))) count++;
+        }
+        name = new String[count];
+        source = new int[count];
+        destination = new int[count];
+        path = new int[count][];
+        count = 0;
+        for (int pair = 0; pair < before.size(); pair++) {
+            if (moves(before.getVM(pair), after.getVM(pair)))
+                add(count++, "VM" + pair, 2 * pair, before.getVM(pair), after.getVM(pair));
+            if (moves(before.getVMP(pair), after.getVMP(pair)))
+                add(count++, "VMP" + pair, 2 * pair + 1, before.getVMP(pair), after.getVMP(pair));
+        }
+        try (Phase phase = Phase.start("migrationSchedule", 2 * half, before.size(), 0)) {
+            run();
+        }
+        return makespan;
+    }
+
+    private void add(int m, String vmName, int vm, int from, int to) {
+        name[m] = vmName;
+        source[m] = from;
+        destination[m] = to;
+        path[m] = path(from, to, vm);
+    }
+
+    private static boolean moves(int from, int to) {
+        return from >= 0 && to >= 0 && from != to;
+    }
+
+    /**
+     * Event loop: start the copies in their order while their links have room, then at every finish free the
+     * links of the copy and start the copies waiting on them.
+     */
+    private void run() {
+        int n = name.length;
+        start = new double[n];
+        finish = new double[n];
+        makespan = 0;
+        int[] free = new int[links.numLinks];
+        Arrays.fill(free, slotsPerLink);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArrayDeque<Integer>[] waiting = new ArrayDeque[links.numLinks];
+        Integer[] order = new Integer[n];
+        for (int m = 0; m < n; m++) order[m] = m;
+        Arrays.sort(order, (a, b) -> path[a].length != path[b].length ? path[b].length - path[a].length : a - b);
+        FinishQueue running = new FinishQueue(n);
+        double now = 0;
+        for (int m : order) tryStart(m, now, free, waiting, running);
+        while (!running.isEmpty()) {
+            int done = running.poll();
+            now = finish[done];
+            makespan = Math.max(makespan, now);
+            for (int link : path[done]) free[link]++;
+            for (int link : path[done]) {
+                ArrayDeque<Integer> queue = waiting[link];
+                while (queue != null && !queue.isEmpty() && free[link] > 0) {
+                    tryStart(queue.poll(), now, free, waiting, running);
+                }
+            }
+        }
+        Metrics.counter("migration.scheduled").add(n);
+    }
+
+    private void tryStart(int m, double now, int[] free, ArrayDeque<Integer>[] waiting, FinishQueue running) {
+        for (int link : path[m]) {
+            if (free[link] == 0) {  // wait for this link
+                if (waiting[link] == null) waiting[link] = new ArrayDeque<>();
+                waiting[link].add(m);
+                return;
+            }
+        }
+        for (int link : path[m]) free[link]--;
+        start[m] = now;
+        finish[m] = now + duration;
+        running.add(m);
+    }
+
+    /**
+     * Binary heap of running copies by finish time
+     */
+    private final class FinishQueue {
+        private final int[] heap;
+        private int size;
+
+        FinishQueue(int capacity) {heap = new int[capacity];}
+
+        boolean isEmpty() {return size == 0;}
+
+        void add(int m) {
+            int i = size++;
+            while (i > 0 && finish[heap[(i - 1) / 2]] > finish[m]) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = m;
+        }
+
+        int poll() {
+            int top = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && finish[heap[child + 1]] < finish[heap[child]]) child++;
+                if (finish[heap[child]] >= finish[last]) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+
+    // ******************************************
+    // ******** PATH ****************************
+    // ******************************************
+
+    /**
+     * Links of the shortest path between two physical machines, as link indices
+     * @param from - source physical machine
+     * @param to - destination physical machine
+     * @param vm - index of the virtual machine, chooses among the equal cost paths
+     * @return directed links of the path
+     */
+    int[] path(int from, int to, int vm) {
+        int edgeFrom = from / half, edgeTo = to / half;
+        int podFrom = edgeFrom / half, podTo = edgeTo / half;
+        int aggregation = vm % half;
+        int core = (vm / half) % half;
+        if (edgeFrom == edgeTo) return new int[]{links.pmLink(from, true), links.pmLink(to, false)};
+        if (podFrom == podTo)
+            return new int[]{links.pmLink(from, true), links.edgeLink(edgeFrom, aggregation, true),
+                    links.edgeLink(edgeTo, aggregation, false), links.pmLink(to, false)};
+        return new int[]{links.pmLink(from, true), links.edgeLink(edgeFrom, aggregation, true),
+                links.coreLink(podFrom * half + aggregation, core, true),
+                links.coreLink(podTo * half + aggregation, core, false),
+                links.edgeLink(edgeTo, aggregation, false), links.pmLink(to, false)};
+    }
+
+    // ******************************************
+    // ******** RESULT **************************
+    // ******************************************
+
+    /**
+     * @return time the last migration finishes, in seconds
+     */
+    public double getMakespan() {return makespan;}
+
+    public int numMigrations() {return name.length;}
+
+    public String getName(int migration) {return name[migration];}
+
+    public int getSource(int migration) {return source[migration];}
+
+    public int getDestination(int migration) {return destination[migration];}
+
+    public double getStart(int migration) {return start[migration];}
+
+    public double getFinish(int migration) {return finish[migration];}
+
+    /**
+     * Write the plan, one migration per line
+     * @param fileName - name of the CSV file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(String fileName) throws IOException {
+        try (PrintWriter writer = new PrintWriter(fileName, StandardCharsets.UTF_8)) {
+            writer.println("vm,source,destination,hops,start,finish");
+            for (int m = 0; m < name.length; m++) {
+                writer.println(name[m] + ',' + source[m] + ',' + destination[m] + ',' + path[m].length + ','
+                        + start[m] + ',' + finish[m]);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p> Path table stored outside the heap, in direct memory or in a file mapped in memory. The values are stored row
+ * by row as little endian doubles, in chunks of whole rows of at most 2 GB each. A table of any size is a few
+ * objects for the garbage collector, instead of one array per row.</p>
+ * <p>Tables are created and released by a {@link TableArena}. Once the arena is closed, reading a table throws
+ * IllegalStateException; the arena must not be closed while an algorithm still reads its tables. The values are
+ * written once while the table is built, and then only read, so any number of threads can read a built table.</p>
+ */
+public class OffHeapPathTable implements PathTable {
+    private final int size;
+    private final int rowsPerChunk;
+    private DoubleBuffer[] chunks;   // null once the table is closed
+
+    /**
+     * Allocate a table in direct memory, filled with 0
+     * @param size - dimension of the table
+     */
+    OffHeapPathTable(int size) {
+        this.size = size;
+        this.rowsPerChunk = rowsPerChunk(size);
+        DoubleBuffer[] buffers = new DoubleBuffer[numChunks(size, rowsPerChunk)];
+        for (int c = 0; c < buffers.length; c++) {
+            buffers[c] = ByteBuffer.allocateDirect((int) chunkBytes(c)).order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+        }
+        this.chunks = buffers;
+    }
+
+    /**
+     * Map a table from a new file, filled with 0. The mapping stays valid after the channel is closed.
+     * @param file - path of the file, replaced if it exists
+     * @param size - dimension of the table
+     * @throws IOException if the file cannot be created or mapped
+     */
+    OffHeapPathTable(Path file, int size) throws IOException {
+        this.size = size;
+        this.rowsPerChunk = rowsPerChunk(size);
+        DoubleBuffer[] buffers = new DoubleBuffer[numChunks(size, rowsPerChunk)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int c = 0; c < buffers.length; c++) {
+                long position = (long) c * rowsPerChunk * size * Double.BYTES;
+                buffers[c] = channel.map(FileChannel.MapMode.READ_WRITE, position, chunkBytes(c))
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+        this.chunks = buffers;
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public double get(int row, int col) {
+        return chunks(row).get((row % rowsPerChunk) * size + col);
+    }
+
+    /**
+     * Set the cost of the path from row to column, while the table is built
+     * @param row - index of the source
+     * @param col - index of the destination
+     * @param value - cost of the path
+     */
+    public void set(int row, int col, double value) {
+        chunks(row).put((row % rowsPerChunk) * size + col, value);
+    }
+
+    /**
+     * Copy a row of values into the table
+     * @param row - index of the source
+     * @param values - cost of the path to each destination, of length size
+     */
+    public void setRow(int row, double[] values) {
+        chunks(row).put((row % rowsPerChunk) * size, values, 0, size);
+    }
+
+    /**
+     * @return number of bytes of the values
+     */
+    public long bytes() {return (long) size * size * Double.BYTES;}
+
+    /**
+     * @return false once the arena of the table is closed
+     */
+    public boolean isOpen() {return chunks != null;}
+
+    /**
+     * Drop the buffers of the table. Direct memory is given back when the buffers are collected, a mapping when
+     * it is unmapped by the garbage collector; the arena deletes the file.
+     */
+    void close() {chunks = null;}
+
+    // ******************************************
+    // ******** HELPER **************************
+    // ******************************************
+
+    private DoubleBuffer chunks(int row) {
+        DoubleBuffer[] buffers = chunks;
+        if (buffers == null) throw new IllegalStateException("The arena of this path table is closed");
+        return buffers[row / rowsPerChunk];
+    }
+
+    private long chunkBytes(int chunk) {
+        return (long) Math.min(rowsPerChunk, size - chunk * rowsPerChunk) * size * Double.BYTES;
+    }
+
+    private static int rowsPerChunk(int size) {
+        return Math.max(1, (int) (Integer.MAX_VALUE / (Math.max(1L, size) * Double.BYTES)));
+    }
+
+    private static int numChunks(int size, int rowsPerChunk) {
+        return (size + rowsPerChunk - 1) / rowsPerChunk;
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p> Load generator of the {@link OnlinePlacementService}: many request threads admit virtual machine pairs with a
+ * random communication frequency, and the oldest pairs leave once a given number of pairs is in the data center.
+ * It reports the median and the 99th percentile of the placement latency.</p>
+ * <p>Usage: <code>java RunApp online k requests threads [ORDERED|UNORDERED] [livePairs]</code>, see
+ * {@link Benchmarks}.</p>
+ */
+public class OnlineLoadGenerator {
+    private final OnlinePlacementService service;
+    private final int maxCommunicationFre;
+
+    public OnlineLoadGenerator(OnlinePlacementService service, int maxCommunicationFre) {
+        this.service = service;
+        this.maxCommunicationFre = maxCommunicationFre;
+    }
+
+    /**
+     * Send the requests from a pool of request threads and wait for all of them
+     * @param requests - number of arriving pairs
+     * @param threads - number of request threads
+     * @param livePairs - number of pairs kept in the data center, the oldest pair leaves when there are more
+     * @return latency of every request in nanoseconds, -1 for a request without room
+     * @throws InterruptedException if interrupted while waiting for the requests
+     */
+    public long[] run(int requests, int threads, int livePairs) throws InterruptedException {
+        long[] latency = new long[requests];
+        ConcurrentLinkedQueue<OnlinePlacementService.Admission> live = new ConcurrentLinkedQueue<>();
+        AtomicInteger liveCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int r = 0; r < requests; r++) {
+            int request = r;
+            pool.execute(() -> {
+                int fre = ThreadLocalRandom.current().nextInt(1, maxCommunicationFre + 1);
+                long start = System.nanoTime();
+                OnlinePlacementService.Admission admission = service.admit(fre);
+                latency[request] = admission == null ? -1 : System.nanoTime() - start;
+                if (admission == null) return;
+                live.add(admission);
+                if (liveCount.incrementAndGet() > livePairs) {
+                    OnlinePlacementService.Admission leaving = live.poll();
+                    if (leaving != null) {
+                        service.release(leaving);
+                        liveCount.decrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.DAYS);
+        return latency;
+    }
+
+    /**
+     * Print the number of requests, the requests without room and the latency percentiles
+     * @param latency - latency of every request in nanoseconds, -1 for a request without room
+     * @param elapsedNanos - wall clock time of the run
+     */
+    public static void report(long[] latency, long elapsedNanos) {
+        long[] placed = Arrays.stream(latency).filter(l -> l >= 0).sorted().toArray();
+        System.out.println("Requests: " + latency.length + "\t\tWithout room: " + (latency.length - placed.length)
+                + "\t\tThroughput: " + (long) (latency.length / (elapsedNanos / 1e9)) + " requests/s");
+        if (placed.length == 0) return;
+        System.out.println("Latency p50: " + percentile(placed, 50) / 1000.0 + " us\t\tp99: "
+                + percentile(placed, 99) / 1000.0 + " us\t\tmax: " + placed[placed.length - 1] / 1000.0 + " us");
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,333 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p> Online placement of virtual machine pairs that arrive one by one, from many threads at the same time. Every
+ * arriving pair gets the pair of physical machines with the smallest route that still has free slots, and gives
+ * its slots back when it leaves.</p>
+ * <p>The free slots are kept per POD, each POD behind its own lock, so two requests that place pairs in different
+ * PODs never wait for each other. A request only holds the locks of the PODs it places the pair in, taken in
+ * increasing order of POD. When several pairs of PODs have the same route, each request starts at a different one
+ * of them, so that concurrent requests spread over the PODs instead of all waiting for the first one.</p>
+ * <p>The route between two physical machines only depends on their PODs: {@link PodRouteTable} in un-ordered
+ * policy, and the distance to the first and to the last middle box in ordered policy. A pair may give its own
+ * service chain: the tables of every distinct chain are built on its first request and shared by the pairs with the
+ * same chain.</p>
+ */
+public class OnlinePlacementService {
+    public enum Policy {ORDERED, UNORDERED}
+
+    private final Policy policy;
+    private final int numPods;
+    private final int pmPerPod;
+    private final PodStripe[] stripes;
+    private final DataCenter dataCenter;
+    private final ChainGroups allMiddleBoxes;
+    private final ConcurrentHashMap<ServiceChain, ChainGroups> chains = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong active = new AtomicLong();
+    private final DoubleAdder activeCost = new DoubleAdder();
+
+    /**
+     * Free slots of the physical machines of one POD
+     */
+    private static final class PodStripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final int firstPM;
+        final int[] free;
+        volatile int freeSlots;     // read without the lock to skip full PODs
+        int cursor;                 // physical machines before the cursor are full
+
+        PodStripe(int firstPM, int[] free) {
+            this.firstPM = firstPM;
+            this.free = free;
+            for (int slots : free) freeSlots += slots;
+        }
+
+        /**
+         * Take one slot, the lock must be held
+         * @return index of the physical machine in the data center
+         */
+        int take() {
+            while (free[cursor] == 0) cursor++;
+            free[cursor]--;
+            freeSlots--;
+            return firstPM + cursor;
+        }
+
+        void release(int pm) {
+            int local = pm - firstPM;
+            free[local]++;
+            freeSlots++;
+            if (local < cursor) cursor = local;
+        }
+    }
+
+    /**
+     * Routes of one service chain, grouped by value
+     */
+    private static final class ChainGroups {
+        final double[] podRoute;
+        // un-ordered: groups of pairs of PODs (source * numPods + destination) with the same route, ascending route
+        final int[][] podPairGroups;
+        // ordered: groups of PODs with the same distance to the first (ingress) and to the last (egress) middle box
+        final int[][] ingressGroups;
+        final int[][] egressGroups;
+        final ChainTable table;
+
+        ChainGroups(ChainTable table, int numPods) {
+            this.table = table;
+            this.podRoute = new double[numPods * numPods];
+            double[] ingressDistance = new double[numPods];
+            double[] egressDistance = new double[numPods];
+            for (int a = 0; a < numPods; a++) {
+                for (int b = 0; b < numPods; b++)
+                    podRoute[a * numPods + b] = table.getUnorderedRoute().getPodRoute(a, b);
+                ingressDistance[a] = table.getPodIngress(a);
+                egressDistance[a] = table.getPodEgress(a);
+            }
+            this.podPairGroups = groups(podRoute);
+            this.ingressGroups = groups(ingressDistance);
+            this.egressGroups = groups(egressDistance);
+        }
+    }
+
+    /**
+     * A virtual machine pair placed by the service
+     */
+    public static final class Admission {
+        private final long id;
+        private final int vmPM;
+        private final int vmpPM;
+        private final int communicationFre;
+        private final double cost;
+
+        Admission(long id, int vmPM, int vmpPM, int communicationFre, double cost) {
+            this.id = id;
+            this.vmPM = vmPM;
+            this.vmpPM = vmpPM;
+            this.communicationFre = communicationFre;
+            this.cost = cost;
+        }
+
+        public long getId() {return id;}
+
+        public int getVmPM() {return vmPM;}
+
+        public int getVmpPM() {return vmpPM;}
+
+        public int getCommunicationFre() {return communicationFre;}
+
+        /**
+         * @return communication cost of the pair, communication frequency times route
+         */
+        public double getCost() {return cost;}
+    }
+
+    /**
+     * Start the service with the free slots of the data center: the virtual machines already placed in the data
+     * center keep their slots.
+     * @param dataCenter - data center
+     * @param policy - ordered or un-ordered policy
+     */
+    public OnlinePlacementService(DataCenter dataCenter, Policy policy) {
+        this.policy = policy;
+        this.numPods = dataCenter.getNumPods();
+        this.pmPerPod = numPods * numPods / 4;
+        this.stripes = new PodStripe[numPods];
+        for (int p = 0; p < numPods; p++) {
+            int[] free = new int[pmPerPod];
+            for (int pm = 0; pm < pmPerPod; pm++)
+                free[pm] = dataCenter.getResources() - dataCenter.getCapacity()[p * pmPerPod + pm];
+            stripes[p] = new PodStripe(p * pmPerPod, free);
+        }
+        this.dataCenter = dataCenter;
+        this.allMiddleBoxes = new ChainGroups(dataCenter.getChains().table(0), numPods);
+    }
+
+    // ******************************************
+    // ******** ADMISSION ***********************
+    // ******************************************
+
+    /**
+     * Place an arriving virtual machine pair that goes through all the middle boxes
+     * @param communicationFre - communication frequency of the pair
+     * @return the admission, or null if the data center has no room for the pair
+     */
+    public Admission admit(int communicationFre) {
+        return admit(communicationFre, allMiddleBoxes);
+    }
+
+    /**
+     * Place an arriving virtual machine pair with its own service chain
+     * @param communicationFre - communication frequency of the pair
+     * @param chain - middle boxes the traffic of the pair goes through
+     * @return the admission, or null if the data center has no room for the pair
+     */
+    public Admission admit(int communicationFre, ServiceChain chain) {
+        return admit(communicationFre, chains.computeIfAbsent(chain,
+                c -> new ChainGroups(new ChainTable(dataCenter, c), numPods)));
+    }
+
+    private Admission admit(int communicationFre, ChainGroups chain) {
+        long id = nextId.getAndIncrement();
+        Admission admission = policy == Policy.UNORDERED ? admitUnordered(id, communicationFre, chain)
+                : admitOrdered(id, communicationFre, chain);
+        if (admission != null) {
+            active.incrementAndGet();
+            activeCost.add(admission.cost);
+        }
+        return admission;
+    }
+
+    /**
+     * Give back the slots of a pair that leaves the data center
+     * @param admission - admission returned by {@link #admit(int)}
+     */
+    public void release(Admission admission) {
+        releaseSlot(admission.vmPM);
+        releaseSlot(admission.vmpPM);
+        active.decrementAndGet();
+        activeCost.add(-admission.cost);
+    }
+
+    private Admission admitUnordered(long id, int communicationFre, ChainGroups chain) {
+        for (int[] group : chain.podPairGroups) {
+            int start = (int) (id % group.length);
+            for (int g = 0; g < group.length; g++) {
+                int podPair = group[(start + g) % group.length];
+                int a = podPair / numPods, b = podPair % numPods;
+                if (!mayFit(a, b)) continue;
+                int[] pms = takePair(a, b);
+                if (pms != null)
+                    return new Admission(id, pms[0], pms[1], communicationFre,
+                            communicationFre * chain.podRoute[podPair]);
+            }
+        }
+        return null;
+    }
+
+    private Admission admitOrdered(long id, int communicationFre, ChainGroups chain) {
+        int vmPM = takeNearest(chain.ingressGroups, id);
+        if (vmPM < 0) return null;
+        int vmpPM = takeNearest(chain.egressGroups, id);
+        if (vmpPM < 0) {
+            releaseSlot(vmPM);
+            return null;
+        }
+        double route = chain.table.orderedRoute(vmPM, vmpPM);
+        return new Admission(id, vmPM, vmpPM, communicationFre, communicationFre * route);
+    }
+
+    /**
+     * Take one slot in the first POD of the groups with room
+     * @return index of the physical machine, -1 if all PODs are full
+     */
+    private int takeNearest(int[][] podGroups, long id) {
+        for (int[] group : podGroups) {
+            int start = (int) (id % group.length);
+            for (int g = 0; g < group.length; g++) {
+                PodStripe stripe = stripes[group[(start + g) % group.length]];
+                if (stripe.freeSlots == 0) continue;
+                stripe.lock.lock();
+                try {
+                    if (stripe.freeSlots > 0) return stripe.take();
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Take one slot in POD a and one in POD b, holding both locks in increasing order of POD
+     * @return the two physical machines, or null if there is no more room
+     */
+    private int[] takePair(int a, int b) {
+        PodStripe first = stripes[Math.min(a, b)], second = stripes[Math.max(a, b)];
+        first.lock.lock();
+        try {
+            if (a == b) {
+                if (first.freeSlots < 2) return null;
+                return new int[]{first.take(), first.take()};
+            }
+            second.lock.lock();
+            try {
+                if (first.freeSlots == 0 || second.freeSlots == 0) return null;
+                return new int[]{stripes[a].take(), stripes[b].take()};
+            } finally {
+                second.lock.unlock();
+            }
+        } finally {
+            first.lock.unlock();
+        }
+    }
+
+    private void releaseSlot(int pm) {
+        PodStripe stripe = stripes[pm / pmPerPod];
+        stripe.lock.lock();
+        try {
+            stripe.release(pm);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private boolean mayFit(int a, int b) {
+        return a == b ? stripes[a].freeSlots > 1 : stripes[a].freeSlots > 0 && stripes[b].freeSlots > 0;
+    }
+
+    // ******************************************
+    // ******** STATE ***************************
+    // ******************************************
+
+    public Policy getPolicy() {return policy;}
+
+    /**
+     * @return number of pairs placed and not released
+     */
+    public long getActivePairs() {return active.get();}
+
+    /**
+     * @return total communication cost of the pairs placed and not released
+     */
+    public double getActiveCost() {return activeCost.sum();}
+
+    /**
+     * @return free slots of the whole data center, it may be stale while requests are running
+     */
+    public int freeSlots() {
+        int total = 0;
+        for (PodStripe stripe : stripes) total += stripe.freeSlots;
+        return total;
+    }
+
+    /**
+     * Group the indices with the same value, the groups in ascending order of value
+     * @param values - value of every index
+     * @return indices of each group
+     */
+    private static int[][] groups(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> values[i]));
+        List<int[]> groups = new ArrayList<>();
+        int start = 0;
+        while (start < order.length) {
+            int end = start;
+            while (end < order.length && values[order[end]] == values[order[start]]) end++;
+            int[] group = new int[end - start];
+            for (int i = start; i < end; i++) group[i - start] = order[i];
+            groups.add(group);
+            start = end;
+        }
+        return groups.toArray(new int[0][]);
+    }
+}
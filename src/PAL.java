@@ -9,12 +9,20 @@ import java.util.*;
  */
 public class PAL {
     private DataCenter dataCenter;
+    private Hashtable<String, Integer> placementUnordered;
     /**
      * Default constructor
      * @param dataCenter - data center
      */
     public PAL(DataCenter dataCenter){this.dataCenter = dataCenter;}
 
+    /**
+     * Get the placement of the last un-ordered algorithm, {@link #PALUnordered()} or
+     * {@link #utilityTrafficAwareUnordered()}
+     * @return hash table of virtual machine and physical machine, null if none of them ran
+     */
+    public Hashtable<String, Integer> getPlacementUnordered(){return this.placementUnordered;}
+
     // ***********************************************************************************
     // *********************    ORDERED     **********************************************
     // ***********************************************************************************
@@ -24,80 +32,106 @@ public class PAL {
      * @return the total communication cost in PAL of a data center.
      */
     public double costInOrdered(){
-        double cost = 0;
-        Hashtable<String, Boolean> sel = new Hashtable<>(); // sel resources
-        List<String> ingress = new ArrayList<>(dataCenter.getIngress());
-        List<String> egress = new ArrayList<>(dataCenter.getEgress());
-        for(int i = 0; i < 2 * dataCenter.getNumVMPairs(); i++){
-            sel.put(ingress.get(i),false);
-        }
-        for(int i = 0; i < 2 * dataCenter.getNumVMPairs(); i++){
-            if(sel.contains(egress.get(i))) continue;
-            sel.put(egress.get(i),false);
-        }
+        return placeInOrdered().getCost();
+    }
 
-        String[] ingressArrayResourcesOptimal = new String[2 * dataCenter.getNumVMPairs()];
-        String[] egressArrayResourcesOptimal = new String[2 * dataCenter.getNumVMPairs()];
-        int i, j, k;
-        i = k = j = 0;
-        while(k  < dataCenter.getNumVMPairs()){ // Find optimal resource slots for vm and vmp
-            if(sel.get(ingress.get(i))) i++;
-            if(sel.get(egress.get(i))) i++;
+    /**
+     * <p> Ordered PAL Algorithm 1 in paper, giving the placement of the pairs.</p>
+     * @return placement of the virtual machine pairs, with the total communication cost
+     */
+    public Placement placeInOrdered(){
+        return placeInOrdered(Deadline.NONE);
+    }
 
-            if(!ingress.get(i).equals(egress.get(j))){ // both optimal resources slots found
-                ingressArrayResourcesOptimal[k] = ingress.get(i);
-                egressArrayResourcesOptimal[k] = egress.get(j);
-                sel.replace(ingress.get(i), true);
-                sel.replace(egress.get(j), true);
-                i++; j ++;
+    /**
+     * <p> Anytime ordered PAL: when the deadline is reached, the pairs not placed yet go on the first machines with
+     * room ({@link AnytimeFallback}).</p>
+     * @param deadline - time limit of the run
+     * @return placement of the pairs, with the total communication cost and the number of pairs placed in time
+     */
+    public Placement placeInOrdered(Deadline deadline){
+        try (Phase phase = dataCenter.startPhase("costInOrdered", LiveStatus.PAL)) {
+            double cost = 0;
+            Hashtable<String, Boolean> sel = new Hashtable<>(); // sel resources
+            List<String> ingress = new ArrayList<>(dataCenter.getIngress());
+            if(deadline.expired()) return fallback(new Placement(dataCenter.getNumVMPairs()), 0, true);
+            List<String> egress = new ArrayList<>(dataCenter.getEgress());
+            if(deadline.expired()) return fallback(new Placement(dataCenter.getNumVMPairs()), 0, true);
+            for(int i = 0; i < 2 * dataCenter.getNumVMPairs(); i++){
+                sel.put(ingress.get(i),false);
+            }
+            for(int i = 0; i < 2 * dataCenter.getNumVMPairs(); i++){
+                if(sel.containsKey(egress.get(i))) continue;
+                sel.put(egress.get(i),false);
             }
-            else{   // one found, now find another one
-                int pmOfIngress = Integer.parseInt(ingress.get(i).split("_")[0]);
-                int pmOfIngressNext = Integer.parseInt(ingress.get(i+1).split("_")[0]);
-                int pmOfEgress = Integer.parseInt(egress.get(j).split("_")[0]);
-                int pmOfEgressNext = Integer.parseInt(egress.get(j+1).split("_")[0]);
-                double c1 = dataCenter.getShortestPathMatrix()[pmOfIngress][dataCenter.getmBs_Switch().get("MB" + 0)] +
-                        dataCenter.getShortestPathMatrix()[pmOfEgressNext]
-                                [dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1))];
-                double c2 = dataCenter.getShortestPathMatrix()[pmOfIngressNext][dataCenter.getmBs_Switch().get("MB" + 0)] +
-                        dataCenter.getShortestPathMatrix()[pmOfEgress]
-                                [dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1))];
-                if(c1 <= c2){
+
+            String[] ingressArrayResourcesOptimal = new String[2 * dataCenter.getNumVMPairs()];
+            String[] egressArrayResourcesOptimal = new String[2 * dataCenter.getNumVMPairs()];
+            int i, j, k;
+            i = k = j = 0;
+            while(k  < dataCenter.getNumVMPairs() && !deadline.expired()){ // Find optimal resource slots for vm and vmp
+                if(sel.get(ingress.get(i))) i++;
+                if(sel.get(egress.get(i))) i++;
+
+                if(!ingress.get(i).equals(egress.get(j))){ // both optimal resources slots found
                     ingressArrayResourcesOptimal[k] = ingress.get(i);
-                    egressArrayResourcesOptimal[k] = egress.get(j+1);
-                    sel.replace(ingress.get(i), true);
-                    sel.replace(egress.get(j+1), true);
-                    i++; j += 2;
-                }
-                else {
-                    ingressArrayResourcesOptimal[k] = ingress.get(i+1);
                     egressArrayResourcesOptimal[k] = egress.get(j);
-                    sel.replace(ingress.get(i+1), true);
+                    sel.replace(ingress.get(i), true);
                     sel.replace(egress.get(j), true);
+                    i++; j ++;
+                }
+                else{   // one found, now find another one
+                    int pmOfIngress = Integer.parseInt(ingress.get(i).split("_")[0]);
+                    int pmOfIngressNext = Integer.parseInt(ingress.get(i+1).split("_")[0]);
+                    int pmOfEgress = Integer.parseInt(egress.get(j).split("_")[0]);
+                    int pmOfEgressNext = Integer.parseInt(egress.get(j+1).split("_")[0]);
+                    double c1 = dataCenter.getDistance(pmOfIngress, dataCenter.getmBs_Switch().get("MB" + 0)) +
+                            dataCenter.getDistance(pmOfEgressNext,
+                                    dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1)));
+                    double c2 = dataCenter.getDistance(pmOfIngressNext, dataCenter.getmBs_Switch().get("MB" + 0)) +
+                            dataCenter.getDistance(pmOfEgress,
+                                    dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1)));
+                    if(c1 <= c2){
+                        ingressArrayResourcesOptimal[k] = ingress.get(i);
+                        egressArrayResourcesOptimal[k] = egress.get(j+1);
+                        sel.replace(ingress.get(i), true);
+                        sel.replace(egress.get(j+1), true);
+                        i++; j += 2;
+                    }
+                    else {
+                        ingressArrayResourcesOptimal[k] = ingress.get(i+1);
+                        egressArrayResourcesOptimal[k] = egress.get(j);
+                        sel.replace(ingress.get(i+1), true);
+                        sel.replace(egress.get(j), true);
+                    }
                 }
+                k++;
             }
-            k++;
-        }
-        // Descending order of communication frequencies
-        ArrayList<Integer> afterSortFre = new ArrayList<>();
-        ArrayList<Integer> original = new ArrayList<>();
-        for( i = 0; i < dataCenter.getCommunicationFre().length; i++){
-            afterSortFre.add(dataCenter.getCommunicationFre()[i]);
-            original.add(dataCenter.getCommunicationFre()[i]);
-        }
-        afterSortFre.sort(Collections.reverseOrder());
-        int index;
-        Hashtable<String, Integer> tempVM_PM = new Hashtable<>();
-        for(i = 0; i < dataCenter.getNumVMPairs();i++){
-            index = original.indexOf(afterSortFre.get(i));  // index of Virtual machine will be migrated
-            cost += afterSortFre.get(i) * (dataCenter.getShortestPathMatrix()
-                        [Integer.parseInt(ingressArrayResourcesOptimal[i].split("_")[0])]
-                        [dataCenter.getmBs_Switch().get("MB0")]
-                    + dataCenter.getShortestPathMatrix()
-                            [Integer.parseInt(egressArrayResourcesOptimal[i].split("_")[0])]
-                            [dataCenter.getmBs_Switch().get("MB"+(dataCenter.getNumMBs() - 1))]);
+            // Descending order of communication frequencies
+            ArrayList<Integer> afterSortFre = new ArrayList<>();
+            ArrayList<Integer> original = new ArrayList<>();
+            for( i = 0; i < dataCenter.getCommunicationFre().length; i++){
+                afterSortFre.add(dataCenter.getCommunicationFre()[i]);
+                original.add(dataCenter.getCommunicationFre()[i]);
+            }
+            afterSortFre.sort(Collections.reverseOrder());
+            int index;
+            Placement placement = new Placement(dataCenter.getNumVMPairs());
+            for(i = 0; i < k && !deadline.expired(); i++){  // only the pairs with their slots found in time
+                index = original.indexOf(afterSortFre.get(i));  // index of Virtual machine will be migrated
+                original.set(index, -1);
+                placement.place(index, Integer.parseInt(ingressArrayResourcesOptimal[i].split("_")[0]),
+                        Integer.parseInt(egressArrayResourcesOptimal[i].split("_")[0]));
+                // route through the service chain of the pair, ingress, middle boxes and egress
+                double pairCost = afterSortFre.get(i) * dataCenter.getOrderedRouteCost(index,
+                        placement.getVM(index), placement.getVMP(index));
+                cost += pairCost;
+                LiveStatus.PAL.progress(1);
+                LiveStatus.PAL.addCost(pairCost);
+            }
+            placement.setCost(cost);
+            return fallback(placement, i, true);
         }
-        return cost + dataCenter.totalCommunicationCostBetweenMbsOrdered();
     }
 
     public int[] ascendingOrderedOfCommunicationFre(){
@@ -126,28 +160,48 @@ public class PAL {
      * @return total communication cost in traffic aware ordered policy of a data center.
      */
     public double ultilityTrafficAwareOrdered(){
-        int[] ascendingIndexOfVMPairs = ascendingOrderedOfCommunicationFre();
-        List<Integer> pmClosestToFirstMb = dataCenter.listClosestPMtoMB(0);
-        Hashtable<String, Integer> Vm_Pm_InTrafficAware = new Hashtable<>();
-        int indexOfPm = 0;
-        for(int i = 0; i < dataCenter.getNumVMPairs();){
-            for(int j = 0; j < dataCenter.getResources(); j++){
-                Vm_Pm_InTrafficAware.put("VM" + ascendingIndexOfVMPairs[i], pmClosestToFirstMb.get(indexOfPm));
-                j++;
-                Vm_Pm_InTrafficAware.put("VMP" + ascendingIndexOfVMPairs[i], pmClosestToFirstMb.get(indexOfPm));
-                i++;
+        return placeTrafficAwareOrdered().getCost();
+    }
+
+    /**
+     * <p>Traffic Aware utility in ordered policy, giving the placement of the pairs.</p>
+     * @return placement of the virtual machine pairs, with the total communication cost
+     */
+    public Placement placeTrafficAwareOrdered(){
+        return placeTrafficAwareOrdered(Deadline.NONE);
+    }
+
+    /**
+     * <p>Anytime traffic aware utility in ordered policy: the deadline is looked at once per physical machine, and
+     * the pairs not placed by then go on the first machines with room ({@link AnytimeFallback}).</p>
+     * @param deadline - time limit of the run
+     * @return placement of the pairs, with the total communication cost and the number of pairs placed in time
+     */
+    public Placement placeTrafficAwareOrdered(Deadline deadline){
+        try (Phase phase = dataCenter.startPhase("ultilityTrafficAwareOrdered", LiveStatus.PAL)) {
+            int[] ascendingIndexOfVMPairs = ascendingOrderedOfCommunicationFre();
+            List<Integer> pmClosestToFirstMb = dataCenter.listClosestPMtoMB(0);
+            Placement placement = new Placement(dataCenter.getNumVMPairs());
+            int indexOfPm = 0;
+            int i;
+            for(i = 0; i < dataCenter.getNumVMPairs() && !deadline.expired();){
+                for(int j = 0; j < dataCenter.getResources() && i < dataCenter.getNumVMPairs(); j++){
+                    placement.placeVM(ascendingIndexOfVMPairs[i], pmClosestToFirstMb.get(indexOfPm));
+                    j++;
+                    placement.placeVMP(ascendingIndexOfVMPairs[i], pmClosestToFirstMb.get(indexOfPm));
+                    i++;
+                    LiveStatus.PAL.progress(1);
+                }
+                indexOfPm++;
             }
-            indexOfPm++;
-        }
-        double cost = 0;
-        for(int i = 0; i < dataCenter.getNumVMPairs(); i++){
-            cost += (dataCenter.getShortestPathMatrix()[Vm_Pm_InTrafficAware.get("VM" + i)]
-                    [dataCenter.getmBs_Switch().get("MB0")]
-                    + dataCenter.getShortestPathMatrix()[Vm_Pm_InTrafficAware.get("VMP" + i)]
-                    [dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs()-1))]+
-                    dataCenter.costBetweenMbsOrderPolicy())*dataCenter.getCommunicationFre()[i];
+            if(i < dataCenter.getNumVMPairs()){
+                AnytimeFallback.place(dataCenter, placement, ascendingIndexOfVMPairs, i, null,
+                        dataCenter.getResourceModel(), OnlinePlacementService.Policy.ORDERED);
+                placement.setCompleted(i);
+            }
+            placement.setCost(dataCenter.getCommunicationCost(placement, OnlinePlacementService.Policy.ORDERED));
+            return placement;
         }
-        return cost;
     }
     // ***********************************************************************************
     // *********************    UNORDERED     ********************************************
@@ -158,71 +212,67 @@ public class PAL {
      * @return total communication cost in unordered PAL algorithm in data center.
      */
     public double PALUnordered(){
-        double cost = 0;
-        Hashtable<Double,List<String>> hashX = new Hashtable<>();
-        ArrayList<Double> keyList = new ArrayList<>();
-        List<String> temp = new ArrayList<>();
-        double key;
-        for(int i = 0; i < dataCenter.numPM(); i++){
-            for(int j = 0; j < dataCenter.numPM(); j++){
-                key = dataCenter.getShortestPathRoute()[i][j];
-                if(!keyList.contains(key)){
-                    keyList.add(key);
-                    temp.add(i + "_" + j);
-                    hashX.put(key, temp);
-                }
-                else {
-                    temp = new ArrayList<>(hashX.get(key));
-                    temp.add(i + "_" + j);
-                    hashX.put(key,temp);
-                }
-            }
-        }
-        Collections.sort(keyList);
-        ArrayList<String> listPM = new ArrayList<>();
-        for (Double aDouble : keyList) {
-            ArrayList<String> lstemp = new ArrayList<>(hashX.get(aDouble));
-            for (String s : lstemp) {
-                if (!listPM.contains(s)) {
-                    listPM.add(s);
-                }
-            }
-        }
+        Placement placement = placeUnordered();
+        placementUnordered = placement.toHashtable();
+        return placement.getCost();
+    }
 
-        int i = 0;
-        int indexOfVM, indexOfVMP;
-        int[] available = new int[dataCenter.numPM()];
-        for(int index = 0; index < dataCenter.numPM(); index++){
-            available[index] = dataCenter.getResources();
-        }
-        Hashtable<String, Integer> placement = new Hashtable<>();
-        while(i< dataCenter.getNumVMPairs()){
-            indexOfVM = Integer.parseInt(listPM.get(0).split("_")[0]);
-            indexOfVMP = Integer.parseInt(listPM.get(0).split("_")[1]);
-            do{
-                if(indexOfVM != indexOfVMP){
-                    if(available[indexOfVM] > 0 && available[indexOfVMP] > 0){
-                        placement.put("VM" + i, indexOfVM);
-                        placement.put("VMP" + i,indexOfVMP);
-                        cost += dataCenter.getCommunicationFre()[i] * dataCenter.getShortestPathRoute()[indexOfVM][indexOfVMP];
-                        available[indexOfVM]--; available[indexOfVMP]--;
+    /**
+     * <p> Algorithm 3 in the paper without changing this object, so that several threads can run it on one
+     * data center ({@link DataCenter#snapshot()}).</p>
+     * @return placement of the virtual machine pairs, with the total communication cost
+     */
+    public Placement placeUnordered(){
+        return placeUnordered(Deadline.NONE);
+    }
+
+    /**
+     * <p> Anytime algorithm 3: if the deadline is reached while the pairs of physical machines are sorted, every
+     * pair is placed by {@link AnytimeFallback}, otherwise only the pairs not placed yet.</p>
+     * @param deadline - time limit of the run
+     * @return placement of the pairs, with the total communication cost and the number of pairs placed in time
+     */
+    public Placement placeUnordered(Deadline deadline){
+        try (Phase phase = dataCenter.startPhase("PALUnordered", LiveStatus.PAL)) {
+            if(dataCenter.isLargeScale()) return HierarchicalPlacement.placeUnordered(dataCenter, false, deadline);
+            double cost = 0;
+            Hashtable<Double,List<String>> hashX = new Hashtable<>();
+            ArrayList<Double> keyList = new ArrayList<>();
+            List<String> temp = new ArrayList<>();
+            double key;
+            for(int i = 0; i < dataCenter.numPM(); i++){
+                if(deadline.expired()) return fallback(new Placement(dataCenter.getNumVMPairs()), 0, false);
+                for(int j = 0; j < dataCenter.numPM(); j++){
+                    key = dataCenter.getRouteCost(i, j);
+                    if(!keyList.contains(key)){
+                        keyList.add(key);
+                        temp.add(i + "_" + j);
+                        hashX.put(key, temp);
+                    }
+                    else {
+                        temp = new ArrayList<>(hashX.get(key));
+                        temp.add(i + "_" + j);
+                        hashX.put(key,temp);
                     }
                 }
-                else {
-                    if(available[indexOfVM] > 1){
-                        placement.put("VM" + i, indexOfVM);
-                        placement.put("VMP"+ i, indexOfVMP);
-                        cost += dataCenter.getCommunicationFre()[i] * dataCenter.getShortestPathRoute()[indexOfVM][indexOfVMP];
-                        available[indexOfVM]--; available[indexOfVMP]--;
+            }
+            Collections.sort(keyList);
+            ArrayList<String> listPM = new ArrayList<>();
+            for (Double aDouble : keyList) {
+                ArrayList<String> lstemp = new ArrayList<>(hashX.get(aDouble));
+                for (String s : lstemp) {
+                    if(deadline.expired()) return fallback(new Placement(dataCenter.getNumVMPairs()), 0, false);
+                    if (!listPM.contains(s)) {
+                        listPM.add(s);
                     }
                 }
-                i++;
-                if(i > dataCenter.getNumVMPairs()) break;
-            }while((indexOfVM != indexOfVMP && available[indexOfVM] > 0 && available[indexOfVMP] > 0)
-                || (indexOfVM == indexOfVMP && available[indexOfVM] > 1));
-            listPM.remove(0);
+            }
+
+            Placement placement = new Placement(dataCenter.getNumVMPairs());
+            cost += placeOnSortedPairs(listPM, placement, deadline);
+            placement.setCost(cost);
+            return fallback(placement, placement.getCompleted(), false);
         }
-        return cost;
     }
 
     /**
@@ -230,72 +280,138 @@ public class PAL {
      * @return total communication cost in unordered PAL Traffic Aware.
      */
     public double utilityTrafficAwareUnordered(){
-        double cost = 0;
-        Hashtable<Double,List<String>> hashX = new Hashtable<>();
-        ArrayList<Double> keyList = new ArrayList<>();
-        List<String> temp = new ArrayList<>();
-        double key;
-        for(int i = 0; i < dataCenter.numPM(); i++){
-            for(int j = 0; j < dataCenter.numPM(); j++){
-                key = dataCenter.getShortestPathRoute()[i][j];
-                if(!keyList.contains(key)){
-                    keyList.add(key);
-                }
-                else {
-                    temp = new ArrayList<>(hashX.get(key));
+        Placement placement = placeTrafficAwareUnordered();
+        placementUnordered = placement.toHashtable();
+        return placement.getCost();
+    }
+
+    /**
+     * <p> Unordered PAL Traffic Aware without changing this object, so that several threads can run it on one
+     * data center ({@link DataCenter#snapshot()}).</p>
+     * @return placement of the virtual machine pairs, with the total communication cost
+     */
+    public Placement placeTrafficAwareUnordered(){
+        return placeTrafficAwareUnordered(Deadline.NONE);
+    }
+
+    /**
+     * <p> Anytime unordered PAL Traffic Aware, with the same fallback as {@link #placeUnordered(Deadline)}.</p>
+     * @param deadline - time limit of the run
+     * @return placement of the pairs, with the total communication cost and the number of pairs placed in time
+     */
+    public Placement placeTrafficAwareUnordered(Deadline deadline){
+        try (Phase phase = dataCenter.startPhase("utilityTrafficAwareUnordered", LiveStatus.PAL)) {
+            if(dataCenter.isLargeScale()) return HierarchicalPlacement.placeUnordered(dataCenter, true, deadline);
+            double cost = 0;
+            Hashtable<Double,List<String>> hashX = new Hashtable<>();
+            ArrayList<Double> keyList = new ArrayList<>();
+            List<String> temp = new ArrayList<>();
+            double key;
+            for(int i = 0; i < dataCenter.numPM(); i++){
+                if(deadline.expired()) return fallback(new Placement(dataCenter.getNumVMPairs()), 0, false);
+                for(int j = 0; j < dataCenter.numPM(); j++){
+                    key = dataCenter.getRouteCost(i, j);
+                    if(!keyList.contains(key)){
+                        keyList.add(key);
+                    }
+                    else {
+                        temp = new ArrayList<>(hashX.get(key));
+                    }
+                    temp.add(i + "_" + j);
+                    hashX.put(key, temp);
                 }
-                temp.add(i + "_" + j);
-                hashX.put(key, temp);
             }
-        }
-        Collections.sort(keyList);
-        ArrayList<String> listPM = new ArrayList<>();
-        for(int i = 0; i < dataCenter.numPM(); i++){
-            listPM.add(i +"_" +i);
-        }
+            Collections.sort(keyList);
+            ArrayList<String> listPM = new ArrayList<>();
+            for(int i = 0; i < dataCenter.numPM(); i++){
+                listPM.add(i +"_" +i);
+            }
 
-        for (Double aDouble : keyList) {
-            ArrayList<String> lstemp = new ArrayList<>(hashX.get(aDouble));
-            for (String s : lstemp) {
-                if (!listPM.contains(s)) {
-                    listPM.add(s);
+            for (Double aDouble : keyList) {
+                ArrayList<String> lstemp = new ArrayList<>(hashX.get(aDouble));
+                for (String s : lstemp) {
+                    if(deadline.expired()) return fallback(new Placement(dataCenter.getNumVMPairs()), 0, false);
+                    if (!listPM.contains(s)) {
+                        listPM.add(s);
+                    }
                 }
             }
+            // Traffic Aware start here
+            Placement placement = new Placement(dataCenter.getNumVMPairs());
+            cost += placeOnSortedPairs(listPM, placement, deadline);
+            placement.setCost(cost);
+            return fallback(placement, placement.getCompleted(), false);
         }
-        // Traffic Aware start here
-        int i = 0;
-        int indexOfVM, indexOfVMP;
-        int[] available = new int[dataCenter.numPM()];
-        for(int index = 0; index < dataCenter.numPM(); index++){
-            available[index] = dataCenter.getResources();
+    }
+
+    /**
+     * Place the virtual machine pairs in order of their index on the first pair of physical machines of the list
+     * where they fit. The list is walked forward only: once a pair of physical machines has no room for a
+     * virtual machine pair, the next pairs start after it. The walk stops at the first pair that fits on no pair
+     * of physical machines after that point, so that pair and the next ones are left to {@link #fallback}.
+     * @param listPM - pairs of physical machines "i_j", in the order they are tried
+     * @param placement - placement of the pairs, filled by the method, with the number of pairs placed before the
+     *                  deadline or before the first pair that does not fit
+     * @param deadline - time limit of the placement
+     * @return communication cost of the placed pairs
+     */
+    private double placeOnSortedPairs(List<String> listPM, Placement placement, Deadline deadline){
+        int[] vmPM = new int[listPM.size()];
+        int[] vmpPM = new int[listPM.size()];
+        for(int entry = 0; entry < listPM.size(); entry++){
+            vmPM[entry] = Integer.parseInt(listPM.get(entry).split("_")[0]);
+            vmpPM[entry] = Integer.parseInt(listPM.get(entry).split("_")[1]);
         }
-        Hashtable<String, Integer> placement = new Hashtable<>();
-        while(i < dataCenter.getNumVMPairs()){
-            indexOfVM = Integer.parseInt(listPM.get(0).split("_")[0]);
-            indexOfVMP = Integer.parseInt(listPM.get(0).split("_")[1]);
-            do{
-                if(indexOfVM != indexOfVMP){
-                    if(available[indexOfVM] > 0 && available[indexOfVMP] > 0){
-                        placement.put("VM" + i, indexOfVM);
-                        placement.put("VMP" + i, indexOfVMP);
-                        cost += dataCenter.getCommunicationFre()[i] * dataCenter.getShortestPathRoute()[indexOfVM][indexOfVMP];
-                        available[indexOfVM]--; available[indexOfVMP]--;
-                    }
-                }
-                else{
-                    if(available[indexOfVM] > 1){
-                        placement.put("VM" + i,indexOfVM);
-                        placement.put("VMP" + i, indexOfVMP);
-                        cost += dataCenter.getCommunicationFre()[i] * dataCenter.getShortestPathRoute()[indexOfVM][indexOfVMP];
-                        available[indexOfVM]--; available[indexOfVMP]--;
-                    }
-                }
-                i++;
-                if(i > dataCenter.getNumVMPairs()) break;
-            }while((indexOfVM != indexOfVMP && available[indexOfVM] > 0 && available[indexOfVMP] > 0) ||
-                    (indexOfVM == indexOfVMP && available[indexOfVM] > 1));
-            listPM.remove(0);
+        FeasibilityIndex available = new FeasibilityIndex(dataCenter.getNumPods(), dataCenter.getResourceModel());
+        double cost = 0;
+        int head = 0;
+        int i;
+        for(i = 0; i < dataCenter.getNumVMPairs() && !deadline.expired(); i++){
+            int entry = head;
+            while(entry < vmPM.length && !fits(available, vmPM[entry], vmpPM[entry], i)) entry++;
+            if(entry == vmPM.length) break;     // no room left for this pair on the rest of the list
+            head = entry;
+            placement.place(i, vmPM[entry], vmpPM[entry]);
+            double pairCost = dataCenter.getCommunicationFre()[i]
+                    * dataCenter.getRouteCost(i, vmPM[entry], vmpPM[entry]);
+            cost += pairCost;
+            available.take(vmPM[entry], ResourceModel.vm(i));
+            available.take(vmpPM[entry], ResourceModel.vmp(i));
+            LiveStatus.PAL.progress(1);
+            LiveStatus.PAL.addCost(pairCost);
         }
+        placement.setCompleted(i);
         return cost;
     }
+
+    /**
+     * Place the pairs not processed with {@link AnytimeFallback}: in order of their index for un-ordered policy, in
+     * descending order of frequency for ordered policy
+     * @param placement - placement of the pairs processed
+     * @param from - position of the first pair not processed
+     * @param ordered - true for ordered policy
+     * @return the placement, with the cost of the pairs of the fallback added
+     */
+    private Placement fallback(Placement placement, int from, boolean ordered){
+        if(from == dataCenter.getNumVMPairs()) return placement;
+        int[] order = ordered ? HierarchicalPlacement.descendingFrequency(dataCenter.getCommunicationFre()) : null;
+        placement.setCost(placement.getCost() + AnytimeFallback.place(dataCenter, placement, order, from, null,
+                dataCenter.getResourceModel(), ordered ? OnlinePlacementService.Policy.ORDERED
+                        : OnlinePlacementService.Policy.UNORDERED));
+        placement.setCompleted(from);
+        return placement;
+    }
+
+    /**
+     * @param available - remaining resources of the physical machines
+     * @param indexOfVM - physical machine for the VM
+     * @param indexOfVMP - physical machine for the VMP
+     * @param pair - index of the virtual machine pair
+     * @return true if the VM and the VMP of the pair fit on the two physical machines
+     */
+    private static boolean fits(FeasibilityIndex available, int indexOfVM, int indexOfVMP, int pair){
+        int vm = ResourceModel.vm(pair), vmp = ResourceModel.vmp(pair);
+        if(indexOfVM == indexOfVMP) return available.fits(indexOfVM, vm, vmp);
+        return available.fits(indexOfVM, vm) && available.fits(indexOfVMP, vmp);
+    }
 }
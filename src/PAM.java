@@ -7,14 +7,51 @@ import java.util.*;
  */
 public class PAM {
     private DataCenter dataCenter;
-    private double[] PLANingressEgress;
-    private double[] PAMarray;
     private Hashtable<String, Integer> VM_PM_AfterMigrate;
+    private int topK;       // 0: every pair of physical machines is looked at
+    private int samples;
+    private long seed;
 
     public PAM(DataCenter dataCenter) {
         this.dataCenter = dataCenter;
     }
 
+    /**
+     * Look only at a bounded set of candidate pairs of physical machines for each virtual machine pair in
+     * {@link #costUnorderPAM()} and {@link #migrateUnordered()}, see {@link TopKMigration}
+     * @param topK - number of the cheapest classes of the route near the current hosts, 0 for the exhaustive search
+     * @param samples - number of random pairs of physical machines
+     * @param seed - seed of the random pairs
+     */
+    public void setApproximation(int topK, int samples, long seed) {
+        this.topK = topK;
+        this.samples = samples;
+        this.seed = seed;
+    }
+
+    /**
+     * Get the placement after {@link #costUnorderPAM()}
+     * @return hash table of virtual machine and physical machine after the migration, null before it ran
+     */
+    public Hashtable<String, Integer> getVM_PM_AfterMigrate() {
+        return VM_PM_AfterMigrate;
+    }
+
+    /**
+     * Schedule the migrations of {@link #costUnorderPAM()} over the links of the fat tree
+     * @param linkBandwidth - bandwidth of every link in each direction, in Gbit/s
+     * @param migrationRate - bandwidth used by one migration, in Gbit/s
+     * @param vmSize - memory copied for one virtual machine, in GB
+     * @return the scheduler with the start and finish time of every migration
+     */
+    public MigrationScheduler scheduleMigration(double linkBandwidth, double migrationRate, double vmSize) {
+        if (VM_PM_AfterMigrate == null) costUnorderPAM();
+        MigrationScheduler scheduler = new MigrationScheduler(dataCenter.getNumPods(), linkBandwidth,
+                migrationRate, vmSize);
+        scheduler.schedule(dataCenter.getVM_PM(), VM_PM_AfterMigrate, dataCenter.getNumVMPairs());
+        return scheduler;
+    }
+
     // ******************************************
     // ******** CALCULATE COST ******************
     // ******************************************
@@ -30,7 +67,7 @@ public class PAM {
         for (int i = 0; i < dataCenter.getNumMBs() - 1; i++) {
             row = dataCenter.getmBs_Switch().get("MB" + i);
             col = dataCenter.getmBs_Switch().get("MB" + (i + 1));
-            cost += dataCenter.shortestPathMatrix[row][col];
+            cost += dataCenter.getDistance(row, col);
         }
         return cost;
     }
@@ -60,15 +97,10 @@ public class PAM {
      * @return total communication cost of Data Center before migration.
      */
     public double initialCommunicationCostOfDatacenter() {
-        double cost = 0;
-        for (int i = 0; i < dataCenter.getNumVMPairs(); i++) {
-            cost += (dataCenter.getShortestPathMatrix()[dataCenter.getVM_PM().get("VM" + i)]
-                    [dataCenter.getmBs_Switch().get("MB0")]
-                    + dataCenter.getShortestPathMatrix()[dataCenter.getVM_PM().get("VMP" + i)]
-                    [dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1))])
-                    * dataCenter.getCommunicationFre()[i];
+        try (Phase phase = dataCenter.startPhase("initialCommunicationCost", LiveStatus.PAM)) {
+            Placement placement = dataCenter.getPlacement();
+            return dataCenter.getCommunicationCost(placement, OnlinePlacementService.Policy.ORDERED);
         }
-        return cost + totalCommunicationCostBetweenMbsOrdered();
     }
 
     // ******************************************
@@ -81,30 +113,6 @@ public class PAM {
      */
     public void printMCF(String fileIndex) throws IOException {
         String name = "MCF" + fileIndex + ".inp";
-        // Calculate the cost
-        double[][] cost = new double[2 * dataCenter.getNumVMPairs()][dataCenter.numPM()];
-        int row, col;   // use to find the cost int shortest matrix
-        double migrationCost;
-        double communicationCost;
-        String vmType;
-        for (int i = 0; i < 2 * dataCenter.getNumVMPairs(); i++) {
-            vmType = (i < dataCenter.getNumVMPairs()) ? ("VM" + i) : ("VMP" + (i - dataCenter.getNumVMPairs()));
-            row = dataCenter.getVM_PM().get(vmType);
-            for (int j = 0; j < dataCenter.numPM(); j++) {
-                col = dataCenter.getListNode().get("PM" + j);
-                if (i < dataCenter.getNumVMPairs()) {
-                    migrationCost = dataCenter.getMigrationCoef() * dataCenter.getShortestPathMatrix()[row][col];
-                    communicationCost = dataCenter.getCommunicationFre()[i] * dataCenter.getShortestPathMatrix()[col]
-                            [dataCenter.getmBs_Switch().get("MB0")];
-                } else {
-                    migrationCost = dataCenter.getMigrationCoef() * dataCenter.getShortestPathMatrix()[row][col];
-                    communicationCost = dataCenter.getCommunicationFre()[i - dataCenter.getNumVMPairs()] *
-                            dataCenter.getShortestPathMatrix()[col]
-                                    [dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1))];
-                }
-                cost[i][j] = migrationCost + communicationCost;
-            }
-        }
         try (PrintWriter writer = new PrintWriter(name, StandardCharsets.UTF_8)) {
             // Print to the file
             writer.println("c **** INFORMATION ABOUT DATA CENTER ****");
@@ -143,7 +151,7 @@ public class PAM {
             for (int r = 0; r < dataCenter.getNumVMPairs() * 2; vmIndex++, r++) {
                 pmIndex = dataCenter.getNumVMPairs() * 2 + 1;
                 for (int c = 0; c < dataCenter.numPM(); pmIndex++, c++) {
-                    writer.println("a " + vmIndex + " " + pmIndex + " 0 1 " + cost[r][c]);
+                    writer.println("a " + vmIndex + " " + pmIndex + " 0 1 " + mcfArcCost(r, c));
                 }
             }
             int max = pmIndex;
@@ -153,6 +161,30 @@ public class PAM {
         }
     }
 
+    /**
+     * Cost of the arc from a virtual machine to a physical machine in the MCF file: the migration cost plus the
+     * communication cost to the first middle box (VM) or from the last middle box (VMP). It is computed when the
+     * arc is printed, so no matrix of 2 * numVMPairs * numPM costs is kept.
+     * @param i - index of the virtual machine, VM i for i less than numVMPairs, otherwise VMP (i - numVMPairs)
+     * @param j - index of the physical machine
+     * @return cost of the arc
+     */
+    private double mcfArcCost(int i, int j) {
+        String vmType = (i < dataCenter.getNumVMPairs()) ? ("VM" + i) : ("VMP" + (i - dataCenter.getNumVMPairs()));
+        int row = dataCenter.getVM_PM().get(vmType);
+        int col = dataCenter.getListNode().get("PM" + j);
+        double migrationCost = dataCenter.getMigrationCoef() * dataCenter.getDistance(row, col);
+        double communicationCost;
+        if (i < dataCenter.getNumVMPairs()) {
+            communicationCost = dataCenter.getCommunicationFre()[i] * dataCenter.getDistance(col,
+                    dataCenter.getmBs_Switch().get("MB0"));
+        } else {
+            communicationCost = dataCenter.getCommunicationFre()[i - dataCenter.getNumVMPairs()] *
+                    dataCenter.getDistance(col, dataCenter.getmBs_Switch().get("MB" + (dataCenter.getNumMBs() - 1)));
+        }
+        return migrationCost + communicationCost;
+    }
+
     /**
      * @param fileNameIn file name for calculate communication cost in Minimum Cost Flow
      * @return - the total communication cost in MCF
@@ -181,64 +213,126 @@ public class PAM {
     // ******************************************
 
     /**
-     * Calculate the cost for unordered in PAM algorithm
+     * Calculate the cost for unordered in PAM algorithm, the placement after the migration is kept for
+     * {@link #getVM_PM_AfterMigrate()}
      * @return cost of unordered in PAM algorithm
      */
     public double costUnorderPAM() {
-        double cost = 0;
-        PAMarray = new double[dataCenter.getNumVMPairs()];
-        PLANingressEgress = new double[dataCenter.getNumVMPairs()];
-        // Descending order of Communication Frequencies
-        ArrayList<Integer> afterSortFre = new ArrayList<>();
-        ArrayList<Integer> original = new ArrayList<>();
-        for (int i = 0; i < dataCenter.getCommunicationFre().length; i++) {
-            afterSortFre.add(dataCenter.getCommunicationFre()[i]);
-            original.add(dataCenter.getCommunicationFre()[i]);
-        }
-        afterSortFre.sort(Collections.reverseOrder());
-        VM_PM_AfterMigrate = new Hashtable<>();
-        VM_PM_AfterMigrate.putAll(dataCenter.getVM_PM());
-        int[] communicationFre = new int[dataCenter.getCommunicationFre().length];
-        for (int i = 0; i < communicationFre.length; i++) {
-            communicationFre[i] = dataCenter.getCommunicationFre()[i];
-        }
-        double c_min, c_ij;
-        //		Hashtable<String, Integer> m = new Hashtable<String, Integer>();
-        int[] available = new int[dataCenter.numPM()];
-        for (int i = 0; i < dataCenter.numPM(); i++)
-            available[i] = dataCenter.getCapacity()[i];
-        int index;
-        double c_i, c_j;
-        int a, b;
-        for (int k = 0; k < dataCenter.getNumVMPairs(); k++) {
-            index = original.indexOf(afterSortFre.get(k)); // index of VM that will be migrated
-            c_min = Double.MAX_VALUE;    // minimum total cost for (v_k, v'_k)
-            a = -1;
-            b = -1;
-            for (int i = 0; i < dataCenter.getNumVMPairs(); i++) { // find PM pairs for VM Pair (v_k, v'_k)
-                for (int j = i; j < dataCenter.numPM(); j++) {
-                    if (available[j] == 0 || (i == j && available[j] < 2)) continue;
-                    c_i = dataCenter.getMigrationCoef() * dataCenter.getShortestPathMatrix()
-                            [VM_PM_AfterMigrate.get("VM" + index)][dataCenter.getListNode().get("PM" + i)];
-                    c_j = dataCenter.getMigrationCoef() * dataCenter.getShortestPathMatrix()
-                            [VM_PM_AfterMigrate.get("VMP" + index)][dataCenter.getListNode().get("PM" + i)];
-                    c_ij = communicationFre[index] * dataCenter.getShortestPathRoute()[i][j] + c_i + c_j;
-                    if (c_ij < c_min) {
-                        a = i;
-                        b = j;
-                        c_min = c_ij;
+        Placement placement = migrateUnordered();
+        VM_PM_AfterMigrate = placement.toHashtable();
+        return placement.getCost();
+    }
+
+    /**
+     * Unordered PAM algorithm without changing this object, so that several threads can run it on one
+     * data center ({@link DataCenter#snapshot()})
+     * @return placement after the migration, with the cost of unordered in PAM algorithm
+     */
+    public Placement migrateUnordered() {
+        return migrateUnordered(Deadline.NONE);
+    }
+
+    /**
+     * Anytime unordered PAM algorithm: when the deadline is reached, the pairs not processed yet stay on their
+     * machines if they still have room, otherwise they move to the nearest machines with room
+     * ({@link AnytimeFallback})
+     * @param deadline - time limit of the run
+     * @return placement after the migration, with its cost and the number of pairs processed before the deadline
+     */
+    public Placement migrateUnordered(Deadline deadline) {
+        try (Phase phase = dataCenter.startPhase("costUnorderPAM", LiveStatus.PAM)) {
+            if (topK > 0) return TopKMigration.migrateUnordered(dataCenter, topK, samples, seed, deadline);
+            if (dataCenter.isLargeScale()) return HierarchicalPlacement.migrateUnordered(dataCenter, deadline);
+            double cost = 0;
+            // Descending order of Communication Frequencies
+            ArrayList<Integer> afterSortFre = new ArrayList<>();
+            ArrayList<Integer> original = new ArrayList<>();
+            for (int i = 0; i < dataCenter.getCommunicationFre().length; i++) {
+                afterSortFre.add(dataCenter.getCommunicationFre()[i]);
+                original.add(dataCenter.getCommunicationFre()[i]);
+            }
+            afterSortFre.sort(Collections.reverseOrder());
+            Hashtable<String, Integer> afterMigrate = new Hashtable<>(dataCenter.getVM_PM());
+            int[] communicationFre = new int[dataCenter.getCommunicationFre().length];
+            for (int i = 0; i < communicationFre.length; i++) {
+                communicationFre[i] = dataCenter.getCommunicationFre()[i];
+            }
+            double c_min, c_ij;
+            //		Hashtable<String, Integer> m = new Hashtable<String, Integer>();
+            FeasibilityIndex available = new FeasibilityIndex(dataCenter.getNumPods(), resourceModel());
+            // with a resource model, the pairs not migrated yet keep their resources on their current machines
+            boolean occupied = dataCenter.hasResourceModel();
+            for (int p = 0; occupied && p < dataCenter.getNumVMPairs(); p++) {
+                available.take(afterMigrate.get("VM" + p), ResourceModel.vm(p));
+                available.take(afterMigrate.get("VMP" + p), ResourceModel.vmp(p));
+            }
+            int index;
+            double c_i, c_j;
+            int a, b;
+            int k;
+            for (k = 0; k < dataCenter.getNumVMPairs() && !deadline.expired(); k++) {
+                index = original.indexOf(afterSortFre.get(k)); // index of VM that will be migrated
+                c_min = Double.MAX_VALUE;    // minimum total cost for (v_k, v'_k)
+                a = -1;
+                b = -1;
+                int vm = ResourceModel.vm(index), vmp = ResourceModel.vmp(index);
+                if (occupied) {
+                    available.release(afterMigrate.get("VM" + index), vm);
+                    available.release(afterMigrate.get("VMP" + index), vmp);
+                }
+                for (int i = 0; i < dataCenter.getNumVMPairs() && i < dataCenter.numPM(); i++) { // find (v_k, v'_k) PMs
+                    if (!available.fits(i, vm)) continue;
+                    // skip the PODs and edge switches without room for the VMP
+                    for (int j = available.nextFit(i, vmp); j >= 0; j = available.nextFit(j + 1, vmp)) {
+                        if (i == j && !available.fits(j, vm, vmp)) continue;
+                        c_i = dataCenter.getMigrationCoef() * dataCenter.getDistance(
+                                afterMigrate.get("VM" + index), dataCenter.getListNode().get("PM" + i));
+                        c_j = dataCenter.getMigrationCoef() * dataCenter.getDistance(
+                                afterMigrate.get("VMP" + index), dataCenter.getListNode().get("PM" + i));
+                        c_ij = communicationFre[index] * dataCenter.getRouteCost(index, i, j) + c_i + c_j;
+                        if (c_ij < c_min) {
+                            a = i;
+                            b = j;
+                            c_min = c_ij;
+                        }
                     }
                 }
+                original.set(index, -1);
+                if (a < 0) {    // no room left: the pair stays where it is
+                    a = afterMigrate.get("VM" + index);
+                    b = afterMigrate.get("VMP" + index);
+                    c_min = communicationFre[index] * dataCenter.getRouteCost(index, a, b);
+                }
+                afterMigrate.replace("VM" + index, a);
+                afterMigrate.replace("VMP" + index, b);
+                cost += c_min;
+                available.take(a, vm);
+                available.take(b, vmp);
+                LiveStatus.PAM.progress(1);
+                LiveStatus.PAM.addCost(c_min);
             }
-            VM_PM_AfterMigrate.replace("VM" + index, a);
-            VM_PM_AfterMigrate.replace("VMP" + index, b);
-            cost += c_min;
-            available[a]--;
-            available[b]--;
-            original.set(index, -1);
+            Placement placement = Placement.of(afterMigrate, dataCenter.getNumVMPairs());
+            if (k < dataCenter.getNumVMPairs()) {
+                cost += AnytimeFallback.place(dataCenter, placement,
+                        HierarchicalPlacement.descendingFrequency(dataCenter.getCommunicationFre()), k,
+                        dataCenter.getPlacement(), resourceModel(), OnlinePlacementService.Policy.UNORDERED);
+                placement.setCompleted(k);
+            }
+            placement.setCost(cost);
+            return placement;
         }
-        return cost;
     }
+    /**
+     * Resources for the migration: the multi-resource model of the data center if one is set, where the pairs
+     * not migrated yet keep their resources, otherwise every physical machine accepts as many virtual machines as
+     * it hosts before the migration
+     * @return the resource model
+     */
+    private ResourceModel resourceModel() {
+        if (dataCenter.hasResourceModel()) return dataCenter.getResourceModel();
+        return ResourceModel.slots(dataCenter.getCapacity(), dataCenter.getNumVMPairs());
+    }
+
     // *******************************************
     // ****************** PLAN *******************
     // *******************************************
@@ -255,8 +349,8 @@ public class PAM {
         double[][] cost = new double[numMBs][numMBs];
         for (int i = 0; i < numMBs; i++) {
             for (int j = 0; j < numMBs; j++) {
-                cost[i][j] = dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + i)]
-                        [dataCenter.getmBs_Switch().get("MB" + j)];
+                cost[i][j] = dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + i),
+                        dataCenter.getmBs_Switch().get("MB" + j));
                 //				System.out.print(cost[i][j] + "\t");
             }
             //			System.out.println();
@@ -272,18 +366,25 @@ public class PAM {
      * @return - list in order of Middle box
      */
     public List<Integer> orderTravelMB(int ingress, int egress) {
+        return orderTravelMB(ingress, egress, ServiceChain.all(dataCenter.getNumMBs()).toArray());
+    }
+
+    /**
+     * Get the list ordered travel between the middle boxes of a service chain with the
+     * minimum distance between middle boxes.
+     * @param ingress - source as a middle box closest to VM
+     * @param egress  - destination as a middle box closest to VMP
+     * @param middleBoxes - indices of the middle boxes of the chain
+     * @return - list in order of Middle box
+     */
+    public List<Integer> orderTravelMB(int ingress, int egress, int[] middleBoxes) {
         List<Integer> isAdded = new ArrayList<>();
         int index = ingress, temp = -1;
         double min = Double.MAX_VALUE;
-        int numMBs = dataCenter.getNumMBs();
-        double[][] mb = new double[numMBs][numMBs];
-        for (int i = 0; i < numMBs; i++) {
-            for (int j = 0; j < numMBs; j++)
-                mb[i][j] = middleBoxMatrix()[i][j];
-        }
+        double[][] mb = middleBoxMatrix();
         isAdded.add(ingress);
-        for (int i = 0; i < numMBs - 1; i++) {
-            for (int j = 0; j < numMBs; j++) {
+        for (int i = 0; i < middleBoxes.length - 1; i++) {
+            for (int j : middleBoxes) {
                 if (!isAdded.contains(j)) {
                     if (min > mb[index][j]) {
                         min = mb[index][j];
@@ -307,13 +408,23 @@ public class PAM {
      * @return the index of the middle box
      */
     public int ingressOrEgressMB(int pm) {
+        return ingressOrEgressMB(pm, ServiceChain.all(dataCenter.getNumMBs()).toArray());
+    }
+
+    /**
+     * Find the middle box of a service chain closest to a physical machine
+     * @param pm - index of the physical machine
+     * @param middleBoxes - indices of the middle boxes of the chain
+     * @return the index of the middle box
+     */
+    public int ingressOrEgressMB(int pm, int[] middleBoxes) {
         int mb = -1;    // index of the middle box
         double min = Double.MAX_VALUE;
-        for (int i = 0; i < dataCenter.getNumMBs(); i++) {
-            if (min > dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + i)]
-                    [dataCenter.getListNode().get("PM" + pm)]) {
-                min = dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + i)]
-                        [dataCenter.getListNode().get("PM" + pm)];
+        for (int i : middleBoxes) {
+            if (min > dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + i),
+                    dataCenter.getListNode().get("PM" + pm))) {
+                min = dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + i),
+                        dataCenter.getListNode().get("PM" + pm));
                 mb = i;
             }
         }
@@ -326,42 +437,68 @@ public class PAM {
      * for each virtual machine pair, find the ingress and egress middle box
      * calculate the length from VM to ingress, and VMP to egress
      * calculate the total communication from VM to ingress, ingress to all middle box,
-     * and VMP to egress
+     * and VMP to egress, the middle boxes of the service chain of the pair
      * @return  cost in PLAN Algorithm
      */
     public double costPLAN() {
-        // Print to the file
-        double communicationCost = 0;
-        int ingress, egress;
-        int numVMPairs = dataCenter.getNumVMPairs();
-        PLANingressEgress = new double[numVMPairs];
-        List<Integer> travel;
-        double shortestPath;
-        // processes for all Virtual machine pairs
-        for (int i = 0; i < numVMPairs; i++) {
-            ingress = ingressOrEgressMB(dataCenter.getVM_PM().get("VM" + i));    // find the ingress of VM
-            egress = ingressOrEgressMB(dataCenter.getVM_PM().get("VMP" + i));    // find the egress of VMP
-            shortestPath = dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + ingress)]
-                    [dataCenter.getVM_PM().get("VM" + i)] +
-                    dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + egress)]
-                            [dataCenter.getVM_PM().get("VMP" + i)];
-            // initialize or reset the travel list
-            travel = new ArrayList<>(orderTravelMB(ingress, egress));    // add all the middle box to the travel list
-            double shortestPathMB = 0;
-            int firstMB, secondMB = -1;
-            int numMBs = dataCenter.getNumMBs();
-            for (int j = 0; j < numMBs - 1; j++) {
-                firstMB = travel.get(j);    // get the source middle box in the list
-                secondMB = travel.get(j + 1);    // get the destination middle box in the list
-                shortestPathMB += dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + firstMB)]
-                        [dataCenter.getmBs_Switch().get("MB" + secondMB)];
+        return evaluatePLAN(Deadline.NONE).getCost();
+    }
+
+    /**
+     * Anytime PLAN: the virtual machines do not move, and when the deadline is reached the pairs not processed yet
+     * are charged the same PLAN walk, without the live status, so the cost does not depend on the deadline
+     * @param deadline - time limit of the run
+     * @return current placement, with its cost in PLAN and the number of pairs processed before the deadline
+     */
+    public Placement evaluatePLAN(Deadline deadline) {
+        try (Phase phase = dataCenter.startPhase("costPLAN", LiveStatus.PAM)) {
+            double communicationCost = 0;
+            int numVMPairs = dataCenter.getNumVMPairs();
+            // processes for all Virtual machine pairs
+            int i;
+            for (i = 0; i < numVMPairs && !deadline.expired(); i++) {
+                double pairCost = costPLAN(i);
+                communicationCost = communicationCost + pairCost;
+                LiveStatus.PAM.progress(1);
+                LiveStatus.PAM.addCost(pairCost);
             }
-            if (dataCenter.getVM_PM().get("VM" + i).equals(dataCenter.getVM_PM().get("VMP" + i)))
-                shortestPathMB += dataCenter.getShortestPathMatrix()[dataCenter.getmBs_Switch().get("MB" + ingress)]
-                        [dataCenter.getmBs_Switch().get("MB" + secondMB)];
-            communicationCost = communicationCost + dataCenter.getCommunicationFre()[i] * (shortestPath + shortestPathMB);
-            PLANingressEgress[i] = dataCenter.getCommunicationFre()[i] * (shortestPath + shortestPathMB);
+            Placement placement = dataCenter.getPlacement().copy();
+            placement.setCompleted(i);
+            for (; i < numVMPairs; i++)
+                communicationCost += costPLAN(i);
+            placement.setCost(communicationCost);
+            return placement;
+        }
+    }
+
+    /**
+     * Cost in PLAN of a virtual machine pair on its current machines: from the VM to the ingress, through the middle
+     * boxes of its chain, and from the egress to the VMP
+     * @param i - index of the virtual machine pair
+     * @return communication cost of the pair
+     */
+    private double costPLAN(int i) {
+        int[] middleBoxes = dataCenter.getChains().tableOf(i).getChain().toArray();
+        int ingress = ingressOrEgressMB(dataCenter.getVM_PM().get("VM" + i), middleBoxes);    // ingress of VM
+        int egress = ingressOrEgressMB(dataCenter.getVM_PM().get("VMP" + i), middleBoxes);    // egress of VMP
+        double shortestPath = dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + ingress),
+                dataCenter.getVM_PM().get("VM" + i)) +
+                dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + egress),
+                        dataCenter.getVM_PM().get("VMP" + i));
+        // middle boxes of the chain, in the order of the travel
+        List<Integer> travel = new ArrayList<>(orderTravelMB(ingress, egress, middleBoxes));
+        double shortestPathMB = 0;
+        int firstMB, secondMB = -1;
+        for (int j = 0; j < middleBoxes.length - 1; j++) {
+            firstMB = travel.get(j);    // get the source middle box in the list
+            secondMB = travel.get(j + 1);    // get the destination middle box in the list
+            shortestPathMB += dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + firstMB),
+                    dataCenter.getmBs_Switch().get("MB" + secondMB));
         }
-        return communicationCost;
+        if (secondMB >= 0
+                && dataCenter.getVM_PM().get("VM" + i).equals(dataCenter.getVM_PM().get("VMP" + i)))
+            shortestPathMB += dataCenter.getDistance(dataCenter.getmBs_Switch().get("MB" + ingress),
+                    dataCenter.getmBs_Switch().get("MB" + secondMB));
+        return dataCenter.getCommunicationFre()[i] * (shortestPath + shortestPathMB);
     }
 }
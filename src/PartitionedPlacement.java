@@ -0,0 +1,383 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p> Divide and conquer version of the unordered PAL placement and the unordered PAM migration. The route between
+ * two physical machines only depends on their PODs ({@link PodRouteTable}), so the problem is split in three
+ * steps:</p>
+ * <ol>
+ *     <li>a global pass assigns every VM and VMP to a POD, using only the free slots of each POD;</li>
+ *     <li>every POD chooses the physical machines of its VMs on its own, the PODs run in parallel on a worker
+ *     pool and each one only touches its own physical machines;</li>
+ *     <li>for the migration, a bounded repair step moves again the pairs whose POD was the worst guess.</li>
+ * </ol>
+ * <p>The wall clock time of the second step follows the largest POD instead of the whole data center. Both
+ * algorithms count slots, so they only run with the slot model ({@link DataCenter#requireSlotModel(String)}).</p>
+ */
+public final class PartitionedPlacement {
+    // kind of job of a POD: the VM of the pair, the VMP of the pair, or both when they go to the same POD
+    private static final int VM = 0, VMP = 1, BOTH = 2, SAME_PM = 3;
+
+    private PartitionedPlacement() {}
+
+    // ******************************************
+    // ******** PAL UNORDERED *******************
+    // ******************************************
+
+    /**
+     * <p>Place the virtual machine pairs, in order of their index, on the pair of PODs with the smallest route that
+     * still has free slots, then choose the physical machines inside every POD. The cost is known after the global
+     * pass because the route only depends on the PODs. The pairs of PODs are ranked by the chain of all middle
+     * boxes, and each pair is charged the route of its own service chain.</p>
+     * @param dataCenter - data center
+     * @param sameMachineFirst - true to fill every physical machine with pairs on the same machine first, as the
+     *                         traffic aware algorithm does
+     * @param threads - number of worker threads
+     * @return placement of the pairs, with its total communication cost
+     * @throws UnsupportedOperationException if the data center has a resource model other than the slot model
+     */
+    public static Placement placeUnordered(DataCenter dataCenter, boolean sameMachineFirst, int threads) {
+        dataCenter.requireSlotModel("The partitioned placement");
+        try (Phase phase = dataCenter.startPhase("partitionedPlaceUnordered", LiveStatus.PAL)) {
+            int numPods = dataCenter.getNumPods();
+            int pmPerPod = numPods * numPods / 4;
+            int numVMPairs = dataCenter.getNumVMPairs();
+            int resources = dataCenter.getResources();
+            int[] fre = dataCenter.getCommunicationFre();
+            PodRouteTable route = HierarchicalPlacement.podRoute(dataCenter);
+            PodRouteTable[] routes = HierarchicalPlacement.chainRoutes(dataCenter, route);
+            int[] chainOf = dataCenter.getChains().chainOfPairs();
+            int[] podSlots = new int[numPods];
+            Arrays.fill(podSlots, pmPerPod * resources);
+            int[] sourcePod = new int[numVMPairs];
+            int[] destinationPod = new int[numVMPairs];
+            boolean[] samePM = new boolean[numVMPairs];
+            double cost = 0;
+            int pair = 0;
+
+            // global pass
+            if (sameMachineFirst) {
+                for (int p = 0; p < numPods && pair < numVMPairs; p++) {
+                    for (int n = 0; n < pmPerPod * (resources / 2) && pair < numVMPairs; n++, pair++) {
+                        sourcePod[pair] = destinationPod[pair] = p;
+                        samePM[pair] = true;
+                        podSlots[p] -= 2;
+                        cost += fre[pair] * routes[chainOf[pair]].getPodRoute(p, p);
+                    }
+                }
+            }
+            Integer[] podPairs = HierarchicalPlacement.sortedPodPairs(route);
+            int cursor = 0;
+            for (; pair < numVMPairs; pair++) {
+                while (cursor < podPairs.length && !hasRoom(podSlots, podPairs[cursor], numPods)) cursor++;
+                if (cursor == podPairs.length) break;   // not enough capacity
+                int a = podPairs[cursor] / numPods, b = podPairs[cursor] % numPods;
+                sourcePod[pair] = a;
+                destinationPod[pair] = b;
+                podSlots[a]--;
+                podSlots[b]--;
+                cost += fre[pair] * routes[chainOf[pair]].getPodRoute(a, b);
+            }
+            int placed = pair;
+
+            // physical machines of every POD
+            CapacityIndex capacity = CapacityIndex.uniform(numPods, resources);
+            Placement placement = new Placement(numVMPairs);
+            int[] order = new int[placed];
+            for (int i = 0; i < placed; i++) order[i] = i;
+            int[][] jobs = podJobs(numPods, order, sourcePod, destinationPod, samePM);
+            // the pairs on the same machine come first, the machines before the cursor have less than two slots
+            int[] twoSlotCursor = new int[numPods];
+            for (int p = 0; p < numPods; p++) twoSlotCursor[p] = p * pmPerPod;
+            runPods(threads, jobs, (pod, podJobs) -> {
+                for (int job : podJobs) {
+                    int index = job >> 2;
+                    switch (job & 3) {
+                        case VM:
+                            placement.placeVM(index, capacity.firstAvailable(pod, -1));
+                            capacity.take(placement.getVM(index));
+                            break;
+                        case VMP:
+                            placement.placeVMP(index, capacity.firstAvailable(pod, -1));
+                            capacity.take(placement.getVMP(index));
+                            break;
+                        default:
+                            int pm = capacity.firstAvailable(pod, -1);
+                            if ((job & 3) == SAME_PM) {
+                                while (capacity.available(twoSlotCursor[pod]) < 2) twoSlotCursor[pod]++;
+                                pm = twoSlotCursor[pod];
+                            }
+                            int pmPair = capacity.firstAvailable(pod, pm);
+                            placement.place(index, pm, pmPair);
+                            capacity.take(pm);
+                            capacity.take(pmPair);
+                    }
+                }
+                return 0;
+            });
+            placement.setCost(cost);
+            return placement;
+        }
+    }
+
+    // ******************************************
+    // ******** PAM UNORDERED *******************
+    // ******************************************
+
+    /**
+     * <p>Migrate the virtual machine pairs like {@link HierarchicalPlacement#migrateUnordered(DataCenter)}, in
+     * descending order of communication frequency. The global pass chooses the pair of PODs with the smallest
+     * estimated cost, where moving a VM inside its own POD is counted as free and moving it to another POD costs
+     * migrationCoef * 6. Every POD then moves its VMs to the available physical machines nearest to their
+     * current hosts. Every pair is ranked by the route of its own service chain.</p>
+     * <p>The repair step takes the pairs whose migration inside the POD cost the most above the estimate, at most
+     * repairBudget of them, and moves each one again to the best pair of physical machines of the whole data
+     * center. A pair is only moved if its cost decreases.</p>
+     * @param dataCenter - data center
+     * @param threads - number of worker threads
+     * @param repairBudget - maximum number of pairs looked at by the repair step
+     * @return placement after the migration, with its total cost
+     * @throws UnsupportedOperationException if the data center has a resource model other than the slot model
+     */
+    public static Placement migrateUnordered(DataCenter dataCenter, int threads, int repairBudget) {
+        dataCenter.requireSlotModel("The partitioned migration");
+        try (Phase phase = dataCenter.startPhase("partitionedMigrateUnordered", LiveStatus.PAM)) {
+            int numPods = dataCenter.getNumPods();
+            int pmPerPod = numPods * numPods / 4;
+            int numVMPairs = dataCenter.getNumVMPairs();
+            int[] fre = dataCenter.getCommunicationFre();
+            double migrationCoef = dataCenter.getMigrationCoef();
+            double otherPod = migrationCoef * 6;
+            PodRouteTable[] routes = HierarchicalPlacement.chainRoutes(dataCenter,
+                    HierarchicalPlacement.podRoute(dataCenter));
+            int[] chainOf = dataCenter.getChains().chainOfPairs();
+            Placement before = Placement.of(dataCenter.getVM_PM(), numVMPairs);
+            int[] podSlots = new int[numPods];
+            for (int pm = 0; pm < dataCenter.numPM(); pm++) podSlots[pm / pmPerPod] += dataCenter.getCapacity()[pm];
+            int[] sourcePod = new int[numVMPairs];
+            int[] destinationPod = new int[numVMPairs];
+            Integer[][] podPairsOf = new Integer[routes.length][];     // sorted pairs of PODs of each chain
+            int[] cursorOf = new int[routes.length];
+            int[] order = HierarchicalPlacement.descendingFrequency(fre);
+            int moved = 0;
+            double communication = 0;
+
+            // global pass
+            for (int index : order) {
+                int podU = before.getVM(index) / pmPerPod, podV = before.getVMP(index) / pmPerPod;
+                int chain = chainOf[index];
+                PodRouteTable route = routes[chain];
+                if (podPairsOf[chain] == null) podPairsOf[chain] = HierarchicalPlacement.sortedPodPairs(route);
+                Integer[] podPairs = podPairsOf[chain];
+                int cursor = cursorOf[chain];
+                while (cursor < podPairs.length && !hasRoom(podSlots, podPairs[cursor], numPods)) cursor++;
+                cursorOf[chain] = cursor;
+                int bestA = -1, bestB = -1;
+                double best = Double.MAX_VALUE;
+                for (int p = 0; p < 2 * numPods; p++) {
+                    int a = p < numPods ? podU : p - numPods;
+                    int b = p < numPods ? p : podV;
+                    if (!hasRoom(podSlots, a * numPods + b, numPods)) continue;
+                    double estimate = fre[index] * route.getPodRoute(a, b)
+                            + (a == podU ? 0 : otherPod) + (b == podV ? 0 : otherPod);
+                    if (estimate < best) {
+                        best = estimate;
+                        bestA = a;
+                        bestB = b;
+                    }
+                }
+                // the pair of PODs with the smallest route, if it is far from both
+                if (cursor < podPairs.length && fre[index] * route.getPodRoute(podPairs[cursor] / numPods,
+                        podPairs[cursor] % numPods) + 2 * otherPod < best) {
+                    bestA = podPairs[cursor] / numPods;
+                    bestB = podPairs[cursor] % numPods;
+                }
+                if (bestA < 0) break;   // no capacity left: the remaining pairs stay where they are
+                sourcePod[index] = bestA;
+                destinationPod[index] = bestB;
+                podSlots[bestA]--;
+                podSlots[bestB]--;
+                communication += fre[index] * route.getPodRoute(bestA, bestB);
+                moved++;
+            }
+
+            // physical machines of every POD
+            CapacityIndex capacity = new CapacityIndex(numPods, dataCenter.getCapacity());
+            Placement placement = before.copy();
+            // migration cost of VM index at 2 * index and of VMP index at 2 * index + 1: they may be in two PODs
+            double[] migration = new double[2 * numVMPairs];
+            int[][] jobs = podJobs(numPods, Arrays.copyOf(order, moved), sourcePod, destinationPod,
+                    new boolean[numVMPairs]);
+            runPods(threads, jobs, (pod, podJobs) -> {
+                for (int job : podJobs) {
+                    int index = job >> 2;
+                    int u = before.getVM(index), v = before.getVMP(index);
+                    int i, j;
+                    switch (job & 3) {
+                        case VM:
+                            i = capacity.nearest(u, pod, -1);
+                            capacity.take(i);
+                            placement.placeVM(index, i);
+                            migration[2 * index] = migrationCoef * dataCenter.getDistance(u, i);
+                            break;
+                        case VMP:
+                            j = capacity.nearest(v, pod, -1);
+                            capacity.take(j);
+                            placement.placeVMP(index, j);
+                            migration[2 * index + 1] = migrationCoef * dataCenter.getDistance(v, j);
+                            break;
+                        default:
+                            i = capacity.nearest(u, pod, -1);
+                            j = capacity.nearest(v, pod, -1);
+                            if (!capacity.fits(i, j)) {
+                                // both nearest machines are the same one with a single slot: move one of the two
+                                int otherJ = capacity.nearest(v, pod, i);
+                                int otherI = capacity.nearest(u, pod, j);
+                                if (otherI < 0 || otherJ >= 0 && dataCenter.getDistance(v, otherJ)
+                                        - dataCenter.getDistance(v, j) <= dataCenter.getDistance(u, otherI)
+                                        - dataCenter.getDistance(u, i)) {
+                                    j = otherJ;
+                                } else {
+                                    i = otherI;
+                                }
+                            }
+                            capacity.take(i);
+                            capacity.take(j);
+                            placement.place(index, i, j);
+                            migration[2 * index] = migrationCoef * (dataCenter.getDistance(u, i)
+                                    + dataCenter.getDistance(v, j));
+                    }
+                }
+                return 0;
+            });
+
+            // repair
+            double total = communication;
+            for (int r = moved; r < numVMPairs; r++)
+                total += fre[order[r]] * routes[chainOf[order[r]]].get(before.getVM(order[r]),
+                        before.getVMP(order[r]));
+            for (int r = 0; r < moved; r++) total += migration[2 * order[r]] + migration[2 * order[r] + 1];
+            total += repair(dataCenter, routes, chainOf, capacity, before, placement, Arrays.copyOf(order, moved),
+                    sourcePod, destinationPod, migration, otherPod, repairBudget);
+            placement.setCost(total);
+            return placement;
+        }
+    }
+
+    /**
+     * Move again the pairs with the largest gap between their migration cost and the estimate of the global pass
+     * @return change of the total cost, zero or negative
+     */
+    private static double repair(DataCenter dataCenter, PodRouteTable[] routes, int[] chainOf,
+                                 CapacityIndex capacity, Placement before, Placement placement, int[] moved,
+                                 int[] sourcePod, int[] destinationPod, double[] migration, double otherPod,
+                                 int repairBudget) {
+        int numPods = dataCenter.getNumPods();
+        int pmPerPod = numPods * numPods / 4;
+        int[] fre = dataCenter.getCommunicationFre();
+        Integer[] candidates = new Integer[moved.length];
+        double[] gap = new double[dataCenter.getNumVMPairs()];
+        for (int r = 0; r < moved.length; r++) {
+            int index = moved[r];
+            candidates[r] = index;
+            gap[index] = migration[2 * index] + migration[2 * index + 1]
+                    - (sourcePod[index] == before.getVM(index) / pmPerPod ? 0 : otherPod)
+                    - (destinationPod[index] == before.getVMP(index) / pmPerPod ? 0 : otherPod);
+        }
+        Arrays.sort(candidates, (a, b) -> Double.compare(gap[b], gap[a]));
+        Integer[][] podPairsOf = new Integer[routes.length][];
+        int[] bestI = new int[numPods];
+        int[] bestJ = new int[numPods];
+        double change = 0;
+        for (int r = 0; r < Math.min(repairBudget, candidates.length) && gap[candidates[r]] > 0; r++) {
+            int index = candidates[r];
+            int i = placement.getVM(index), j = placement.getVMP(index);
+            PodRouteTable route = routes[chainOf[index]];
+            if (podPairsOf[chainOf[index]] == null)
+                podPairsOf[chainOf[index]] = HierarchicalPlacement.sortedPodPairs(route);
+            double current = fre[index] * route.get(i, j) + migration[2 * index] + migration[2 * index + 1];
+            capacity.release(i);
+            capacity.release(j);
+            HierarchicalPlacement.Candidate best = HierarchicalPlacement.cheapestMigration(dataCenter, route,
+                    capacity, podPairsOf[chainOf[index]], 0, fre[index], dataCenter.getMigrationCoef(),
+                    before.getVM(index), before.getVMP(index), bestI, bestJ);
+            if (best.i >= 0 && best.cost < current) {
+                placement.place(index, best.i, best.j);
+                change += best.cost - current;
+                i = best.i;
+                j = best.j;
+            }
+            capacity.take(i);
+            capacity.take(j);
+        }
+        Metrics.counter("partitioned.repairs").add(Math.min(repairBudget, candidates.length));
+        return change;
+    }
+
+    // ******************************************
+    // ******** HELPER **************************
+    // ******************************************
+
+    private interface PodTask {
+        int run(int pod, int[] jobs);
+    }
+
+    /**
+     * Split the pairs into the jobs of every POD, in the given order of pairs. A job is index * 4 + kind.
+     */
+    private static int[][] podJobs(int numPods, int[] order, int[] sourcePod, int[] destinationPod,
+                                   boolean[] samePM) {
+        int[] count = new int[numPods];
+        for (int index : order) {
+            count[sourcePod[index]]++;
+            if (destinationPod[index] != sourcePod[index]) count[destinationPod[index]]++;
+        }
+        int[][] jobs = new int[numPods][];
+        for (int p = 0; p < numPods; p++) jobs[p] = new int[count[p]];
+        Arrays.fill(count, 0);
+        for (int index : order) {
+            int a = sourcePod[index], b = destinationPod[index];
+            if (a == b) {
+                jobs[a][count[a]++] = index << 2 | (samePM[index] ? SAME_PM : BOTH);
+            } else {
+                jobs[a][count[a]++] = index << 2 | VM;
+                jobs[b][count[b]++] = index << 2 | VMP;
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Run the jobs of every POD on a worker pool, the largest PODs first
+     */
+    private static void runPods(int threads, int[][] jobs, PodTask task) {
+        Integer[] pods = new Integer[jobs.length];
+        for (int p = 0; p < pods.length; p++) pods[p] = p;
+        Arrays.sort(pods, (a, b) -> Integer.compare(jobs[b].length, jobs[a].length));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jobs.length)));
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int pod : pods) {
+                if (jobs[pod].length > 0) futures.add(pool.submit(() -> task.run(pod, jobs[pod])));
+            }
+            for (Future<Integer> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while placing the PODs", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static boolean hasRoom(int[] podSlots, int podPair, int numPods) {
+        int a = podPair / numPods, b = podPair % numPods;
+        return a == b ? podSlots[a] > 1 : podSlots[a] > 0 && podSlots[b] > 0;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * <p> Square table of path costs between indices, such as the shortest path matrix of the fat tree
+ * or the shortest path route between physical machines of the data center.</p>
+ * <p>The algorithms read the tables only through this interface, so the same algorithm runs on a table in
+ * the heap, a table mapped from a snapshot file, or a table computed on demand.</p>
+ */
+public interface PathTable {
+    /**
+     * Get number of rows, which is also the number of columns
+     * @return dimension of the table
+     */
+    int size();
+
+    /**
+     * Get the cost of the path from row to column
+     * @param row - index of the source
+     * @param col - index of the destination
+     * @return cost of the path
+     */
+    double get(int row, int col);
+
+    /**
+     * Copy the table into a new two dimensional array
+     * @return array with the same values as the table
+     */
+    default double[][] toArray() {
+        double[][] array = new double[size()][size()];
+        for (int i = 0; i < size(); i++) {
+            for (int j = 0; j < size(); j++) {
+                array[i][j] = get(i, j);
+            }
+        }
+        return array;
+    }
+}
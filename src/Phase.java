@@ -0,0 +1,90 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * <p> Measure one phase of the data center construction or of an algorithm. A phase is used in a
+ * try-with-resources block on the thread that does the work:</p>
+ * <pre>
+ *     try (Phase phase = dataCenter.startPhase("setShortestPathRoute")) {
+ *         ...
+ *     }
+ * </pre>
+ * <p>On close, the phase commits a {@link PhaseEvent} to Flight Recorder and records its time in the timer
+ * "phase.name" and its allocated bytes in the counter "phase.name.allocatedBytes" of {@link Metrics}. While it runs,
+ * it is one of the phases of its {@link LiveStatus}.</p>
+ */
+public final class Phase implements AutoCloseable {
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+    private final PhaseEvent event = new PhaseEvent();
+    private final String name;
+    private final long startNanos;
+    private final long startAllocated;
+    private final LiveStatus status;
+
+    private Phase(String name, int k, int numVMPairs, int numMBs, LiveStatus status) {
+        this.name = name;
+        this.status = status;
+        status.enter(name);
+        event.phase = name;
+        event.k = k;
+        event.numVMPairs = numVMPairs;
+        event.numMBs = numMBs;
+        startAllocated = allocatedBytes();
+        startNanos = System.nanoTime();
+        event.begin();
+    }
+
+    /**
+     * Start a phase
+     * @param name - name of the phase
+     * @param k - number of PODs
+     * @param numVMPairs - number of virtual machine pairs, 0 if not known yet
+     * @param numMBs - number of middle boxes, 0 if not known yet
+     * @return the started phase
+     */
+    public static Phase start(String name, int k, int numVMPairs, int numMBs) {
+        return start(name, k, numVMPairs, numMBs, LiveStatus.DATA_CENTER);
+    }
+
+    /**
+     * Start a phase of an algorithm
+     * @param name - name of the phase
+     * @param k - number of PODs
+     * @param numVMPairs - number of virtual machine pairs, 0 if not known yet
+     * @param numMBs - number of middle boxes, 0 if not known yet
+     * @param status - live status of the component running the phase
+     * @return the started phase
+     */
+    public static Phase start(String name, int k, int numVMPairs, int numMBs, LiveStatus status) {
+        return new Phase(name, k, numVMPairs, numMBs, status);
+    }
+
+    @Override
+    public void close() {
+        event.end();
+        long elapsed = System.nanoTime() - startNanos;
+        long allocated = allocatedBytes() - startAllocated;
+        event.allocatedBytes = allocated;
+        event.commit();
+        Metrics.timer("phase." + name).record(elapsed);
+        if (allocated > 0) Metrics.counter("phase." + name + ".allocatedBytes").add(allocated);
+        status.leave(name);
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or 0 if the JVM does not support it.
+     */
+    private static long allocatedBytes() {
+        if (THREAD_BEAN == null) return 0;
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p> JDK Flight Recorder event of one phase of building the data center or running an algorithm.
+ * The duration of the event is the time of the phase. Record it with
+ * <code>java -XX:StartFlightRecording:filename=run.jfr ...</code> and look for the "PAM PAL" category.</p>
+ */
+@Name("pampal.Phase")
+@Label("Phase")
+@Category("PAM PAL")
+@Description("One phase of data center construction or of a PAM/PAL algorithm")
+public class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Number of PODs (k)")
+    int k;
+
+    @Label("Number of VM Pairs")
+    int numVMPairs;
+
+    @Label("Number of Middle Boxes")
+    int numMBs;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import java.util.Hashtable;
+
+/**
+ * <p> Placement of the virtual machine pairs: the physical machine of VM i and of VMP i, stored in two int arrays
+ * instead of a hash table with "VM" + i and "VMP" + i keys. A pair that is not placed has host -1.</p>
+ */
+public class Placement {
+    private final int[] vmHost;
+    private final int[] vmpHost;
+    private double cost;
+    private int completed;      // pairs processed by the algorithm itself, the others by a fallback
+
+    /**
+     * Empty placement, no pair is placed
+     * @param numVMPairs - number of virtual machine pairs
+     */
+    public Placement(int numVMPairs) {
+        vmHost = new int[numVMPairs];
+        vmpHost = new int[numVMPairs];
+        Arrays.fill(vmHost, -1);
+        Arrays.fill(vmpHost, -1);
+        completed = numVMPairs;
+    }
+
+    /**
+     * Placement from the hash table of the data center
+     * @param VM_PM - virtual machine, physical machine index
+     * @param numVMPairs - number of virtual machine pairs
+     * @return the placement with the same hosts
+     */
+    public static Placement of(Hashtable<String, Integer> VM_PM, int numVMPairs) {
+        Placement placement = new Placement(numVMPairs);
+        for (int i = 0; i < numVMPairs; i++) {
+            Integer vm = VM_PM.get("VM" + i);
+            Integer vmp = VM_PM.get("VMP" + i);
+            placement.place(i, vm == null ? -1 : vm, vmp == null ? -1 : vmp);
+        }
+        return placement;
+    }
+
+    /**
+     * Place a pair of virtual machines
+     * @param pair - index of the virtual machine pair
+     * @param vmPM - physical machine of VM
+     * @param vmpPM - physical machine of VMP
+     */
+    public void place(int pair, int vmPM, int vmpPM) {
+        vmHost[pair] = vmPM;
+        vmpHost[pair] = vmpPM;
+    }
+
+    /**
+     * Place only the VM of a pair
+     * @param pair - index of the virtual machine pair
+     * @param pm - physical machine of VM
+     */
+    public void placeVM(int pair, int pm) {vmHost[pair] = pm;}
+
+    /**
+     * Place only the VMP of a pair
+     * @param pair - index of the virtual machine pair
+     * @param pm - physical machine of VMP
+     */
+    public void placeVMP(int pair, int pm) {vmpHost[pair] = pm;}
+
+    public int getVM(int pair) {return vmHost[pair];}
+
+    public int getVMP(int pair) {return vmpHost[pair];}
+
+    public boolean isPlaced(int pair) {return vmHost[pair] >= 0 && vmpHost[pair] >= 0;}
+
+    /**
+     * @return number of virtual machine pairs
+     */
+    public int size() {return vmHost.length;}
+
+    /**
+     * @return total communication cost of the placement given by the algorithm that built it
+     */
+    public double getCost() {return cost;}
+
+    public void setCost(double cost) {this.cost = cost;}
+
+    /**
+     * @return number of pairs processed by the algorithm before its deadline, all of them without a deadline
+     */
+    public int getCompleted() {return completed;}
+
+    public void setCompleted(int completed) {this.completed = completed;}
+
+    /**
+     * @return true if the algorithm processed every pair, none was left to the fallback of {@link Deadline}
+     */
+    public boolean isComplete() {return completed == size();}
+
+    /**
+     * @return array of the physical machine of each VM, not a copy
+     */
+    public int[] vmHosts() {return vmHost;}
+
+    /**
+     * @return array of the physical machine of each VMP, not a copy
+     */
+    public int[] vmpHosts() {return vmpHost;}
+
+    /**
+     * @return a copy of the placement
+     */
+    public Placement copy() {
+        Placement copy = new Placement(size());
+        System.arraycopy(vmHost, 0, copy.vmHost, 0, size());
+        System.arraycopy(vmpHost, 0, copy.vmpHost, 0, size());
+        copy.cost = cost;
+        copy.completed = completed;
+        return copy;
+    }
+
+    /**
+     * @return hash table with key "VM" + i or "VMP" + i and value the physical machine, for the placed pairs
+     */
+    public Hashtable<String, Integer> toHashtable() {
+        Hashtable<String, Integer> VM_PM = new Hashtable<>();
+        for (int i = 0; i < size(); i++) {
+            if (vmHost[i] >= 0) VM_PM.put("VM" + i, vmHost[i]);
+            if (vmpHost[i] >= 0) VM_PM.put("VMP" + i, vmpHost[i]);
+        }
+        return VM_PM;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * <p> Shortest path route between physical machines stored per pair of PODs instead of per pair of
+ * physical machines.</p>
+ * <p>The middle boxes are on aggregation switches, and every physical machine of a POD has the same distance
+ * to a given aggregation switch (2 inside the POD, 4 outside). The route computed by
+ * {@link DataCenter#calculateSPR(int, int)} only depends on the distances from the two physical machines to the
+ * middle boxes, so it is the same for all physical machines of the same two PODs. It is also the same whether the
+ * two physical machines are equal or not: the second machine hangs on the closest middle box with the same
+ * weight it adds to the path between them. The table therefore holds k * k values instead of numPM * numPM.</p>
+ */
+public class PodRouteTable implements PathTable {
+    private final int numPods;
+    private final int pmPerPod;
+    private final double[] podRoute;
+
+    /**
+     * Compute the route between every pair of PODs
+     * @param numPods - number of PODs of the fat tree
+     * @param distance - shortest path matrix of the fat tree
+     * @param mbSwitch - index of the switch of each middle box in the shortest path matrix
+     */
+    public PodRouteTable(int numPods, PathTable distance, int[] mbSwitch) {
+        this.numPods = numPods;
+        this.pmPerPod = numPods * numPods / 4;
+        this.podRoute = new double[numPods * numPods];
+        double[][] mbToMb = new double[mbSwitch.length][mbSwitch.length];
+        for (int i = 0; i < mbSwitch.length; i++)
+            for (int j = 0; j < mbSwitch.length; j++)
+                mbToMb[i][j] = distance.get(mbSwitch[i], mbSwitch[j]);
+        double[][] podToMb = new double[numPods][mbSwitch.length];
+        for (int p = 0; p < numPods; p++)
+            for (int m = 0; m < mbSwitch.length; m++)
+                podToMb[p][m] = distance.get(p * pmPerPod, mbSwitch[m]);
+        // PODs with the same distances to the middle boxes have the same routes: all the PODs without a middle box
+        // are one class, so there are at most numMBs + 1 classes and one walk per pair of classes
+        int[] classOf = new int[numPods];
+        int[] representative = new int[numPods];
+        int numClasses = 0;
+        for (int p = 0; p < numPods; p++) {
+            int c = 0;
+            while (c < numClasses && !java.util.Arrays.equals(podToMb[representative[c]], podToMb[p])) c++;
+            if (c == numClasses) representative[numClasses++] = p;
+            classOf[p] = c;
+        }
+        double[] classRoute = new double[numClasses * numClasses];
+        double[] samePodRoute = new double[numClasses];
+        java.util.Arrays.fill(classRoute, Double.NaN);
+        java.util.Arrays.fill(samePodRoute, Double.NaN);
+        for (int a = 0; a < numPods; a++) {
+            for (int b = 0; b < numPods; b++) {
+                int c = classOf[a], d = classOf[b];
+                double[] cache = a == b ? samePodRoute : classRoute;
+                int index = a == b ? c : c * numClasses + d;
+                if (Double.isNaN(cache[index]))
+                    cache[index] = walkCost(podToMb[representative[c]], podToMb[representative[d]], mbToMb, a == b);
+                podRoute[a * numPods + b] = cache[index];
+            }
+        }
+    }
+
+    @Override
+    public int size() {return numPods * pmPerPod;}
+
+    @Override
+    public double get(int sourcePM, int destinationPM) {
+        return podRoute[sourcePM / pmPerPod * numPods + destinationPM / pmPerPod];
+    }
+
+    /**
+     * Get the route between any physical machine of a POD and any physical machine of another POD
+     * @param sourcePod - POD of the source physical machine
+     * @param destinationPod - POD of the destination physical machine
+     * @return cost of the route in un-ordered policy
+     */
+    public double getPodRoute(int sourcePod, int destinationPod) {
+        return podRoute[sourcePod * numPods + destinationPod];
+    }
+
+    public int getNumPods() {return numPods;}
+
+    /**
+     * <p>Same walk as {@link DataCenter#calculateSPR(int, int)} without building graphs: in the complete graph of
+     * the source, the destination and the middle boxes (without an edge between source and destination), the walk
+     * costs twice the minimum spanning tree minus the shortest path from the source to the destination.</p>
+     * @param sourceToMb - distance from the source to each middle box
+     * @param destinationToMb - distance from the destination to each middle box
+     * @param mbToMb - distance between middle boxes
+     * @param samePM - true if source and destination are the same physical machine
+     * @return cost of the walk from the source to the destination that visits all middle boxes
+     */
+    public static double walkCost(double[] sourceToMb, double[] destinationToMb, double[][] mbToMb, boolean samePM) {
+        int numMBs = mbToMb.length;
+        int offset = samePM ? 1 : 2;    // node 0 is the source, node 1 the destination, then the middle boxes
+        int n = numMBs + offset;
+        double[][] w = new double[n][n];
+        for (int i = 0; i < n; i++) java.util.Arrays.fill(w[i], Double.POSITIVE_INFINITY);
+        for (int m = 0; m < numMBs; m++) {
+            w[0][m + offset] = w[m + offset][0] = sourceToMb[m];
+            if (!samePM) w[1][m + offset] = w[m + offset][1] = destinationToMb[m];
+            for (int q = 0; q < numMBs; q++)
+                if (m != q) w[m + offset][q + offset] = mbToMb[m][q];
+        }
+        // Prim
+        double mstWeight = 0;
+        boolean[] inTree = new boolean[n];
+        double[] key = new double[n];
+        java.util.Arrays.fill(key, Double.POSITIVE_INFINITY);
+        key[0] = 0;
+        for (int step = 0; step < n; step++) {
+            int u = -1;
+            for (int v = 0; v < n; v++)
+                if (!inTree[v] && (u < 0 || key[v] < key[u])) u = v;
+            if (key[u] == Double.POSITIVE_INFINITY) break;  // disconnected: no middle box
+            inTree[u] = true;
+            mstWeight += key[u];
+            for (int v = 0; v < n; v++)
+                if (!inTree[v] && w[u][v] < key[v]) key[v] = w[u][v];
+        }
+        if (samePM) return 2 * mstWeight;
+        // Dijkstra from source to destination
+        double[] dist = new double[n];
+        boolean[] done = new boolean[n];
+        java.util.Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[0] = 0;
+        for (int step = 0; step < n; step++) {
+            int u = -1;
+            for (int v = 0; v < n; v++)
+                if (!done[v] && (u < 0 || dist[v] < dist[u])) u = v;
+            done[u] = true;
+            for (int v = 0; v < n; v++)
+                if (!done[v] && dist[u] + w[u][v] < dist[v]) dist[v] = dist[u] + w[u][v];
+        }
+        return 2 * mstWeight - dist[1];
+    }
+}
@@ -0,0 +1,268 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * <p> Representations of the distances and of the shortest path route of a {@link DataCenter}, with a cost model of
+ * their memory and build time from k, numMBs and numVMPairs. {@link DataCenter#create(int, int, int, int, int, int)}
+ * asks {@link #choose} for the fastest representation that fits the memory, so the same configuration runs on a
+ * small machine and on a large one.</p>
+ * <p>The three table representations hold the numNodes * numNodes shortest path matrix and the numPM * numPM route,
+ * so PAM and PAL run their exhaustive search on them. They only differ by where the tables are, and a table in the
+ * heap is the fastest to write and to read. The large-scale mode computes the distances from the structure of the fat
+ * tree and keeps the route per pair of PODs. It is built in O(numPM + numVMPairs) and PAM and PAL search PODs and
+ * edge switches instead ({@link HierarchicalPlacement}), so it is used when no table fits the memory or builds within
+ * the time budget.</p>
+ * <p>The build times are estimates measured on the construction phases ({@link Phase}): the Dijkstra search of the
+ * shortest path matrix grows as numNodes^2 log(numNodes) and the route as numPM^2, with a cost per entry that grows
+ * with the square of numMBs.</p>
+ */
+public enum Representation {
+    /** shortest path matrix and route as double[][] in the heap */
+    DENSE,
+    /** shortest path matrix and route in direct memory, see {@link TableArena#TableArena()} */
+    OFF_HEAP,
+    /** shortest path matrix and route in mapped files, see {@link TableArena#TableArena(Path)} */
+    MAPPED,
+    /** distances of {@link FatTreeDistanceOracle} and route per pair of PODs ({@link PodRouteTable}) */
+    LARGE_SCALE;
+
+    private static final long BYTES_PER_NODE = 110;          // entry of the node table
+    private static final long BYTES_PER_PAIR = 260;          // VM_PM entries of the VM and VMP, frequency, placement
+    private static final long GRAPH_BYTES_PER_NODE = 600;    // node and edge of the graph of the fat tree
+    private static final long GRAPH_BYTES_PER_EDGE = 400;
+    private static final double DIJKSTRA_NANOS = 50;         // per numNodes^2 log2(numNodes)
+    private static final double ROUTE_NANOS = 6000;          // per route entry, plus ROUTE_NANOS_PER_MB * numMBs^2
+    private static final double ROUTE_NANOS_PER_MB = 600;
+    private static final double LARGE_SCALE_NANOS = 100;     // per physical machine and per pair
+    /**
+     * Default longest build time of a table representation, 10 minutes. The large-scale mode builds in milliseconds
+     * at any k, so it is the faster choice beyond.
+     */
+    public static final long DEFAULT_MAX_BUILD_MILLIS = 600_000;
+
+    /**
+     * @param numPods - number of PODs
+     * @return number of nodes of the fat tree
+     */
+    static long numNodes(int numPods) {
+        long k = numPods;
+        return k * k * k / 4 + 5 * k * k / 4;
+    }
+
+    /**
+     * @param numPods - number of PODs
+     * @return number of physical machines of the fat tree
+     */
+    static long numPM(int numPods) {
+        long k = numPods;
+        return k * k * k / 4;
+    }
+
+    /**
+     * Estimate of the heap kept by a data center in this representation
+     * @param numPods - number of PODs
+     * @param numVMPairs - number pairs of virtual machine
+     * @return bytes of the heap
+     */
+    public long heapBytes(int numPods, int numVMPairs) {
+        long k = numPods, nodes = numNodes(numPods), pms = numPM(numPods);
+        long bytes = nodes * BYTES_PER_NODE + numVMPairs * BYTES_PER_PAIR;
+        if (this == LARGE_SCALE) return bytes + 8 * k * k;
+        bytes += nodes * GRAPH_BYTES_PER_NODE + 3 * k * k * k / 4 * GRAPH_BYTES_PER_EDGE;
+        if (this == DENSE) bytes += 8 * (nodes * nodes + pms * pms) + 16 * (nodes + pms);
+        return bytes;
+    }
+
+    /**
+     * Estimate of the memory outside the heap: direct memory for {@link #OFF_HEAP}, files for {@link #MAPPED}
+     * @param numPods - number of PODs
+     * @return bytes outside the heap, 0 for the representations in the heap
+     */
+    public long outsideHeapBytes(int numPods) {
+        if (this != OFF_HEAP && this != MAPPED) return 0;
+        long nodes = numNodes(numPods), pms = numPM(numPods);
+        return 8 * (nodes * nodes + pms * pms);
+    }
+
+    /**
+     * Estimate of the construction time of a data center in this representation
+     * @param numPods - number of PODs
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @return milliseconds
+     */
+    public long buildMillis(int numPods, int numMBs, int numVMPairs) {
+        double nodes = numNodes(numPods), pms = numPM(numPods);
+        if (this == LARGE_SCALE) return (long) (LARGE_SCALE_NANOS * (pms + numVMPairs) / 1e6);
+        double nanos = DIJKSTRA_NANOS * nodes * nodes * Math.log(nodes) / Math.log(2)
+                + (ROUTE_NANOS + ROUTE_NANOS_PER_MB * numMBs * numMBs) * pms * pms;
+        if (this == OFF_HEAP) nanos *= 1.1;     // writes through a buffer
+        else if (this == MAPPED) nanos *= 1.2;  // and pages of the file
+        return (long) (nanos / 1e6);
+    }
+
+    /**
+     * @param numPods - number of PODs
+     * @param numVMPairs - number pairs of virtual machine
+     * @param budget - memory available
+     * @return true if a data center of this representation fits the budget
+     */
+    public boolean fits(int numPods, int numVMPairs, Budget budget) {
+        if (heapBytes(numPods, numVMPairs) > budget.heapBytes) return false;
+        if (this == OFF_HEAP) return outsideHeapBytes(numPods) <= budget.directBytes;
+        if (this == MAPPED) return budget.directory != null && outsideHeapBytes(numPods) <= budget.diskBytes;
+        return true;
+    }
+
+    /**
+     * Choose the fastest table representation that fits the budget and whose build time is within the budget,
+     * otherwise the large-scale mode
+     * @param numPods - number of PODs
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param budget - memory and time available
+     * @return representation of the data center
+     */
+    public static Representation choose(int numPods, int numMBs, int numVMPairs, Budget budget) {
+        for (Representation representation : values()) {     // in increasing build time of the tables
+            if (representation == LARGE_SCALE) break;
+            if (representation.fits(numPods, numVMPairs, budget)
+                    && representation.buildMillis(numPods, numMBs, numVMPairs) <= budget.maxBuildMillis)
+                return representation;
+        }
+        return LARGE_SCALE;
+    }
+
+    /**
+     * Estimates of every representation against a budget, one line each, for the log of a choice
+     * @param numPods - number of PODs
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param budget - memory and time available
+     * @return heap, memory outside the heap and build time of each representation, and whether it fits
+     */
+    public static String describe(int numPods, int numMBs, int numVMPairs, Budget budget) {
+        StringBuilder sb = new StringBuilder();
+        for (Representation representation : values()) {
+            sb.append(String.format(Locale.ROOT, "  %-11s heap %,8d MB  outside %,8d MB  build %,10d ms  %s%n",
+                    representation, representation.heapBytes(numPods, numVMPairs) >> 20,
+                    representation.outsideHeapBytes(numPods) >> 20,
+                    representation.buildMillis(numPods, numMBs, numVMPairs),
+                    !representation.fits(numPods, numVMPairs, budget) ? "too large"
+                    : representation.buildMillis(numPods, numMBs, numVMPairs) > budget.maxBuildMillis
+                    && representation != LARGE_SCALE ? "too slow" : "fits"));
+        }
+        return sb.toString();
+    }
+
+    // ******************************************
+    // ******** BUDGET **************************
+    // ******************************************
+
+    /**
+     * <p> Memory and time a data center may use: heap, direct memory, disk of the directory of the mapped tables
+     * and build time.</p>
+     */
+    public static final class Budget {
+        private final long heapBytes;
+        private final long directBytes;
+        private final Path directory;
+        private final long diskBytes;
+        private final long maxBuildMillis;
+
+        private Budget(long heapBytes, long directBytes, Path directory, long diskBytes, long maxBuildMillis) {
+            this.heapBytes = heapBytes;
+            this.directBytes = directBytes;
+            this.directory = directory;
+            this.diskBytes = diskBytes;
+            this.maxBuildMillis = maxBuildMillis;
+        }
+
+        /**
+         * Budget of the JVM: the heap not used yet, the direct memory limit (<code>-XX:MaxDirectMemorySize</code>,
+         * the maximum heap by default), the free space of the temporary directory and
+         * {@link #DEFAULT_MAX_BUILD_MILLIS}
+         * @return budget of the JVM
+         */
+        public static Budget available() {
+            Runtime runtime = Runtime.getRuntime();
+            long heap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+            long direct = runtime.maxMemory();
+            for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (argument.startsWith("-XX:MaxDirectMemorySize="))
+                    direct = parseSize(argument.substring("-XX:MaxDirectMemorySize=".length()));
+            }
+            Path directory = Paths.get(System.getProperty("java.io.tmpdir"));
+            return new Budget(heap, direct, directory, new File(directory.toString()).getUsableSpace(),
+                    DEFAULT_MAX_BUILD_MILLIS);
+        }
+
+        /**
+         * Budget of an explicit amount of memory, for the heap and for the direct memory, within the budget of the
+         * JVM
+         * @param bytes - memory the data center may use
+         * @return budget of at most that memory
+         */
+        public static Budget of(long bytes) {
+            Budget jvm = available();
+            return new Budget(Math.min(bytes, jvm.heapBytes), Math.min(bytes, jvm.directBytes), jvm.directory,
+                    jvm.diskBytes, jvm.maxBuildMillis);
+        }
+
+        /**
+         * @param parts - number of data centers built at the same time, for example the threads of a sweep
+         * @return budget of one of them
+         */
+        public Budget share(int parts) {
+            return new Budget(heapBytes / parts, directBytes / parts, directory, diskBytes / parts, maxBuildMillis);
+        }
+
+        /**
+         * @param directory - directory of the files of the mapped tables, null to never map tables
+         * @return this budget with the free space of that directory
+         */
+        public Budget withDirectory(Path directory) {
+            long disk = directory == null ? 0 : new File(directory.toString()).getUsableSpace();
+            return new Budget(heapBytes, directBytes, directory, disk, maxBuildMillis);
+        }
+
+        /**
+         * @param millis - longest estimated build time of a table representation, beyond it the large-scale mode is
+         *               used; Long.MAX_VALUE to always build the tables that fit
+         * @return this budget with that time limit
+         */
+        public Budget withMaxBuildMillis(long millis) {
+            return new Budget(heapBytes, directBytes, directory, diskBytes, millis);
+        }
+
+        public long getHeapBytes() {return heapBytes;}
+
+        public long getDirectBytes() {return directBytes;}
+
+        public Path getDirectory() {return directory;}
+
+        public long getDiskBytes() {return diskBytes;}
+
+        public long getMaxBuildMillis() {return maxBuildMillis;}
+
+        /**
+         * @param size - size of the JVM options, such as 512m or 4g
+         * @return bytes
+         */
+        private static long parseSize(String size) {
+            char unit = Character.toLowerCase(size.charAt(size.length() - 1));
+            int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : unit == 'g' ? 30 : unit == 't' ? 40 : 0;
+            return Long.parseLong(shift == 0 ? size : size.substring(0, size.length() - 1)) << shift;
+        }
+
+        @Override
+        public String toString() {
+            return "heap " + (heapBytes >> 20) + " MB, direct " + (directBytes >> 20) + " MB, disk "
+                    + (diskBytes >> 20) + " MB in " + directory
+                    + (maxBuildMillis == Long.MAX_VALUE ? "" : ", build " + maxBuildMillis + " ms");
+        }
+    }
+}
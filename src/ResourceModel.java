@@ -0,0 +1,151 @@
+import java.util.Random;
+
+/**
+ * <p> Capacities of the physical machines and demands of the virtual machines in several resources, for example
+ * CPU cores and GB of memory. A virtual machine fits on a physical machine if its demand is at most the remaining
+ * capacity in every resource.</p>
+ * <p>The virtual machines are numbered 2 * i for VMi and 2 * i + 1 for VMPi ({@link #vm(int)}, {@link #vmp(int)}).
+ * The slot model of {@link DataCenter} is the model with one resource, a capacity of resources slots per physical
+ * machine and a demand of one slot per virtual machine.</p>
+ */
+public class ResourceModel {
+    private final int dimensions;
+    private final int numPM;
+    private final int[] capacity;   // pm * dimensions + resource
+    private final int[] demand;     // vm * dimensions + resource
+
+    /**
+     * Model with all capacities and demands 0
+     * @param numPM - number of physical machines
+     * @param numVMPairs - number of virtual machine pairs
+     * @param dimensions - number of resources
+     */
+    public ResourceModel(int numPM, int numVMPairs, int dimensions) {
+        if (dimensions < 1) throw new IllegalArgumentException("A resource model needs a resource");
+        this.dimensions = dimensions;
+        this.numPM = numPM;
+        this.capacity = new int[numPM * dimensions];
+        this.demand = new int[2 * numVMPairs * dimensions];
+    }
+
+    /**
+     * Slot model: one resource, every virtual machine takes one slot
+     * @param slots - number of slots of every physical machine
+     * @param numVMPairs - number of virtual machine pairs
+     * @return the model
+     */
+    public static ResourceModel slots(int[] slots, int numVMPairs) {
+        ResourceModel model = new ResourceModel(slots.length, numVMPairs, 1);
+        System.arraycopy(slots, 0, model.capacity, 0, slots.length);
+        java.util.Arrays.fill(model.demand, 1);
+        return model;
+    }
+
+    /**
+     * Slot model with the same number of slots on every physical machine
+     * @param numPM - number of physical machines
+     * @param numVMPairs - number of virtual machine pairs
+     * @param resources - number of slots of every physical machine
+     * @return the model
+     */
+    public static ResourceModel slots(int numPM, int numVMPairs, int resources) {
+        int[] slots = new int[numPM];
+        java.util.Arrays.fill(slots, resources);
+        return slots(slots, numVMPairs);
+    }
+
+    /**
+     * Mixed hardware and virtual machine sizes: every physical machine and every virtual machine gets one of the
+     * given types at random
+     * @param numPM - number of physical machines
+     * @param numVMPairs - number of virtual machine pairs
+     * @param pmTypes - capacity vector of each type of physical machine
+     * @param vmTypes - demand vector of each type of virtual machine
+     * @param seed - seed of the random draw
+     * @return the model
+     */
+    public static ResourceModel random(int numPM, int numVMPairs, int[][] pmTypes, int[][] vmTypes, long seed) {
+        ResourceModel model = new ResourceModel(numPM, numVMPairs, pmTypes[0].length);
+        Random random = new Random(seed);
+        for (int pm = 0; pm < numPM; pm++) model.setCapacity(pm, pmTypes[random.nextInt(pmTypes.length)]);
+        for (int vm = 0; vm < 2 * numVMPairs; vm++) model.setDemand(vm, vmTypes[random.nextInt(vmTypes.length)]);
+        return model;
+    }
+
+    /**
+     * @param resources - number of slots of every physical machine
+     * @return true if this is the slot model with that number of slots: one resource, a capacity of resources on
+     * every physical machine and a demand of one per virtual machine
+     */
+    public boolean isSlotModel(int resources) {
+        if (dimensions != 1) return false;
+        for (int value : capacity) if (value != resources) return false;
+        for (int value : demand) if (value != 1) return false;
+        return true;
+    }
+
+    /**
+     * @param pair - index of the virtual machine pair
+     * @return number of the VM of the pair in the model
+     */
+    public static int vm(int pair) {return 2 * pair;}
+
+    /**
+     * @param pair - index of the virtual machine pair
+     * @return number of the VMP of the pair in the model
+     */
+    public static int vmp(int pair) {return 2 * pair + 1;}
+
+    /**
+     * @param pm - index of the physical machine
+     * @param values - capacity in every resource
+     */
+    public void setCapacity(int pm, int... values) {
+        checkDimensions(values);
+        System.arraycopy(values, 0, capacity, pm * dimensions, dimensions);
+    }
+
+    /**
+     * @param vm - number of the virtual machine, {@link #vm(int)} or {@link #vmp(int)}
+     * @param values - demand in every resource
+     */
+    public void setDemand(int vm, int... values) {
+        checkDimensions(values);
+        System.arraycopy(values, 0, demand, vm * dimensions, dimensions);
+    }
+
+    /**
+     * @return a copy of the model
+     */
+    public ResourceModel copy() {
+        ResourceModel copy = new ResourceModel(numPM, numVMPairs(), dimensions);
+        System.arraycopy(capacity, 0, copy.capacity, 0, capacity.length);
+        System.arraycopy(demand, 0, copy.demand, 0, demand.length);
+        return copy;
+    }
+
+    private void checkDimensions(int[] values) {
+        if (values.length != dimensions)
+            throw new IllegalArgumentException("Expected " + dimensions + " resources, got " + values.length);
+    }
+
+    public int getDimensions() {return dimensions;}
+
+    public int numPM() {return numPM;}
+
+    public int numVMPairs() {return demand.length / (2 * dimensions);}
+
+    public int getCapacity(int pm, int resource) {return capacity[pm * dimensions + resource];}
+
+    public int getDemand(int vm, int resource) {return demand[vm * dimensions + resource];}
+
+    /**
+     * @return capacity of every physical machine, pm * dimensions + resource, not a copy
+     */
+    int[] capacities() {return capacity;}
+
+    /**
+     * @return demand of every virtual machine, vm * dimensions + resource, not a copy
+     */
+    int[] demands() {return demand;}
+}
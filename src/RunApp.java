@@ -1,4 +1,6 @@
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Scanner;
 
 public class RunApp {
@@ -21,7 +23,7 @@ public class RunApp {
         System.out.println("***************************************************");
         System.out.print("Enter your choose: ");
     }
-    public static int mainMenu() throws IOException {
+    public static int mainMenu() throws IOException, InterruptedException {
         int choice;
         Scanner sc = new Scanner(System.in);
         mainDescription();
@@ -57,13 +59,19 @@ public class RunApp {
         sc.close();
         return choice;
     }
-    public static void displayPAL(){
+    /**
+     * Run the four PAL algorithms at the same time on a snapshot of the data center and print their costs
+     * @throws InterruptedException if interrupted while waiting for the algorithms
+     */
+    public static void displayPAL() throws InterruptedException {
 //        palAlgorithm = new PAL(dataCenter);
+        Map<String, Placement> results = AlgorithmRunner.runAll(dataCenter, Arrays.asList("palOrdered",
+                "trafficAwareOrdered", "palUnordered", "trafficAwareUnordered"), 4);
         System.out.println("************ PAL Algorithm *************");
-        System.out.println("Cost in ordered PAL Algorithm 1: "+ palAlgorithm.costInOrdered());
-        System.out.println("Cost in ordered PAL in traffic aware:" + palAlgorithm.ultilityTrafficAwareOrdered());
-        System.out.println("Cost in unordered PAL Algorithm 3: "+ palAlgorithm.PALUnordered());
-        System.out.println("Cost in unordered in Traffic aware: "+ palAlgorithm.utilityTrafficAwareUnordered());
+        System.out.println("Cost in ordered PAL Algorithm 1: "+ results.get("palOrdered").getCost());
+        System.out.println("Cost in ordered PAL in traffic aware:" + results.get("trafficAwareOrdered").getCost());
+        System.out.println("Cost in unordered PAL Algorithm 3: "+ results.get("palUnordered").getCost());
+        System.out.println("Cost in unordered in Traffic aware: "+ results.get("trafficAwareUnordered").getCost());
     }
     public static void displayPAM() throws IOException {
         Scanner sc = new Scanner(System.in);
@@ -86,7 +94,17 @@ public class RunApp {
 //        displayPAL(12345678,12345678);
         displayPAM();
     }
-    public static void main(String[] args) throws IOException {
+    /**
+     * Run the interactive menu, a benchmark when the first argument names one (see {@link Benchmarks}), or a
+     * headless parameter sweep when other command line arguments are given (see {@link SweepSpec} for the arguments).
+     * @param args - name and arguments of a benchmark, sweep spec arguments, or empty for the interactive menu
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (Benchmarks.run(args)) return;
+        if (args.length > 0) {
+            SweepRunner.main(args);
+            return;
+        }
         mainMenu();
 //        DataCenter dt = new DataCenter(8,20,20,3,1000,1000);
 //        dt.setIngress();
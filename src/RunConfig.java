@@ -0,0 +1,96 @@
+/**
+ * <p> One point of an experiment grid: the parameters needed to build a {@link DataCenter}
+ * plus the trial index of the run.</p>
+ */
+public class RunConfig {
+    private final int numPods;
+    private final int migrationCoef;
+    private final int resources;
+    private final int numMBs;
+    private final int numVMPairs;
+    private final int maxCommunicationFre;
+    private final int trial;
+
+    /**
+     * Constructor of a run configuration
+     * @param numPods - Number of PODS
+     * @param migrationCoef - Migration coefficient of fat tree
+     * @param resources - capacity of each Physical machine
+     * @param numMBs - number of MBs in the data center
+     * @param numVMPairs - number pairs of virtual machine
+     * @param maxCommunicationFre - maximum communication frequencies
+     * @param trial - index of the repetition of the same parameters, start 0
+     */
+    public RunConfig(int numPods, int migrationCoef, int resources,
+                     int numMBs, int numVMPairs, int maxCommunicationFre, int trial) {
+        this.numPods = numPods;
+        this.migrationCoef = migrationCoef;
+        this.resources = resources;
+        this.numMBs = numMBs;
+        this.numVMPairs = numVMPairs;
+        this.maxCommunicationFre = maxCommunicationFre;
+        this.trial = trial;
+    }
+
+    public int getNumPods() {return numPods;}
+
+    public int getMigrationCoef() {return migrationCoef;}
+
+    public int getResources() {return resources;}
+
+    public int getNumMBs() {return numMBs;}
+
+    public int getNumVMPairs() {return numVMPairs;}
+
+    public int getMaxCommunicationFre() {return maxCommunicationFre;}
+
+    public int getTrial() {return trial;}
+
+    /**
+     * Check the same condition as {@link DataCenter#isEnoughCapacity()} without building the data center,
+     * because the data center exits the JVM when the capacity is not enough.
+     * @return true if the physical machines can hold all the virtual machine pairs.
+     */
+    public boolean isFeasible() {
+        return numPods > 0 && numPods % 2 == 0 && numMBs > 0
+                && 2 * numVMPairs <= numPods * numPods * numPods * resources / 4;
+    }
+
+    /**
+     * Build the data center of this configuration.
+     * @return new data center
+     */
+    public DataCenter buildDataCenter() {
+        return new DataCenter(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre);
+    }
+
+    /**
+     * Build the data center of this configuration in the fastest representation that fits a budget.
+     * @param budget - memory and build time the data center may use
+     * @return new data center; close its {@link DataCenter#getTableArena()} when it is done if it has one
+     */
+    public DataCenter buildDataCenter(Representation.Budget budget) {
+        return DataCenter.create(numPods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre, budget);
+    }
+
+    /**
+     * Build the data center of this configuration on an existing topology, only the workload is drawn.
+     * @param topology - topology with the number of PODs, migration coefficient and middle boxes of this
+     *                 configuration
+     * @param seed - seed of the placement and of the communication frequencies
+     * @return new data center sharing the tables of the topology
+     */
+    public DataCenter buildDataCenter(Topology topology, long seed) {
+        if (topology.getNumPods() != numPods || topology.getMigrationCoef() != migrationCoef
+                || topology.getNumMBs() != numMBs)
+            throw new IllegalArgumentException("The topology does not match " + this);
+        return new DataCenter(topology, resources, numVMPairs, maxCommunicationFre, seed);
+    }
+
+    @Override
+    public String toString() {
+        return "k=" + numPods + " migrationCoef=" + migrationCoef + " resources=" + resources
+                + " numMBs=" + numMBs + " numVMPairs=" + numVMPairs
+                + " maxCommunicationFre=" + maxCommunicationFre + " trial=" + trial;
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p> Result of one run of a sweep: the cost of each algorithm and the time spent in each phase.</p>
+ */
+public class RunResult {
+    private final RunConfig config;
+    private final Map<String, Double> costs = new LinkedHashMap<>();
+    private final Map<String, Double> phaseMillis = new LinkedHashMap<>();
+    private String error;
+
+    public RunResult(RunConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Record the cost of an algorithm
+     * @param algorithm - name of the algorithm
+     * @param cost - total communication cost the algorithm returned
+     */
+    public void putCost(String algorithm, double cost) {
+        costs.put(algorithm, cost);
+    }
+
+    /**
+     * Record the time spent in a phase
+     * @param phase - name of the phase
+     * @param nanos - elapsed time in nanoseconds
+     */
+    public void putPhase(String phase, long nanos) {
+        phaseMillis.put(phase, nanos / 1_000_000.0);
+    }
+
+    /**
+     * Record the error of the run, multiple errors are joined
+     * @param message - description of the error
+     */
+    public void addError(String message) {
+        error = (error == null) ? message : error + "; " + message;
+    }
+
+    public RunConfig getConfig() {return config;}
+
+    /**
+     * @return cost of each algorithm, in the order they ran
+     */
+    public Map<String, Double> getCosts() {return costs;}
+
+    /**
+     * @return time in milliseconds of each phase, in the order they ran
+     */
+    public Map<String, Double> getPhaseMillis() {return phaseMillis;}
+
+    /**
+     * @return the errors of the run, or null if the run succeeded
+     */
+    public String getError() {return error;}
+}
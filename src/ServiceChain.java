@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * <p> Sequence of middle boxes that the traffic of a virtual machine pair goes through, as indices of the middle
+ * boxes of the data center (MB0, MB1, ...). In ordered policy the traffic visits them in this order; in un-ordered
+ * policy the chain is the set of middle boxes to visit.</p>
+ * <p>A chain is immutable and two chains with the same middle boxes in the same order are equal, so that identical
+ * chains can share one {@link ChainTable} ({@link ChainRegistry}).</p>
+ */
+public final class ServiceChain {
+    private final int[] middleBoxes;
+
+    /**
+     * @param middleBoxes - indices of the middle boxes in the order they are visited, at least one, no repetition
+     */
+    public ServiceChain(int... middleBoxes) {
+        if (middleBoxes.length == 0) throw new IllegalArgumentException("A service chain needs a middle box");
+        for (int i = 0; i < middleBoxes.length; i++) {
+            if (middleBoxes[i] < 0) throw new IllegalArgumentException("Invalid middle box " + middleBoxes[i]);
+            for (int j = 0; j < i; j++) {
+                if (middleBoxes[i] == middleBoxes[j])
+                    throw new IllegalArgumentException("MB" + middleBoxes[i] + " twice in the service chain");
+            }
+        }
+        this.middleBoxes = middleBoxes.clone();
+    }
+
+    /**
+     * Chain of all the middle boxes of the data center, MB0 to MB(numMBs - 1), the chain of every pair by default
+     * @param numMBs - number of middle boxes
+     * @return the chain
+     */
+    public static ServiceChain all(int numMBs) {
+        int[] middleBoxes = new int[numMBs];
+        for (int i = 0; i < numMBs; i++) middleBoxes[i] = i;
+        return new ServiceChain(middleBoxes);
+    }
+
+    /**
+     * Read a chain written as indices or names of middle boxes separated by '-', '>' or ',', e.g. "0>2>1" or
+     * "MB0-MB2-MB1"
+     * @param text - the chain
+     * @return the chain
+     */
+    public static ServiceChain parse(String text) {
+        String[] parts = text.trim().split("\\s*[->,]+\\s*");
+        int[] middleBoxes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].startsWith("MB") ? parts[i].substring(2) : parts[i];
+            middleBoxes[i] = Integer.parseInt(part);
+        }
+        return new ServiceChain(middleBoxes);
+    }
+
+    public int size() {return middleBoxes.length;}
+
+    /**
+     * @param position - position in the chain
+     * @return index of the middle box at this position
+     */
+    public int get(int position) {return middleBoxes[position];}
+
+    /**
+     * @return index of the first middle box (ingress)
+     */
+    public int first() {return middleBoxes[0];}
+
+    /**
+     * @return index of the last middle box (egress)
+     */
+    public int last() {return middleBoxes[middleBoxes.length - 1];}
+
+    /**
+     * @return the chain with its middle boxes in increasing order. Chains with the same middle boxes in any order
+     * have the same un-ordered chain, and the same tables in un-ordered policy.
+     */
+    public ServiceChain unordered() {
+        int[] sorted = middleBoxes.clone();
+        Arrays.sort(sorted);
+        return Arrays.equals(sorted, middleBoxes) ? this : new ServiceChain(sorted);
+    }
+
+    /**
+     * @return copy of the indices of the middle boxes
+     */
+    public int[] toArray() {return middleBoxes.clone();}
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ServiceChain && Arrays.equals(middleBoxes, ((ServiceChain) o).middleBoxes);
+    }
+
+    @Override
+    public int hashCode() {return Arrays.hashCode(middleBoxes);}
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int mb : middleBoxes) {
+            if (sb.length() > 0) sb.append('>');
+            sb.append("MB").append(mb);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * <p> Headless runner of a parameter sweep. Every configuration of the {@link SweepSpec} builds its own
+ * {@link DataCenter} and runs the PAM and PAL algorithms on it. The configurations are independent, so they run
+ * concurrently on a fixed size worker pool, and each finished run is written as one row of the output file. Each
+ * data center gets the {@link Representation} that fits its share of the memory.</p>
+ * <p>Usage: <code>java SweepRunner --pods=4:8:2 --numVMPairs=500,1000 --trials=5 --out=sweep.csv</code>
+ * or <code>java SweepRunner --spec=sweep.properties</code>, or <code>java SweepRunner sweep.properties</code>.</p>
+ */
+public class SweepRunner {
+    private final SweepSpec spec;
+
+    public SweepRunner(SweepSpec spec) {
+        this.spec = spec;
+    }
+
+    // ******************************************
+    // ******** RUN THE SWEEP *******************
+    // ******************************************
+
+    /**
+     * Run all configurations of the sweep on the worker pool and write the rows in the order the runs finish.
+     * @return number of runs that finished without error
+     * @throws IOException if the output file cannot be written
+     * @throws InterruptedException if the runner is interrupted while waiting for the runs
+     */
+    public int run() throws IOException, InterruptedException {
+        List<RunConfig> configs = spec.expand();
+        ExecutorService pool = Executors.newFixedThreadPool(spec.getThreads());
+        CompletionService<RunResult> completion = new ExecutorCompletionService<>(pool);
+        for (RunConfig config : configs) {
+            completion.submit(() -> runOne(config));
+        }
+        int succeeded = 0;
+        long start = System.nanoTime();
+        try (PrintWriter writer = new PrintWriter(spec.getOut(), StandardCharsets.UTF_8)) {
+            if (!spec.isJson()) writer.println(csvHeader());
+            for (int i = 0; i < configs.size(); i++) {
+                RunResult result;
+                try {
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    // runOne catches the failures of the algorithms, so this is an error of the runner itself
+                    throw new IllegalStateException(e.getCause());
+                }
+                writer.println(spec.isJson() ? jsonRow(result) : csvRow(result));
+                writer.flush();
+                if (result.getError() == null) succeeded++;
+                System.out.println("Run " + (i + 1) + "/" + configs.size() + " finished: " + result.getConfig()
+                        + (result.getError() == null ? "" : " (error: " + result.getError() + ")"));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println("Sweep of " + configs.size() + " runs finished in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, " + succeeded + " without error.");
+        Metrics.dump(System.out);
+        return succeeded;
+    }
+
+    /**
+     * Build the data center of one configuration and run the algorithms of the spec on it.
+     * A failure of one algorithm is recorded in the result and does not stop the other algorithms.
+     * @param config - configuration of the run
+     * @return result of the run
+     */
+    public RunResult runOne(RunConfig config) {
+        RunResult result = new RunResult(config);
+        if (!config.isFeasible()) {
+            result.addError("invalid parameters or not enough capacity");
+            return result;
+        }
+        long start = System.nanoTime();
+        DataCenter dataCenter;
+        try {
+            // the runs of the pool build their data centers at the same time, each gets its share of the memory
+            dataCenter = config.buildDataCenter(Representation.Budget.available().share(spec.getThreads()));
+        } catch (RuntimeException e) {
+            result.addError("build: " + e);
+            return result;
+        }
+        result.putPhase("build", System.nanoTime() - start);
+        for (String algorithm : spec.getAlgorithms()) {
+            start = System.nanoTime();
+            try {
+                result.putCost(algorithm, AlgorithmRunner.run(algorithm, dataCenter).getCost());
+            } catch (RuntimeException e) {
+                result.addError(algorithm + ": " + e);
+            }
+            result.putPhase(algorithm, System.nanoTime() - start);
+        }
+        if (dataCenter.getTableArena() != null) dataCenter.getTableArena().close();
+        return result;
+    }
+
+    // ******************************************
+    // ******** OUTPUT FORMAT *******************
+    // ******************************************
+
+    private String csvHeader() {
+        StringBuilder sb = new StringBuilder("k,migrationCoef,resources,numMBs,numVMPairs,maxCommunicationFre,trial");
+        for (String algorithm : spec.getAlgorithms()) sb.append(',').append(algorithm);
+        sb.append(",build_ms");
+        for (String algorithm : spec.getAlgorithms()) sb.append(',').append(algorithm).append("_ms");
+        return sb.append(",error").toString();
+    }
+
+    private String csvRow(RunResult result) {
+        RunConfig c = result.getConfig();
+        StringBuilder sb = new StringBuilder();
+        sb.append(c.getNumPods()).append(',').append(c.getMigrationCoef()).append(',').append(c.getResources())
+                .append(',').append(c.getNumMBs()).append(',').append(c.getNumVMPairs())
+                .append(',').append(c.getMaxCommunicationFre()).append(',').append(c.getTrial());
+        for (String algorithm : spec.getAlgorithms()) {
+            sb.append(',');
+            if (result.getCosts().containsKey(algorithm)) sb.append(result.getCosts().get(algorithm));
+        }
+        sb.append(',');
+        if (result.getPhaseMillis().containsKey("build")) sb.append(result.getPhaseMillis().get("build"));
+        for (String algorithm : spec.getAlgorithms()) {
+            sb.append(',');
+            if (result.getPhaseMillis().containsKey(algorithm)) sb.append(result.getPhaseMillis().get(algorithm));
+        }
+        sb.append(',');
+        if (result.getError() != null) sb.append('"').append(result.getError().replace("\"", "\"\"")).append('"');
+        return sb.toString();
+    }
+
+    private static String jsonRow(RunResult result) {
+        RunConfig c = result.getConfig();
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"k\":").append(c.getNumPods())
+                .append(",\"migrationCoef\":").append(c.getMigrationCoef())
+                .append(",\"resources\":").append(c.getResources())
+                .append(",\"numMBs\":").append(c.getNumMBs())
+                .append(",\"numVMPairs\":").append(c.getNumVMPairs())
+                .append(",\"maxCommunicationFre\":").append(c.getMaxCommunicationFre())
+                .append(",\"trial\":").append(c.getTrial())
+                .append(",\"costs\":").append(jsonObject(result.getCosts()))
+                .append(",\"phaseMillis\":").append(jsonObject(result.getPhaseMillis()))
+                .append(",\"error\":");
+        if (result.getError() == null) {
+            sb.append("null");
+        } else {
+            sb.append('"').append(result.getError().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * @param values - values by name
+     * @return JSON object of the values; an infinite or NaN value, which JSON cannot hold, is written as null
+     */
+    static String jsonObject(Map<String, Double> values) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            double value = entry.getValue();
+            sb.append('"').append(entry.getKey()).append("\":")
+                    .append(Double.isFinite(value) ? Double.toString(value) : "null");
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Run a sweep
+     * @param args - sweep spec arguments (see {@link SweepSpec#fromArgs(String[])}), or the path of a spec file alone
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SweepSpec spec = args.length == 1 && !args[0].startsWith("--") ? SweepSpec.fromFile(args[0])
+                : SweepSpec.fromArgs(args);
+        new SweepRunner(spec).run();
+    }
+}
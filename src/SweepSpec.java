@@ -0,0 +1,206 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * <p> Specification of a parameter sweep. Every parameter of the data center takes a list of values,
+ * and the sweep is the cross product of all the lists repeated for the number of trials.</p>
+ * <p> The spec is read from a properties file or from command line arguments in the form
+ * <code>--key=value</code>. A value is a comma separated list (<code>4,6,8</code>) or a
+ * range <code>start:end:step</code> (<code>4:16:2</code>, end inclusive).</p>
+ * <ul>
+ *     <li>pods, migrationCoef, resources, numMBs, numVMPairs, maxCommunicationFre: parameter values</li>
+ *     <li>trials: number of repetitions of each configuration</li>
+ *     <li>threads: size of the worker pool, default is number of cores</li>
+ *     <li>out: output file, ".json" or ".jsonl" writes JSON lines, otherwise CSV</li>
+ *     <li>algorithms: algorithms to run, default is all of {@link #ALGORITHMS}</li>
+ * </ul>
+ */
+public class SweepSpec {
+    /**
+     * Name of all algorithms the sweep can run.
+     */
+    public static final List<String> ALGORITHMS = Collections.unmodifiableList(Arrays.asList(
+            "initial", "pamUnordered", "plan", "palOrdered", "trafficAwareOrdered",
+            "palUnordered", "trafficAwareUnordered", "pamPartitioned", "palPartitioned",
+            "pamLocalSearch", "palLocalSearch", "pamTopK", "pamCompressed", "palCompressed"));
+
+    private List<Integer> pods = Collections.singletonList(8);
+    private List<Integer> migrationCoef = Collections.singletonList(20);
+    private List<Integer> resources = Collections.singletonList(20);
+    private List<Integer> numMBs = Collections.singletonList(3);
+    private List<Integer> numVMPairs = Collections.singletonList(1000);
+    private List<Integer> maxCommunicationFre = Collections.singletonList(1000);
+    private int trials = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String out = "sweep.csv";
+    private List<String> algorithms = ALGORITHMS;
+
+    // ******************************************
+    // ******** PARSE SPEC **********************
+    // ******************************************
+
+    /**
+     * Read the spec from command line arguments. The argument <code>--spec=file</code> loads a properties file
+     * first, then the other arguments override its values.
+     * @param args - command line arguments
+     * @return the sweep spec
+     * @throws IOException if the spec file cannot be read
+     */
+    public static SweepSpec fromArgs(String[] args) throws IOException {
+        SweepSpec spec = new SweepSpec();
+        Properties properties = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                if (arg.endsWith(".properties")) {
+                    properties.putAll(load(arg));
+                    continue;
+                }
+                throw new IllegalArgumentException("Argument must have the form --key=value: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (key.equals("spec")) {
+                properties.putAll(load(value));
+            } else {
+                properties.setProperty(key, value);
+            }
+        }
+        spec.apply(properties);
+        return spec;
+    }
+
+    /**
+     * Read the spec from a properties file
+     * @param fileName - path of the spec file
+     * @return the sweep spec
+     * @throws IOException if the spec file cannot be read
+     */
+    public static SweepSpec fromFile(String fileName) throws IOException {
+        SweepSpec spec = new SweepSpec();
+        spec.apply(load(fileName));
+        return spec;
+    }
+
+    private static Properties load(String fileName) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private void apply(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            switch (key) {
+                case "pods":
+                    pods = parseValues(value);
+                    break;
+                case "migrationCoef":
+                    migrationCoef = parseValues(value);
+                    break;
+                case "resources":
+                    resources = parseValues(value);
+                    break;
+                case "numMBs":
+                    numMBs = parseValues(value);
+                    break;
+                case "numVMPairs":
+                    numVMPairs = parseValues(value);
+                    break;
+                case "maxCommunicationFre":
+                    maxCommunicationFre = parseValues(value);
+                    break;
+                case "trials":
+                    trials = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "out":
+                    out = value;
+                    break;
+                case "algorithms":
+                    algorithms = new ArrayList<>();
+                    for (String name : value.split(",")) {
+                        if (!ALGORITHMS.contains(name.trim()))
+                            throw new IllegalArgumentException("Unknown algorithm: " + name.trim());
+                        algorithms.add(name.trim());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown sweep parameter: " + key);
+            }
+        }
+        if (trials < 1 || threads < 1)
+            throw new IllegalArgumentException("trials and threads must be positive");
+    }
+
+    /**
+     * Parse a list of values "4,6,8" or a range "start:end:step".
+     * @param value - text of the values
+     * @return list of values
+     */
+    static List<Integer> parseValues(String value) {
+        List<Integer> values = new ArrayList<>();
+        for (String part : value.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) continue;
+            if (part.contains(":")) {
+                String[] range = part.split(":");
+                int start = Integer.parseInt(range[0].trim());
+                int end = Integer.parseInt(range[1].trim());
+                int step = range.length > 2 ? Integer.parseInt(range[2].trim()) : 1;
+                if (step <= 0) throw new IllegalArgumentException("Step of range must be positive: " + part);
+                for (int v = start; v <= end; v += step) values.add(v);
+            } else {
+                values.add(Integer.parseInt(part));
+            }
+        }
+        if (values.isEmpty()) throw new IllegalArgumentException("Empty list of values: " + value);
+        return values;
+    }
+
+    // ******************************************
+    // ******** EXPAND **************************
+    // ******************************************
+
+    /**
+     * Expand the spec into the list of all configurations, the largest data centers first so that the
+     * longest runs start early and the small ones fill the pool at the end.
+     * @return list of configurations of the sweep
+     */
+    public List<RunConfig> expand() {
+        List<RunConfig> configs = new ArrayList<>();
+        for (int k : pods)
+            for (int m : migrationCoef)
+                for (int r : resources)
+                    for (int mb : numMBs)
+                        for (int p : numVMPairs)
+                            for (int f : maxCommunicationFre)
+                                for (int t = 0; t < trials; t++)
+                                    configs.add(new RunConfig(k, m, r, mb, p, f, t));
+        configs.sort(Comparator.comparingInt(RunConfig::getNumPods)
+                .thenComparingInt(RunConfig::getNumVMPairs).reversed());
+        return configs;
+    }
+
+    public int getTrials() {return trials;}
+
+    public int getThreads() {return threads;}
+
+    public String getOut() {return out;}
+
+    public List<String> getAlgorithms() {return algorithms;}
+
+    /**
+     * @return true if the output is written as JSON lines, false for CSV.
+     */
+    public boolean isJson() {
+        return out.endsWith(".json") || out.endsWith(".jsonl");
+    }
+}
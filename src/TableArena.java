@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p> Owner of the {@link OffHeapPathTable}s of one or more data centers. The tables live until the arena is
+ * closed, which releases all of them at once, like try-with-resources on the data centers that use them. An arena
+ * without a directory puts its tables in direct memory, which is limited by <code>-XX:MaxDirectMemorySize</code>
+ * (the maximum heap by default). An arena with a directory maps each table from a temporary file of that directory,
+ * paged by the operating system and deleted when the arena is closed.</p>
+ * <p>Pass the arena to {@link DataCenter#DataCenter(int, int, int, int, int, int, TableArena)} to build the shortest
+ * path matrix and the shortest path route directly outside the heap, or copy the tables of an existing data center
+ * with {@link #copyOf(PathTable)}.</p>
+ */
+public final class TableArena implements AutoCloseable {
+    private final Path directory;
+    private final List<OffHeapPathTable> tables = new ArrayList<>();
+    private final List<Path> files = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Arena of tables in direct memory
+     */
+    public TableArena() {
+        this(null);
+    }
+
+    /**
+     * @param directory - directory of the files of the tables, null for direct memory
+     */
+    public TableArena(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Create a table filled with 0
+     * @param size - dimension of the table
+     * @return new table owned by this arena
+     * @throws UncheckedIOException if the file of the table cannot be created
+     */
+    public synchronized OffHeapPathTable allocate(int size) {
+        if (closed) throw new IllegalStateException("The arena is closed");
+        OffHeapPathTable table;
+        if (directory == null) {
+            table = new OffHeapPathTable(size);
+        } else {
+            try {
+                Path file = Files.createTempFile(directory, "pathTable", ".bin");
+                files.add(file);
+                table = new OffHeapPathTable(file, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map a path table in " + directory, e);
+            }
+        }
+        tables.add(table);
+        Metrics.counter("offHeap.bytes").add(table.bytes());
+        return table;
+    }
+
+    /**
+     * Copy a table into this arena, row by row
+     * @param table - table to copy
+     * @return new table owned by this arena
+     */
+    public OffHeapPathTable copyOf(PathTable table) {
+        int size = table.size();
+        OffHeapPathTable copy = allocate(size);
+        double[] row = new double[size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) row[j] = table.get(i, j);
+            copy.setRow(i, row);
+        }
+        return copy;
+    }
+
+    /**
+     * @return number of bytes of the tables of the arena
+     */
+    public synchronized long bytes() {
+        long bytes = 0;
+        for (OffHeapPathTable table : tables) bytes += table.bytes();
+        return bytes;
+    }
+
+    /**
+     * @return true if the tables are mapped from files
+     */
+    public boolean isFileBacked() {return directory != null;}
+
+    /**
+     * Release all the tables of the arena and delete their files. Reading a table afterwards throws
+     * IllegalStateException. A file that is still mapped cannot be deleted on some systems, it is then deleted when
+     * the virtual machine exits.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (OffHeapPathTable table : tables) table.close();
+        tables.clear();
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+        files.clear();
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p> Approximate unordered PAM migration: each virtual machine pair only looks at a bounded set of candidate pairs
+ * of physical machines instead of all numPM * numPM of them. The candidates are the K cheapest classes of the
+ * shortest path route, a class being a pair of PODs (source POD, destination POD), plus a few pairs of physical
+ * machines drawn at random. The classes are ranked by the route of the pair's service chain and by the smallest
+ * migration distance from the current hosts of the pair, so the classes near the current hosts come first.</p>
+ * <p>In a class the route is the same for every pair of physical machines, so only the nearest available machines
+ * of the class are evaluated, with the same cost and the same resource checks as {@link PAM#migrateUnordered()}.
+ * With K = numPods^2 every class is looked at and each pair gets its cheapest pair of physical machines, as in the
+ * exhaustive search. K is the knob between quality and speed, see {@link #report}.</p>
+ */
+public final class TopKMigration {
+
+    private TopKMigration() {}
+
+    /**
+     * Migrate the virtual machine pairs, in descending order of frequency, to the cheapest of their candidate pairs of
+     * physical machines. The data center is not changed.
+     * @param dataCenter - data center
+     * @param topK - number of classes of the route looked at for each pair
+     * @param samples - number of random pairs of physical machines looked at for each pair
+     * @param seed - seed of the random pairs
+     * @return placement after the migration, with its total cost
+     */
+    public static Placement migrateUnordered(DataCenter dataCenter, int topK, int samples, long seed) {
+        return migrateUnordered(dataCenter, topK, samples, seed, Deadline.NONE);
+    }
+
+    /**
+     * Same migration until a deadline, the pairs not processed by then are placed by {@link AnytimeFallback}
+     * @param dataCenter - data center
+     * @param topK - number of classes of the route looked at for each pair
+     * @param samples - number of random pairs of physical machines looked at for each pair
+     * @param seed - seed of the random pairs
+     * @param deadline - time limit of the run
+     * @return placement after the migration, with its total cost and the number of pairs processed in time
+     */
+    public static Placement migrateUnordered(DataCenter dataCenter, int topK, int samples, long seed,
+                                             Deadline deadline) {
+        if (topK < 1) throw new IllegalArgumentException("topK must be at least 1: " + topK);
+        int numPods = dataCenter.getNumPods();
+        int numPM = dataCenter.numPM();
+        int pmPerPod = numPM / numPods;
+        int pmPerEdge = numPods / 2;
+        int numVMPairs = dataCenter.getNumVMPairs();
+        // same machines as the exhaustive search: the VM below numVMPairs, the VMP from the machine of the VM on
+        int limit = Math.min(numVMPairs, numPM);
+        int[] fre = dataCenter.getCommunicationFre();
+        double migrationCoef = dataCenter.getMigrationCoef();
+        int[] chainOf = dataCenter.getChains().chainOfPairs();
+        Placement before = Placement.of(dataCenter.getVM_PM(), numVMPairs);
+        Placement placement = before.copy();
+        ResourceModel model = dataCenter.hasResourceModel() ? dataCenter.getResourceModel()
+                : ResourceModel.slots(dataCenter.getCapacity(), numVMPairs);
+        FeasibilityIndex available = new FeasibilityIndex(numPods, model);
+        // with a resource model, the pairs not migrated yet keep their resources on their current machines
+        boolean occupied = dataCenter.hasResourceModel();
+        for (int p = 0; occupied && p < numVMPairs; p++) {
+            available.take(before.getVM(p), ResourceModel.vm(p));
+            available.take(before.getVMP(p), ResourceModel.vmp(p));
+        }
+        ClassRanking[] rankings = new ClassRanking[dataCenter.getChains().size()];
+        Random random = new Random(seed);
+        double total = 0;
+        int[] order = HierarchicalPlacement.descendingFrequency(fre);
+        int done;
+
+        for (done = 0; done < numVMPairs && !deadline.expired(); done++) {
+            int index = order[done];
+            int u = before.getVM(index), w = before.getVMP(index);
+            int vm = ResourceModel.vm(index), vmp = ResourceModel.vmp(index);
+            if (occupied) {
+                available.release(u, vm);
+                available.release(w, vmp);
+            }
+            int chain = chainOf[index];
+            if (rankings[chain] == null) rankings[chain] = new ClassRanking(dataCenter, index);
+            ClassRanking ranking = rankings[chain];
+            ranking.start(fre[index], migrationCoef, u / pmPerPod, w / pmPerPod,
+                    dataCenter.getDistance(u, ((u / pmPerPod + 1) % numPods) * pmPerPod),
+                    dataCenter.getDistance(w, ((w / pmPerPod + 1) % numPods) * pmPerPod));
+
+            Move best = new Move(dataCenter, index, u, w, migrationCoef);
+            best.consider(u, w, available, limit);    // staying is always a candidate
+            // classes without room are passed over, they do not count in K
+            for (int withRoom = 0, c = ranking.next(); withRoom < topK && c >= 0; c = ranking.next()) {
+                int sourcePod = c / numPods, destinationPod = c % numPods;
+                int podStart = sourcePod * pmPerPod, podEnd = podStart + pmPerPod;
+                // nearest available machines of the source POD: the current hosts, their edge switches, the POD
+                int[] hosts = {
+                        u / pmPerPod == sourcePod ? u : -1,
+                        w / pmPerPod == sourcePod ? w : -1,
+                        u / pmPerPod == sourcePod ? nextFit(available, u - u % pmPerEdge, u - u % pmPerEdge
+                                + pmPerEdge, vm, u, w) : -1,
+                        w / pmPerPod == sourcePod ? nextFit(available, w - w % pmPerEdge, w - w % pmPerEdge
+                                + pmPerEdge, vm, u, w) : -1,
+                        nextFit(available, podStart, podEnd, vm, -1, -1)};
+                int destinationStart = destinationPod * pmPerPod;
+                boolean room = false;
+                for (int i : hosts) {
+                    if (i < 0 || i >= limit) continue;
+                    int destinationEnd = destinationStart + pmPerPod;
+                    int j = nextFit(available, Math.max(i, destinationStart), destinationEnd, vmp, -1, -1);
+                    if (j == i && !available.fits(i, vm, vmp))
+                        j = nextFit(available, j + 1, destinationEnd, vmp, -1, -1);
+                    if (j < 0) continue;
+                    room |= best.consider(i, j, available, limit);
+                }
+                if (room) withRoom++;
+            }
+            for (int s = 0; s < samples; s++) {
+                int i = random.nextInt(limit);
+                best.consider(i, i + random.nextInt(numPM - i), available, limit);
+            }
+
+            if (best.i < 0) {   // no room left: the pair stays where it is
+                double cost = fre[index] * dataCenter.getRouteCost(index, u, w);
+                total += cost;
+                available.take(u, vm);
+                available.take(w, vmp);
+                LiveStatus.PAM.progress(1);
+                LiveStatus.PAM.addCost(cost);
+                continue;
+            }
+            placement.place(index, best.i, best.j);
+            available.take(best.i, vm);
+            available.take(best.j, vmp);
+            total += best.cost;
+            LiveStatus.PAM.progress(1);
+            LiveStatus.PAM.addCost(best.cost);
+        }
+        if (done < numVMPairs) {
+            total += AnytimeFallback.place(dataCenter, placement, order, done, before, model,
+                    OnlinePlacementService.Policy.UNORDERED);
+            placement.setCompleted(done);
+        }
+        placement.setCost(total);
+        return placement;
+    }
+
+    /**
+     * First machine of [from, to) with room for a virtual machine, other than two machines
+     */
+    private static int nextFit(FeasibilityIndex available, int from, int to, int vm, int skip1, int skip2) {
+        for (int pm = available.nextFit(from, vm); pm >= 0 && pm < to; pm = available.nextFit(pm + 1, vm))
+            if (pm != skip1 && pm != skip2) return pm;
+        return -1;
+    }
+
+    /**
+     * Cheapest candidate pair of physical machines of a virtual machine pair, with the cost of
+     * {@link PAM#migrateUnordered()}: both migration distances are measured to the machine of the VM.
+     */
+    private static final class Move {
+        private final DataCenter dataCenter;
+        private final int pair, u, w;
+        private final double migrationCoef;
+        int i = -1, j = -1;
+        double cost = Double.MAX_VALUE;
+
+        Move(DataCenter dataCenter, int pair, int u, int w, double migrationCoef) {
+            this.dataCenter = dataCenter;
+            this.pair = pair;
+            this.u = u;
+            this.w = w;
+            this.migrationCoef = migrationCoef;
+        }
+
+        /**
+         * @return true if the pair of physical machines has room for the virtual machine pair
+         */
+        boolean consider(int i, int j, FeasibilityIndex available, int limit) {
+            int vm = ResourceModel.vm(pair), vmp = ResourceModel.vmp(pair);
+            if (i >= limit || j < i || !available.fits(i, vm) || !available.fits(j, vmp)) return false;
+            if (i == j && !available.fits(j, vm, vmp)) return false;
+            double c = dataCenter.getCommunicationFre()[pair] * dataCenter.getRouteCost(pair, i, j)
+                    + migrationCoef * (dataCenter.getDistance(u, i) + dataCenter.getDistance(w, i));
+            // ties go to the first pair of the exhaustive search, row by row
+            if (c < cost || (c == cost && (i < this.i || (i == this.i && j < this.j)))) {
+                this.i = i;
+                this.j = j;
+                this.cost = c;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Classes of the route of one service chain, sorted by route: all of them, and those of each source POD
+     */
+    private static final class ClassRanking {
+        private final int numPods;
+        private final double[] route;     // route of each class, source POD * numPods + destination POD
+        private final int[] sorted;
+        private final int[][] sortedOfPod;
+        // state of the current merge
+        private int fre, vmPod, vmpPod, r, s, g;
+        private int[] vmRow, vmpRow;
+        private double vmBound, vmpBound, otherBound;
+
+        ClassRanking(DataCenter dataCenter, int pair) {
+            this.numPods = dataCenter.getNumPods();
+            int pmPerPod = dataCenter.numPM() / numPods;
+            this.route = new double[numPods * numPods];
+            for (int a = 0; a < numPods; a++)
+                for (int b = 0; b < numPods; b++)
+                    route[a * numPods + b] = dataCenter.getRouteCost(pair, a * pmPerPod, b * pmPerPod);
+            this.sorted = byRoute(0, numPods * numPods);
+            this.sortedOfPod = new int[numPods][];
+            for (int a = 0; a < numPods; a++) sortedOfPod[a] = byRoute(a * numPods, numPods);
+        }
+
+        private int[] byRoute(int first, int length) {
+            Integer[] order = new Integer[length];
+            for (int c = 0; c < length; c++) order[c] = first + c;
+            Arrays.sort(order, (x, y) -> Double.compare(route[x], route[y]));
+            int[] result = new int[length];
+            for (int c = 0; c < length; c++) result[c] = order[c];
+            return result;
+        }
+
+        /**
+         * Start a new merge of the classes of the POD of the VM, of the POD of the VMP and of the other PODs by their
+         * lower bound: frequency * route + migration coefficient * smallest migration distance to the source POD.
+         * @param fre - frequency of the pair
+         * @param migrationCoef - migration coefficient
+         * @param vmPod - POD of the VM
+         * @param vmpPod - POD of the VMP
+         * @param vmAway - migration distance of the VM to another POD
+         * @param vmpAway - migration distance of the VMP to another POD
+         */
+        void start(int fre, double migrationCoef, int vmPod, int vmpPod, double vmAway, double vmpAway) {
+            this.fre = fre;
+            this.vmPod = vmPod;
+            this.vmpPod = vmpPod;
+            vmRow = sortedOfPod[vmPod];
+            vmpRow = vmPod == vmpPod ? new int[0] : sortedOfPod[vmpPod];
+            vmBound = migrationCoef * (vmPod == vmpPod ? 0 : vmpAway);
+            vmpBound = migrationCoef * vmAway;
+            otherBound = migrationCoef * (vmAway + vmpAway);
+            r = 0;
+            s = 0;
+            g = 0;
+        }
+
+        /**
+         * @return next class of the merge, -1 after the last one
+         */
+        int next() {
+            while (g < sorted.length && (sorted[g] / numPods == vmPod || sorted[g] / numPods == vmpPod)) g++;
+            double first = r < vmRow.length ? fre * route[vmRow[r]] + vmBound : Double.POSITIVE_INFINITY;
+            double second = s < vmpRow.length ? fre * route[vmpRow[s]] + vmpBound : Double.POSITIVE_INFINITY;
+            double other = g < sorted.length ? fre * route[sorted[g]] + otherBound : Double.POSITIVE_INFINITY;
+            if (r < vmRow.length && first <= second && first <= other) return vmRow[r++];
+            if (s < vmpRow.length && second <= other) return vmpRow[s++];
+            if (g < sorted.length) return sorted[g++];
+            return -1;
+        }
+    }
+
+    // ******************************************
+    // ************ QUALITY REPORT **************
+    // ******************************************
+
+    /**
+     * Run the exhaustive migration and the approximation for several values of K, to choose K for instances too
+     * large for the exhaustive search
+     * @param dataCenter - data center, small enough for {@link PAM#migrateUnordered()}
+     * @param topK - values of K
+     * @param samples - number of random pairs of physical machines for each pair
+     * @param seed - seed of the random pairs
+     * @return one line per run: K, cost, gap to the exhaustive cost in percent, time and speedup
+     */
+    public static String report(DataCenter dataCenter, int[] topK, int samples, long seed) {
+        long start = System.nanoTime();
+        double exhaustive = new PAM(dataCenter).migrateUnordered().getCost();
+        double exhaustiveMillis = (System.nanoTime() - start) / 1e6;
+        StringBuilder report = new StringBuilder(String.format("%-10s %16s %9s %12s %9s%n", "K", "cost", "gap %",
+                "ms", "speedup"));
+        report.append(String.format("%-10s %16.1f %9.3f %12.1f %9.1f%n", "all pairs", exhaustive, 0.0,
+                exhaustiveMillis, 1.0));
+        for (int k : topK) {
+            start = System.nanoTime();
+            double cost = migrateUnordered(dataCenter, k, samples, seed).getCost();
+            double millis = (System.nanoTime() - start) / 1e6;
+            report.append(String.format("%-10d %16.1f %9.3f %12.1f %9.1f%n", k, cost,
+                    100 * (cost - exhaustive) / exhaustive, millis, exhaustiveMillis / millis));
+        }
+        return report.toString();
+    }
+}
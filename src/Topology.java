@@ -0,0 +1,62 @@
+import java.util.Hashtable;
+
+/**
+ * <p> The part of a data center that does not depend on the virtual machines: the fat tree with its shortest path
+ * matrix, the switches of the middle boxes and the shortest path route between physical machines. It is the slow
+ * part of building a {@link DataCenter}, and it never changes, so many workloads (placement of the virtual machines
+ * and communication frequencies) can be drawn on one topology with
+ * {@link DataCenter#DataCenter(Topology, int, int, int, long)} and share its tables.</p>
+ */
+public final class Topology {
+    private final int numPods;
+    private final int migrationCoef;
+    private final boolean largeScale;
+    private final PathTable distanceTable;
+    private final PathTable routeTable;
+    private final int[] mbSwitches;
+
+    /**
+     * @param numPods - number of PODs
+     * @param migrationCoef - migration coefficient of the fat tree
+     * @param largeScale - true for the large-scale mode
+     * @param distanceTable - shortest path matrix of the fat tree
+     * @param routeTable - shortest path route between physical machines in un-ordered policy
+     * @param mbSwitches - entry i is the switch of MB i in the shortest path matrix
+     */
+    Topology(int numPods, int migrationCoef, boolean largeScale, PathTable distanceTable, PathTable routeTable,
+             int[] mbSwitches) {
+        this.numPods = numPods;
+        this.migrationCoef = migrationCoef;
+        this.largeScale = largeScale;
+        this.distanceTable = distanceTable;
+        this.routeTable = routeTable;
+        this.mbSwitches = mbSwitches.clone();
+    }
+
+    public int getNumPods() {return numPods;}
+
+    public int getMigrationCoef() {return migrationCoef;}
+
+    public boolean isLargeScale() {return largeScale;}
+
+    public int getNumMBs() {return mbSwitches.length;}
+
+    public PathTable getDistanceTable() {return distanceTable;}
+
+    public PathTable getRouteTable() {return routeTable;}
+
+    /**
+     * @param mb - index of the middle box
+     * @return switch of the middle box in the shortest path matrix
+     */
+    public int getMbSwitch(int mb) {return mbSwitches[mb];}
+
+    /**
+     * @return new hash table middle box "MB" + i, index of its switch, for a data center of this topology
+     */
+    Hashtable<String, Integer> mbSwitchTable() {
+        Hashtable<String, Integer> mBs_Switch = new Hashtable<>();
+        for (int i = 0; i < mbSwitches.length; i++) mBs_Switch.put("MB" + i, mbSwitches[i]);
+        return mBs_Switch;
+    }
+}
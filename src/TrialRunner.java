@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p> Monte-Carlo trials of the algorithms on one topology. The {@link Topology} of the configuration (fat tree,
+ * shortest paths, middle boxes, shortest path route) is built once; every trial draws a new workload on it, a
+ * placement and communication frequencies from its own seed, and runs the algorithms with
+ * {@link AlgorithmRunner#run(String, DataCenter)}. The trials run on a fixed size worker pool and the cost of each
+ * algorithm is summarized as mean, standard deviation and 95% confidence interval.</p>
+ * <p>The middle boxes stay on the same switches in all trials, so the interval measures the variation due to the
+ * workload for this topology. Trial t uses seed + t, the results do not depend on the number of threads.</p>
+ * <p>A failed algorithm is left out of the summary of its trial and reported with the seed of the trial
+ * ({@link Summary#getFailureMessages()}). Usage: <code>java RunApp trials k numVMPairs trials [threads]
+ * [algorithm,algorithm,...]</code></p>
+ */
+public class TrialRunner {
+    // two-sided 95% quantile of the Student t distribution for 1 to 30 degrees of freedom, 1.96 above
+    private static final double[] T_975 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060,
+            2.056, 2.052, 2.048, 2.045, 2.042};
+    private final RunConfig config;
+    private final List<String> algorithms;
+    private final int threads;
+
+    /**
+     * @param config - parameters of the data center, its trial index is not used
+     * @param algorithms - names of the algorithms, see {@link SweepSpec#ALGORITHMS}
+     * @param threads - size of the worker pool
+     */
+    public TrialRunner(RunConfig config, List<String> algorithms, int threads) {
+        if (!config.isFeasible()) throw new IllegalArgumentException("Invalid parameters or not enough capacity");
+        this.config = config;
+        this.algorithms = algorithms;
+        this.threads = threads;
+    }
+
+    /**
+     * Cost of one algorithm over the trials
+     */
+    public static final class Summary {
+        private final double[] costs;
+        private final List<String> failures;
+
+        Summary(double[] costs, List<String> failures) {
+            this.costs = costs;
+            this.failures = failures;
+        }
+
+        /**
+         * @return number of trials where the algorithm gave a cost
+         */
+        public int getCount() {return costs.length;}
+
+        /**
+         * @return number of trials where the algorithm failed
+         */
+        public int getFailures() {return failures.size();}
+
+        /**
+         * @return seed of each trial where the algorithm failed, with its exception, in the order of the trials
+         */
+        public List<String> getFailureMessages() {return failures;}
+
+        public double getMean() {
+            double sum = 0;
+            for (double cost : costs) sum += cost;
+            return costs.length == 0 ? Double.NaN : sum / costs.length;
+        }
+
+        /**
+         * @return sample standard deviation, 0 for a single trial
+         */
+        public double getStandardDeviation() {
+            if (costs.length < 2) return 0;
+            double mean = getMean(), sum = 0;
+            for (double cost : costs) sum += (cost - mean) * (cost - mean);
+            return Math.sqrt(sum / (costs.length - 1));
+        }
+
+        /**
+         * @return half width of the 95% confidence interval of the mean, infinite for a single trial
+         */
+        public double getHalfWidth() {
+            if (costs.length < 2) return Double.POSITIVE_INFINITY;
+            double t = costs.length - 1 <= T_975.length ? T_975[costs.length - 2] : 1.96;
+            return t * getStandardDeviation() / Math.sqrt(costs.length);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("mean %.1f +- %.1f (95%% CI), sd %.1f, %d trials", getMean(), getHalfWidth(),
+                    getStandardDeviation(), getCount())
+                    + (failures.isEmpty() ? "" : ", " + failures.size() + " failed");
+        }
+    }
+
+    // ******************************************
+    // ******** RUN THE TRIALS ******************
+    // ******************************************
+
+    /**
+     * Build the topology, then run the trials on the worker pool
+     * @param trials - number of trials
+     * @param seed - seed of the first trial
+     * @return summary of each algorithm, in the order of the names
+     * @throws InterruptedException if interrupted while waiting for the trials
+     */
+    public Map<String, Summary> run(int trials, long seed) throws InterruptedException {
+        Topology topology;
+        try (Phase phase = Phase.start("topology", config.getNumPods(), config.getNumVMPairs(), config.getNumMBs())) {
+            topology = config.buildDataCenter().getTopology();
+        }
+        return run(topology, trials, seed);
+    }
+
+    /**
+     * Run the trials on a topology built before
+     * @param topology - topology of the configuration
+     * @param trials - number of trials
+     * @param seed - seed of the first trial
+     * @return summary of each algorithm, in the order of the names
+     * @throws InterruptedException if interrupted while waiting for the trials
+     */
+    public Map<String, Summary> run(Topology topology, int trials, long seed) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Trial>> running = new ArrayList<>();
+        try {
+            for (int t = 0; t < trials; t++) {
+                long trialSeed = seed + t;
+                running.add(pool.submit(() -> runTrial(topology, trialSeed)));
+            }
+            Trial[] results = new Trial[trials];
+            for (int t = 0; t < trials; t++) {
+                try {
+                    results[t] = running.get(t).get();
+                } catch (ExecutionException e) {
+                    // runTrial catches the failures of the algorithms, so this is an error of the workload
+                    throw new IllegalStateException("trial " + t + " failed", e.getCause());
+                }
+            }
+            Map<String, Summary> summaries = new LinkedHashMap<>();
+            for (int a = 0; a < algorithms.size(); a++) {
+                double[] values = new double[trials];
+                int count = 0;
+                List<String> failures = new ArrayList<>();
+                for (Trial trial : results) {
+                    if (trial.failures[a] == null) values[count++] = trial.costs[a];
+                    else failures.add(trial.failures[a]);
+                }
+                summaries.put(algorithms.get(a), new Summary(Arrays.copyOf(values, count), failures));
+            }
+            return summaries;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Costs of the algorithms in one trial, or the failure of each algorithm that failed
+     */
+    private static final class Trial {
+        final double[] costs;
+        final String[] failures;
+
+        Trial(int numAlgorithms) {
+            costs = new double[numAlgorithms];
+            failures = new String[numAlgorithms];
+        }
+    }
+
+    /**
+     * Draw the workload of one trial and run the algorithms on it
+     * @return cost of each algorithm, the seed and exception of each algorithm that failed
+     */
+    private Trial runTrial(Topology topology, long seed) {
+        DataCenter dataCenter = config.buildDataCenter(topology, seed);
+        Trial trial = new Trial(algorithms.size());
+        for (int a = 0; a < algorithms.size(); a++) {
+            try {
+                trial.costs[a] = AlgorithmRunner.run(algorithms.get(a), dataCenter).getCost();
+            } catch (RuntimeException e) {
+                trial.failures[a] = "seed " + seed + ": " + e;
+            }
+        }
+        return trial;
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <p> What-if queries on a placement: "what does it cost if these pairs move there?". The baseline is a copy of a
+ * placement with its total cost in ordered and un-ordered policy, computed once. A {@link Delta} only records the
+ * pairs it moves, and its cost is the baseline total plus the change of cost of those pairs, O(pairs moved) instead
+ * of O(numVMPairs). The baseline is never written, so any number of threads can evaluate their own deltas against
+ * it at the same time. {@link #rebase(Delta)} makes a new baseline that includes a delta, and the old one stays
+ * valid for the deltas still using it.</p>
+ * <p>The cost of a pair is read with {@link DataCenter#getRouteCost(int, int, int)} and
+ * {@link DataCenter#getOrderedRouteCost(int, int, int)} on a read-only snapshot, so service chains, congestion and
+ * failures are counted as in the algorithms. The migration cost of a delta is measured from the baseline, and its
+ * feasibility checks every resource of the {@link ResourceModel} of the data center, the slot model when none is set,
+ * against the remaining resources of the baseline ({@link FeasibilityIndex}).</p>
+ */
+public final class WhatIfPlacement {
+    private final DataCenter dataCenter;
+    private final int[] vmHost;
+    private final int[] vmpHost;
+    private final ResourceModel model;
+    private final FeasibilityIndex available;  // remaining resources of the baseline, never written
+    private final double orderedCost;
+    private final double unorderedCost;
+
+    /**
+     * Baseline of the current placement of a data center
+     * @param dataCenter - data center, a snapshot of it is taken unless it is one already
+     */
+    public WhatIfPlacement(DataCenter dataCenter) {
+        this(dataCenter, null);
+    }
+
+    /**
+     * Baseline of a placement of all the pairs
+     * @param dataCenter - data center, a snapshot of it is taken unless it is one already
+     * @param placement - placement of every pair, null for the current placement of the data center
+     */
+    public WhatIfPlacement(DataCenter dataCenter, Placement placement) {
+        this.dataCenter = dataCenter.isFrozen() ? dataCenter : dataCenter.snapshot();
+        Placement baseline = placement == null ? this.dataCenter.getPlacement() : placement;
+        this.vmHost = baseline.vmHosts().clone();
+        this.vmpHost = baseline.vmpHosts().clone();
+        for (int pair = 0; pair < vmHost.length; pair++) {
+            if (vmHost[pair] < 0 || vmpHost[pair] < 0)
+                throw new IllegalArgumentException("Pair " + pair + " is not placed");
+        }
+        this.model = this.dataCenter.getResourceModel();
+        this.available = FeasibilityIndex.of(this.dataCenter, baseline);
+        int[] fre = this.dataCenter.getCommunicationFre();
+        double ordered = 0, unordered = 0;
+        for (int pair = 0; pair < vmHost.length; pair++) {
+            ordered += fre[pair] * this.dataCenter.getOrderedRouteCost(pair, vmHost[pair], vmpHost[pair]);
+            unordered += fre[pair] * this.dataCenter.getRouteCost(pair, vmHost[pair], vmpHost[pair]);
+        }
+        this.orderedCost = ordered;
+        this.unorderedCost = unordered;
+    }
+
+    private WhatIfPlacement(WhatIfPlacement from, Placement placement, double orderedCost, double unorderedCost) {
+        this.dataCenter = from.dataCenter;
+        this.vmHost = placement.vmHosts().clone();
+        this.vmpHost = placement.vmpHosts().clone();
+        this.model = from.model;
+        this.available = FeasibilityIndex.of(dataCenter, placement);
+        this.orderedCost = orderedCost;
+        this.unorderedCost = unorderedCost;
+    }
+
+    /**
+     * @param policy - ordered or un-ordered policy
+     * @return total communication cost of the baseline
+     */
+    public double getCost(OnlinePlacementService.Policy policy) {
+        return policy == OnlinePlacementService.Policy.ORDERED ? orderedCost : unorderedCost;
+    }
+
+    /**
+     * @return read-only data center of the baseline
+     */
+    public DataCenter getDataCenter() {return dataCenter;}
+
+    /**
+     * @return new empty delta on this baseline, to be used by one thread
+     */
+    public Delta delta() {
+        return new Delta();
+    }
+
+    /**
+     * Evaluate many deltas on this baseline in parallel
+     * @param deltas - deltas of this baseline
+     * @param policy - ordered or un-ordered policy
+     * @return total communication cost of each delta
+     */
+    public double[] evaluate(List<Delta> deltas, OnlinePlacementService.Policy policy) {
+        double[] costs = new double[deltas.size()];
+        IntStream.range(0, costs.length).parallel().forEach(d -> costs[d] = deltas.get(d).getCost(policy));
+        return costs;
+    }
+
+    /**
+     * New baseline with the moves of a delta. The hosts and the remaining resources are copied, this baseline
+     * does not change.
+     * @param delta - delta of this baseline
+     * @return baseline of the placement after the delta
+     */
+    public WhatIfPlacement rebase(Delta delta) {
+        delta.checkBaseline(this);
+        return new WhatIfPlacement(this, delta.toPlacement(OnlinePlacementService.Policy.ORDERED),
+                delta.getCost(OnlinePlacementService.Policy.ORDERED),
+                delta.getCost(OnlinePlacementService.Policy.UNORDERED));
+    }
+
+    // ******************************************
+    // ******** DELTA ***************************
+    // ******************************************
+
+    /**
+     * <p> Moves of some pairs on top of the baseline. Only the pairs moved are stored, and moving a pair again
+     * replaces its previous move. A delta is not thread-safe, each thread builds its own.</p>
+     */
+    public final class Delta {
+        private final Map<Integer, Integer> indexOf = new HashMap<>();     // pair, index in the arrays
+        private int[] pairs = new int[8];
+        private int[] vmHosts = new int[8];
+        private int[] vmpHosts = new int[8];
+        private int size;
+
+        private Delta() {}
+
+        /**
+         * Move both virtual machines of a pair
+         * @param pair - index of the virtual machine pair
+         * @param vmPM - physical machine of the VM
+         * @param vmpPM - physical machine of the VMP
+         * @return this delta
+         */
+        public Delta move(int pair, int vmPM, int vmpPM) {
+            int numPM = dataCenter.numPM();
+            if (vmPM < 0 || vmPM >= numPM || vmpPM < 0 || vmpPM >= numPM)
+                throw new IllegalArgumentException("No physical machine " + (vmPM < 0 || vmPM >= numPM
+                        ? vmPM : vmpPM));
+            Integer index = indexOf.get(pair);
+            if (index == null) {
+                if (size == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, 2 * size);
+                    vmHosts = Arrays.copyOf(vmHosts, 2 * size);
+                    vmpHosts = Arrays.copyOf(vmpHosts, 2 * size);
+                }
+                index = size++;
+                indexOf.put(pair, index);
+                pairs[index] = pair;
+            }
+            vmHosts[index] = vmPM;
+            vmpHosts[index] = vmpPM;
+            return this;
+        }
+
+        /**
+         * Move the VM of a pair, its VMP stays where it is in this delta
+         * @param pair - index of the virtual machine pair
+         * @param pm - physical machine of the VM
+         * @return this delta
+         */
+        public Delta moveVM(int pair, int pm) {
+            return move(pair, pm, getVMP(pair));
+        }
+
+        /**
+         * Move the VMP of a pair, its VM stays where it is in this delta
+         * @param pair - index of the virtual machine pair
+         * @param pm - physical machine of the VMP
+         * @return this delta
+         */
+        public Delta moveVMP(int pair, int pm) {
+            return move(pair, getVM(pair), pm);
+        }
+
+        /**
+         * @param pair - index of the virtual machine pair
+         * @return physical machine of the VM of the pair in this delta
+         */
+        public int getVM(int pair) {
+            Integer index = indexOf.get(pair);
+            return index == null ? vmHost[pair] : vmHosts[index];
+        }
+
+        /**
+         * @param pair - index of the virtual machine pair
+         * @return physical machine of the VMP of the pair in this delta
+         */
+        public int getVMP(int pair) {
+            Integer index = indexOf.get(pair);
+            return index == null ? vmpHost[pair] : vmpHosts[index];
+        }
+
+        /**
+         * @return number of pairs moved
+         */
+        public int size() {return size;}
+
+        /**
+         * @param policy - ordered or un-ordered policy
+         * @return change of the total communication cost, from the pairs moved only
+         */
+        public double getCostChange(OnlinePlacementService.Policy policy) {
+            boolean ordered = policy == OnlinePlacementService.Policy.ORDERED;
+            int[] fre = dataCenter.getCommunicationFre();
+            double change = 0;
+            for (int m = 0; m < size; m++) {
+                int pair = pairs[m];
+                change += fre[pair] * (ordered
+                        ? dataCenter.getOrderedRouteCost(pair, vmHosts[m], vmpHosts[m])
+                        - dataCenter.getOrderedRouteCost(pair, vmHost[pair], vmpHost[pair])
+                        : dataCenter.getRouteCost(pair, vmHosts[m], vmpHosts[m])
+                        - dataCenter.getRouteCost(pair, vmHost[pair], vmpHost[pair]));
+            }
+            return change;
+        }
+
+        /**
+         * @param policy - ordered or un-ordered policy
+         * @return total communication cost of the baseline with this delta
+         */
+        public double getCost(OnlinePlacementService.Policy policy) {
+            return WhatIfPlacement.this.getCost(policy) + getCostChange(policy);
+        }
+
+        /**
+         * @return migration cost from the baseline: migrationCoef * (d(u, x) + d(w, y)) summed over the pairs moved
+         */
+        public double getMigrationCost() {
+            double distance = 0;
+            for (int m = 0; m < size; m++) {
+                int pair = pairs[m];
+                distance += dataCenter.getDistance(vmHost[pair], vmHosts[m])
+                        + dataCenter.getDistance(vmpHost[pair], vmpHosts[m]);
+            }
+            return dataCenter.getMigrationCoef() * distance;
+        }
+
+        /**
+         * @return true if no physical machine left or reached by a pair of this delta needs more of a resource than
+         * its capacity: the remaining resources of the baseline plus the demands of the virtual machines leaving,
+         * minus the demands of those arriving
+         */
+        public boolean isFeasible() {
+            Map<Integer, int[]> change = new HashMap<>();     // physical machine, change of remaining per resource
+            for (int m = 0; m < size; m++) {
+                int pair = pairs[m];
+                add(change, vmHost[pair], ResourceModel.vm(pair), 1);
+                add(change, vmpHost[pair], ResourceModel.vmp(pair), 1);
+                add(change, vmHosts[m], ResourceModel.vm(pair), -1);
+                add(change, vmpHosts[m], ResourceModel.vmp(pair), -1);
+            }
+            for (Map.Entry<Integer, int[]> entry : change.entrySet()) {
+                for (int d = 0; d < model.getDimensions(); d++)
+                    if (available.remaining(entry.getKey(), d) + entry.getValue()[d] < 0) return false;
+            }
+            return true;
+        }
+
+        private void add(Map<Integer, int[]> change, int pm, int vm, int sign) {
+            int[] values = change.computeIfAbsent(pm, key -> new int[model.getDimensions()]);
+            for (int d = 0; d < values.length; d++) values[d] += sign * model.getDemand(vm, d);
+        }
+
+        /**
+         * @param policy - policy of the cost of the placement
+         * @return copy of the baseline with the moves of this delta, and its total communication cost
+         */
+        public Placement toPlacement(OnlinePlacementService.Policy policy) {
+            Placement placement = new Placement(vmHost.length);
+            for (int pair = 0; pair < vmHost.length; pair++) placement.place(pair, vmHost[pair], vmpHost[pair]);
+            for (int m = 0; m < size; m++) placement.place(pairs[m], vmHosts[m], vmpHosts[m]);
+            placement.setCost(getCost(policy));
+            return placement;
+        }
+
+        private void checkBaseline(WhatIfPlacement baseline) {
+            if (baseline != WhatIfPlacement.this)
+                throw new IllegalArgumentException("The delta belongs to another baseline");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link AlgorithmRunner}: the algorithms run at the same time on a snapshot give the costs of the
+ * algorithms run one after the other, and a failed algorithm is reported with its cause.</p>
+ */
+public class AlgorithmRunnerTest {
+
+    @Test
+    public void concurrentRunGivesTheSequentialCosts() throws InterruptedException {
+        DataCenter snapshot = new DataCenter(4, 4, 4, 3, 24, 100).snapshot();
+        List<String> algorithms = Arrays.asList("initial", "pamUnordered", "palOrdered", "palUnordered",
+                "trafficAwareOrdered", "trafficAwareUnordered");
+        Map<String, Placement> concurrent = AlgorithmRunner.runAll(snapshot, algorithms, 4);
+        assertEquals(algorithms, List.copyOf(concurrent.keySet()));
+        for (String algorithm : algorithms) {
+            Placement placement = concurrent.get(algorithm);
+            assertEquals(24, placement.size());
+            assertTrue(placement.getCost() > 0);
+            assertEquals(AlgorithmRunner.run(algorithm, snapshot).getCost(), placement.getCost(), 1e-6, algorithm);
+        }
+    }
+
+    @Test
+    public void unknownAlgorithmFailsTheRun() {
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 8, 100);
+        assertThrows(IllegalArgumentException.class, () -> AlgorithmRunner.run("noSuchAlgorithm", dataCenter));
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> AlgorithmRunner.runAll(dataCenter, Arrays.asList("initial", "noSuchAlgorithm"), 2));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p> Tests of the {@link BatchCostEvaluator}: its sums unrolled by four give the sums over the pairs of
+ * {@link DataCenter#getOrderedRouteCost}, {@link DataCenter#getRouteCost(int, int, int)} and
+ * {@link DataCenter#getDistance(int, int)} on dense data centers, also when the number of pairs is not a multiple of
+ * four and when the pairs have different service chains.</p>
+ */
+public class BatchCostEvaluatorTest {
+
+    @Test
+    public void batchCostsAreTheSumsOfThePairCosts() {
+        for (int k : new int[]{4, 6, 8}) {
+            for (int numVMPairs : new int[]{k * k * k / 4 + 1, k * k * k / 4 + 2, k * k * k / 4 + 3, k * k * k / 2}) {
+                DataCenter dataCenter = new DataCenter(k, 3, 4, 3, numVMPairs, 100);
+                check(dataCenter, new BatchCostEvaluator(dataCenter), new Random(k * 1000 + numVMPairs),
+                        "k = " + k + ", " + numVMPairs + " pairs");
+            }
+        }
+    }
+
+    @Test
+    public void batchCostsAreTheSumsOfThePairCostsWithServiceChains() {
+        for (int k : new int[]{4, 6, 8}) {
+            int numVMPairs = k * k * k / 4 + 3;
+            DataCenter dataCenter = new DataCenter(k, 3, 4, 3, numVMPairs, 100);
+            for (int pair = 0; pair < numVMPairs; pair += 2)
+                dataCenter.setServiceChain(pair, pair % 4 == 0 ? new ServiceChain(2, 0) : new ServiceChain(1));
+            check(dataCenter, dataCenter.getCostEvaluator(), new Random(k), "k = " + k + " with chains");
+        }
+    }
+
+    /**
+     * Compare the costs of the evaluator on random hosts with the sums of the costs of each pair
+     */
+    private static void check(DataCenter dataCenter, BatchCostEvaluator evaluator, Random random, String name) {
+        int numVMPairs = dataCenter.getNumVMPairs();
+        int[] fre = dataCenter.getCommunicationFre();
+        int[][] vmHosts = new int[3][numVMPairs], vmpHosts = new int[3][numVMPairs];
+        for (int c = 0; c < vmHosts.length; c++) {
+            for (int pair = 0; pair < numVMPairs; pair++) {
+                vmHosts[c][pair] = random.nextInt(dataCenter.numPM());
+                vmpHosts[c][pair] = random.nextInt(dataCenter.numPM());
+            }
+        }
+        double[] unordered = new double[vmHosts.length];
+        for (int c = 0; c < vmHosts.length; c++) {
+            double ordered = 0, migration = 0;
+            for (int pair = 0; pair < numVMPairs; pair++) {
+                ordered += fre[pair] * dataCenter.getOrderedRouteCost(pair, vmHosts[c][pair], vmpHosts[c][pair]);
+                unordered[c] += fre[pair] * dataCenter.getRouteCost(pair, vmHosts[c][pair], vmpHosts[c][pair]);
+                migration += dataCenter.getMigrationCoef() * dataCenter.getDistance(vmHosts[0][pair],
+                        vmHosts[c][pair]);
+            }
+            assertEquals(ordered, evaluator.ordered(vmHosts[c], vmpHosts[c], fre), 1e-9 * ordered, name);
+            assertEquals(unordered[c], evaluator.unordered(vmHosts[c], vmpHosts[c], fre), 1e-9 * unordered[c],
+                    name);
+            assertEquals(migration, evaluator.migration(vmHosts[0], vmHosts[c]), 1e-9 * migration, name);
+        }
+        assertArrayEquals(unordered, evaluator.unordered(vmHosts, vmpHosts, fre), 1e-9 * unordered[0]);
+    }
+}
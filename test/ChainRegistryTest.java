@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * <p> Tests of the interned service chains of a data center.</p>
+ */
+public class ChainRegistryTest {
+
+    @Test
+    public void sameMiddleBoxesShareTheUnorderedTables() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 10, 100);
+        ChainRegistry chains = dataCenter.getChains();
+        int forward = chains.intern(new ServiceChain(0, 2));
+        int backward = chains.intern(new ServiceChain(2, 0));
+        assertNotEquals(forward, backward);
+        assertEquals(forward, chains.intern(ServiceChain.parse("MB0>MB2")));
+        assertSame(chains.table(forward).getUnorderedRoute(), chains.table(backward).getUnorderedRoute());
+        assertEquals(new ServiceChain(2, 0), chains.table(backward).getChain());
+        assertEquals(new ServiceChain(0, 2), new ServiceChain(2, 0).unordered());
+
+        chains.refresh();
+        assertSame(chains.table(forward).getUnorderedRoute(), chains.table(backward).getUnorderedRoute());
+    }
+
+    @Test
+    public void concurrentAssignmentsAreAllCounted() throws InterruptedException {
+        DataCenter dataCenter = new DataCenter(4, 2, 8, 3, 60, 100);
+        ChainRegistry chains = dataCenter.getChains();
+        int version = chains.getVersion();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t;
+            threads.add(new Thread(() -> {
+                for (int pair = first; pair < 60; pair += 4)
+                    chains.assign(pair, new ServiceChain(pair % 3, (pair + 1) % 3));
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        assertEquals(version + 60, chains.getVersion());
+        for (int pair = 0; pair < 60; pair++)
+            assertEquals(new ServiceChain(pair % 3, (pair + 1) % 3), chains.tableOf(pair).getChain());
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link CompressedWorkload}: the classes cover every pair once, the class solvers place every pair
+ * within the slots of the machines with the cost of its placement, and they reject a resource model.</p>
+ */
+public class CompressedWorkloadTest {
+
+    @Test
+    public void classesCoverEveryPairOnce() {
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 30, 100);
+        for (CompressedWorkload workload : new CompressedWorkload[]{CompressedWorkload.forMigration(dataCenter, 4),
+                CompressedWorkload.forPlacement(dataCenter, 4)}) {
+            int[] seen = new int[dataCenter.getNumVMPairs()];
+            long weight = 0;
+            for (int c = 0; c < workload.getNumClasses(); c++) {
+                for (int pair : workload.members(c)) {
+                    seen[pair]++;
+                    weight += dataCenter.getCommunicationFre()[pair];
+                }
+                assertEquals(workload.members(c).length, workload.size(c));
+            }
+            for (int pair = 0; pair < seen.length; pair++) assertEquals(1, seen[pair], "pair " + pair);
+            long total = 0;
+            for (int c = 0; c < workload.getNumClasses(); c++) total += workload.getWeight(c);
+            assertEquals(weight, total);
+        }
+    }
+
+    @Test
+    public void fullDataCenterPlacesEveryPair() {
+        // 16 machines of 4 slots hold exactly 32 pairs
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 32, 100);
+        assertSlots(dataCenter, CompressedWorkload.forPlacement(dataCenter, 4).placeUnordered(), null);
+        assertSlots(dataCenter, CompressedWorkload.forMigration(dataCenter, 4).migrateUnordered(),
+                dataCenter.getPlacement());
+    }
+
+    @Test
+    public void resourceModelIsRejected() {
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 10, 100);
+        dataCenter.setResourceModel(ResourceModel.random(dataCenter.numPM(), dataCenter.getNumVMPairs(),
+                new int[][]{{8, 16}}, new int[][]{{1, 2}, {2, 4}}, 1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> CompressedWorkload.forPlacement(dataCenter, 4).placeUnordered());
+        assertThrows(UnsupportedOperationException.class,
+                () -> CompressedWorkload.forMigration(dataCenter, 4).migrateUnordered());
+    }
+
+    /**
+     * Check the slots of every machine and the cost: route, plus the migration from the hosts before if any
+     */
+    private static void assertSlots(DataCenter dataCenter, Placement placement, Placement before) {
+        int[] load = new int[dataCenter.numPM()];
+        double cost = 0;
+        for (int pair = 0; pair < placement.size(); pair++) {
+            assertTrue(placement.getVM(pair) >= 0 && placement.getVMP(pair) >= 0, "pair " + pair + " not placed");
+            load[placement.getVM(pair)]++;
+            load[placement.getVMP(pair)]++;
+            cost += dataCenter.getCommunicationFre()[pair] * dataCenter.getRouteCost(pair, placement.getVM(pair),
+                    placement.getVMP(pair));
+            if (before != null)
+                cost += dataCenter.getMigrationCoef() * (dataCenter.getDistance(before.getVM(pair),
+                        placement.getVM(pair)) + dataCenter.getDistance(before.getVMP(pair), placement.getVMP(pair)));
+        }
+        for (int pm = 0; pm < load.length; pm++) assertTrue(load[pm] <= 4, "PM" + pm + " holds " + load[pm]);
+        assertEquals(cost, placement.getCost(), 1e-6);
+    }
+}
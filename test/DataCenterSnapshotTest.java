@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p> Tests of the binary snapshot of a {@link DataCenter}.</p>
+ */
+public class DataCenterSnapshotTest {
+
+    @Test
+    public void loadGivesTheSavedDataCenter() throws IOException {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 2, 10, 100);
+        File file = File.createTempFile("datacenter", ".snap");
+        try {
+            dataCenter.saveSnapshot(file.getPath());
+            DataCenter loaded = DataCenter.loadSnapshot(file.getPath());
+            assertEquals(dataCenter.getVM_PM(), loaded.getVM_PM());
+            assertEquals(dataCenter.getmBs_Switch(), loaded.getmBs_Switch());
+            PathTable expected = dataCenter.getShortestPathRouteTable();
+            PathTable actual = loaded.getShortestPathRouteTable();
+            for (int i = 0; i < expected.size(); i++)
+                for (int j = 0; j < expected.size(); j++)
+                    assertEquals(expected.get(i, j), actual.get(i, j), 0);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void largeScaleDataCenterIsNotSaved() throws IOException {
+        DataCenter dataCenter = new DataCenter(8, 2, 4, 2, 50, 100, true);
+        File file = File.createTempFile("datacenter", ".snap");
+        Files.delete(file.toPath());
+        assertThrows(UnsupportedOperationException.class, () -> dataCenter.saveSnapshot(file.getPath()));
+        assertFalse(file.exists());
+    }
+}
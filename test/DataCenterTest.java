@@ -0,0 +1,100 @@
+import org.graphstream.graph.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link DataCenter} built on an executor: the rows of the shortest path route computed in
+ * parallel blocks are the walk of each pair, a seed gives the same data center as the sequential build, the
+ * placement fails when no edge switch has room for a pair, and threads asking for the graph of the fat tree at the
+ * same time get the same graph.</p>
+ */
+public class DataCenterTest {
+
+    @Test
+    public void parallelRouteIsTheWalkOfEachPair() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 10, 100, null, executor);
+            PathTable route = dataCenter.getShortestPathRouteTable();
+            PodRouteTable podRoute = new PodRouteTable(4, dataCenter.getDistanceTable(), dataCenter.mbSwitches());
+            for (int i = 0; i < dataCenter.numPM(); i++) {
+                for (int j = 0; j < dataCenter.numPM(); j++) {
+                    assertEquals(dataCenter.calculateSPR(i, j), route.get(i, j), 1e-9, i + "-" + j);
+                    assertEquals(podRoute.get(i, j), route.get(i, j), 1e-9, i + "-" + j);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stagesBuildTheSameDataCenterAsTheSequentialBuild() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int k : new int[]{4, 6}) {
+                for (long seed = 0; seed < 5; seed++) {
+                    DataCenter sequential = new DataCenter(k, 2, 4, 3, 20, 100, null, null, seed);
+                    DataCenter staged = new DataCenter(k, 2, 4, 3, 20, 100, null, executor, seed);
+                    assertEquals(sequential.getVM_PM(), staged.getVM_PM());
+                    assertEquals(sequential.getmBs_Switch(), staged.getmBs_Switch());
+                    assertArrayEquals(sequential.getCommunicationFre(), staged.getCommunicationFre());
+                    for (int i = 0; i < sequential.getDistanceTable().size(); i++) {
+                        for (int j = 0; j < sequential.getDistanceTable().size(); j++)
+                            assertEquals(sequential.getDistance(i, j), staged.getDistance(i, j), 0, i + "-" + j);
+                    }
+                    for (int i = 0; i < sequential.numPM(); i++) {
+                        for (int j = 0; j < sequential.numPM(); j++)
+                            assertEquals(sequential.getRouteCost(i, j), staged.getRouteCost(i, j), 0, i + "-" + j);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void placementWithoutRoomUnderOneEdgeSwitchFails() {
+        // 3 slots per edge switch: after one pair, no edge switch has room for both virtual machines of a pair
+        DataCenter dataCenter = new DataCenter(6, 2, 1, 3, 20, 100, null, null, 1);
+        assertEquals(40, dataCenter.getVM_PM().size());
+        for (int pm = 0; pm < dataCenter.numPM(); pm++) assertTrue(dataCenter.getCapacity()[pm] <= 1);
+        assertThrows(IllegalArgumentException.class, () -> new DataCenter(6, 2, 1, 3, 27, 100));
+    }
+
+    @Test
+    public void concurrentGraphRequestsShareOneGraph() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int run = 0; run < 5; run++) {
+                DataCenter dataCenter = new DataCenter(16, 2, 4, 3, 10, 100, true);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Graph>> graphs = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    graphs.add(executor.submit(() -> {
+                        start.await();
+                        return dataCenter.getFatTreeGraph();
+                    }));
+                }
+                start.countDown();
+                for (Future<Graph> graph : graphs) assertSame(graphs.get(0).get(), graph.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
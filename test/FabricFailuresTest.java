@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p> Tests of the {@link FabricFailures}: the intact fabric has the distances of the {@link FatTree}, and after
+ * failures of switches and links every distance is the one of a breadth first search over the nodes and links that
+ * are still up.</p>
+ */
+public class FabricFailuresTest {
+    private static final int K = 4;
+    private static final int HALF = K / 2;
+    private static final int NUM_PM = K * K * K / 4;
+    private static final int NUM_EDGE = K * HALF;
+    private static final int NUM_NODES = NUM_PM + 2 * NUM_EDGE + HALF * HALF;
+
+    @Test
+    public void intactFabricHasTheDistancesOfTheFatTree() {
+        FabricFailures intact = new FabricFailures(K);
+        FatTree fatTree = new FatTree(K, 1);
+        assertEquals(NUM_NODES, intact.size());
+        for (int i = 0; i < NUM_NODES; i++)
+            for (int j = 0; j < NUM_NODES; j++) assertEquals(fatTree.getDistance(i, j), intact.get(i, j), i + "-" + j);
+    }
+
+    @Test
+    public void failuresGiveTheDistancesOfTheDegradedFabric() {
+        FabricFailures intact = new FabricFailures(K);
+        Random random = new Random(3);
+        for (int scenario = 0; scenario < 20; scenario++) {
+            FabricFailures failures = intact.copy();
+            Set<Integer> failedSwitches = new HashSet<>();
+            Set<List<Integer>> failedLinks = new HashSet<>();
+            for (int f = 0; f < 3; f++) {
+                if (random.nextBoolean()) {
+                    int node = NUM_PM + random.nextInt(NUM_NODES - NUM_PM);
+                    failures.failSwitch(node);
+                    failedSwitches.add(node);
+                } else {
+                    List<int[]> links = links();
+                    int[] link = links.get(random.nextInt(links.size()));
+                    failures.failLink(link[1], link[0]);
+                    failedLinks.add(Arrays.asList(link[0], link[1]));
+                }
+            }
+            assertDistances(failures, failedSwitches, failedLinks);
+        }
+        assertDistances(intact, new HashSet<>(), new HashSet<>());
+    }
+
+    private static void assertDistances(FabricFailures failures, Set<Integer> failedSwitches,
+                                        Set<List<Integer>> failedLinks) {
+        List<List<Integer>> neighbors = new ArrayList<>();
+        for (int u = 0; u < NUM_NODES; u++) neighbors.add(new ArrayList<>());
+        for (int[] link : links()) {
+            if (failedSwitches.contains(link[0]) || failedSwitches.contains(link[1])
+                    || failedLinks.contains(Arrays.asList(link[0], link[1]))) continue;
+            neighbors.get(link[0]).add(link[1]);
+            neighbors.get(link[1]).add(link[0]);
+        }
+        for (int source = 0; source < NUM_NODES; source++) {
+            double[] distance = new double[NUM_NODES];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            distance[source] = 0;
+            int[] queue = new int[NUM_NODES];
+            int head = 0, tail = 0;
+            if (!failedSwitches.contains(source)) queue[tail++] = source;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int v : neighbors.get(u)) {
+                    if (distance[v] != Double.POSITIVE_INFINITY) continue;
+                    distance[v] = distance[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+            for (int target = 0; target < NUM_NODES; target++) {
+                // a failed switch keeps no distance, only the ones from and to the nodes that are up are compared
+                if (failedSwitches.contains(source) || failedSwitches.contains(target)) continue;
+                assertEquals(distance[target], failures.get(source, target), source + "-" + target);
+            }
+        }
+    }
+
+    /**
+     * @return links of the fat tree as {lower node, upper node}: PM - edge, edge - aggregation, aggregation - core
+     */
+    private static List<int[]> links() {
+        List<int[]> links = new ArrayList<>();
+        for (int pm = 0; pm < NUM_PM; pm++) links.add(new int[]{pm, NUM_PM + pm / HALF});
+        for (int e = 0; e < NUM_EDGE; e++)
+            for (int j = 0; j < HALF; j++) links.add(new int[]{NUM_PM + e, NUM_PM + NUM_EDGE + e / HALF * HALF + j});
+        for (int a = 0; a < NUM_EDGE; a++)
+            for (int j = 0; j < HALF; j++)
+                links.add(new int[]{NUM_PM + NUM_EDGE + a, NUM_PM + 2 * NUM_EDGE + a % HALF * HALF + j});
+        return links;
+    }
+}
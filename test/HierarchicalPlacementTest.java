@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the tables of the large-scale mode and of {@link HierarchicalPlacement}: the distance oracle and the
+ * route per pair of PODs give the Dijkstra matrix and the walk of each pair of a dense data center, and the
+ * algorithms on a large-scale data center stay close to the dense algorithms on the same workload.</p>
+ */
+public class HierarchicalPlacementTest {
+
+    @Test
+    public void oracleAndPodRouteGiveTheDenseTables() {
+        for (int k : new int[]{4, 6, 8}) {
+            DataCenter dataCenter = new DataCenter(k, 2, 4, 3, 10, 100);
+            PathTable dijkstra = dataCenter.getDistanceTable();
+            FatTreeDistanceOracle oracle = new FatTreeDistanceOracle(k);
+            assertEquals(dijkstra.size(), oracle.size());
+            for (int i = 0; i < dijkstra.size(); i++) {
+                for (int j = 0; j < dijkstra.size(); j++)
+                    assertEquals(dijkstra.get(i, j), oracle.get(i, j), 0, "k = " + k + ", " + i + "-" + j);
+            }
+            PodRouteTable podRoute = new PodRouteTable(k, oracle, dataCenter.mbSwitches());
+            for (int i = 0; i < dataCenter.numPM(); i++) {
+                for (int j = 0; j < dataCenter.numPM(); j++)
+                    assertEquals(dataCenter.calculateSPR(i, j), podRoute.get(i, j), 1e-9, "k = " + k + ", " + i + "-"
+                            + j);
+            }
+        }
+    }
+
+    @Test
+    public void largeScaleCostsAreCloseToTheDenseCosts() {
+        for (int k : new int[]{4, 6, 8}) {
+            for (long seed = 0; seed < 3; seed++) {
+                Topology dense = new DataCenter(k, 2, 4, 3, 10, 100, null, null, seed).getTopology();
+                FatTreeDistanceOracle oracle = new FatTreeDistanceOracle(k);
+                int[] mbSwitches = new int[dense.getNumMBs()];
+                for (int mb = 0; mb < mbSwitches.length; mb++) mbSwitches[mb] = dense.getMbSwitch(mb);
+                Topology largeScale = new Topology(k, 2, true, oracle, new PodRouteTable(k, oracle, mbSwitches),
+                        mbSwitches);
+                for (int numVMPairs : new int[]{k * k * k / 8, k * k * k / 4 + 3, k * k * k / 2 - 1}) {
+                    DataCenter denseDataCenter = new DataCenter(dense, 4, numVMPairs, 100, seed);
+                    DataCenter largeScaleDataCenter = new DataCenter(largeScale, 4, numVMPairs, 100, seed);
+                    assertTrue(largeScaleDataCenter.isLargeScale());
+                    assertEquals(denseDataCenter.getVM_PM(), largeScaleDataCenter.getVM_PM());
+                    String name = "k = " + k + ", seed " + seed + ", " + numVMPairs + " pairs";
+
+                    // two pairs per machine: the traffic aware placements only use pairs on the same machine
+                    assertEquals(new PAL(denseDataCenter).placeTrafficAwareUnordered().getCost(),
+                            new PAL(largeScaleDataCenter).placeTrafficAwareUnordered().getCost(), 1e-6, name);
+                    // the dense list of pairs of machines is only partly sorted
+                    double pal = new PAL(denseDataCenter).placeUnordered().getCost();
+                    double hierarchical = new PAL(largeScaleDataCenter).placeUnordered().getCost();
+                    assertEquals(HierarchicalPlacement.placeUnordered(denseDataCenter, false).getCost(), hierarchical,
+                            1e-6, name);
+                    assertTrue(hierarchical <= 1.01 * pal, name + ": " + hierarchical + " > " + pal);
+
+                    // the migration of the VMP is charged to its own destination
+                    double pam = new PAM(denseDataCenter).migrateUnordered().getCost();
+                    Placement before = denseDataCenter.getPlacement();
+                    Placement migrated = new PAM(largeScaleDataCenter).migrateUnordered();
+                    assertEquals(HierarchicalPlacement.migrateUnordered(denseDataCenter).getCost(),
+                            migrated.getCost(), 1e-6, name);
+                    double cost = 0;
+                    for (int pair = 0; pair < numVMPairs; pair++) {
+                        cost += denseDataCenter.getCommunicationFre()[pair] * denseDataCenter.getRouteCost(pair,
+                                migrated.getVM(pair), migrated.getVMP(pair)) + denseDataCenter.getMigrationCoef()
+                                * (denseDataCenter.getDistance(before.getVM(pair), migrated.getVM(pair))
+                                + denseDataCenter.getDistance(before.getVMP(pair), migrated.getVMP(pair)));
+                    }
+                    assertEquals(cost, migrated.getCost(), 1e-6 * cost, name);
+                    assertTrue(Math.abs(migrated.getCost() - pam) <= 0.15 * pam, name + ": " + migrated.getCost()
+                            + " against " + pam);
+                }
+            }
+        }
+    }
+}
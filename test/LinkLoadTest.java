@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link LinkLoad}: every path between two hops has the length of the distance between them, so
+ * the loads of all links sum to the frequency times the ordered route of every pair.</p>
+ */
+public class LinkLoadTest {
+
+    @Test
+    public void loadsSumToTheTrafficTimesTheRoute() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 20, 100);
+        dataCenter.getChains().assignRandom(Arrays.asList(ServiceChain.all(3), new ServiceChain(2, 0),
+                new ServiceChain(1)), 3);
+        Placement placement = dataCenter.getPlacement();
+        LinkLoad linkLoad = new LinkLoad(dataCenter, 1000).compute(placement);
+        double expected = 0;
+        for (int pair = 0; pair < placement.size(); pair++)
+            expected += dataCenter.getCommunicationFre()[pair] * dataCenter.getChains().tableOf(pair)
+                    .orderedRoute(placement.getVM(pair), placement.getVMP(pair));
+        double total = 0;
+        for (int link = 0; link < linkLoad.numLinks(); link++) {
+            assertTrue(linkLoad.getLoad(link) >= 0);
+            total += linkLoad.getLoad(link);
+        }
+        assertEquals(expected, total, 1e-6);
+        assertEquals(linkLoad.getLoad(linkLoad.maxLink()) / 1000, linkLoad.maxUtilization(), 1e-12);
+    }
+
+    @Test
+    public void pathUtilizationNeedsTheLoads() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 20, 100);
+        LinkLoad linkLoad = new LinkLoad(dataCenter, 1000);
+        assertThrows(IllegalStateException.class, () -> linkLoad.pathUtilization(0, 0, 1));
+        linkLoad.compute(dataCenter.getPlacement());
+        assertTrue(linkLoad.pathUtilization(0, 0, 1) > 0);
+    }
+}
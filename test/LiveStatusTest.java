@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link LiveStatus} with phases running at the same time on several threads: every running phase
+ * is shown, their costs add up, and the status is idle again once the last one ends, in any order.</p>
+ */
+public class LiveStatusTest {
+
+    @Test
+    public void concurrentPhasesAreAllShownUntilTheLastEnds() throws InterruptedException {
+        int threads = 4;
+        CountDownLatch entered = new CountDownLatch(threads);
+        CountDownLatch[] release = new CountDownLatch[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            release[t] = new CountDownLatch(1);
+            Thread worker = new Thread(() -> {
+                try (Phase phase = Phase.start("test" + id, 4, 0, 0, LiveStatus.PAL)) {
+                    LiveStatus.PAL.addCost(id + 1);
+                    entered.countDown();
+                    release[id].await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        entered.await();
+        List<String> phases = Arrays.asList(LiveStatus.PAL.getPhase().split("\\+"));
+        assertEquals(threads, phases.size(), LiveStatus.PAL.getPhase());
+        for (int t = 0; t < threads; t++) assertTrue(phases.contains("test" + t), LiveStatus.PAL.getPhase());
+        assertEquals(1 + 2 + 3 + 4, LiveStatus.PAL.getCurrentCost(), 1e-9);
+
+        // the first phase started is not the last to end
+        for (int t : new int[]{0, 2, 3}) {
+            release[t].countDown();
+            workers.get(t).join();
+        }
+        assertEquals("test1", LiveStatus.PAL.getPhase());
+        release[1].countDown();
+        workers.get(1).join();
+        assertEquals("idle", LiveStatus.PAL.getPhase());
+    }
+
+    @Test
+    public void concurrentAlgorithmsLeaveTheStatusIdle() throws InterruptedException {
+        DataCenter snapshot = new DataCenter(4, 4, 4, 3, 24, 100).snapshot();
+        List<String> algorithms = Arrays.asList("palOrdered", "palUnordered", "trafficAwareUnordered",
+                "trafficAwareOrdered", "pamUnordered", "plan");
+        for (int run = 0; run < 20; run++) {
+            AlgorithmRunner.runAll(snapshot, algorithms, 4);
+            assertEquals("idle", LiveStatus.PAL.getPhase());
+            assertEquals("idle", LiveStatus.PAM.getPhase());
+        }
+    }
+}
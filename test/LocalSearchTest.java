@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link LocalSearch} after PAL: the cost it reports and the resources of the physical
+ * machines.</p>
+ */
+public class LocalSearchTest {
+
+    @Test
+    public void slotModelKeepsTheSlotsAndTheCost() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 2, 24, 100);
+        Placement placement = Placement.of(dataCenter.getVM_PM(), dataCenter.getNumVMPairs());
+        LocalSearch.Report report = search(dataCenter).improve(placement);
+        assertTrue(report.getFinalCost() <= report.getInitialCost());
+        assertEquals(cost(dataCenter, placement), placement.getCost(), 1e-6);
+        assertFits(dataCenter, placement);
+    }
+
+    @Test
+    public void resourceModelBoundsTheMoves() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 2, 24, 100);
+        // two resources with different demands, every physical machine is full with the virtual machines placed on
+        // it by the data center and has one more unit of the first resource
+        ResourceModel model = ResourceModel.random(dataCenter.numPM(), dataCenter.getNumVMPairs(),
+                new int[][]{{0, 0}}, new int[][]{{1, 2}, {2, 1}}, 7);
+        for (int pair = 0; pair < dataCenter.getNumVMPairs(); pair++) {
+            addCapacity(model, dataCenter.getVM_PM().get("VM" + pair), ResourceModel.vm(pair));
+            addCapacity(model, dataCenter.getVM_PM().get("VMP" + pair), ResourceModel.vmp(pair));
+        }
+        for (int pm = 0; pm < dataCenter.numPM(); pm++)
+            model.setCapacity(pm, model.getCapacity(pm, 0) + 1, model.getCapacity(pm, 1));
+        dataCenter.setResourceModel(model);
+        Placement placement = Placement.of(dataCenter.getVM_PM(), dataCenter.getNumVMPairs());
+        assertFits(dataCenter, placement);
+        search(dataCenter).improve(placement);
+        assertEquals(cost(dataCenter, placement), placement.getCost(), 1e-6);
+        assertFits(dataCenter, placement);
+    }
+
+    private static void addCapacity(ResourceModel model, int pm, int vm) {
+        model.setCapacity(pm, model.getCapacity(pm, 0) + model.getDemand(vm, 0),
+                model.getCapacity(pm, 1) + model.getDemand(vm, 1));
+    }
+
+    private static LocalSearch search(DataCenter dataCenter) {
+        LocalSearch search = new LocalSearch(dataCenter, null, 2, 10_000, 20_000);
+        search.setSeed(3);
+        return search;
+    }
+
+    private static double cost(DataCenter dataCenter, Placement placement) {
+        double cost = 0;
+        for (int pair = 0; pair < placement.size(); pair++)
+            cost += dataCenter.getCommunicationFre()[pair]
+                    * dataCenter.getRouteCost(pair, placement.getVM(pair), placement.getVMP(pair));
+        return cost;
+    }
+
+    private static void assertFits(DataCenter dataCenter, Placement placement) {
+        ResourceModel model = dataCenter.getResourceModel();
+        int[][] used = new int[dataCenter.numPM()][model.getDimensions()];
+        for (int pair = 0; pair < placement.size(); pair++) {
+            for (int d = 0; d < model.getDimensions(); d++) {
+                used[placement.getVM(pair)][d] += model.getDemand(ResourceModel.vm(pair), d);
+                used[placement.getVMP(pair)][d] += model.getDemand(ResourceModel.vmp(pair), d);
+            }
+        }
+        for (int pm = 0; pm < used.length; pm++)
+            for (int d = 0; d < model.getDimensions(); d++)
+                assertTrue(used[pm][d] <= model.getCapacity(pm, d), "PM" + pm + " is over its capacity");
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link MiddleboxOptimizer}: the change of cost of every move and swap is the change of the full
+ * cost of {@link MiddleboxOptimizer#cost(int[])}, and the descent ends on a placement of the middle boxes that no
+ * move and no swap improves.</p>
+ */
+public class MiddleboxOptimizerTest {
+
+    @Test
+    public void orderedDescentEndsOnALocalMinimum() {
+        checkLocalMinimum(OnlinePlacementService.Policy.ORDERED);
+    }
+
+    @Test
+    public void unorderedDescentEndsOnALocalMinimum() {
+        checkLocalMinimum(OnlinePlacementService.Policy.UNORDERED);
+    }
+
+    @Test
+    public void orderedChangeIsTheChangeOfTheFullCost() {
+        checkChanges(OnlinePlacementService.Policy.ORDERED);
+    }
+
+    @Test
+    public void unorderedChangeIsTheChangeOfTheFullCost() {
+        checkChanges(OnlinePlacementService.Policy.UNORDERED);
+    }
+
+    private static void checkChanges(OnlinePlacementService.Policy policy) {
+        DataCenter dataCenter = dataCenter();
+        MiddleboxOptimizer optimizer = new MiddleboxOptimizer(dataCenter, policy, 1);
+        int[] switches = dataCenter.mbSwitches();
+        double cost = optimizer.cost(switches);
+        int firstAggregation = dataCenter.numPM() + dataCenter.numEdgeSwitch();
+        for (int m = 0; m < switches.length; m++) {
+            for (int s = firstAggregation; s < firstAggregation + dataCenter.numEdgeSwitch(); s++) {
+                if (!isFree(switches, s)) continue;
+                int[] moved = switches.clone();
+                moved[m] = s;
+                assertEquals(optimizer.cost(moved) - cost, optimizer.change(switches, moved, m, -1), 1e-6);
+            }
+            for (int n = m + 1; n < switches.length; n++) {
+                int[] swapped = switches.clone();
+                swapped[m] = switches[n];
+                swapped[n] = switches[m];
+                assertEquals(optimizer.cost(swapped) - cost, optimizer.change(switches, swapped, m, n), 1e-6);
+            }
+        }
+    }
+
+    private static void checkLocalMinimum(OnlinePlacementService.Policy policy) {
+        DataCenter dataCenter = dataCenter();
+        MiddleboxOptimizer optimizer = new MiddleboxOptimizer(dataCenter, policy, 2);
+        optimizer.setRestarts(1);
+        int[] best = optimizer.optimize();
+        double cost = optimizer.cost(best);
+        assertTrue(cost <= optimizer.cost(dataCenter.mbSwitches()) + 1e-6);
+        int firstAggregation = dataCenter.numPM() + dataCenter.numEdgeSwitch();
+        for (int m = 0; m < best.length; m++) {
+            for (int s = firstAggregation; s < firstAggregation + dataCenter.numEdgeSwitch(); s++) {
+                int[] moved = best.clone();
+                moved[m] = s;
+                if (isFree(best, s)) assertTrue(optimizer.cost(moved) >= cost - 1e-6, "move of MB" + m);
+            }
+            for (int n = m + 1; n < best.length; n++) {
+                int[] swapped = best.clone();
+                swapped[m] = best[n];
+                swapped[n] = best[m];
+                assertTrue(optimizer.cost(swapped) >= cost - 1e-6, "swap of MB" + m + " and MB" + n);
+            }
+        }
+    }
+
+    private static DataCenter dataCenter() {
+        DataCenter dataCenter = new DataCenter(6, 2, 4, 4, 60, 100);
+        // chains of adjacent and distant middle boxes, in both orders
+        dataCenter.getChains().assignRandom(Arrays.asList(new ServiceChain(0, 1, 2, 3), new ServiceChain(3, 1),
+                new ServiceChain(2, 0, 3), new ServiceChain(1, 2)), 5);
+        return dataCenter;
+    }
+
+    private static boolean isFree(int[] switches, int s) {
+        for (int switchOf : switches) if (switchOf == s) return false;
+        return true;
+    }
+}
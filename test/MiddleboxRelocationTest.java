@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p> Tests of {@link DataCenter#relocateMiddlebox}, {@link DataCenter#addMiddlebox} and
+ * {@link DataCenter#removeMiddlebox}: after the middle boxes change, the route, the route costs of the service chains
+ * and the communication costs are the ones of a data center built from scratch with its middle boxes on the same
+ * switches, and removing a middle box then adding it back on its switch gives the data center of before.</p>
+ */
+public class MiddleboxRelocationTest {
+
+    @Test
+    public void relocatedMiddleboxesGiveTheTablesOfAFreshDataCenter() {
+        for (int k : new int[]{4, 6}) {
+            for (long seed = 0; seed < 3; seed++) {
+                DataCenter fresh = new DataCenter(k, 2, 4, 3, 20, 100, null, null, seed + 100);
+                DataCenter moved = new DataCenter(k, 2, 4, 3, 20, 100, null, null, seed);
+                relocate(moved, fresh.mbSwitches());
+                String name = "k = " + k + ", seed " + seed;
+                for (DataCenter dataCenter : new DataCenter[]{fresh, moved}) {
+                    for (int pair = 0; pair < 20; pair += 3)
+                        dataCenter.setServiceChain(pair, new ServiceChain(2, 0));
+                }
+                assertSameTables(fresh, moved, moved.getPlacement(), name);
+            }
+        }
+    }
+
+    @Test
+    public void removedMiddleboxGivesTheTablesOfAFreshDataCenter() {
+        for (int k : new int[]{4, 6}) {
+            DataCenter fresh = new DataCenter(k, 2, 4, 2, 20, 100, null, null, 7);
+            DataCenter changed = new DataCenter(k, 2, 4, 3, 20, 100, null, null, 8);
+            DataCenter reference = new DataCenter(k, 2, 4, 3, 20, 100, null, null, 8);
+            // the first two middle boxes go on the switches of the fresh data center, the last one elsewhere
+            int spare = firstFree(changed, fresh.mbSwitches());
+            int[] switches = {fresh.mbSwitches()[0], fresh.mbSwitches()[1], spare};
+            relocate(changed, switches);
+            relocate(reference, switches);
+            changed.removeMiddlebox(2);
+            assertSameTables(fresh, changed, changed.getPlacement(), "k = " + k);
+            assertEquals(2, changed.addMiddlebox(spare));
+            assertSameTables(reference, changed, changed.getPlacement(), "k = " + k + " after the add");
+        }
+    }
+
+    @Test
+    public void removeThenAddGivesTheDataCenterOfBefore() {
+        for (int k : new int[]{4, 6}) {
+            for (int mb = 0; mb < 3; mb++) {
+                DataCenter before = new DataCenter(k, 2, 4, 3, 20, 100, null, null, mb);
+                DataCenter changed = new DataCenter(k, 2, 4, 3, 20, 100, null, null, mb);
+                for (DataCenter dataCenter : new DataCenter[]{before, changed}) {
+                    for (int pair = 0; pair < 20; pair += 3)
+                        dataCenter.setServiceChain(pair, new ServiceChain((mb + 1) % 3));
+                }
+                int[] switches = changed.mbSwitches();
+                changed.removeMiddlebox(mb);
+                assertEquals(2, changed.getNumMBs());
+                assertEquals(2, changed.addMiddlebox(switches[mb]));
+                String name = "k = " + k + ", MB" + mb;
+                // the middle box comes back last in the chain of all middle boxes
+                int[] expected = new int[3];
+                for (int i = 0, j = 0; i < 3; i++) if (i != mb) expected[j++] = switches[i];
+                expected[2] = switches[mb];
+                assertArrayEquals(expected, changed.mbSwitches(), name);
+                for (int i = 0; i < before.numPM(); i++) {
+                    for (int j = 0; j < before.numPM(); j++)
+                        assertEquals(before.getRouteCost(i, j), changed.getRouteCost(i, j), 1e-9, name);
+                }
+                assertEquals(before.getCommunicationCost(OnlinePlacementService.Policy.UNORDERED),
+                        changed.getCommunicationCost(OnlinePlacementService.Policy.UNORDERED), 1e-6, name);
+                // the chain of all middle boxes keeps its order only when the last middle box comes back
+                if (mb == 2) {
+                    assertEquals(before.getCommunicationCost(OnlinePlacementService.Policy.ORDERED),
+                            changed.getCommunicationCost(OnlinePlacementService.Policy.ORDERED), 1e-6, name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the middle boxes of a data center one at a time onto the given switches, through free switches so that
+     * two middle boxes are never on the same switch
+     */
+    private static void relocate(DataCenter dataCenter, int[] switches) {
+        for (int mb = 0; mb < switches.length; mb++)
+            dataCenter.relocateMiddlebox(mb, firstFree(dataCenter, switches));
+        for (int mb = 0; mb < switches.length; mb++) dataCenter.relocateMiddlebox(mb, switches[mb]);
+        assertArrayEquals(switches, dataCenter.mbSwitches());
+    }
+
+    /**
+     * @return first aggregation switch without a middle box of the data center and not in the given switches
+     */
+    private static int firstFree(DataCenter dataCenter, int[] switches) {
+        int firstAggregation = dataCenter.numPM() + dataCenter.numEdgeSwitch();
+        for (int s = firstAggregation; ; s++) {
+            if (!contains(dataCenter.mbSwitches(), s) && !contains(switches, s)) return s;
+        }
+    }
+
+    private static boolean contains(int[] switches, int s) {
+        for (int switchOf : switches) if (switchOf == s) return true;
+        return false;
+    }
+
+    private static void assertSameTables(DataCenter expected, DataCenter actual, Placement placement, String name) {
+        assertArrayEquals(expected.mbSwitches(), actual.mbSwitches(), name);
+        for (int i = 0; i < expected.numPM(); i++) {
+            for (int j = 0; j < expected.numPM(); j++) {
+                assertEquals(expected.getRouteCost(i, j), actual.getRouteCost(i, j), 1e-9, name);
+                for (int pair = 0; pair < 2; pair++) {
+                    assertEquals(expected.getRouteCost(pair, i, j), actual.getRouteCost(pair, i, j), 1e-9, name);
+                    assertEquals(expected.getOrderedRouteCost(pair, i, j), actual.getOrderedRouteCost(pair, i, j),
+                            1e-9, name);
+                }
+            }
+        }
+        // the two data centers may have different workloads, the costs are taken with the same frequencies
+        int[] fre = actual.getCommunicationFre();
+        assertEquals(expected.getCostEvaluator().ordered(placement.vmHosts(), placement.vmpHosts(), fre),
+                actual.getCostEvaluator().ordered(placement.vmHosts(), placement.vmpHosts(), fre), 1e-6, name);
+        assertEquals(expected.getCostEvaluator().unordered(placement.vmHosts(), placement.vmpHosts(), fre),
+                actual.getCostEvaluator().unordered(placement.vmHosts(), placement.vmpHosts(), fre), 1e-6, name);
+    }
+}
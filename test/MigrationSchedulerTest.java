@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p> Tests of the {@link MigrationScheduler} on a fat tree with k = 4 and one copy per link.</p>
+ */
+public class MigrationSchedulerTest {
+    // 10 Gbit/s links, a copy takes the whole link for 1.25 GB * 8 / 10 Gbit/s = 1 s
+    private final MigrationScheduler scheduler = new MigrationScheduler(4, 10, 10, 1.25);
+
+    @Test
+    public void copiesOnTheSameLinkWaitForEachOther() {
+        Placement before = placement(new int[]{0, 0}, new int[]{8, 9});
+        Placement after = placement(new int[]{1, 1}, new int[]{8, 9});
+        assertEquals(2, scheduler.schedule(before, after), 1e-9);
+        assertEquals(2, scheduler.numMigrations());
+        assertEquals(1, Math.abs(scheduler.getStart(0) - scheduler.getStart(1)), 1e-9);
+    }
+
+    @Test
+    public void copiesOnDisjointLinksRunTogether() {
+        Placement before = placement(new int[]{0, 2}, new int[]{8, 9});
+        Placement after = placement(new int[]{1, 3}, new int[]{8, 9});
+        assertEquals(1, scheduler.schedule(before, after), 1e-9);
+        assertEquals(0, scheduler.getStart(0), 0);
+        assertEquals(0, scheduler.getStart(1), 0);
+    }
+
+    @Test
+    public void noMoveNoMigration() {
+        Placement before = placement(new int[]{0, 2}, new int[]{8, 9});
+        assertEquals(0, scheduler.schedule(before, before.copy()), 0);
+        assertEquals(0, scheduler.numMigrations());
+    }
+
+    private static Placement placement(int[] vm, int[] vmp) {
+        Placement placement = new Placement(vm.length);
+        for (int pair = 0; pair < vm.length; pair++) placement.place(pair, vm[pair], vmp[pair]);
+        return placement;
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link OnlinePlacementService} and of its {@link OnlineLoadGenerator}.</p>
+ */
+public class OnlinePlacementServiceTest {
+
+    @Test
+    public void admitTakesTwoSlotsAndReleaseGivesThemBack() {
+        DataCenter dataCenter = new DataCenter(4, 2, 2, 2, 1, 100, true);
+        for (OnlinePlacementService.Policy policy : OnlinePlacementService.Policy.values()) {
+            OnlinePlacementService service = new OnlinePlacementService(dataCenter, policy);
+            int free = service.freeSlots();
+            OnlinePlacementService.Admission admission = service.admit(10);
+            assertNotNull(admission);
+            assertEquals(free - 2, service.freeSlots());
+            assertEquals(1, service.getActivePairs());
+            assertEquals(admission.getCost(), service.getActiveCost(), 1e-9);
+            service.release(admission);
+            assertEquals(free, service.freeSlots());
+            assertEquals(0, service.getActivePairs());
+        }
+    }
+
+    @Test
+    public void fullDataCenterRefusesThePair() {
+        DataCenter dataCenter = new DataCenter(4, 2, 2, 2, 1, 100, true);
+        OnlinePlacementService service = new OnlinePlacementService(dataCenter,
+                OnlinePlacementService.Policy.UNORDERED);
+        int pairs = service.freeSlots() / 2;
+        for (int i = 0; i < pairs; i++) assertNotNull(service.admit(1));
+        assertEquals(0, service.freeSlots());
+        assertNull(service.admit(1));
+    }
+
+    @Test
+    public void concurrentRequestsKeepTheSlotsConsistent() throws InterruptedException {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 2, 1, 100, true);
+        OnlinePlacementService service = new OnlinePlacementService(dataCenter,
+                OnlinePlacementService.Policy.ORDERED);
+        int free = service.freeSlots();
+        long[] latency = new OnlineLoadGenerator(service, 100).run(2000, 4, 10);
+        assertEquals(2000, latency.length);
+        for (long l : latency) assertTrue(l >= 0);
+        assertEquals(free - 2 * service.getActivePairs(), service.freeSlots());
+        assertTrue(service.getActivePairs() <= 10 + 4);
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link PAL}: the traffic aware placement in ordered policy fills the physical machines closest to
+ * the first middle box, also when the last machine is only partly filled, and the un-ordered placements place a pair
+ * that does not fit on the rest of the sorted pairs of physical machines.</p>
+ */
+public class PALTest {
+
+    @Test
+    public void trafficAwareOrderedPlacesAnyNumberOfPairs() {
+        for (int numVMPairs = 1; numVMPairs <= 7; numVMPairs++) {
+            DataCenter dataCenter = new DataCenter(4, 4, 4, 3, numVMPairs, 100);
+            Placement placement = new PAL(dataCenter).placeTrafficAwareOrdered();
+            List<Integer> closest = dataCenter.listClosestPMtoMB(0);
+            int[] load = new int[dataCenter.numPM()];
+            for (int pair = 0; pair < numVMPairs; pair++) {
+                assertEquals(placement.getVM(pair), placement.getVMP(pair), "pair " + pair);
+                load[placement.getVM(pair)] += 2;
+            }
+            // two pairs per machine of 4 resources, in the order of the distance to the first middle box
+            for (int p = 0; p < closest.size(); p++)
+                assertEquals(Math.max(0, Math.min(4, 2 * numVMPairs - 4 * p)), load[closest.get(p)], "PM " + p);
+            assertEquals(dataCenter.getCommunicationCost(placement, OnlinePlacementService.Policy.ORDERED),
+                    placement.getCost(), 1e-6);
+        }
+    }
+
+    @Test
+    public void unorderedPlacementsPlaceAPairThatDoesNotFitOnTheRestOfTheSortedList() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 2, 100);
+        // c and d: the cheapest route between two machines, a and b: a more expensive route
+        int c = 0, d = 1;
+        for (int i = 0; i < dataCenter.numPM(); i++) {
+            for (int j = 0; j < dataCenter.numPM(); j++) {
+                if (i != j && dataCenter.getRouteCost(i, j) < dataCenter.getRouteCost(c, d)) {
+                    c = i;
+                    d = j;
+                }
+            }
+        }
+        double cheapest = Math.max(dataCenter.getRouteCost(c, d), dataCenter.getRouteCost(d, c));
+        int a = -1, b = -1;
+        for (int i = 0; i < dataCenter.numPM() && a < 0; i++) {
+            for (int j = 0; j < dataCenter.numPM() && a < 0; j++) {
+                if (i != j && i != c && i != d && j != c && j != d && dataCenter.getRouteCost(i, j) > cheapest
+                        && dataCenter.getRouteCost(j, i) > cheapest) {
+                    a = i;
+                    b = j;
+                }
+            }
+        }
+        // pair 0 only fits on a and b, after c and d in the sorted list; pair 1 then only fits on c and d
+        ResourceModel model = new ResourceModel(dataCenter.numPM(), 2, 1);
+        model.setCapacity(a, 2);
+        model.setCapacity(b, 2);
+        model.setCapacity(c, 1);
+        model.setCapacity(d, 1);
+        model.setDemand(ResourceModel.vm(0), 2);
+        model.setDemand(ResourceModel.vmp(0), 2);
+        model.setDemand(ResourceModel.vm(1), 1);
+        model.setDemand(ResourceModel.vmp(1), 1);
+        dataCenter.setResourceModel(model);
+        PAL pal = new PAL(dataCenter);
+        for (Placement placement : new Placement[]{pal.placeUnordered(), pal.placeTrafficAwareUnordered()}) {
+            assertTrue(placement.isPlaced(0));
+            assertTrue(placement.isPlaced(1));
+            assertEquals(a + b, placement.getVM(0) + placement.getVMP(0));
+            assertEquals(c + d, placement.getVM(1) + placement.getVMP(1));
+            assertEquals(dataCenter.getCommunicationCost(placement, OnlinePlacementService.Policy.UNORDERED),
+                    placement.getCost(), 1e-6);
+        }
+    }
+}
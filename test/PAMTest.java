@@ -0,0 +1,23 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p> Tests of the {@link PAM}: PLAN charges the pairs it did not process before its deadline the same walk through
+ * the middle boxes as the pairs it processed.</p>
+ */
+public class PAMTest {
+
+    @Test
+    public void expiredPlanCostsTheFullPlan() {
+        for (int k : new int[]{4, 6, 8}) {
+            DataCenter dataCenter = new DataCenter(k, 2, 4, 3, k * k * k / 4 + 1, 100);
+            for (int pair = 0; pair < dataCenter.getNumVMPairs(); pair += 3)
+                dataCenter.setServiceChain(pair, new ServiceChain(0, 2));
+            double full = new PAM(dataCenter).costPLAN();
+            Placement expired = new PAM(dataCenter).evaluatePLAN(Deadline.at(System.nanoTime()));
+            assertEquals(0, expired.getCompleted(), "k = " + k);
+            assertEquals(full, expired.getCost(), 1e-9 * full, "k = " + k);
+        }
+    }
+}
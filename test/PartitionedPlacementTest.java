@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link PartitionedPlacement}: every pair is placed, no physical machine gets more virtual machines
+ * than it has slots after the repair, the result does not depend on the run for a given number of threads, and the
+ * cost is within 1% of the cost of {@link HierarchicalPlacement}.</p>
+ */
+public class PartitionedPlacementTest {
+    private static final double BOUND = 1.01;
+
+    @Test
+    public void placementPlacesEveryPairWithinTheSlots() {
+        for (int k : new int[]{4, 6, 8}) {
+            for (int numVMPairs : new int[]{k * k * k / 8, k * k * k / 4 + 3, k * k * k / 2 - 1}) {
+                DataCenter dataCenter = new DataCenter(k, 2, 4, 3, numVMPairs, 100, null, null, numVMPairs);
+                for (boolean sameMachineFirst : new boolean[]{false, true}) {
+                    String name = "k = " + k + ", " + numVMPairs + " pairs"
+                            + (sameMachineFirst ? ", same machine first" : "");
+                    Placement placement = PartitionedPlacement.placeUnordered(dataCenter, sameMachineFirst, 4);
+                    int[] load = load(dataCenter, placement, name);
+                    for (int pm = 0; pm < dataCenter.numPM(); pm++)
+                        assertTrue(load[pm] <= dataCenter.getResources(), name + ": PM" + pm);
+                    assertEquals(dataCenter.getCommunicationCost(placement, OnlinePlacementService.Policy.UNORDERED),
+                            placement.getCost(), 1e-9 * placement.getCost(), name);
+                    Placement again = PartitionedPlacement.placeUnordered(dataCenter, sameMachineFirst, 4);
+                    assertArrayEquals(placement.vmHosts(), again.vmHosts(), name);
+                    assertArrayEquals(placement.vmpHosts(), again.vmpHosts(), name);
+                    double hierarchical = HierarchicalPlacement.placeUnordered(dataCenter, sameMachineFirst).getCost();
+                    assertTrue(placement.getCost() <= BOUND * hierarchical, name + ": " + placement.getCost()
+                            + " against " + hierarchical);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void migrationKeepsEveryPairWithinTheSlotsAfterTheRepair() {
+        for (int k : new int[]{4, 6, 8}) {
+            for (int numVMPairs : new int[]{k * k * k / 8, k * k * k / 4 + 3, k * k * k / 2 - 1}) {
+                DataCenter dataCenter = new DataCenter(k, 2, 4, 3, numVMPairs, 100, null, null, numVMPairs);
+                Placement before = dataCenter.getPlacement();
+                String name = "k = " + k + ", " + numVMPairs + " pairs";
+                Placement withoutRepair = PartitionedPlacement.migrateUnordered(dataCenter, 4, 0);
+                Placement migrated = PartitionedPlacement.migrateUnordered(dataCenter, 4, numVMPairs);
+                assertTrue(migrated.getCost() <= withoutRepair.getCost() + 1e-6, name);
+                // every physical machine accepts as many virtual machines as it hosts before the migration
+                int[] load = load(dataCenter, migrated, name);
+                for (int pm = 0; pm < dataCenter.numPM(); pm++)
+                    assertTrue(load[pm] <= dataCenter.getCapacity()[pm], name + ": PM" + pm);
+                double cost = 0;
+                for (int pair = 0; pair < numVMPairs; pair++) {
+                    cost += dataCenter.getCommunicationFre()[pair] * dataCenter.getRouteCost(pair,
+                            migrated.getVM(pair), migrated.getVMP(pair)) + dataCenter.getMigrationCoef()
+                            * (dataCenter.getDistance(before.getVM(pair), migrated.getVM(pair))
+                            + dataCenter.getDistance(before.getVMP(pair), migrated.getVMP(pair)));
+                }
+                assertEquals(cost, migrated.getCost(), 1e-9 * cost, name);
+                Placement again = PartitionedPlacement.migrateUnordered(dataCenter, 4, numVMPairs);
+                assertArrayEquals(migrated.vmHosts(), again.vmHosts(), name);
+                assertArrayEquals(migrated.vmpHosts(), again.vmpHosts(), name);
+                double hierarchical = HierarchicalPlacement.migrateUnordered(dataCenter).getCost();
+                assertTrue(migrated.getCost() <= BOUND * hierarchical, name + ": " + migrated.getCost()
+                        + " against " + hierarchical);
+            }
+        }
+    }
+
+    /**
+     * Check that every pair is placed and count the virtual machines of every physical machine
+     */
+    private static int[] load(DataCenter dataCenter, Placement placement, String name) {
+        int[] load = new int[dataCenter.numPM()];
+        for (int pair = 0; pair < dataCenter.getNumVMPairs(); pair++) {
+            assertTrue(placement.isPlaced(pair), name + ": pair " + pair);
+            load[placement.getVM(pair)]++;
+            load[placement.getVMP(pair)]++;
+        }
+        return load;
+    }
+}
@@ -0,0 +1,62 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of {@link Phase}: a run of an algorithm records the time of its phase in the timer of {@link Metrics}
+ * and commits a {@link PhaseEvent} with the name, the size of the data center and the duration of the phase.</p>
+ */
+public class PhaseTest {
+
+    @Test
+    public void algorithmRecordsItsPhaseInTheMetrics() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 10, 100);
+        Metrics.Timer timer = Metrics.timer("phase.costPLAN");
+        long count = timer.getCount(), total = timer.getTotalNanos();
+        long start = System.nanoTime();
+        new PAM(dataCenter).costPLAN();
+        long elapsed = System.nanoTime() - start;
+        assertEquals(count + 1, timer.getCount());
+        assertTrue(timer.getTotalNanos() > total);
+        assertTrue(timer.getTotalNanos() - total <= elapsed);
+        assertTrue(timer.getMaxNanos() >= timer.getTotalNanos() - total);
+    }
+
+    @Test
+    public void algorithmCommitsItsPhaseEvent() throws IOException {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 10, 100);
+        Path file = Files.createTempFile("phase", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("pampal.Phase").withThreshold(Duration.ZERO);
+            recording.start();
+            new PAM(dataCenter).costPLAN();
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if ("costPLAN".equals(event.getString("phase"))) events.add(event);
+            }
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals(4, event.getInt("k"));
+            assertEquals(10, event.getInt("numVMPairs"));
+            assertEquals(3, event.getInt("numMBs"));
+            assertFalse(event.getDuration().isNegative());
+            assertTrue(event.getDuration().toNanos() > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the choice of {@link Representation}: each representation is chosen up to the exact limit of its
+ * memory and build time and not one byte or millisecond beyond, and {@link DataCenter#create} counts its choice
+ * without printing it.</p>
+ */
+public class RepresentationTest {
+    private static final int K = 8, NUM_MBS = 3, NUM_VM_PAIRS = 10;
+
+    private static Representation choose(Representation.Budget budget) {
+        return Representation.choose(K, NUM_MBS, NUM_VM_PAIRS, budget);
+    }
+
+    @Test
+    public void heapLimitOfTheDenseTables() {
+        long dense = Representation.DENSE.heapBytes(K, NUM_VM_PAIRS);
+        Representation.Budget budget = Representation.Budget.of(dense).withMaxBuildMillis(Long.MAX_VALUE);
+        assertEquals(dense, budget.getHeapBytes());
+        assertEquals(Representation.DENSE, choose(budget));
+        assertEquals(Representation.OFF_HEAP,
+                choose(Representation.Budget.of(dense - 1).withMaxBuildMillis(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void directMemoryAndDiskLimitsOfTheTablesOutsideTheHeap() {
+        long outside = Representation.OFF_HEAP.outsideHeapBytes(K);
+        assertTrue(Representation.OFF_HEAP.heapBytes(K, NUM_VM_PAIRS) < outside);
+        assertTrue(outside < Representation.DENSE.heapBytes(K, NUM_VM_PAIRS));
+        Representation.Budget budget = Representation.Budget.of(outside).withMaxBuildMillis(Long.MAX_VALUE);
+        assertEquals(Representation.OFF_HEAP, choose(budget.withDirectory(null)));
+        Representation.Budget limited = Representation.Budget.of(outside - 1).withMaxBuildMillis(Long.MAX_VALUE);
+        assertEquals(Representation.LARGE_SCALE, choose(limited.withDirectory(null)));
+        Representation.Budget mapped = limited.withDirectory(Paths.get(System.getProperty("java.io.tmpdir")));
+        assertTrue(mapped.getDiskBytes() >= outside);
+        assertEquals(Representation.MAPPED, choose(mapped));
+    }
+
+    @Test
+    public void buildTimeLimitOfTheTables() {
+        long dense = Representation.DENSE.buildMillis(K, NUM_MBS, NUM_VM_PAIRS);
+        assertTrue(dense > 0);
+        assertTrue(Representation.OFF_HEAP.buildMillis(K, NUM_MBS, NUM_VM_PAIRS) > dense);
+        Representation.Budget budget = Representation.Budget.of(Long.MAX_VALUE);
+        assertEquals(Representation.DENSE, choose(budget.withMaxBuildMillis(dense)));
+        assertEquals(Representation.LARGE_SCALE, choose(budget.withMaxBuildMillis(dense - 1)));
+    }
+
+    @Test
+    public void createCountsItsChoiceWithoutPrinting() {
+        Representation.Budget budget = Representation.Budget.of(Long.MAX_VALUE).withMaxBuildMillis(Long.MAX_VALUE);
+        long before = Metrics.counter("representation.DENSE").sum();
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try {
+            DataCenter.create(4, 2, 4, 3, 10, 100, budget);
+        } finally {
+            System.setOut(out);
+        }
+        assertEquals("", printed.toString());
+        assertEquals(before + 1, Metrics.counter("representation.DENSE").sum());
+        String description = Representation.describe(K, NUM_MBS, NUM_VM_PAIRS, budget);
+        for (Representation representation : Representation.values())
+            assertTrue(description.contains(representation.name()), representation.name());
+    }
+}
@@ -0,0 +1,38 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link ResourceModel} and of the algorithms that only count slots.</p>
+ */
+public class ResourceModelTest {
+
+    @Test
+    public void slotModelIsRecognized() {
+        assertTrue(ResourceModel.slots(16, 10, 4).isSlotModel(4));
+        assertFalse(ResourceModel.slots(16, 10, 4).isSlotModel(5));
+        ResourceModel model = ResourceModel.slots(16, 10, 4);
+        model.setDemand(ResourceModel.vmp(3), 2);
+        assertFalse(model.isSlotModel(4));
+        assertFalse(new ResourceModel(16, 10, 2).isSlotModel(4));
+    }
+
+    @Test
+    public void slotAlgorithmsRejectAResourceModel() {
+        DataCenter dataCenter = new DataCenter(4, 2, 4, 2, 10, 100);
+        dataCenter.setResourceModel(ResourceModel.slots(dataCenter.numPM(), dataCenter.getNumVMPairs(), 4));
+        assertEquals(10, HierarchicalPlacement.placeUnordered(dataCenter, false).size());
+        dataCenter.setResourceModel(ResourceModel.random(dataCenter.numPM(), dataCenter.getNumVMPairs(),
+                new int[][]{{8, 16}}, new int[][]{{1, 2}, {2, 4}}, 1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> HierarchicalPlacement.placeUnordered(dataCenter, false));
+        assertThrows(UnsupportedOperationException.class, () -> HierarchicalPlacement.migrateUnordered(dataCenter));
+        assertThrows(UnsupportedOperationException.class,
+                () -> PartitionedPlacement.placeUnordered(dataCenter, false, 2));
+        assertThrows(UnsupportedOperationException.class,
+                () -> PartitionedPlacement.migrateUnordered(dataCenter, 2, 10));
+    }
+}
@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p> Tests of the output rows of {@link SweepRunner} and of the spec files of {@link SweepSpec}.</p>
+ */
+public class SweepRunnerTest {
+
+    @Test
+    public void nonFiniteValuesAreWrittenAsNull() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("pamUnordered", 12.5);
+        values.put("plan", Double.POSITIVE_INFINITY);
+        values.put("palOrdered", Double.NaN);
+        assertEquals("{\"pamUnordered\":12.5,\"plan\":null,\"palOrdered\":null}", SweepRunner.jsonObject(values));
+    }
+
+    @Test
+    public void specFileGivesTheGridOfRuns() throws IOException {
+        Path file = Files.createTempFile("sweep", ".properties");
+        try {
+            Files.write(file, Arrays.asList("pods=4,6", "numVMPairs=50", "trials=2", "algorithms=pamUnordered"),
+                    StandardCharsets.UTF_8);
+            SweepSpec spec = SweepSpec.fromFile(file.toString());
+            List<RunConfig> configs = spec.expand();
+            assertEquals(4, configs.size());
+            assertEquals(Arrays.asList("pamUnordered"), spec.getAlgorithms());
+            assertEquals(6, configs.get(0).getNumPods());      // largest first
+            assertEquals(4, configs.get(configs.size() - 1).getNumPods());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link TableArena} and its {@link OffHeapPathTable}s: a data center built in direct memory or in
+ * mapped files has the distances and the route costs of the same data center built in the heap, and its tables fail
+ * with IllegalStateException once the arena is closed.</p>
+ */
+public class TableArenaTest {
+
+    @Test
+    public void arenaTablesAreTheDenseTables() {
+        for (int k : new int[]{4, 6}) {
+            DataCenter dense = new DataCenter(k, 2, 4, 3, 10, 100, null, null, k);
+            for (boolean mapped : new boolean[]{false, true}) {
+                String name = "k = " + k + (mapped ? ", mapped" : ", direct memory");
+                try (TableArena arena = mapped ? new TableArena(Paths.get(System.getProperty("java.io.tmpdir")))
+                        : new TableArena()) {
+                    DataCenter offHeap = new DataCenter(k, 2, 4, 3, 10, 100, arena, null, k);
+                    assertTrue(offHeap.getDistanceTable() instanceof OffHeapPathTable, name);
+                    assertTrue(offHeap.getShortestPathRouteTable() instanceof OffHeapPathTable, name);
+                    assertEquals(mapped, arena.isFileBacked(), name);
+                    assertEquals(dense.getmBs_Switch(), offHeap.getmBs_Switch(), name);
+                    int numNodes = dense.getDistanceTable().size();
+                    assertEquals(numNodes, offHeap.getDistanceTable().size(), name);
+                    for (int i = 0; i < numNodes; i++) {
+                        for (int j = 0; j < numNodes; j++)
+                            assertEquals(dense.getDistance(i, j), offHeap.getDistance(i, j), 0, name);
+                    }
+                    for (int i = 0; i < dense.numPM(); i++) {
+                        for (int j = 0; j < dense.numPM(); j++)
+                            assertEquals(dense.getRouteCost(i, j), offHeap.getRouteCost(i, j), 0, name);
+                    }
+                    OffHeapPathTable copy = arena.copyOf(dense.getDistanceTable());
+                    for (int i = 0; i < numNodes; i++) {
+                        for (int j = 0; j < numNodes; j++)
+                            assertEquals(dense.getDistance(i, j), copy.get(i, j), 0, name);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tablesFailOnceTheArenaIsClosed() {
+        for (boolean mapped : new boolean[]{false, true}) {
+            TableArena arena = mapped ? new TableArena(Paths.get(System.getProperty("java.io.tmpdir")))
+                    : new TableArena();
+            DataCenter dataCenter = new DataCenter(4, 2, 4, 3, 10, 100, arena, null, 0);
+            OffHeapPathTable distances = (OffHeapPathTable) dataCenter.getDistanceTable();
+            assertTrue(distances.isOpen());
+            assertTrue(arena.bytes() > 0);
+            arena.close();
+            arena.close();      // closing again does nothing
+            assertFalse(distances.isOpen());
+            assertEquals(0, arena.bytes());
+            assertThrows(IllegalStateException.class, () -> dataCenter.getDistance(0, 1));
+            assertThrows(IllegalStateException.class, () -> dataCenter.getRouteCost(0, 1));
+            assertThrows(IllegalStateException.class, () -> distances.set(0, 1, 2));
+            assertThrows(IllegalStateException.class, () -> arena.allocate(4));
+        }
+    }
+}
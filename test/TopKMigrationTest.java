@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link TopKMigration}: with every class of the route the approximation gives the cost of the
+ * exhaustive PAM migration, with fewer classes it gives a complete placement, and the data center is not
+ * changed.</p>
+ */
+public class TopKMigrationTest {
+
+    @Test
+    public void allClassesGiveTheExhaustiveCost() {
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 24, 100).snapshot();
+        double exhaustive = new PAM(dataCenter).migrateUnordered().getCost();
+        assertEquals(exhaustive, TopKMigration.migrateUnordered(dataCenter, 16, 0, 1).getCost(), 1e-6);
+        assertEquals(exhaustive, TopKMigration.migrateUnordered(dataCenter, 16, 4, 1).getCost(), 1e-6);
+    }
+
+    @Test
+    public void fewClassesPlaceEveryPair() {
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 24, 100);
+        Placement before = dataCenter.getPlacement().copy();
+        Placement placement = TopKMigration.migrateUnordered(dataCenter, 1, 2, 1);
+        assertEquals(24, placement.size());
+        int[] load = new int[dataCenter.numPM()];
+        for (int pair = 0; pair < placement.size(); pair++) {
+            load[placement.getVM(pair)]++;
+            load[placement.getVMP(pair)]++;
+        }
+        for (int pm = 0; pm < load.length; pm++) assertTrue(load[pm] <= 4, "PM" + pm + " holds " + load[pm]);
+        assertTrue(placement.getCost() > 0);
+        for (int pair = 0; pair < before.size(); pair++) {
+            assertEquals(before.getVM(pair), dataCenter.getPlacement().getVM(pair));
+            assertEquals(before.getVMP(pair), dataCenter.getPlacement().getVMP(pair));
+        }
+        assertThrows(IllegalArgumentException.class, () -> TopKMigration.migrateUnordered(dataCenter, 0, 2, 1));
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link TrialRunner}: the summaries on one topology do not depend on the number of threads, and a
+ * failed algorithm is returned with the seed of its trial instead of stopping the other algorithms.</p>
+ */
+public class TrialRunnerTest {
+    private static final RunConfig CONFIG = new RunConfig(4, 4, 4, 3, 16, 100, 0);
+
+    @Test
+    public void summariesDoNotDependOnTheThreads() throws InterruptedException {
+        List<String> algorithms = Arrays.asList("initial", "palUnordered");
+        Topology topology = CONFIG.buildDataCenter().getTopology();
+        Map<String, TrialRunner.Summary> one = new TrialRunner(CONFIG, algorithms, 1).run(topology, 5, 7);
+        Map<String, TrialRunner.Summary> three = new TrialRunner(CONFIG, algorithms, 3).run(topology, 5, 7);
+        for (String algorithm : algorithms) {
+            assertEquals(5, one.get(algorithm).getCount());
+            assertEquals(0, one.get(algorithm).getFailures());
+            assertEquals(one.get(algorithm).getMean(), three.get(algorithm).getMean(), 1e-9);
+            assertEquals(one.get(algorithm).getStandardDeviation(), three.get(algorithm).getStandardDeviation(),
+                    1e-9);
+        }
+    }
+
+    @Test
+    public void failuresAreReturnedWithTheirSeed() throws InterruptedException {
+        Map<String, TrialRunner.Summary> summaries = new TrialRunner(CONFIG, Arrays.asList("noSuchAlgorithm",
+                "initial"), 2).run(3, 10);
+        TrialRunner.Summary failed = summaries.get("noSuchAlgorithm");
+        assertEquals(0, failed.getCount());
+        assertEquals(3, failed.getFailures());
+        for (int t = 0; t < 3; t++) {
+            String message = failed.getFailureMessages().get(t);
+            assertTrue(message.startsWith("seed " + (10 + t) + ": "), message);
+            assertTrue(message.contains("noSuchAlgorithm"), message);
+        }
+        assertEquals(3, summaries.get("initial").getCount());
+        assertTrue(summaries.get("initial").getFailureMessages().isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p> Tests of the {@link WhatIfPlacement}: the cost of a delta is the sum over all the pairs of its placement, and
+ * its feasibility is the check of every resource of the model on the machines it changes, also after a rebase.</p>
+ */
+public class WhatIfPlacementTest {
+
+    @Test
+    public void costOfADeltaIsTheSumOverAllPairs() {
+        DataCenter dataCenter = new DataCenter(4, 4, 4, 3, 20, 100);
+        WhatIfPlacement baseline = new WhatIfPlacement(dataCenter);
+        double before = baseline.getCost(OnlinePlacementService.Policy.UNORDERED);
+        Random random = new Random(2);
+        for (int query = 0; query < 20; query++) {
+            WhatIfPlacement.Delta delta = baseline.delta();
+            for (int m = 0; m < 5; m++)
+                delta.move(random.nextInt(20), random.nextInt(dataCenter.numPM()), random.nextInt(dataCenter.numPM()));
+            for (OnlinePlacementService.Policy policy : OnlinePlacementService.Policy.values()) {
+                assertEquals(fullCost(baseline.getDataCenter(), delta.toPlacement(policy), policy),
+                        delta.getCost(policy), 1e-6);
+                assertEquals(delta.getCost(policy), baseline.rebase(delta).getCost(policy), 1e-6);
+            }
+        }
+        assertEquals(before, baseline.getCost(OnlinePlacementService.Policy.UNORDERED), 1e-9);
+    }
+
+    @Test
+    public void feasibilityChecksEveryResourceOfTheModel() {
+        DataCenter dataCenter = new DataCenter(4, 4, 3, 3, 16, 100);
+        dataCenter.setResourceModel(ResourceModel.random(dataCenter.numPM(), dataCenter.getNumVMPairs(),
+                new int[][]{{5, 10}, {8, 16}}, new int[][]{{1, 2}, {2, 4}}, 1));
+        WhatIfPlacement baseline = new WhatIfPlacement(dataCenter);
+        ResourceModel model = baseline.getDataCenter().getResourceModel();
+        Random random = new Random(5);
+        int feasible = 0, infeasible = 0, slotsOnly = 0;
+        for (int query = 0; query < 500; query++) {
+            WhatIfPlacement current = query % 2 == 0 ? baseline : rebased(baseline, random);
+            WhatIfPlacement.Delta delta = current.delta();
+            for (int m = 1 + random.nextInt(3); m > 0; m--)
+                delta.move(random.nextInt(16), random.nextInt(dataCenter.numPM()), random.nextInt(dataCenter.numPM()));
+            Placement before = current.delta().toPlacement(OnlinePlacementService.Policy.UNORDERED);
+            Placement after = delta.toPlacement(OnlinePlacementService.Policy.UNORDERED);
+            boolean expected = fits(model, before, after, model.getDimensions());
+            assertEquals(expected, delta.isFeasible(), "query " + query);
+            if (expected) feasible++;
+            else infeasible++;
+            // one slot per virtual machine, 3 slots per machine: the check of the large-scale algorithms
+            if (!expected && fits(ResourceModel.slots(dataCenter.numPM(), 16, 3), before, after, 1)) slotsOnly++;
+        }
+        assertTrue(feasible > 0 && infeasible > 0, feasible + " feasible, " + infeasible + " infeasible");
+        assertTrue(slotsOnly > 0, "no delta that only the slots accept");
+    }
+
+    /**
+     * Baseline after a random delta of one pair
+     */
+    private static WhatIfPlacement rebased(WhatIfPlacement baseline, Random random) {
+        int numPM = baseline.getDataCenter().numPM();
+        return baseline.rebase(baseline.delta().move(random.nextInt(16), random.nextInt(numPM),
+                random.nextInt(numPM)));
+    }
+
+    /**
+     * @return true if every machine whose virtual machines changed has room for them in every resource
+     */
+    private static boolean fits(ResourceModel model, Placement before, Placement after, int dimensions) {
+        Set<Integer> touched = new HashSet<>();
+        for (int pair = 0; pair < after.size(); pair++) {
+            if (before.getVM(pair) != after.getVM(pair) || before.getVMP(pair) != after.getVMP(pair)) {
+                touched.add(before.getVM(pair));
+                touched.add(before.getVMP(pair));
+                touched.add(after.getVM(pair));
+                touched.add(after.getVMP(pair));
+            }
+        }
+        int[][] used = new int[model.numPM()][dimensions];
+        for (int pair = 0; pair < after.size(); pair++) {
+            for (int d = 0; d < dimensions; d++) {
+                used[after.getVM(pair)][d] += model.getDemand(ResourceModel.vm(pair), d);
+                used[after.getVMP(pair)][d] += model.getDemand(ResourceModel.vmp(pair), d);
+            }
+        }
+        for (int pm : touched)
+            for (int d = 0; d < dimensions; d++) if (used[pm][d] > model.getCapacity(pm, d)) return false;
+        return true;
+    }
+
+    private static double fullCost(DataCenter dataCenter, Placement placement, OnlinePlacementService.Policy policy) {
+        double cost = 0;
+        for (int pair = 0; pair < placement.size(); pair++) {
+            cost += dataCenter.getCommunicationFre()[pair] * (policy == OnlinePlacementService.Policy.ORDERED
+                    ? dataCenter.getOrderedRouteCost(pair, placement.getVM(pair), placement.getVMP(pair))
+                    : dataCenter.getRouteCost(pair, placement.getVM(pair), placement.getVMP(pair)));
+        }
+        return cost;
+    }
+}